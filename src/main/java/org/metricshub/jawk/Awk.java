@@ -41,6 +41,8 @@
 import java.util.Map;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.metricshub.jawk.backend.AVM;
+import org.metricshub.jawk.backend.CompiledScript;
+import org.metricshub.jawk.backend.PrecompiledScript;
 import org.metricshub.jawk.ext.ExtensionFunction;
 import org.metricshub.jawk.ext.ExtensionRegistry;
 import org.metricshub.jawk.ext.JawkExtension;
@@ -311,6 +313,36 @@ public void invoke(AwkTuples tuples, AwkSettings settings)
 		}
 	}
 
+	/**
+	 * Executes the specified {@link PrecompiledScript} using the provided
+	 * {@link AwkSettings}.
+	 *
+	 * @param script script compiled ahead of time
+	 * @param settings runtime settings
+	 * @throws IOException upon an IO error
+	 * @throws ExitException if execution is requested, and a specific exit
+	 *         code is requested
+	 */
+	public void invoke(PrecompiledScript script, AwkSettings settings)
+			throws IOException,
+			ExitException {
+		Class<? extends CompiledScript> scriptClass = script.getScriptClass();
+		if (scriptClass == null) {
+			invoke(script.getTuples(), settings);
+			return;
+		}
+
+		AVM avm = null;
+		try {
+			avm = createAvm(settings);
+			avm.interpret(scriptClass);
+		} finally {
+			if (avm != null) {
+				avm.waitForIO();
+			}
+		}
+	}
+
 	/**
 	 * Executes the specified AWK script against the given input and returns the
 	 * printed output as a {@link String}.
@@ -766,6 +798,8 @@ public AwkTuples compile(List<ScriptSource> scripts, boolean disableOptimizePara
 				}
 				// Record global variable offset mappings for the interpreter
 				parser.populateGlobalVariableNameToOffsetMappings(tuples);
+				// Resolve the runtime lookups now that offsets are known
+				tuples.link();
 			}
 		}
 
@@ -822,6 +856,7 @@ public AwkTuples compileForEval(String expression, boolean disableOptimizeParam)
 			// record global_var -> offset mapping into the tuples
 			// so that the interpreter can assign variables
 			parser.populateGlobalVariableNameToOffsetMappings(tuples);
+			tuples.link();
 		}
 
 		return tuples;
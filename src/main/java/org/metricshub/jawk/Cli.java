@@ -32,6 +32,7 @@
 import java.io.ObjectOutputStream;
 import java.io.PrintStream;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -39,6 +40,7 @@
 import java.util.Map.Entry;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import org.metricshub.jawk.backend.PrecompiledScript;
 import org.metricshub.jawk.ext.ExtensionRegistry;
 import org.metricshub.jawk.ext.JawkExtension;
 import org.metricshub.jawk.frontend.AstNode;
@@ -71,6 +73,7 @@ public final class Cli {
 
 	private final List<ScriptSource> scriptSources = new ArrayList<ScriptSource>();
 	private AwkTuples precompiledTuples;
+	private PrecompiledScript precompiledScript;
 	private final List<String> extensionSpecs = new ArrayList<String>();
 	private boolean listExtensions;
 
@@ -141,6 +144,16 @@ public AwkTuples getPrecompiledTuples() {
 		return precompiledTuples;
 	}
 
+	/**
+	 * Returns the script compiled to JVM bytecode loaded via the <code>-L</code>
+	 * option (from a jar file or a directory), if any.
+	 *
+	 * @return the precompiled script or {@code null} if none was loaded
+	 */
+	public PrecompiledScript getPrecompiledScript() {
+		return precompiledScript;
+	}
+
 	/**
 	 * Parses the supplied command-line arguments and configures this instance
 	 * accordingly.
@@ -181,17 +194,10 @@ public void parse(String[] args) {
 				// -L filename : load precompiled tuples
 				checkParameterHasArgument(args, argIdx);
 				String file = args[++argIdx];
-				try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
-					precompiledTuples = (AwkTuples) ois.readObject();
-				} catch (java.io.InvalidClassException ex) {
-					throw new IllegalArgumentException(
-							"Precompiled tuples '" + file + "' are not compatible with this version (" + ex.getMessage()
-									+ "). Please recompile.",
-							ex);
-				} catch (IOException | ClassNotFoundException ex) {
-					throw new IllegalArgumentException(
-							"Failed to read tuples '" + file + "': " + ex.getMessage(),
-							ex);
+				if (PrecompiledScript.isPrecompiledScript(new File(file))) {
+					loadPrecompiledScript(file);
+				} else {
+					loadPrecompiledTuples(file);
 				}
 			} else if (arg.equals("-l") || arg.equals("--load")) {
 				// -l/--load extension : load extension
@@ -219,6 +225,12 @@ public void parse(String[] args) {
 			} else if (arg.equals("--dump-intermediate")) {
 				// --dump-intermediate : dump intermediate tuples to file
 				dumpIntermediateCode = true;
+			} else if (arg.equals("--jvm-compile")) {
+				// --jvm-compile : execute the tuples as generated JVM bytecode
+				settings.setUseJvmCompiler(true);
+			} else if (arg.equals("--tiered")) {
+				// --tiered : interpret the tuples, then compile them once profiled
+				settings.setTierUpThreshold(AwkSettings.DEFAULT_TIER_UP_THRESHOLD);
 			} else if (arg.equals("-t")) {
 				// -t : keep associative array keys sorted
 				settings.setUseSortedArrayKeys(true);
@@ -229,6 +241,15 @@ public void parse(String[] args) {
 				// -F fs : set field separator
 				checkParameterHasArgument(args, argIdx);
 				settings.setFieldSeparator(args[++argIdx]);
+			} else if (arg.equals("-k") || arg.equals("--csv")) {
+				// -k/--csv : read the input as CSV
+				settings.setCsv(true);
+			} else if (arg.equals("-b") || arg.equals("--characters-as-bytes")) {
+				// -b/--characters-as-bytes : read and write bytes, not UTF-8
+				settings.setCharactersAsBytes(true);
+			} else if (arg.equals("--read-ahead")) {
+				// --read-ahead : read the input on a background thread
+				settings.setReadAhead(true);
 			} else if (arg.equals("--locale")) {
 				// --locale Locale : specify locale
 				checkParameterHasArgument(args, argIdx);
@@ -246,11 +267,15 @@ public void parse(String[] args) {
 			++argIdx;
 		}
 
-		if (scriptSources.isEmpty() && precompiledTuples == null) {
+		if (scriptSources.isEmpty() && precompiledTuples == null && precompiledScript == null) {
 			if (argIdx >= args.length) {
 				throw new IllegalArgumentException("Awk script not provided.");
 			}
 			String scriptContent = args[argIdx++];
+			if (settings.isCharactersAsBytes()) {
+				// -b: the script sees the UTF-8 bytes of its literals, like the input
+				scriptContent = new String(scriptContent.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1);
+			}
 			scriptSources
 					.add(
 							new ScriptSource(
@@ -258,6 +283,10 @@ public void parse(String[] args) {
 									new StringReader(scriptContent)));
 		} else if (!scriptSources.isEmpty()) {
 			for (ScriptSource scriptSource : scriptSources) {
+				if (scriptSource instanceof ScriptFileSource) {
+					// -b may follow -f, so the encoding is only known now
+					((ScriptFileSource) scriptSource).setCharset(settings.getCharset());
+				}
 				try {
 					scriptSource.getReader();
 				} catch (IOException ex) {
@@ -273,6 +302,48 @@ public void parse(String[] args) {
 		}
 	}
 
+	/**
+	 * Loads the serialized tuples specified with <code>-L</code>.
+	 *
+	 * @param file file written with <code>-K</code>
+	 */
+	private void loadPrecompiledTuples(String file) {
+		try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
+			precompiledTuples = (AwkTuples) ois.readObject();
+		} catch (java.io.InvalidClassException ex) {
+			throw new IllegalArgumentException(
+					"Precompiled tuples '" + file + "' are not compatible with this version (" + ex.getMessage()
+							+ "). Please recompile.",
+					ex);
+		} catch (IOException | ClassNotFoundException ex) {
+			throw new IllegalArgumentException(
+					"Failed to read tuples '" + file + "': " + ex.getMessage(),
+					ex);
+		}
+	}
+
+	/**
+	 * Loads the script compiled to JVM bytecode specified with <code>-L</code>
+	 * (a jar file, or a directory).
+	 *
+	 * @param file jar file or directory written with <code>-K</code>
+	 */
+	private void loadPrecompiledScript(String file) {
+		try {
+			precompiledScript = PrecompiledScript.load(new File(file));
+		} catch (java.io.InvalidClassException ex) {
+			throw new IllegalArgumentException(
+					"Precompiled script '" + file + "' is not compatible with this version (" + ex.getMessage()
+							+ "). Please recompile.",
+					ex);
+		} catch (IOException | ClassNotFoundException | LinkageError ex) {
+			throw new IllegalArgumentException(
+					"Failed to read precompiled script '" + file + "': " + ex.getMessage(),
+					ex);
+		}
+		precompiledTuples = precompiledScript.getTuples();
+	}
+
 	/**
 	 * Ensures that the current command-line option is followed by a value.
 	 *
@@ -348,9 +419,16 @@ public void run() throws Exception {
 		} else {
 			awk = extensions.isEmpty() ? new Awk() : new Awk(extensions);
 		}
-		// Use precompiled tuples if provided; otherwise compile the scripts now
-		AwkTuples tuples = precompiledTuples != null ? precompiledTuples : awk.compile(scriptSources, disableOptimize);
-		if (precompiledTuples != null && !disableOptimize) {
+		// Use precompiled tuples if provided; otherwise compile the scripts now.
+		// A script precompiled to JVM bytecode comes without tuples.
+		AwkTuples tuples;
+		if (precompiledScript != null || precompiledTuples != null) {
+			tuples = precompiledTuples;
+		} else {
+			tuples = awk.compile(scriptSources, disableOptimize);
+		}
+		// The tuples of a precompiled script must match its class: do not optimize them again
+		if (precompiledTuples != null && precompiledScript == null && !disableOptimize) {
 			tuples.optimize();
 		}
 		if (dumpSyntaxTree) {
@@ -359,10 +437,18 @@ public void run() throws Exception {
 				ast.dump(out);
 			}
 		}
-		if (dumpIntermediateCode) {
+		if (dumpIntermediateCode && tuples != null) {
 			tuples.dump(out);
 		}
 		if (compileOutputFile != null) {
+			if (tuples == null) {
+				throw new IllegalArgumentException("The script loaded with -L is already compiled to JVM bytecode");
+			}
+			if (PrecompiledScript.isPrecompiledScript(compileOutputFile)) {
+				// Compile tuples to JVM bytecode in the requested jar file or directory and exit
+				PrecompiledScript.write(tuples, compileOutputFile);
+				return;
+			}
 			// Serialize tuples to the requested file and exit
 			try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(compileOutputFile))) {
 				oos.writeObject(tuples);
@@ -374,7 +460,11 @@ public void run() throws Exception {
 			return;
 		}
 		// Finally run the compiled tuples with the configured settings
-		awk.invoke(tuples, settings);
+		if (precompiledScript != null) {
+			awk.invoke(precompiledScript, settings);
+		} else {
+			awk.invoke(tuples, settings);
+		}
 	}
 
 	/**
@@ -389,6 +479,8 @@ private static void usage(PrintStream dest) {
 						"java -jar " +
 								JAR_NAME +
 								" [-F fs_val]" +
+								" [-k|--csv]" +
+								" [-b|--characters-as-bytes]" +
 								" [-f script-filename]" +
 								" [-L tuples-filename]" +
 								" [-K tuples-filename]" +
@@ -397,6 +489,9 @@ private static void usage(PrintStream dest) {
 								" [--dump-syntax]" +
 								" [--dump-intermediate]" +
 								" [-s|--no-optimize]" +
+								" [--jvm-compile]" +
+								" [--tiered]" +
+								" [--read-ahead]" +
 								" [-r]" +
 								" [--locale locale]" +
 								" [-t]" +
@@ -408,8 +503,14 @@ private static void usage(PrintStream dest) {
 		dest.println("java -jar " + JAR_NAME + " --list-ext");
 		dest.println();
 		dest.println(" -F fs_val = Use fs_val for FS.");
+		dest.println(" -k, --csv = Read the input as CSV (RFC 4180), ignoring RS and FS.");
+		dest
+				.println(
+						" -b, --characters-as-bytes = Treat the input and output as bytes (ISO-8859-1), without UTF-8"
+								+ " decoding and encoding.");
 		dest.println(" -f filename = Use contents of filename for script.");
 		dest.println(" -L filename = Load precompiled tuples from filename.");
+		dest.println("               A jar file or a directory contains the script compiled to JVM bytecode.");
 		dest.println(" -l extension = Load an extension by extension name or class name.");
 		dest.println(" --load extension = Same as -l.");
 		dest.println("                      Extensions must already be on the class path before loading them.");
@@ -417,6 +518,7 @@ private static void usage(PrintStream dest) {
 		dest.println();
 		dest.println(" -t = (extension) Maintain array keys in sorted order.");
 		dest.println(" -K filename = Compile to tuples file and halt.");
+		dest.println("               A jar file or a directory receives the script compiled to JVM bytecode.");
 		dest.println(" -o = (extension) Specify output file.");
 		dest
 				.println(
@@ -425,6 +527,15 @@ private static void usage(PrintStream dest) {
 		dest.println(" --dump-syntax = Print the syntax tree.");
 		dest.println(" --dump-intermediate = Print the intermediate code.");
 		dest.println(" -s, --no-optimize = (extension) Disable tuple queue optimizations during compilation.");
+		dest.println(" --jvm-compile = (extension) Compile the script to JVM bytecode instead of interpreting it.");
+		dest
+				.println(
+						" --tiered = (extension) Interpret the script, then compile it to JVM bytecode specialized"
+								+ " for the types observed in the first records.");
+		dest
+				.println(
+						" --read-ahead = (extension) Read the input on a background thread while the script"
+								+ " processes the previous records.");
 		dest.println(" -r = (extension) Do NOT hide IllegalFormatExceptions for [s]printf.");
 		dest.println(" --locale Locale = (extension) Specify a locale to be used instead of US-English");
 		dest.println(" --list-ext = (extension) List available extensions.");
@@ -26,16 +26,13 @@
 import java.io.PrintStream;
 import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Enumeration;
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.LinkedHashSet;
-import java.util.StringTokenizer;
 import java.util.Deque;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -45,21 +42,20 @@
 import org.metricshub.jawk.ext.ExtensionFunction;
 import org.metricshub.jawk.ext.JawkExtension;
 import org.metricshub.jawk.frontend.AstNode;
-import org.metricshub.jawk.intermediate.Address;
 import org.metricshub.jawk.intermediate.AwkTuples;
 import org.metricshub.jawk.intermediate.Opcode;
+import org.metricshub.jawk.intermediate.Opcodes;
 import org.metricshub.jawk.intermediate.PositionTracker;
 import org.metricshub.jawk.intermediate.UninitializedObject;
 import org.metricshub.jawk.jrt.AssocArray;
 import org.metricshub.jawk.jrt.AwkRuntimeException;
 import org.metricshub.jawk.jrt.BlockManager;
 import org.metricshub.jawk.jrt.BlockObject;
-import org.metricshub.jawk.jrt.CharacterTokenizer;
 import org.metricshub.jawk.jrt.ConditionPair;
 import org.metricshub.jawk.jrt.JRT;
 import java.util.ArrayDeque;
-import org.metricshub.jawk.jrt.RegexTokenizer;
-import org.metricshub.jawk.jrt.SingleCharacterTokenizer;
+import org.metricshub.jawk.jrt.RegexCache;
+import org.metricshub.jawk.jrt.StrNum;
 import org.metricshub.jawk.jrt.VariableManager;
 import org.metricshub.jawk.util.AwkSettings;
 import org.metricshub.jawk.util.ScriptSource;
@@ -99,8 +95,25 @@ public class AVM implements VariableManager {
 
 	private RuntimeStack runtimeStack = new RuntimeStack();
 
-	// operand stack
-	private Deque<Object> operandStack = new LinkedList<Object>();
+	// operand stack: operandStack[operandStackSize - 1] is the top
+	private Object[] operandStack = new Object[32];
+	private int operandStackSize = 0;
+
+	/**
+	 * Numeric lane of the operand stack: when a slot of
+	 * {@link #operandStack} holds {@link #LONG_SLOT} or {@link #DOUBLE_SLOT},
+	 * its value is the number at the same index in this array. Numbers
+	 * computed by arithmetic opcodes are thus only boxed when they leave the
+	 * stack as objects (to be stored in a variable, printed, etc.).
+	 */
+	private double[] numberStack = new double[32];
+
+	/** Tag of a slot holding a number to be boxed as a {@link Long} */
+	private static final Object LONG_SLOT = new Object();
+
+	/** Tag of a slot holding a number to be boxed as a {@link Double} */
+	private static final Object DOUBLE_SLOT = new Object();
+
 	private List<String> arguments;
 	private boolean sortedArrayKeys;
 	private Map<String, Object> initialVariables;
@@ -113,18 +126,104 @@ public class AVM implements VariableManager {
 	private Map<String, ExtensionFunction> extensionFunctions;
 
 	// stack methods
-	// private Object pop() { return operandStack.removeFirst(); }
-	// private void push(Object o) { operandStack.addLast(o); }
-	private Object pop() {
-		return operandStack.pop();
+	Object pop() {
+		Object o = operandStack[--operandStackSize];
+		operandStack[operandStackSize] = null;
+		if (o == LONG_SLOT) {
+			return Long.valueOf((long) numberStack[operandStackSize]);
+		}
+		if (o == DOUBLE_SLOT) {
+			return Double.valueOf(numberStack[operandStackSize]);
+		}
+		return o;
+	}
+
+	/**
+	 * Pops the top of the stack as a number, without boxing it when it has
+	 * been pushed as a number.
+	 *
+	 * @return the numeric value of the top of the stack
+	 */
+	double popDouble() {
+		Object o = operandStack[--operandStackSize];
+		operandStack[operandStackSize] = null;
+		if (o == LONG_SLOT || o == DOUBLE_SLOT) {
+			return numberStack[operandStackSize];
+		}
+		return JRT.toDouble(o);
+	}
+
+	/**
+	 * Pops the top of the stack, known to be a number by the type inference
+	 * performed on the tuples (see the <code>*_NUM</code> opcodes).
+	 *
+	 * @return the value of the top of the stack
+	 */
+	double popNumber() {
+		Object o = operandStack[--operandStackSize];
+		operandStack[operandStackSize] = null;
+		if (o == LONG_SLOT || o == DOUBLE_SLOT) {
+			return numberStack[operandStackSize];
+		}
+		return ((Number) o).doubleValue();
+	}
+
+	void push(Object o) {
+		if (operandStackSize == operandStack.length) {
+			growOperandStack();
+		}
+		operandStack[operandStackSize++] = o;
+	}
+
+	private void pushSlot(Object tag, double value) {
+		if (operandStackSize == operandStack.length) {
+			growOperandStack();
+		}
+		numberStack[operandStackSize] = value;
+		operandStack[operandStackSize++] = tag;
+	}
+
+	/**
+	 * Pushes a number that will be seen as a {@link Double} by
+	 * {@link #pop()}.
+	 */
+	private void pushDouble(double value) {
+		pushSlot(DOUBLE_SLOT, value);
+	}
+
+	/**
+	 * Pushes a numeric result, as a long when it has no fractional part.
+	 */
+	private void pushNumber(double ans) {
+		if (JRT.isActuallyLong(ans)) {
+			pushSlot(LONG_SLOT, (long) Math.rint(ans));
+		} else {
+			pushSlot(DOUBLE_SLOT, ans);
+		}
+	}
+
+	private boolean isNumberSlot(int depth) {
+		Object o = operandStack[operandStackSize - 1 - depth];
+		return o == LONG_SLOT || o == DOUBLE_SLOT;
+	}
+
+	private void growOperandStack() {
+		operandStack = Arrays.copyOf(operandStack, operandStackSize * 2);
+		numberStack = Arrays.copyOf(numberStack, operandStackSize * 2);
 	}
 
-	private void push(Object o) {
-		operandStack.push(o);
+	private void clearOperandStack() {
+		Arrays.fill(operandStack, 0, operandStackSize, null);
+		operandStackSize = 0;
 	}
 
 	private final AwkSettings settings;
 
+	/**
+	 * The stream of the output of print and printf to stdout.
+	 */
+	private final PrintStream outputStream;
+
 	/**
 	 * Construct the interpreter.
 	 * <p>
@@ -163,10 +262,31 @@ public AVM(final AwkSettings parameters,
 				&& this.settings.isCatchIllegalFormatExceptions();
 
 		jrt = createJrt();
-		jrt.setStreams(settings.getOutputStream(), System.err);
+		jrt.setCharset(settings.getCharset());
+		jrt.setReadAhead(settings.isReadAhead());
+		outputStream = createOutputStream();
+		jrt.setStreams(outputStream, System.err);
 		initExtensions();
 	}
 
+	/**
+	 * Creates the stream of the output of print and printf: the output stream
+	 * of the settings, through which the characters are written as bytes
+	 * when {@link AwkSettings#isCharactersAsBytes()} is set.
+	 *
+	 * @return the output stream
+	 */
+	private PrintStream createOutputStream() {
+		if (!settings.isCharactersAsBytes()) {
+			return settings.getOutputStream();
+		}
+		try {
+			return new PrintStream(settings.getOutputStream(), false, settings.getCharset().name());
+		} catch (java.io.UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
 	protected JRT createJrt() {
 		return new JRT(this, settings.getLocale());
 	}
@@ -216,7 +336,11 @@ private void initExtensions() {
 	 */
 	private int oldseed = 1;
 
-	private Address exitAddress = null;
+	/**
+	 * Index of the tuple starting the END blocks, or -1 until set by
+	 * <code>SET_EXIT_ADDRESS</code>
+	 */
+	private int exitIndex = -1;
 
 	/**
 	 * <code>true</code> if execution position is within an END block;
@@ -246,6 +370,29 @@ private void initExtensions() {
 	 */
 	private Map<String, Boolean> globalVariableArrays;
 	private Set<String> functionNames;
+	/**
+	 * Global offset of the <code>FIELDWIDTHS</code> variable, or -1 if the
+	 * script does not use it.
+	 */
+	private int fieldWidthsOffset = -1;
+
+	/**
+	 * State of the range patterns (<code>/start/,/end/</code>), by slot
+	 * of their <code>CONDITION_PAIR</code> tuple (see {@link AwkTuples#link()}).
+	 */
+	private ConditionPair[] conditionPairs;
+
+	/**
+	 * Profile of the tuples while they are interpreted with tiered execution,
+	 * or <code>null</code>
+	 */
+	private ExecutionProfile profile;
+
+	/**
+	 * Compiled script running the tuples with tiered execution, or
+	 * <code>null</code> while they are interpreted
+	 */
+	private CompiledScript tieredScript;
 
 	/**
 	 * Evaluate the provided tuples as an AWK expression.
@@ -268,10 +415,15 @@ public Object eval(AwkTuples tuples, String input) throws IOException {
 		}
 
 		// Return the top of the stack, which is the value of the specified expression
-		return operandStack.size() == 0 ? null : pop();
+		if (operandStackSize == 0) {
+			return null;
+		}
+		Object result = pop();
+		// input data is returned as a plain string
+		return result instanceof StrNum ? result.toString() : result;
 	}
 
-	private void setNumOnJRT(long fieldNum, double num, PositionTracker position) {
+	private void setNumOnJRT(long fieldNum, double num) {
 		String numString;
 		if (JRT.isActuallyLong(num)) {
 			numString = Long.toString((long) Math.rint(num));
@@ -284,18 +436,16 @@ private void setNumOnJRT(long fieldNum, double num, PositionTracker position) {
 			jrt.setInputLine(numString.toString());
 			jrt.jrtParseFields();
 		} else {
-			jrt.jrtSetInputField(numString, fieldNum, position);
+			jrt.jrtSetInputField(numString, fieldNum);
 		}
 	}
 
-	private String execSubOrGSub(PositionTracker position, int gsubArgPos) {
+	private String execSubOrGSub(boolean isGsub) {
 		String newString;
 
-		// arg[gsubArgPos] = isGsub
 		// stack[0] = original field value
 		// stack[1] = replacement string
 		// stack[2] = ere
-		boolean isGsub = position.boolArg(gsubArgPos);
 		String orig = jrt.toAwkString(pop());
 		String repl = jrt.toAwkString(pop());
 		String ere = jrt.toAwkString(pop());
@@ -311,21 +461,69 @@ private String execSubOrGSub(PositionTracker position, int gsubArgPos) {
 	/**
 	 * Traverse the tuples, executing their associated opcodes to provide
 	 * an execution platform for Jawk scripts.
+	 * <p>
+	 * When {@link AwkSettings#isUseJvmCompiler()} is set, the tuples are first
+	 * translated into JVM bytecode by the {@link AwkCompiler} and the resulting
+	 * class is executed instead. Tuples that cannot be translated are
+	 * interpreted as usual.
 	 *
 	 * @throws IOException in case of I/O problems (with getline typically)
 	 */
 	public void interpret(AwkTuples tuples) throws ExitException, IOException {
-		Map<Integer, ConditionPair> conditionPairs = new HashMap<Integer, ConditionPair>();
+		tuples.link();
+		initialize(
+				tuples.getConditionPairCount(),
+				tuples.getMaxFieldReference(),
+				tuples.getGlobalVariableOffsetMap(),
+				tuples.getGlobalVariableAarrayMap(),
+				tuples.getFunctionNameSet());
+		PositionTracker position = tuples.top();
+		CompiledScript compiledScript = settings.isUseJvmCompiler() ? compileTuples(tuples) : null;
+		run(tuples, position, compiledScript);
+	}
 
-		globalVariableOffsets = tuples.getGlobalVariableOffsetMap();
-		globalVariableArrays = tuples.getGlobalVariableAarrayMap();
-		functionNames = tuples.getFunctionNameSet();
+	/**
+	 * Executes a class generated by the {@link AwkCompiler}, typically loaded
+	 * from a {@link PrecompiledScript}. The class holds everything needed to
+	 * run the script, so the tuples it has been generated from are not needed.
+	 *
+	 * @param scriptClass the generated class
+	 * @throws ExitException when the script calls <code>exit</code>
+	 * @throws IOException in case of I/O problems (with getline typically)
+	 */
+	public void interpret(Class<? extends CompiledScript> scriptClass) throws ExitException, IOException {
+		CompiledScript compiledScript = CompiledScript.newInstance(scriptClass, this);
+		initialize(
+				compiledScript.getConditionPairCount(),
+				compiledScript.getMaxFieldReference(),
+				compiledScript.getGlobalVariableOffsetMap(),
+				compiledScript.getGlobalVariableAarrayMap(),
+				compiledScript.getFunctionNameSet());
+		run(null, null, compiledScript);
+	}
 
-		PositionTracker position = tuples.top();
+	/**
+	 * Prepares the runtime for the global variables and range patterns of the
+	 * script, and initializes the special variables.
+	 */
+	private void initialize(
+			int conditionPairCount,
+			int maxFieldReference,
+			Map<String, Integer> globalOffsets,
+			Map<String, Boolean> globalArrays,
+			Set<String> functionNameSet) {
+		conditionPairs = new ConditionPair[conditionPairCount];
+		jrt.setFieldSplitLimit(maxFieldReference);
+
+		globalVariableOffsets = globalOffsets;
+		fieldWidthsOffset = -1; // resolved once the globals are allocated
+		globalVariableArrays = globalArrays;
+		functionNames = functionNameSet;
 
 		// Initialize JRT-managed special variables from settings before execution
 		jrt.setFS(initialFsValue == null ? " " : initialFsValue);
 		jrt.setRS(settings.getDefaultRS());
+		jrt.setCsv(settings.isCsv());
 		jrt.setOFS(" ");
 		jrt.setORS(settings.getDefaultORS());
 		jrt.setCONVFMT("%.6g");
@@ -337,1715 +535,2326 @@ public void interpret(AwkTuples tuples) throws ExitException, IOException {
 		jrt.setRSTART(0);
 		jrt.setRLENGTH(0);
 		jrt.setARGC(arguments.size() + 1);
+	}
+
+	/**
+	 * Runs the script, either compiled or interpreted.
+	 *
+	 * @param tuples the tuples to interpret, or <code>null</code> when the
+	 *        script is only available compiled
+	 * @param position the position of the first tuple, or <code>null</code>
+	 * @param compiledScript the compiled script, or <code>null</code> to
+	 *        interpret the tuples
+	 */
+	private void run(AwkTuples tuples, PositionTracker position, CompiledScript compiledScript)
+			throws ExitException,
+			IOException {
+		try {
+			if (compiledScript != null) {
+				compiledScript.execute();
+			} else if (settings.getTierUpThreshold() > 0) {
+				interpretTiered(tuples, position);
+			} else {
+				interpretTuples(position);
+			}
+
+			// End of the instructions
+			jrt.jrtCloseAll();
+		} catch (RuntimeException re) {
+// clear runtime stack
+			runtimeStack.popAllFrames();
+// clear operand stack
+			clearOperandStack();
+			if (re instanceof AwkSandboxException) {
+				throw re;
+			}
+			CompiledScript failedScript = compiledScript != null ? compiledScript : tieredScript;
+			int lineNumber = failedScript != null ? failedScript.lineNumberOf(re) : position.lineNumber();
+			throw new AwkRuntimeException(lineNumber, re.getMessage(), re);
+		} catch (AssertionError ae) {
+// clear runtime stack
+			runtimeStack.popAllFrames();
+// clear operand stack
+			clearOperandStack();
+			throw ae;
+		}
+
+		// If <code>exit</code> was called, throw an ExitException
+		if (throwExitException) {
+			throw new ExitException(exitCode, "The AWK script requested an exit");
+		}
+	}
+
+	/**
+	 * Translates the tuples into a {@link CompiledScript} bound to this
+	 * interpreter.
+	 *
+	 * @param tuples the tuples to translate
+	 * @return the compiled script, or <code>null</code> when the tuples
+	 *         cannot be translated and must be interpreted
+	 */
+	private CompiledScript compileTuples(AwkTuples tuples) {
+		return compileTuples(tuples, null);
+	}
+
+	/**
+	 * Translates the tuples into a {@link CompiledScript} bound to this
+	 * interpreter, specialized for the specified profile.
+	 *
+	 * @param tuples the tuples to translate
+	 * @param tuplesProfile the profile to specialize the tuples with, or
+	 *        <code>null</code>
+	 * @return the compiled script, or <code>null</code> when the tuples
+	 *         cannot be translated and must be interpreted
+	 */
+	private CompiledScript compileTuples(AwkTuples tuples, ExecutionProfile tuplesProfile) {
+		Class<? extends CompiledScript> scriptClass;
+		try {
+			scriptClass = new AwkCompiler().compile(tuples, tuplesProfile);
+		} catch (UnsupportedOperationException uoe) {
+			return null;
+		}
+		return CompiledScript.newInstance(scriptClass, this);
+	}
+
+	/**
+	 * Interprets the tuples while profiling them, until enough records have
+	 * been read to compile them into a script specialized for the types and
+	 * branches observed, which then runs the rest of the input. Whenever a
+	 * speculation of the compiled script fails, the interpreter resumes at
+	 * the tuple concerned and profiles the tuples again until the next
+	 * compilation.
+	 *
+	 * @param tuples the tuples to run
+	 * @param position the position of the first tuple to run
+	 */
+	private void interpretTiered(AwkTuples tuples, PositionTracker position) throws ExitException, IOException {
+		profile = new ExecutionProfile(position.size(), settings.getTierUpThreshold());
+		tieredScript = null;
+		while (interpretTuples(position)) {
+			CompiledScript script = compileTuples(tuples, profile.isSpeculative() ? profile : null);
+			profile.compiled();
+			if (script == null) {
+				// Keep interpreting, without profiling
+				profile = null;
+				continue;
+			}
+			tieredScript = script;
+			int resume = script.execute(position.current());
+			tieredScript = null;
+			if (resume < 0) {
+				break;
+			}
+			position.jump(resume);
+		}
+		profile = null;
+	}
+
+	/**
+	 * Records the operands or the outcome of the profiled tuples.
+	 *
+	 * @param position the tuple about to be executed
+	 * @param opcode its opcode
+	 * @param branch the index of the previous tuple if it is a profiled
+	 *        conditional jump, or -1
+	 * @return the index of the tuple about to be executed if it is a profiled
+	 *         conditional jump, or -1
+	 */
+	private int profile(PositionTracker position, Opcode opcode, int branch) {
+		int index = position.current();
+		if (branch != -1) {
+			profile.branch(branch, index != branch + 1);
+		}
+		if (ExecutionProfile.numericVariant(opcode) != null) {
+			profile.operands(index, hasNumberOperands(opcode == Opcode.IFFALSE || opcode == Opcode.IFTRUE ? 1 : 2));
+		}
+		return ExecutionProfile.isProfiledBranch(opcode) ? index : -1;
+	}
+
+	/**
+	 * @param count number of operands to check
+	 * @return whether the specified number of operands at the top of the
+	 *         stack are all numbers
+	 */
+	boolean hasNumberOperands(int count) {
+		for (int depth = 0; depth < count; depth++) {
+			if (!isNumberSlot(depth) && !(operandStack[operandStackSize - 1 - depth] instanceof Number)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Called by a compiled script when one of its speculations fails, right
+	 * before the interpreter takes over.
+	 *
+	 * @param index index of the tuple whose speculation failed
+	 */
+	void deoptimize(int index) {
+		profile.deoptimize(index);
+	}
+
+	/**
+	 * Interprets the tuples from the specified position.
+	 *
+	 * @param position the position of the first tuple to run
+	 * @return <code>true</code> when the interpretation stopped before an
+	 *         input record to let the tuples be compiled (see
+	 *         {@link #interpretTiered(AwkTuples, PositionTracker)}), or
+	 *         <code>false</code> at the end of the tuples
+	 */
+	private boolean interpretTuples(PositionTracker position) throws ExitException, IOException {
+		if (profile != null) {
+			return interpretProfiledTuples(position);
+		}
+		while (!position.isEOF()) {
+			// System_out.println("--> "+position);
+			execute(position, position.opcodeOrdinal());
+		}
+		return false;
+	}
+
+	/**
+	 * Interprets the tuples from the specified position while profiling them
+	 * (see {@link #interpretTiered(AwkTuples, PositionTracker)}), so that the
+	 * loop of {@link #interpretTuples(PositionTracker)} does not check for a
+	 * profile at each tuple.
+	 *
+	 * @param position the position of the first tuple to run
+	 * @return <code>true</code> when the interpretation stopped before an
+	 *         input record to let the tuples be compiled, or
+	 *         <code>false</code> at the end of the tuples
+	 */
+	private boolean interpretProfiledTuples(PositionTracker position) throws ExitException, IOException {
+		int branch = -1;
+		while (!position.isEOF()) {
+			Opcode opcode = position.opcode();
+			if (opcode == Opcode.CONSUME_INPUT && profile.record()) {
+				return true;
+			}
+			branch = profile(position, opcode, branch);
+			execute(position, opcode.ordinal());
+		}
+		return false;
+	}
+
+	/**
+	 * Executes the tuple at the specified position, and moves the position
+	 * to the next tuple to execute.
+	 *
+	 * @param position the position of the tuple
+	 * @param opcode the ordinal of its opcode (see {@link Opcodes})
+	 */
+	private void execute(PositionTracker position, int opcode) throws ExitException, IOException {
+		// switch on OPCODE
+		switch (opcode) {
+		case Opcodes.PRINT:
+			print(position.intArg(0));
+			position.next();
+			break;
+		case Opcodes.PRINT_TO_FILE:
+			printToFile(position.intArg(0), position.boolArg(1));
+			position.next();
+			break;
+		case Opcodes.PRINT_TO_PIPE:
+			printToPipe(position.intArg(0));
+			position.next();
+			break;
+		case Opcodes.PRINTF:
+			printf(position.intArg(0));
+			position.next();
+			break;
+		case Opcodes.PRINTF_TO_FILE:
+			printfToFile(position.intArg(0), position.boolArg(1));
+			position.next();
+			break;
+		case Opcodes.PRINTF_TO_PIPE:
+			printfToPipe(position.intArg(0));
+			position.next();
+			break;
+		case Opcodes.SPRINTF:
+			sprintf(position.intArg(0));
+			position.next();
+			break;
+		case Opcodes.LENGTH:
+			length(position.intArg(0));
+			position.next();
+			break;
+		case Opcodes.PUSH:
+			// arg[0] = constant to push onto the stack
+			push(position.arg(0));
+			position.next();
+			break;
+		case Opcodes.POP:
+			// stack[0] = item to pop from the stack
+			pop();
+			position.next();
+			break;
+		case Opcodes.IFFALSE:
+			// arg[0] = address to jump to if top of stack is false
+			// stack[0] = item to check
+			if (popBoolean()) {
+				position.next();
+			} else {
+				position.jump(position.addressArg());
+			}
+			break;
+		case Opcodes.IFFALSE_NUM:
+			if (popNumber() != 0) {
+				position.next();
+			} else {
+				position.jump(position.addressArg());
+			}
+			break;
+		case Opcodes.TO_NUMBER:
+			toNumber();
+			position.next();
+			break;
+		case Opcodes.IFTRUE:
+			// arg[0] = address to jump to if top of stack is true
+			// stack[0] = item to check
+			if (popBoolean()) {
+				position.jump(position.addressArg());
+			} else {
+				position.next();
+			}
+			break;
+		case Opcodes.IFTRUE_NUM:
+			if (popNumber() != 0) {
+				position.jump(position.addressArg());
+			} else {
+				position.next();
+			}
+			break;
+		case Opcodes.IFFALSE_CMP_CONST:
+			// arg[0] = address to jump to if the comparison is false
+			// arg[1] = comparison mode
+			// arg[2] = constant
+			if (compareWithConstant(position.arg(2), (int) position.intArg(1))) {
+				position.next();
+			} else {
+				position.jump(position.addressArg());
+			}
+			break;
+		case Opcodes.IFTRUE_CMP_CONST:
+			if (compareWithConstant(position.arg(2), (int) position.intArg(1))) {
+				position.jump(position.addressArg());
+			} else {
+				position.next();
+			}
+			break;
+		case Opcodes.NOT:
+			not();
+			position.next();
+			break;
+		case Opcodes.NEGATE:
+			negate();
+			position.next();
+			break;
+		case Opcodes.UNARY_PLUS:
+			unaryPlus();
+			position.next();
+			break;
+		case Opcodes.GOTO:
+			// arg[0] = address
+			position.jump(position.addressArg());
+			break;
+		case Opcodes.NOP:
+			// do nothing, just advance the position
+			position.next();
+			break;
+		case Opcodes.CONCAT:
+			concat();
+			position.next();
+			break;
+		case Opcodes.CONCAT_STR:
+			concatStrings();
+			position.next();
+			break;
+		case Opcodes.ASSIGN:
+			assign(position.intArg(0), position.boolArg(1));
+			position.next();
+			break;
+		case Opcodes.ASSIGN_POP:
+			assignPop(position.intArg(0), position.boolArg(1));
+			position.next();
+			break;
+		case Opcodes.ASSIGN_ARRAY:
+			assignArray(position.intArg(0), position.boolArg(1));
+			position.next();
+			break;
+		case Opcodes.PLUS_EQ_ARRAY_FIELD:
+			plusEqArrayField(position.intArg(0), position.intArg(1), position.boolArg(2));
+			position.next();
+			break;
+		case Opcodes.PLUS_EQ_ARRAY:
+		case Opcodes.MINUS_EQ_ARRAY:
+		case Opcodes.MULT_EQ_ARRAY:
+		case Opcodes.DIV_EQ_ARRAY:
+		case Opcodes.MOD_EQ_ARRAY:
+		case Opcodes.POW_EQ_ARRAY:
+			assignOperationArray(position.opcode(), position.intArg(0), position.boolArg(1));
+			position.next();
+			break;
+		case Opcodes.ASSIGN_AS_INPUT:
+			assignAsInput();
+			position.next();
+			break;
+		case Opcodes.ASSIGN_AS_INPUT_FIELD:
+			assignAsInputField();
+			position.next();
+			break;
+		case Opcodes.PLUS_EQ:
+		case Opcodes.MINUS_EQ:
+		case Opcodes.MULT_EQ:
+		case Opcodes.DIV_EQ:
+		case Opcodes.MOD_EQ:
+		case Opcodes.POW_EQ:
+			assignOperation(position.opcode(), position.intArg(0), position.boolArg(1));
+			position.next();
+			break;
+		case Opcodes.PLUS_EQ_INPUT_FIELD:
+		case Opcodes.MINUS_EQ_INPUT_FIELD:
+		case Opcodes.MULT_EQ_INPUT_FIELD:
+		case Opcodes.DIV_EQ_INPUT_FIELD:
+		case Opcodes.MOD_EQ_INPUT_FIELD:
+		case Opcodes.POW_EQ_INPUT_FIELD:
+			assignOperationInputField(position.opcode());
+			position.next();
+			break;
+		case Opcodes.INC:
+			// arg[0] = offset
+			// arg[1] = isGlobal
+			inc(position.intArg(0), position.boolArg(1));
+			position.next();
+			break;
+		case Opcodes.DEC:
+			// arg[0] = offset
+			// arg[1] = isGlobal
+			dec(position.intArg(0), position.boolArg(1));
+			position.next();
+			break;
+		case Opcodes.POSTINC:
+			postInc(position.intArg(0), position.boolArg(1));
+			position.next();
+			break;
+		case Opcodes.POSTDEC:
+			postDec(position.intArg(0), position.boolArg(1));
+			position.next();
+			break;
+		case Opcodes.INC_ARRAY_REF:
+			incArrayRef(position.intArg(0), position.boolArg(1));
+			position.next();
+			break;
+		case Opcodes.INC_ARRAY_REF_SUBSEP:
+			incArrayRefSubsep(position.intArg(0), position.intArg(1), position.boolArg(2));
+			position.next();
+			break;
+		case Opcodes.DEC_ARRAY_REF:
+			decArrayRef(position.intArg(0), position.boolArg(1));
+			position.next();
+			break;
+		case Opcodes.INC_DOLLAR_REF:
+			incDollarRef();
+			position.next();
+			break;
+		case Opcodes.DEC_DOLLAR_REF:
+			decDollarRef();
+			position.next();
+			break;
+		case Opcodes.DEREFERENCE:
+			dereference(position.intArg(0), position.boolArg(1), position.boolArg(2));
+			position.next();
+			break;
+		case Opcodes.DEREF_ARRAY:
+			derefArray();
+			position.next();
+			break;
+		case Opcodes.SRAND:
+			srand(position.intArg(0));
+			position.next();
+			break;
+		case Opcodes.RAND:
+			rand();
+			position.next();
+			break;
+		case Opcodes.INTFUNC:
+			intFunc();
+			position.next();
+			break;
+		case Opcodes.SQRT:
+			sqrt();
+			position.next();
+			break;
+		case Opcodes.LOG:
+			log();
+			position.next();
+			break;
+		case Opcodes.EXP:
+			exp();
+			position.next();
+			break;
+		case Opcodes.SIN:
+			sin();
+			position.next();
+			break;
+		case Opcodes.COS:
+			cos();
+			position.next();
+			break;
+		case Opcodes.ATAN2:
+			atan2();
+			position.next();
+			break;
+		case Opcodes.MATCH:
+			match((int) position.intArg(0));
+			position.next();
+			break;
+		case Opcodes.INDEX:
+			index();
+			position.next();
+			break;
+		case Opcodes.SUB_FOR_DOLLAR_0:
+			subForDollar0(position.boolArg(0));
+			position.next();
+			break;
+		case Opcodes.SUB_FOR_DOLLAR_REFERENCE:
+			subForDollarReference(position.boolArg(0));
+			position.next();
+			break;
+		case Opcodes.SUB_FOR_VARIABLE:
+			subForVariable(position.intArg(0), position.boolArg(1), position.boolArg(2));
+			position.next();
+			break;
+		case Opcodes.SUB_FOR_ARRAY_REFERENCE:
+			subForArrayReference(position.intArg(0), position.boolArg(1), position.boolArg(2));
+			position.next();
+			break;
+		case Opcodes.SPLIT:
+			split(position.intArg(0));
+			position.next();
+			break;
+		case Opcodes.SUBSTR:
+			substr(position.intArg(0));
+			position.next();
+			break;
+		case Opcodes.TOLOWER:
+			toLower();
+			position.next();
+			break;
+		case Opcodes.TOUPPER:
+			toUpper();
+			position.next();
+			break;
+		case Opcodes.SYSTEM:
+			system();
+			position.next();
+			break;
+		case Opcodes.SWAP:
+			// stack[0] = item1
+			// stack[1] = item2
+			swapOnStack();
+			position.next();
+			break;
+		case Opcodes.CMP_EQ:
+			compare(0);
+			position.next();
+			break;
+		case Opcodes.CMP_LT:
+			compare(-1);
+			position.next();
+			break;
+		case Opcodes.CMP_GT:
+			compare(1);
+			position.next();
+			break;
+		case Opcodes.CMP_EQ_NUM:
+			compareNumbers(0);
+			position.next();
+			break;
+		case Opcodes.CMP_LT_NUM:
+			compareNumbers(-1);
+			position.next();
+			break;
+		case Opcodes.CMP_GT_NUM:
+			compareNumbers(1);
+			position.next();
+			break;
+		case Opcodes.MATCHES:
+			matches();
+			position.next();
+			break;
+		case Opcodes.ADD:
+			add();
+			position.next();
+			break;
+		case Opcodes.SUBTRACT:
+			subtract();
+			position.next();
+			break;
+		case Opcodes.MULTIPLY:
+			multiply();
+			position.next();
+			break;
+		case Opcodes.DIVIDE:
+			divide();
+			position.next();
+			break;
+		case Opcodes.MOD:
+			mod();
+			position.next();
+			break;
+		case Opcodes.POW:
+			pow();
+			position.next();
+			break;
+		case Opcodes.ADD_NUM:
+			addNumbers();
+			position.next();
+			break;
+		case Opcodes.SUBTRACT_NUM:
+			subtractNumbers();
+			position.next();
+			break;
+		case Opcodes.MULTIPLY_NUM:
+			multiplyNumbers();
+			position.next();
+			break;
+		case Opcodes.DIVIDE_NUM:
+			divideNumbers();
+			position.next();
+			break;
+		case Opcodes.DUP:
+			dup();
+			position.next();
+			break;
+		case Opcodes.KEYLIST:
+			keylist();
+			position.next();
+			break;
+		case Opcodes.IS_EMPTY_KEYLIST:
+			// arg[0] = address
+			// stack[0] = Deque
+			if (isEmptyKeylist()) {
+				position.jump(position.addressArg());
+			} else {
+				position.next();
+			}
+			break;
+		case Opcodes.GET_FIRST_AND_REMOVE_FROM_KEYLIST:
+			getFirstAndRemoveFromKeylist();
+			position.next();
+			break;
+		case Opcodes.CHECK_CLASS:
+			checkClass(position.classArg());
+			position.next();
+			break;
+		case Opcodes.CONSUME_INPUT:
+			// arg[0] = address
+			if (consumeInput()) {
+				position.next();
+			} else {
+				position.jump(position.addressArg());
+			}
+			break;
+		case Opcodes.SET_INPUT_FOR_EVAL:
+			setInputForEval();
+			position.next();
+			break;
+		case Opcodes.GETLINE_INPUT:
+			avmConsumeInputForGetline();
+			position.next();
+			break;
+		case Opcodes.USE_AS_FILE_INPUT:
+			useAsFileInput();
+			position.next();
+			break;
+		case Opcodes.USE_AS_COMMAND_INPUT:
+			useAsCommandInput();
+			position.next();
+			break;
+		case Opcodes.ENVIRON_OFFSET:
+			setEnvironOffset(position.intArg(0));
+			position.next();
+			break;
+		case Opcodes.ARGC_OFFSET:
+			setArgcOffset(position.intArg(0));
+			position.next();
+			break;
+		case Opcodes.ARGV_OFFSET:
+			setArgvOffset(position.intArg(0));
+			position.next();
+			break;
+		case Opcodes.GET_INPUT_FIELD:
+			getInputField();
+			position.next();
+			break;
+		case Opcodes.GET_INPUT_FIELD_CONST:
+			getInputField(position.intArg(0));
+			position.next();
+			break;
+		case Opcodes.APPLY_RS:
+			applyRS();
+			position.next();
+			break;
+		case Opcodes.CALL_FUNCTION:
+			// arg[0] = function address
+			// arg[1] = function name
+			// arg[2] = # of formal parameters
+			// arg[3] = # of actual parameters
+			callFunction(position.intArg(2), position.intArg(3), position.current());
+			position.jump(position.addressArg());
+			break;
+		case Opcodes.FUNCTION:
+			// important for compilation,
+			// not needed for interpretation
+			// arg[0] = function name
+			// arg[1] = # of formal parameters
+			position.next();
+			break;
+		case Opcodes.SET_RETURN_RESULT:
+			setReturnResult();
+			position.next();
+			break;
+		case Opcodes.RETURN_FROM_FUNCTION:
+			position.jump(returnFromFunction());
+			position.next();
+			break;
+		case Opcodes.TAIL_CALL:
+			tailCall(position.intArg(1), position.intArg(2));
+			position.jump(position.addressArg());
+			break;
+		case Opcodes.INLINE_FRAME:
+			inlineFrame(position.intArg(0), position.intArg(1), position.intArg(2), position.boolArg(3));
+			position.next();
+			break;
+		case Opcodes.INLINE_RETURN:
+			inlineReturn(position.intArg(0), position.intArg(1), position.boolArg(2));
+			position.next();
+			break;
+		case Opcodes.SET_NUM_GLOBALS:
+			setNumGlobals(position.intArg(0));
+			position.next();
+			break;
+		case Opcodes.CLOSE:
+			close();
+			position.next();
+			break;
+		case Opcodes.APPLY_SUBSEP:
+			applySubsep(position.intArg(0));
+			position.next();
+			break;
+		case Opcodes.DELETE_ARRAY_ELEMENT:
+			deleteArrayElement(position.intArg(0), position.boolArg(1));
+			position.next();
+			break;
+		case Opcodes.DELETE_ARRAY:
+			deleteArray(position.intArg(0), position.boolArg(1));
+			position.next();
+			break;
+		case Opcodes.SET_EXIT_ADDRESS:
+			setExitAddress(position.addressArg().index());
+			position.next();
+			break;
+		case Opcodes.SET_WITHIN_END_BLOCKS:
+			setWithinEndBlocks(position.boolArg(0));
+			position.next();
+			break;
+		case Opcodes.EXIT_WITHOUT_CODE:
+		case Opcodes.EXIT_WITH_CODE:
+			position.jump(exit(opcode == Opcodes.EXIT_WITH_CODE));
+			break;
+		case Opcodes.REGEXP:
+			// Literal regex tuples must provide a precompiled Pattern as arg[1]
+			push(position.patternArg(1));
+			position.next();
+			break;
+		case Opcodes.CONDITION_PAIR:
+			conditionPair((int) position.intArg(0));
+			position.next();
+			break;
+		case Opcodes.IS_IN:
+			isIn();
+			position.next();
+			break;
+		case Opcodes.THIS:
+			// this is in preparation for a function
+			// call for the JVM-COMPILED script, only
+			// therefore, do NOTHING for the interpreted
+			// version
+			position.next();
+			break;
+		case Opcodes.EXEC:
+			exec();
+			position.next();
+			break;
+		case Opcodes.EXTENSION:
+			extension(position.extensionFunctionArg(), position.intArg(1), position.boolArg(2));
+			position.next();
+			break;
+		case Opcodes.ASSIGN_NF:
+			assignNF();
+			position.next();
+			break;
+		case Opcodes.PUSH_NF:
+			pushNF();
+			position.next();
+			break;
+		case Opcodes.ASSIGN_NR:
+			assignNR();
+			position.next();
+			break;
+		case Opcodes.PUSH_NR:
+			pushNR();
+			position.next();
+			break;
+		case Opcodes.ASSIGN_FNR:
+			assignFNR();
+			position.next();
+			break;
+		case Opcodes.PUSH_FNR:
+			pushFNR();
+			position.next();
+			break;
+		case Opcodes.ASSIGN_FS:
+			assignFS();
+			position.next();
+			break;
+		case Opcodes.PUSH_FS:
+			pushFS();
+			position.next();
+			break;
+		case Opcodes.ASSIGN_RS:
+			assignRS();
+			position.next();
+			break;
+		case Opcodes.PUSH_RS:
+			pushRS();
+			position.next();
+			break;
+		case Opcodes.ASSIGN_OFS:
+			assignOFS();
+			position.next();
+			break;
+		case Opcodes.PUSH_OFS:
+			pushOFS();
+			position.next();
+			break;
+		case Opcodes.ASSIGN_ORS:
+			assignORS();
+			position.next();
+			break;
+		case Opcodes.PUSH_ORS:
+			pushORS();
+			position.next();
+			break;
+		case Opcodes.ASSIGN_RSTART:
+			assignRSTART();
+			position.next();
+			break;
+		case Opcodes.PUSH_RSTART:
+			pushRSTART();
+			position.next();
+			break;
+		case Opcodes.ASSIGN_RLENGTH:
+			assignRLENGTH();
+			position.next();
+			break;
+		case Opcodes.PUSH_RLENGTH:
+			pushRLENGTH();
+			position.next();
+			break;
+		case Opcodes.ASSIGN_FILENAME:
+			assignFILENAME();
+			position.next();
+			break;
+		case Opcodes.PUSH_FILENAME:
+			pushFILENAME();
+			position.next();
+			break;
+		case Opcodes.ASSIGN_SUBSEP:
+			assignSUBSEP();
+			position.next();
+			break;
+		case Opcodes.PUSH_SUBSEP:
+			pushSUBSEP();
+			position.next();
+			break;
+		case Opcodes.ASSIGN_CONVFMT:
+			assignCONVFMT();
+			position.next();
+			break;
+		case Opcodes.PUSH_CONVFMT:
+			pushCONVFMT();
+			position.next();
+			break;
+		case Opcodes.ASSIGN_OFMT:
+			assignOFMT();
+			position.next();
+			break;
+		case Opcodes.PUSH_OFMT:
+			pushOFMT();
+			position.next();
+			break;
+		case Opcodes.ASSIGN_ARGC:
+			assignARGC();
+			position.next();
+			break;
+		case Opcodes.PUSH_ARGC:
+			pushARGC();
+			position.next();
+			break;
+		default:
+			throw new Error("invalid opcode: " + position.opcode());
+		}
+	}
+
+	// Instruction semantics.
+	// Each method below implements one opcode (or a family of opcodes) on top
+	// of the operand stack and the runtime stack. They are shared by the
+	// interpreter loop above and by the classes generated by AwkCompiler,
+	// which is why tuple arguments are received as plain parameters.
+
+	void print(long numArgs) {
+		// arg[0] = # of items to print on the stack
+		// stack[0] = item 1
+		// stack[1] = item 2
+		// etc.
+		printTo(outputStream, numArgs);
+	}
+
+	void printToFile(long numArgs, boolean append) {
+		// arg[0] = # of items to print on the stack
+		// arg[1] = true=append, false=overwrite
+		// stack[0] = output filename
+		// stack[1] = item 1
+		// stack[2] = item 2
+		// etc.
+		String key = jrt.toAwkString(pop());
+		PrintStream ps = jrt.jrtGetPrintStream(key, append);
+		printTo(ps, numArgs);
+	}
+
+	void printToPipe(long numArgs) {
+		// arg[0] = # of items to print on the stack
+		// stack[0] = command to execute
+		// stack[1] = item 1
+		// stack[2] = item 2
+		// etc.
+		String cmd = jrt.toAwkString(pop());
+		PrintStream ps = jrt.jrtSpawnForOutput(cmd);
+		printTo(ps, numArgs);
+	}
+
+	void printf(long numArgs) {
+		// arg[0] = # of items to print on the stack (includes format string)
+		// stack[0] = format string
+		// stack[1] = item 1
+		// etc.
+		printfTo(outputStream, numArgs);
+	}
+
+	void printfToFile(long numArgs, boolean append) {
+		// arg[0] = # of items to print on the stack (includes format string)
+		// arg[1] = true=append, false=overwrite
+		// stack[0] = output filename
+		// stack[1] = format string
+		// stack[2] = item 1
+		// etc.
+		String key = jrt.toAwkString(pop());
+		PrintStream ps = jrt.jrtGetPrintStream(key, append);
+		printfTo(ps, numArgs);
+	}
+
+	void printfToPipe(long numArgs) {
+		// arg[0] = # of items to print on the stack (includes format string)
+		// stack[0] = command to execute
+		// stack[1] = format string
+		// stack[2] = item 1
+		// etc.
+		String cmd = jrt.toAwkString(pop());
+		PrintStream ps = jrt.jrtSpawnForOutput(cmd);
+		printfTo(ps, numArgs);
+	}
+
+	void sprintf(long numArgs) {
+		// arg[0] = # of sprintf arguments
+		// stack[0] = arg1 (format string)
+		// stack[1] = arg2
+		// etc.
+		push(sprintfFunction(numArgs));
+	}
+
+	void length(long num) {
+		// arg[0] = 0==use $0, otherwise, use the stack element
+		// stack[0] = element to measure (only if arg[0] != 0)
+		if (num == 0) {
+			// display $0
+			push(jrt.jrtGetInputField(0).toString().length());
+		} else {
+			Object o = pop();
+			push(o instanceof StrNum ? ((StrNum) o).length() : o.toString().length());
+		}
+	}
+
+	/**
+	 * Pops the top of the operand stack and converts it to a boolean,
+	 * as needed by the conditional jumps.
+	 */
+	boolean popBoolean() {
+		// if int, then check for 0
+		// if double, then check for 0
+		// if String, then check for "" or double value of "0"
+		if (isNumberSlot(0)) {
+			return popDouble() != 0;
+		}
+		return jrt.toBoolean(pop());
+	}
+
+	void toNumber() {
+		// stack[0] = item to convert to a number
+		boolean val = jrt.toBoolean(pop());
+		push(val ? ONE : ZERO);
+	}
+
+	void not() {
+		// stack[0] = item to logically negate
+		Object o = pop();
+
+		boolean result = jrt.toBoolean(o);
+
+		if (result) {
+			push(0);
+		} else {
+			push(1);
+		}
+	}
+
+	void negate() {
+		// stack[0] = item to numerically negate
+		pushNumber(-popDouble());
+	}
+
+	void unaryPlus() {
+		// stack[0] = item to convert to a number
+		pushNumber(popDouble());
+	}
+
+	void concat() {
+		// stack[0] = string1
+		// stack[1] = string2
+		String s2 = jrt.toAwkString(pop());
+		String s1 = jrt.toAwkString(pop());
+		String resultString = s1 + s2;
+		push(resultString);
+	}
+
+	void concatStrings() {
+		// stack[0] = string2
+		// stack[1] = string1
+		String s2 = (String) pop();
+		String s1 = (String) pop();
+		push(s1.concat(s2));
+	}
+
+	void assign(long offset, boolean isGlobal) {
+		// arg[0] = offset
+		// arg[1] = isGlobal
+		// stack[0] = value
+		Object value = pop();
+		assign(offset, value, isGlobal);
+	}
+
+	void assignPop(long offset, boolean isGlobal) {
+		// arg[0] = offset
+		// arg[1] = isGlobal
+		// stack[0] = value
+		Object value = pop();
+		if (runtimeStack.getVariable(offset, isGlobal) instanceof AssocArray) {
+			throw new AwkRuntimeException("cannot assign anything to an unindexed associative array");
+		}
+		runtimeStack.setVariable(offset, value, isGlobal);
+	}
+
+	void assignArray(long offset, boolean isGlobal) {
+		// arg[0] = offset
+		// arg[1] = isGlobal
+		// stack[0] = array index
+		// stack[1] = value
+		Object arrIdx = pop();
+		Object rhs = pop();
+		if (rhs == null) {
+			rhs = BLANK;
+		}
+		assignArray(offset, arrIdx, rhs, isGlobal);
+	}
+
+	void assignOperationArray(Opcode opcode, long offset, boolean isGlobal) {
+		// arg[0] = offset
+		// arg[1] = isGlobal
+		// stack[0] = array index
+		// stack[1] = value
+		Object arrIdx = pop();
+		double val = popDouble();
+
+		// from DEREF_ARRAY
+		// stack[0] = AssocArray
+		// stack[1] = array index
+		Object o1 = runtimeStack.getVariable(offset, isGlobal); // map
+		if (o1 == null || o1 instanceof UninitializedObject) {
+			o1 = new AssocArray(sortedArrayKeys);
+			runtimeStack.setVariable(offset, o1, isGlobal);
+		} else {
+			assert o1 instanceof AssocArray;
+		}
+
+		AssocArray array = (AssocArray) o1;
+		Object o = array.get(arrIdx);
+		assert o != null;
+		double newVal = applyOperation(opcode, JRT.toDouble(o), val);
+
+		if (JRT.isActuallyLong(newVal)) {
+			assignArray(offset, arrIdx, (long) Math.rint(newVal), isGlobal);
+		} else {
+			assignArray(offset, arrIdx, newVal, isGlobal);
+		}
+	}
+
+	void plusEqArrayField(long fieldnum, long offset, boolean isGlobal) {
+		// arg[0] = field number, used as the array index
+		// arg[1] = offset
+		// arg[2] = isGlobal
+		// stack[0] = value
+		push(jrt.jrtGetInputField(fieldnum));
+		assignOperationArray(Opcode.PLUS_EQ_ARRAY, offset, isGlobal);
+		pop();
+	}
+
+	void assignAsInput() {
+		// stack[0] = value
+		Object value = pop();
+		if (value instanceof StrNum) {
+			// $0 read by getline
+			jrt.jrtParseRecord((StrNum) value);
+		} else {
+			jrt.setInputLine(value.toString());
+			jrt.jrtParseFields();
+		}
+		push(jrt.getInputLine());
+	}
+
+	void assignAsInputField() {
+		// stack[0] = field number
+		// stack[1] = value
+		Object fieldNumObj = pop();
+		long fieldNum = JRT.parseFieldNumber(fieldNumObj);
+		String value = pop().toString();
+		push(value); // leave the result on the stack
+		if (fieldNum == 0) {
+			jrt.setInputLine(value);
+			jrt.jrtParseFields();
+		} else {
+			jrt.jrtSetInputField(value, fieldNum);
+		}
+	}
+
+	void assignOperation(Opcode opcode, long offset, boolean isGlobal) {
+		// arg[0] = offset
+		// arg[1] = isGlobal
+		// stack[0] = value
+		Object o1 = runtimeStack.getVariable(offset, isGlobal);
+		if (o1 == null) {
+			o1 = BLANK;
+		}
+		double ans = applyOperation(opcode, JRT.toDouble(o1), popDouble());
+		// Box the result once, for both the variable and the stack
+		Object result;
+		if (JRT.isActuallyLong(ans)) {
+			result = Long.valueOf((long) Math.rint(ans));
+		} else {
+			result = Double.valueOf(ans);
+		}
+		push(result);
+		runtimeStack.setVariable(offset, result, isGlobal);
+	}
+
+	void assignOperationInputField(Opcode opcode) {
+		// stack[0] = dollar_fieldNumber
+		// stack[1] = inc value
+
+		// same code as GET_INPUT_FIELD:
+		long fieldnum = JRT.parseFieldNumber(pop());
+		double incval = popDouble();
+
+		// except here, get the number, and add the incvalue
+		Object numObj = jrt.jrtGetInputField(fieldnum);
+		double num = applyOperation(opcode, JRT.toDouble(numObj), incval);
+		setNumOnJRT(fieldnum, num);
+
+		// put the result value on the stack
+		push(num);
+	}
+
+	/**
+	 * Computes the arithmetic part of the <code>op=</code> family of
+	 * opcodes.
+	 */
+	private static double applyOperation(Opcode opcode, double d1, double d2) {
+		switch (opcode) {
+		case PLUS_EQ:
+		case PLUS_EQ_ARRAY:
+		case PLUS_EQ_INPUT_FIELD:
+			return d1 + d2;
+		case MINUS_EQ:
+		case MINUS_EQ_ARRAY:
+		case MINUS_EQ_INPUT_FIELD:
+			return d1 - d2;
+		case MULT_EQ:
+		case MULT_EQ_ARRAY:
+		case MULT_EQ_INPUT_FIELD:
+			return d1 * d2;
+		case DIV_EQ:
+		case DIV_EQ_ARRAY:
+		case DIV_EQ_INPUT_FIELD:
+			return d1 / d2;
+		case MOD_EQ:
+		case MOD_EQ_ARRAY:
+		case MOD_EQ_INPUT_FIELD:
+			return d1 % d2;
+		case POW_EQ:
+		case POW_EQ_ARRAY:
+		case POW_EQ_INPUT_FIELD:
+			return Math.pow(d1, d2);
+		default:
+			throw new Error("Invalid opcode here: " + opcode);
+		}
+	}
+
+	void postInc(long offset, boolean isGlobal) {
+		// arg[0] = offset
+		// arg[1] = isGlobal
+		pop();
+		push(inc(offset, isGlobal));
+	}
+
+	void postDec(long offset, boolean isGlobal) {
+		// arg[0] = offset
+		// arg[1] = isGlobal
+		pop();
+		push(dec(offset, isGlobal));
+	}
+
+	void incArrayRef(long offset, boolean isGlobal) {
+		// arg[0] = offset
+		// arg[1] = isGlobal
+		// stack[0] = array index
+		addToArrayRef(offset, isGlobal, 1);
+	}
+
+	void incArrayRefSubsep(long count, long offset, boolean isGlobal) {
+		// arg[0] = # of elements for SUBSEP application
+		// arg[1] = offset
+		// arg[2] = isGlobal
+		// stack[0..count-1] = index elements
+		applySubsep(count);
+		addToArrayRef(offset, isGlobal, 1);
+	}
+
+	void decArrayRef(long offset, boolean isGlobal) {
+		// arg[0] = offset
+		// arg[1] = isGlobal
+		// stack[0] = array index
+		addToArrayRef(offset, isGlobal, -1);
+	}
+
+	private void addToArrayRef(long offset, boolean isGlobal, int delta) {
+		Object o1 = runtimeStack.getVariable(offset, isGlobal);
+		if (o1 == null || o1 instanceof UninitializedObject) {
+			o1 = new AssocArray(sortedArrayKeys);
+			runtimeStack.setVariable(offset, o1, isGlobal);
+		}
+		AssocArray aa = (AssocArray) o1;
+		Object key = pop();
+		Object o = aa.get(key);
+		assert o != null;
+		double ans = JRT.toDouble(o) + delta;
+		if (JRT.isActuallyLong(ans)) {
+			aa.put(key, (long) Math.rint(ans));
+		} else {
+			aa.put(key, ans);
+		}
+	}
+
+	void incDollarRef() {
+		// stack[0] = dollar index (field number)
+		addToDollarRef(1);
+	}
+
+	void decDollarRef() {
+		// stack[0] = dollar index (field number)
+		addToDollarRef(-1);
+	}
+
+	private void addToDollarRef(int delta) {
+		// same code as GET_INPUT_FIELD:
+		long fieldnum = JRT.parseFieldNumber(pop());
+
+		Object numObj = jrt.jrtGetInputField(fieldnum);
+		double original = JRT.toDouble(numObj);
+		double num = original + delta;
+		setNumOnJRT(fieldnum, num);
+
+		if (JRT.isActuallyLong(original)) {
+			push((long) Math.rint(original));
+		} else {
+			push(Double.valueOf(original));
+		}
+	}
+
+	void dereference(long offset, boolean isArray, boolean isGlobal) {
+		// arg[0] = offset
+		// arg[1] = isArray
+		// arg[2] = isGlobal
+		Object o = runtimeStack.getVariable(offset, isGlobal);
+		if (o == null) {
+			if (isArray) {
+				push(runtimeStack.setVariable(offset, new AssocArray(sortedArrayKeys), isGlobal));
+			} else {
+				push(runtimeStack.setVariable(offset, BLANK, isGlobal));
+			}
+		} else {
+			push(o);
+		}
+	}
+
+	void derefArray() {
+		// stack[0] = array index
+		// stack[1] = AssocArray
+		Object idx = pop(); // idx
+		Object array = pop(); // map
+		if (!(array instanceof AssocArray)) {
+			throw new AwkRuntimeException("Attempting to index a non-associative-array.");
+		}
+		Object o = ((AssocArray) array).get(idx);
+		assert o != null;
+		push(o);
+	}
+
+	void srand(long numArgs) {
+		// arg[0] = numArgs (where 0 = no args, anything else = one argument)
+		// stack[0] = seed (only if numArgs != 0)
+		int seed;
+		if (numArgs == 0) {
+			// use the time of day for the seed
+			seed = JRT.timeSeed();
+		} else {
+			Object o = pop();
+			if (o instanceof Double) {
+				seed = ((Double) o).intValue();
+			} else if (o instanceof Long) {
+				seed = ((Long) o).intValue();
+			} else if (o instanceof Integer) {
+				seed = ((Integer) o).intValue();
+			} else {
+				seed = (int) JRT.toLong(o);
+			}
+		}
+		randomNumberGenerator.setSeed(seed);
+		push(oldseed);
+		oldseed = seed;
+	}
+
+	void rand() {
+		push(randomNumberGenerator.nextDouble());
+	}
+
+	void intFunc() {
+		// stack[0] = arg to int() function
+		pushSlot(LONG_SLOT, (long) popDouble());
+	}
+
+	void sqrt() {
+		// stack[0] = arg to sqrt() function
+		pushDouble(Math.sqrt(popDouble()));
+	}
+
+	void log() {
+		// stack[0] = arg to log() function
+		pushDouble(Math.log(popDouble()));
+	}
+
+	void exp() {
+		// stack[0] = arg to exp() function
+		pushDouble(Math.exp(popDouble()));
+	}
+
+	void sin() {
+		// stack[0] = arg to sin() function
+		pushDouble(Math.sin(popDouble()));
+	}
+
+	void cos() {
+		// stack[0] = arg to cos() function
+		pushDouble(Math.cos(popDouble()));
+	}
+
+	void atan2() {
+		// stack[0] = 2nd arg to atan2() function
+		// stack[1] = 1st arg to atan2() function
+		double d2 = popDouble();
+		double d1 = popDouble();
+		pushDouble(Math.atan2(d1, d2));
+	}
+
+	void match(int ignoreCaseOffset) {
+		// stack[0] = 2nd arg to match() function
+		// stack[1] = 1st arg to match() function
+		String ere = jrt.toAwkString(pop());
+		String s = jrt.toAwkString(pop());
+
+		// check if IGNORECASE set (offset resolved by AwkTuples.link())
+		int flags = 0;
+
+		if (ignoreCaseOffset >= 0) {
+			Object ignorecase = runtimeStack.getVariable(ignoreCaseOffset, true);
+
+			if (JRT.toDouble(ignorecase) != 0) {
+				flags |= Pattern.CASE_INSENSITIVE;
+			}
+		}
+
+		Pattern pattern = RegexCache.getInstance().compile(ere, flags);
+		Matcher matcher = pattern.matcher(s);
+		boolean result = matcher.find();
+		if (result) {
+			int start = matcher.start() + 1;
+			int len = matcher.end() - matcher.start();
+			jrt.setRSTART(start);
+			jrt.setRLENGTH(len);
+			push(start);
+		} else {
+			jrt.setRSTART(0);
+			jrt.setRLENGTH(-1);
+			push(0);
+		}
+	}
+
+	void index() {
+		// stack[0] = 2nd arg to index() function
+		// stack[1] = 1st arg to index() function
+		String s2 = jrt.toAwkString(pop());
+		String s1 = jrt.toAwkString(pop());
+		push(s1.indexOf(s2) + 1);
+	}
+
+	void subForDollar0(boolean isGsub) {
+		// arg[0] = isGsub
+		// stack[0] = replacement string
+		// stack[1] = ere
+		String repl = jrt.toAwkString(pop());
+		String ere = jrt.toAwkString(pop());
+		String orig = jrt.toAwkString(jrt.jrtGetInputField(0));
+		String newstring;
+		if (isGsub) {
+			newstring = replaceAll(orig, ere, repl);
+		} else {
+			newstring = replaceFirst(orig, ere, repl);
+		}
+		// assign it to "$0"
+		jrt.setInputLine(newstring);
+		jrt.jrtParseFields();
+	}
+
+	void subForDollarReference(boolean isGsub) {
+		// arg[0] = isGsub
+		// stack[0] = field num
+		// stack[1] = original field value
+		// stack[2] = replacement string
+		// stack[3] = ere
+		long fieldNum = JRT.parseFieldNumber(pop());
+		String newstring = execSubOrGSub(isGsub);
+		// assign it to "$0"
+		if (fieldNum == 0) {
+			jrt.setInputLine(newstring);
+			jrt.jrtParseFields();
+		} else {
+			jrt.jrtSetInputField(newstring, fieldNum);
+		}
+	}
+
+	void subForVariable(long offset, boolean isGlobal, boolean isGsub) {
+		// arg[0] = offset
+		// arg[1] = isGlobal
+		// arg[2] = isGsub
+		// stack[0] = original variable value
+		// stack[1] = replacement string
+		// stack[2] = ere
+		String newString = execSubOrGSub(isGsub);
+		// assign it to "offset/global"
+		assign(offset, newString, isGlobal);
+		pop();
+	}
+
+	void subForArrayReference(long offset, boolean isGlobal, boolean isGsub) {
+		// arg[0] = offset
+		// arg[1] = isGlobal
+		// arg[2] = isGsub
+		// stack[0] = original variable value
+		// stack[1] = replacement string
+		// stack[2] = ere
+		// stack[3] = array index
+		// ARRAY reference offset/isGlobal
+		Object arrIdx = pop();
+		String newString = execSubOrGSub(isGsub);
+		// assign it to "offset/arrIdx/global"
+		assignArray(offset, arrIdx, newString, isGlobal);
+		pop();
+	}
+
+	void split(long numArgs) {
+		// arg[0] = num args
+		// stack[0] = field_sep (only if num args == 3)
+		// stack[1] = array
+		// stack[2] = string
+		String fsString;
+		if (numArgs == 2) {
+			// split like the records (with FS, or as CSV)
+			fsString = null;
+		} else if (numArgs == 3) {
+			fsString = jrt.toAwkString(pop());
+		} else {
+			throw new Error("Invalid # of args. split() requires 2 or 3. Got: " + numArgs);
+		}
+		Object o = pop();
+		if (!(o instanceof AssocArray)) {
+			throw new AwkRuntimeException(o + " is not an array.");
+		}
+		String s = jrt.toAwkString(pop());
+		int cnt = fsString == null ? jrt.jrtSplit((AssocArray) o, s) : jrt.jrtSplit(fsString, (AssocArray) o, s);
+		push(cnt);
+	}
+
+	void substr(long numArgs) {
+		// arg[0] = num args
+		// stack[0] = length (only if num args == 3)
+		// stack[1] = start pos
+		// stack[2] = string
+		int startPos, length;
+		String s;
+		if (numArgs == 3) {
+			length = (int) JRT.toLong(pop());
+			startPos = (int) popDouble();
+			s = jrt.toAwkString(pop());
+		} else if (numArgs == 2) {
+			startPos = (int) popDouble();
+			s = jrt.toAwkString(pop());
+			length = s.length() - startPos + 1;
+		} else {
+			throw new Error("numArgs for SUBSTR must be 2 or 3. It is " + numArgs);
+		}
+		if (startPos <= 0) {
+			startPos = 1;
+		}
+		if (length <= 0 || startPos > s.length()) {
+			push(BLANK);
+		} else {
+			if (startPos + length > s.length()) {
+				push(s.substring(startPos - 1));
+			} else {
+				push(s.substring(startPos - 1, startPos + length - 1));
+			}
+		}
+	}
+
+	void toLower() {
+		// stack[0] = string
+		String s = jrt.toAwkString(pop());
+		push(settings.isCharactersAsBytes() ? toAsciiCase(s, false) : s.toLowerCase());
+	}
+
+	void toUpper() {
+		// stack[0] = string
+		String s = jrt.toAwkString(pop());
+		push(settings.isCharactersAsBytes() ? toAsciiCase(s, true) : s.toUpperCase());
+	}
+
+	/**
+	 * Changes the case of the ASCII letters only, like the C locale, so that
+	 * the other bytes read as characters are left unchanged.
+	 *
+	 * @param s the string
+	 * @param upper whether to convert to upper case, or to lower case
+	 * @return the converted string
+	 */
+	private static String toAsciiCase(String s, boolean upper) {
+		char[] chars = s.toCharArray();
+		for (int i = 0; i < chars.length; i++) {
+			char c = chars[i];
+			if (upper && c >= 'a' && c <= 'z') {
+				chars[i] = (char) (c - 'a' + 'A');
+			} else if (!upper && c >= 'A' && c <= 'Z') {
+				chars[i] = (char) (c - 'A' + 'a');
+			}
+		}
+		return new String(chars);
+	}
+
+	void system() {
+		// stack[0] = command string
+		String s = jrt.toAwkString(pop());
+		push(jrt.jrtSystem(s));
+	}
+
+	/**
+	 * Implements <code>CMP_EQ</code> (mode 0), <code>CMP_LT</code> (mode -1)
+	 * and <code>CMP_GT</code> (mode 1).
+	 */
+	void compare(int mode) {
+		// stack[0] = item2
+		// stack[1] = item1
+		if (isNumberSlot(0) && isNumberSlot(1)) {
+			double d2 = popDouble();
+			double d1 = popDouble();
+			boolean result;
+			if (mode < 0) {
+				result = d1 < d2;
+			} else if (mode == 0) {
+				result = d1 == d2;
+			} else {
+				result = d1 > d2;
+			}
+			push(result ? ONE : ZERO);
+			return;
+		}
+		Object o2 = pop();
+		Object o1 = pop();
+		push(JRT.compare2(o1, o2, mode) ? ONE : ZERO);
+	}
+
+	/**
+	 * Pops the top of the stack and compares it with the specified constant.
+	 *
+	 * @param constant the right operand of the comparison
+	 * @param mode 0 for ==, negative for &lt;, positive for &gt;
+	 * @return the result of the comparison
+	 */
+	boolean compareWithConstant(Object constant, int mode) {
+		// stack[0] = item1
+		if (constant instanceof Number && isNumberSlot(0)) {
+			double d1 = popDouble();
+			double d2 = ((Number) constant).doubleValue();
+			if (mode < 0) {
+				return d1 < d2;
+			} else if (mode == 0) {
+				return d1 == d2;
+			} else {
+				return d1 > d2;
+			}
+		}
+		return JRT.compare2(pop(), constant, mode);
+	}
+
+	void compareNumbers(int mode) {
+		// stack[0] = number2
+		// stack[1] = number1
+		double d2 = popNumber();
+		double d1 = popNumber();
+		boolean result;
+		if (mode < 0) {
+			result = d1 < d2;
+		} else if (mode == 0) {
+			result = d1 == d2;
+		} else {
+			result = d1 > d2;
+		}
+		push(result ? ONE : ZERO);
+	}
+
+	void matches() {
+		// stack[0] = item2
+		// stack[1] = item1
+		Object o2 = pop();
+		Object o1 = pop();
+		// use o1's string value (fields are matched in place)
+		CharSequence s = o1 instanceof StrNum ? (StrNum) o1 : o1.toString();
+		// assume o2 is a regexp
+		if (o2 instanceof Pattern) {
+			Pattern p = (Pattern) o2;
+			Matcher m = p.matcher(s);
+			// m.matches() matches the ENTIRE string
+			// m.find() is more appropriate
+			boolean result = m.find();
+			push(result ? 1 : 0);
+		} else {
+			String r = jrt.toAwkString(o2);
+			boolean result = RegexCache.getInstance().compile(r).matcher(s).find();
+			push(result ? 1 : 0);
+		}
+	}
+
+	void add() {
+		// stack[0] = item2
+		// stack[1] = item1
+		double d2 = popDouble();
+		double d1 = popDouble();
+		pushNumber(d1 + d2);
+	}
+
+	void subtract() {
+		// stack[0] = item2
+		// stack[1] = item1
+		double d2 = popDouble();
+		double d1 = popDouble();
+		pushNumber(d1 - d2);
+	}
+
+	void multiply() {
+		// stack[0] = item2
+		// stack[1] = item1
+		double d2 = popDouble();
+		double d1 = popDouble();
+		pushNumber(d1 * d2);
+	}
+
+	void divide() {
+		// stack[0] = item2
+		// stack[1] = item1
+		double d2 = popDouble();
+		double d1 = popDouble();
+		pushNumber(d1 / d2);
+	}
+
+	void mod() {
+		// stack[0] = item2
+		// stack[1] = item1
+		double d2 = popDouble();
+		double d1 = popDouble();
+		pushNumber(d1 % d2);
+	}
+
+	void pow() {
+		// stack[0] = item2
+		// stack[1] = item1
+		double d2 = popDouble();
+		double d1 = popDouble();
+		pushNumber(Math.pow(d1, d2));
+	}
+
+	void addNumbers() {
+		// stack[0] = number2
+		// stack[1] = number1
+		double d2 = popNumber();
+		double d1 = popNumber();
+		pushNumber(d1 + d2);
+	}
+
+	void subtractNumbers() {
+		// stack[0] = number2
+		// stack[1] = number1
+		double d2 = popNumber();
+		double d1 = popNumber();
+		pushNumber(d1 - d2);
+	}
+
+	void multiplyNumbers() {
+		// stack[0] = number2
+		// stack[1] = number1
+		double d2 = popNumber();
+		double d1 = popNumber();
+		pushNumber(d1 * d2);
+	}
+
+	void divideNumbers() {
+		// stack[0] = number2
+		// stack[1] = number1
+		double d2 = popNumber();
+		double d1 = popNumber();
+		pushNumber(d1 / d2);
+	}
+
+	void dup() {
+		// stack[0] = top of stack item
+		Object o = operandStack[operandStackSize - 1];
+		pushSlot(o, numberStack[operandStackSize - 1]);
+	}
+
+	void keylist() {
+		// stack[0] = AssocArray
+		Object o = pop();
+		assert o != null;
+		if (!(o instanceof AssocArray)) {
+			throw new AwkRuntimeException(
+					"Cannot get a key list (via 'in') of a non associative array. arg = " + o.getClass() + ", " + o);
+		}
+		AssocArray aa = (AssocArray) o;
+		push(new ArrayDeque<>(aa.keySet()));
+	}
+
+	boolean isEmptyKeylist() {
+		// stack[0] = Deque
+		Object o = pop();
+		if (o == null || !(o instanceof Deque)) {
+			throw new AwkRuntimeException(
+					"Cannot get a key list (via 'in') of a non associative array. arg = " + o.getClass() + ", " + o);
+		}
+		Deque<?> keylist = (Deque<?>) o;
+		return keylist.isEmpty();
+	}
+
+	void getFirstAndRemoveFromKeylist() {
+		// stack[0] = Deque
+		Object o = pop();
+		if (o == null || !(o instanceof Deque)) {
+			throw new AwkRuntimeException(
+					"Cannot get a key list (via 'in') of a non associative array. arg = " + o.getClass() + ", " + o);
+		}
+		// pop off and return the head of the key set
+		Deque<?> keylist = (Deque<?>) o;
+		assert !keylist.isEmpty();
+		push(keylist.removeFirst());
+	}
+
+	void checkClass(Class<?> cls) {
+		// arg[0] = class object
+		// stack[0] = item to check
+		Object o = pop();
+		if (!cls.isInstance(o)) {
+			throw new AwkRuntimeException(
+					"Verification failed. Top-of-stack = " + o.getClass() + " isn't an instance of " + cls);
+		}
+		push(o);
+	}
+
+	boolean consumeInput() throws IOException {
+		// false = do NOT put result on stack...
+		// instead, put it in field vars ($0, $1, ...)
+		return avmConsumeInput(false);
+	}
+
+	void setInputForEval() throws IOException {
+		jrt.setInputLineforEval(settings.getInput());
+	}
+
+	void useAsFileInput() throws IOException {
+		// stack[0] = filename
+		String s = jrt.toAwkString(pop());
+		avmConsumeFileInputForGetline(s);
+	}
+
+	void useAsCommandInput() throws IOException {
+		// stack[0] = command line
+		String s = jrt.toAwkString(pop());
+		avmConsumeCommandInputForGetline(s);
+	}
+
+	void setEnvironOffset(long offset) {
+		environOffset = offset;
+		assert environOffset != NULL_OFFSET;
+		// set the initial variables
+		Map<String, String> env = System.getenv();
+		for (Map.Entry<String, String> var : env.entrySet()) {
+			assignArray(environOffset, var.getKey(), var.getValue(), true);
+			pop(); // clean up the stack after the assignment
+		}
+	}
+
+	void setArgcOffset(long offset) {
+		argcOffset = offset;
+		assert argcOffset != NULL_OFFSET;
+		// +1 to include the "java Awk" (ARGV[0])
+		assign(argcOffset, arguments.size() + 1, true); // true = global
+		pop(); // clean up the stack after the assignment
+		jrt.setARGC(arguments.size() + 1);
+	}
+
+	void setArgvOffset(long offset) {
+		argvOffset = offset;
+		assert argvOffset != NULL_OFFSET;
+		// consume argv (looping from 1 to argc)
+		int argc = (int) JRT.toDouble(runtimeStack.getVariable(argcOffset, true)); // true = global
+		assignArray(argvOffset, 0, "java Awk", true);
+		pop();
+		for (int i = 1; i < argc; i++) {
+			assignArray(argvOffset, i, arguments.get(i - 1), true);
+			pop(); // clean up the stack after the assignment
+		}
+	}
+
+	void getInputField() {
+		// stack[0] = field number
+		Object fieldNumber = pop();
+		push(jrt.jrtGetInputField(JRT.parseFieldNumber(fieldNumber)));
+	}
+
+	void getInputField(long fieldnum) {
+		push(jrt.jrtGetInputField(fieldnum));
+	}
+
+	void applyRS() {
+		jrt.applyRS(jrt.getRSVar());
+	}
+
+	/**
+	 * Pushes a new frame for a function call and moves the actual
+	 * parameters from the operand stack into its local variables.
+	 *
+	 * @param numFormalParams number of formal parameters of the function
+	 * @param numActualParams number of actual parameters on the stack
+	 * @param returnIndex index of the calling tuple
+	 */
+	void callFunction(long numFormalParams, long numActualParams, int returnIndex) {
+		// stack[0] = last actual parameter
+		// stack[1] = before-last actual parameter
+		// ...
+		// stack[n-1] = first actual parameter
+		assert numFormalParams >= numActualParams;
+		runtimeStack.pushFrame(numFormalParams, returnIndex);
+		// Arguments are stacked, so first in the stack is the last for the function
+		for (long i = numActualParams - 1; i >= 0; i--) {
+			runtimeStack.setVariable(i, pop(), false); // false = local
+		}
+	}
+
+	void setReturnResult() {
+		// stack[0] = return result
+		runtimeStack.setReturnValue(pop());
+	}
+
+	/**
+	 * Pops the current function frame and pushes the function result.
+	 *
+	 * @return index of the calling tuple
+	 */
+	int returnFromFunction() {
+		int returnIndex = runtimeStack.popFrame();
+		push(runtimeStack.getReturnValue());
+		return returnIndex;
+	}
+
+	/**
+	 * Assigns the actual parameters of a function inlined at its call site
+	 * to the variables holding its parameters, and clears its other variables.
+	 */
+	void inlineFrame(long numVariables, long numActualParams, long offset, boolean isGlobal) {
+		// stack[0] = last actual parameter
+		// ...
+		// stack[n-1] = first actual parameter
+		for (long i = numActualParams; i < numVariables; i++) {
+			runtimeStack.setVariable(offset + i, null, isGlobal);
+		}
+		for (long i = numActualParams - 1; i >= 0; i--) {
+			runtimeStack.setVariable(offset + i, pop(), isGlobal);
+		}
+	}
+
+	/**
+	 * Reinitializes the current frame for a call of the current function to
+	 * itself from its last statement.
+	 */
+	void tailCall(long numFormalParams, long numActualParams) {
+		inlineFrame(numFormalParams, numActualParams, 0, false);
+	}
+
+	/**
+	 * Clears the variables of an inlined function and pushes its result.
+	 */
+	void inlineReturn(long numVariables, long offset, boolean isGlobal) {
+		for (long i = 0; i < numVariables; i++) {
+			runtimeStack.setVariable(offset + i, null, isGlobal);
+		}
+		push(runtimeStack.getReturnValue());
+	}
+
+	void setNumGlobals(long numGlobals) {
+		// arg[0] = # of globals
+		// (functions inlined outside of any function use additional globals)
+		assert numGlobals >= globalVariableOffsets.size();
+		runtimeStack.setNumGlobals(numGlobals);
+		Integer fieldWidthsOffsetObj = globalVariableOffsets.get("FIELDWIDTHS");
+		fieldWidthsOffset = fieldWidthsOffsetObj == null ? -1 : fieldWidthsOffsetObj.intValue();
+		// the fields are split with a new FIELDWIDTHS value once assigned
+		runtimeStack.watchGlobal(fieldWidthsOffset, jrt::fieldWidthsAssigned);
+
+		// now that we have the global variable size,
+		// we can allocate the initial variables
+
+		// assign -v variables (from initialVariables container)
+		for (Map.Entry<String, Object> entry : initialVariables.entrySet()) {
+			String key = entry.getKey();
+			if (functionNames.contains(key)) {
+				throw new IllegalArgumentException("Cannot assign a scalar to a function name (" + key + ").");
+			}
+			Integer offsetObj = globalVariableOffsets.get(key);
+			Boolean arrayObj = globalVariableArrays.get(key);
+			if (offsetObj != null) {
+				assert arrayObj != null;
+				if (arrayObj.booleanValue()) {
+					throw new IllegalArgumentException("Cannot assign a scalar to a non-scalar variable (" + key + ").");
+				} else {
+					Object obj = entry.getValue();
+					runtimeStack.setFilelistVariable(offsetObj.intValue(), obj);
+				}
+			}
+		}
+	}
+
+	void close() {
+		// stack[0] = file or command line to close
+		String s = jrt.toAwkString(pop());
+		push(jrt.jrtClose(s));
+	}
+
+	void applySubsep(long count) {
+		// arg[0] = # of elements for SUBSEP application
+		// stack[0] = first element
+		// stack[1] = second element
+		// etc.
+		assert count >= 1;
+		if (count == 1) {
+			push(jrt.toAwkString(pop()));
+		} else {
+			StringBuilder sb = new StringBuilder();
+			sb.append(jrt.toAwkString(pop()));
+			String subsep = jrt.toAwkString(jrt.getSUBSEPVar());
+			for (int i = 1; i < count; i++) {
+				sb.insert(0, subsep);
+				sb.insert(0, jrt.toAwkString(pop()));
+			}
+			push(sb.toString());
+		}
+	}
+
+	void deleteArrayElement(long offset, boolean isGlobal) {
+		// arg[0] = offset
+		// arg[1] = isGlobal
+		// stack[0] = array index
+		AssocArray aa = (AssocArray) runtimeStack.getVariable(offset, isGlobal);
+		Object key = pop();
+		if (aa != null) {
+			aa.remove(key);
+		}
+	}
+
+	void deleteArray(long offset, boolean isGlobal) {
+		// arg[0] = offset
+		// arg[1] = isGlobal
+		// (nothing on the stack)
+		runtimeStack.removeVariable(offset, isGlobal);
+	}
+
+	void setExitAddress(int index) {
+		exitIndex = index;
+	}
+
+	void setWithinEndBlocks(boolean within) {
+		withinEndBlocks = within;
+	}
+
+	/**
+	 * Implements <code>EXIT_WITH_CODE</code> and <code>EXIT_WITHOUT_CODE</code>.
+	 *
+	 * @param withCode whether the exit code is on top of the stack
+	 * @return index of the tuple to continue with (the END blocks)
+	 * @throws ExitException when already within the END blocks, or when
+	 *         there is no END block to run
+	 */
+	int exit(boolean withCode) throws ExitException {
+		if (withCode) {
+			// stack[0] = exit code
+			exitCode = (int) popDouble();
+		}
+		throwExitException = true;
+
+		// If in BEGIN or in a rule, jump to the END section
+		if (!withinEndBlocks && exitIndex != -1) {
+			// clear runtime stack
+			runtimeStack.popAllFrames();
+			// clear operand stack
+			clearOperandStack();
+			return exitIndex;
+		}
+		// Exit immediately with ExitException
+		jrt.jrtCloseAll();
+		// clear operand stack
+		clearOperandStack();
+		throw new ExitException(exitCode, "The AWK script requested an exit");
+	}
+
+	void conditionPair(int slot) {
+		// stack[0] = End condition
+		// stack[1] = Start condition
+		ConditionPair cp = conditionPairs[slot];
+		if (cp == null) {
+			cp = new ConditionPair();
+			conditionPairs[slot] = cp;
+		}
+		boolean end = jrt.toBoolean(pop());
+		boolean start = jrt.toBoolean(pop());
+		push(cp.update(start, end) ? ONE : ZERO);
+	}
+
+	void isIn() {
+		// stack[0] = AssocArray
+		// stack[1] = key to check
+		Object arr = pop();
+		Object arg = pop();
+		AssocArray aa = (AssocArray) arr;
+		boolean result = aa.isIn(arg);
+		push(result ? ONE : ZERO);
+	}
+
+	void exec() {
+		// stack[0] = Jawk code
+
+		// Experimental feature. Use with caution.
+		String awkCode = jrt.toAwkString(pop());
+		List<ScriptSource> scriptSources = new ArrayList<ScriptSource>(1);
+		scriptSources
+				.add(new ScriptSource(ScriptSource.DESCRIPTION_COMMAND_LINE_SCRIPT, new StringReader(awkCode)));
+
+		org.metricshub.jawk.frontend.AwkParser ap = new org.metricshub.jawk.frontend.AwkParser(
+				extensionFunctions);
+		try {
+			AstNode ast = ap.parse(scriptSources);
+			if (ast != null) {
+				ast.semanticAnalysis();
+				ast.semanticAnalysis();
+				AwkTuples newTuples = createTuples();
+				int result = ast.populateTuples(newTuples);
+				assert result == 0;
+				newTuples.postProcess();
+				ap.populateGlobalVariableNameToOffsetMappings(newTuples);
+				AVM newAvm = createSubAvm(
+						settings,
+						extensionInstances,
+						extensionFunctions);
+				int subScriptExitCode = 0;
+				try {
+					newAvm.interpret(newTuples);
+				} catch (ExitException ex) {
+					subScriptExitCode = ex.getCode();
+				}
+				push(subScriptExitCode);
+			} else {
+				push(-1);
+			}
+		} catch (IOException ioe) {
+			throw new AwkRuntimeException("IO Exception caught : " + ioe);
+		}
+	}
+
+	/**
+	 * Resolves an extension function called by a compiled script.
+	 *
+	 * @param keyword the AWK keyword of the function
+	 * @return the extension function
+	 * @throws AwkRuntimeException if no extension provides this function
+	 */
+	ExtensionFunction getExtensionFunction(String keyword) {
+		ExtensionFunction function = extensionFunctions.get(keyword);
+		if (function == null) {
+			throw new AwkRuntimeException("Extension function '" + keyword + "' is not registered");
+		}
+		return function;
+	}
+
+	void extension(ExtensionFunction function, long numArgs, boolean isInitial) {
+		// arg[0] = extension function metadata
+		// arg[1] = # of args on the stack
+		// arg[2] = true if parent is NOT an extension function call
+		// (i.e., initial extension in calling expression)
+		// stack[0] = first actual parameter
+		// stack[1] = second actual parameter
+		// etc.
+		Object[] args = new Object[(int) numArgs];
+		for (int i = (int) numArgs - 1; i >= 0; i--) {
+			args[i] = pop();
+		}
+
+		String extensionClassName = function.getExtensionClassName();
+		JawkExtension extension = extensionInstances.get(extensionClassName);
+		if (extension == null) {
+			throw new AwkRuntimeException(
+					"Extension instance for class '" + extensionClassName
+							+ "' is not registered");
+		}
+		if (!(extension instanceof AbstractExtension)) {
+			throw new AwkRuntimeException(
+					"Extension instance for class '" + extensionClassName
+							+ "' does not extend "
+							+ AbstractExtension.class.getName());
+		}
 
-		try {
-			while (!position.isEOF()) {
-				// System_out.println("--> "+position);
-				Opcode opcode = position.opcode();
-				// switch on OPCODE
-				switch (opcode) {
-				case PRINT: {
-					// arg[0] = # of items to print on the stack
-					// stack[0] = item 1
-					// stack[1] = item 2
-					// etc.
-					long numArgs = position.intArg(0);
-					printTo(settings.getOutputStream(), numArgs);
-					position.next();
-					break;
-				}
-				case PRINT_TO_FILE: {
-// arg[0] = # of items to print on the stack
-					// arg[1] = true=append, false=overwrite
-					// stack[0] = output filename
-					// stack[1] = item 1
-					// stack[2] = item 2
-					// etc.
-					long numArgs = position.intArg(0);
-					boolean append = position.boolArg(1);
-					String key = jrt.toAwkString(pop());
-					PrintStream ps = jrt.jrtGetPrintStream(key, append);
-					printTo(ps, numArgs);
-					position.next();
-					break;
-				}
-				case PRINT_TO_PIPE: {
-// arg[0] = # of items to print on the stack
-					// stack[0] = command to execute
-					// stack[1] = item 1
-					// stack[2] = item 2
-					// etc.
-					long numArgs = position.intArg(0);
-					String cmd = jrt.toAwkString(pop());
-					PrintStream ps = jrt.jrtSpawnForOutput(cmd);
-					printTo(ps, numArgs);
-					position.next();
-					break;
-				}
-				case PRINTF: {
-					// arg[0] = # of items to print on the stack (includes format string)
-					// stack[0] = format string
-					// stack[1] = item 1
-					// etc.
-					long numArgs = position.intArg(0);
-					printfTo(settings.getOutputStream(), numArgs);
-					position.next();
-					break;
-				}
-				case PRINTF_TO_FILE: {
-// arg[0] = # of items to print on the stack (includes format string)
-					// arg[1] = true=append, false=overwrite
-					// stack[0] = output filename
-					// stack[1] = format string
-					// stack[2] = item 1
-					// etc.
-					long numArgs = position.intArg(0);
-					boolean append = position.boolArg(1);
-					String key = jrt.toAwkString(pop());
-					PrintStream ps = jrt.jrtGetPrintStream(key, append);
-					printfTo(ps, numArgs);
-					position.next();
-					break;
-				}
-				case PRINTF_TO_PIPE: {
-// arg[0] = # of items to print on the stack (includes format string)
-					// stack[0] = command to execute
-					// stack[1] = format string
-					// stack[2] = item 1
-					// etc.
-					long numArgs = position.intArg(0);
-					String cmd = jrt.toAwkString(pop());
-					PrintStream ps = jrt.jrtSpawnForOutput(cmd);
-					printfTo(ps, numArgs);
-					position.next();
-					break;
-				}
-				case SPRINTF: {
-					// arg[0] = # of sprintf arguments
-					// stack[0] = arg1 (format string)
-					// stack[1] = arg2
-					// etc.
-					long numArgs = position.intArg(0);
-					push(sprintfFunction(numArgs));
-					position.next();
-					break;
-				}
-				case LENGTH: {
-					// arg[0] = 0==use $0, otherwise, use the stack element
-					// stack[0] = element to measure (only if arg[0] != 0)
-
-					// print items from the top of the stack
-					// # of items
-					long num = position.intArg(0);
-					if (num == 0) {
-						// display $0
-						push(jrt.jrtGetInputField(0).toString().length());
-					} else {
-						push(pop().toString().length());
-					}
-					position.next();
-					break;
-				}
-				case PUSH: {
-					// arg[0] = constant to push onto the stack
-					push(position.arg(0));
-					position.next();
-					break;
-				}
-				case POP: {
-					// stack[0] = item to pop from the stack
-					pop();
-					position.next();
-					break;
-				}
-				case IFFALSE: {
-					// arg[0] = address to jump to if top of stack is false
-					// stack[0] = item to check
-
-					// if int, then check for 0
-					// if double, then check for 0
-					// if String, then check for "" or double value of "0"
-					boolean jump = !jrt.toBoolean(pop());
-					if (jump) {
-						position.jump(position.addressArg());
-					} else {
-						position.next();
-					}
-					break;
-				}
-				case TO_NUMBER: {
-					// stack[0] = item to convert to a number
-
-					// if int, then check for 0
-					// if double, then check for 0
-					// if String, then check for "" or double value of "0"
-					boolean val = jrt.toBoolean(pop());
-					push(val ? ONE : ZERO);
-					position.next();
-					break;
-				}
-				case IFTRUE: {
-					// arg[0] = address to jump to if top of stack is true
-					// stack[0] = item to check
-
-					// if int, then check for 0
-					// if double, then check for 0
-					// if String, then check for "" or double value of "0"
-					boolean jump = jrt.toBoolean(pop());
-					if (jump) {
-						position.jump(position.addressArg());
-					} else {
-						position.next();
-					}
-					break;
-				}
-				case NOT: {
-					// stack[0] = item to logically negate
+		Object retval = function.invoke((AbstractExtension) extension, args);
 
-					Object o = pop();
+		// block if necessary
+		// (convert retval into the return value
+		// from the block operation ...)
+		if (isInitial && retval != null && retval instanceof BlockObject) {
+			retval = new BlockManager().block((BlockObject) retval);
+		}
+		// (... and proceed)
+
+		if (retval == null) {
+			retval = "";
+		} else
+			if (!(retval instanceof Integer
+					||
+					retval instanceof Long
+					||
+					retval instanceof Double
+					||
+					retval instanceof String
+					||
+					retval instanceof AssocArray
+					||
+					retval instanceof BlockObject)) {
+						// all other extension results are converted
+						// to a string (via Object.toString())
+						retval = retval.toString();
+					}
+		push(retval);
+	}
 
-					boolean result = jrt.toBoolean(o);
+	void assignNF() {
+		Object v = pop();
+		jrt.setNF(v);
+		push(v);
+	}
 
-					if (result) {
-						push(0);
-					} else {
-						push(1);
-					}
-					position.next();
-					break;
-				}
-				case NEGATE: {
-					// stack[0] = item to numerically negate
-
-					double d = JRT.toDouble(pop());
-					if (JRT.isActuallyLong(d)) {
-						push((long) -Math.rint(d));
-					} else {
-						push(-d);
-					}
-					position.next();
-					break;
-				}
-				case UNARY_PLUS: {
-					// stack[0] = item to convert to a number
-					double d = JRT.toDouble(pop());
-					if (JRT.isActuallyLong(d)) {
-						push((long) Math.rint(d));
-					} else {
-						push(d);
-					}
-					position.next();
-					break;
-				}
-				case GOTO: {
-					// arg[0] = address
+	void pushNF() {
+		push(jrt.getNF());
+	}
 
-					position.jump(position.addressArg());
-					break;
-				}
-				case NOP: {
-					// do nothing, just advance the position
-					position.next();
-					break;
-				}
-				case CONCAT: {
-					// stack[0] = string1
-					// stack[1] = string2
-					String s2 = jrt.toAwkString(pop());
-					String s1 = jrt.toAwkString(pop());
-					String resultString = s1 + s2;
-					push(resultString);
-					position.next();
-					break;
-				}
-				case ASSIGN: {
-					// arg[0] = offset
-					// arg[1] = isGlobal
-					// stack[0] = value
-					Object value = pop();
-					boolean isGlobal = position.boolArg(1);
-					assign(position.intArg(0), value, isGlobal, position);
-					position.next();
-					break;
-				}
-				case ASSIGN_ARRAY: {
-					// arg[0] = offset
-					// arg[1] = isGlobal
-					// stack[0] = array index
-					// stack[1] = value
-					Object arrIdx = pop();
-					Object rhs = pop();
-					if (rhs == null) {
-						rhs = BLANK;
-					}
-					long offset = position.intArg(0);
-					boolean isGlobal = position.boolArg(1);
-					assignArray(offset, arrIdx, rhs, isGlobal);
-					position.next();
-					break;
-				}
-				case PLUS_EQ_ARRAY:
-				case MINUS_EQ_ARRAY:
-				case MULT_EQ_ARRAY:
-				case DIV_EQ_ARRAY:
-				case MOD_EQ_ARRAY:
-				case POW_EQ_ARRAY: {
-					// arg[0] = offset
-					// arg[1] = isGlobal
-					// stack[0] = array index
-					// stack[1] = value
-					Object arrIdx = pop();
-					Object rhs = pop();
-					if (rhs == null) {
-						rhs = BLANK;
-					}
-					long offset = position.intArg(0);
-					boolean isGlobal = position.boolArg(1);
-
-					double val = JRT.toDouble(rhs);
-
-					// from DEREF_ARRAY
-					// stack[0] = AssocArray
-					// stack[1] = array index
-					Object o1 = runtimeStack.getVariable(offset, isGlobal); // map
-					if (o1 == null || o1 instanceof UninitializedObject) {
-						o1 = new AssocArray(sortedArrayKeys);
-						runtimeStack.setVariable(offset, o1, isGlobal);
-					} else {
-						assert o1 instanceof AssocArray;
-					}
+	void assignNR() {
+		Object v = pop();
+		jrt.setNR(v);
+		push(v);
+	}
 
-					AssocArray array = (AssocArray) o1;
-					Object o = array.get(arrIdx);
-					assert o != null;
-					double origVal = JRT.toDouble(o);
-
-					double newVal;
-
-					switch (opcode) {
-					case PLUS_EQ_ARRAY:
-						newVal = origVal + val;
-						break;
-					case MINUS_EQ_ARRAY:
-						newVal = origVal - val;
-						break;
-					case MULT_EQ_ARRAY:
-						newVal = origVal * val;
-						break;
-					case DIV_EQ_ARRAY:
-						newVal = origVal / val;
-						break;
-					case MOD_EQ_ARRAY:
-						newVal = origVal % val;
-						break;
-					case POW_EQ_ARRAY:
-						newVal = Math.pow(origVal, val);
-						break;
-					default:
-						throw new Error("Invalid op code here: " + opcode);
-					}
+	void pushNR() {
+		push(jrt.getNR());
+	}
 
-					if (JRT.isActuallyLong(newVal)) {
-						assignArray(offset, arrIdx, (long) Math.rint(newVal), isGlobal);
-					} else {
-						assignArray(offset, arrIdx, newVal, isGlobal);
-					}
-					position.next();
-					break;
-				}
+	void assignFNR() {
+		Object v = pop();
+		jrt.setFNR(v);
+		push(v);
+	}
 
-				case ASSIGN_AS_INPUT: {
-					// stack[0] = value
-					jrt.setInputLine(pop().toString());
-					jrt.jrtParseFields();
-					push(jrt.getInputLine());
-					position.next();
-					break;
-				}
+	void pushFNR() {
+		push(jrt.getFNR());
+	}
 
-				case ASSIGN_AS_INPUT_FIELD: {
-					// stack[0] = field number
-					// stack[1] = value
-					Object fieldNumObj = pop();
-					long fieldNum = JRT.parseFieldNumber(fieldNumObj, position);
-					String value = pop().toString();
-					push(value); // leave the result on the stack
-					if (fieldNum == 0) {
-						jrt.setInputLine(value);
-						jrt.jrtParseFields();
-					} else {
-						jrt.jrtSetInputField(value, fieldNum, position);
-					}
-					position.next();
-					break;
-				}
-				case PLUS_EQ:
-				case MINUS_EQ:
-				case MULT_EQ:
-				case DIV_EQ:
-				case MOD_EQ:
-				case POW_EQ: {
-					// arg[0] = offset
-					// arg[1] = isGlobal
-					// stack[0] = value
-					boolean isGlobal = position.boolArg(1);
-					Object o1 = runtimeStack.getVariable(position.intArg(0), isGlobal);
-					if (o1 == null) {
-						o1 = BLANK;
-					}
-					Object o2 = pop();
-					double d1 = JRT.toDouble(o1);
-					double d2 = JRT.toDouble(o2);
-					double ans;
-					switch (opcode) {
-					case PLUS_EQ:
-						ans = d1 + d2;
-						break;
-					case MINUS_EQ:
-						ans = d1 - d2;
-						break;
-					case MULT_EQ:
-						ans = d1 * d2;
-						break;
-					case DIV_EQ:
-						ans = d1 / d2;
-						break;
-					case MOD_EQ:
-						ans = d1 % d2;
-						break;
-					case POW_EQ:
-						ans = Math.pow(d1, d2);
-						break;
-					default:
-						throw new Error("Invalid opcode here: " + opcode);
-					}
-					if (JRT.isActuallyLong(ans)) {
-						long integral = (long) Math.rint(ans);
-						push(integral);
-						runtimeStack.setVariable(position.intArg(0), integral, isGlobal);
-					} else {
-						push(ans);
-						runtimeStack.setVariable(position.intArg(0), ans, isGlobal);
-					}
-					position.next();
-					break;
-				}
-				case PLUS_EQ_INPUT_FIELD:
-				case MINUS_EQ_INPUT_FIELD:
-				case MULT_EQ_INPUT_FIELD:
-				case DIV_EQ_INPUT_FIELD:
-				case MOD_EQ_INPUT_FIELD:
-				case POW_EQ_INPUT_FIELD: {
-					// stack[0] = dollar_fieldNumber
-					// stack[1] = inc value
-
-// same code as GET_INPUT_FIELD:
-					long fieldnum = JRT.parseFieldNumber(pop(), position);
-					double incval = JRT.toDouble(pop());
-
-// except here, get the number, and add the incvalue
-					Object numObj = jrt.jrtGetInputField(fieldnum, position);
-					double num;
-					switch (opcode) {
-					case PLUS_EQ_INPUT_FIELD:
-						num = JRT.toDouble(numObj) + incval;
-						break;
-					case MINUS_EQ_INPUT_FIELD:
-						num = JRT.toDouble(numObj) - incval;
-						break;
-					case MULT_EQ_INPUT_FIELD:
-						num = JRT.toDouble(numObj) * incval;
-						break;
-					case DIV_EQ_INPUT_FIELD:
-						num = JRT.toDouble(numObj) / incval;
-						break;
-					case MOD_EQ_INPUT_FIELD:
-						num = JRT.toDouble(numObj) % incval;
-						break;
-					case POW_EQ_INPUT_FIELD:
-						num = Math.pow(JRT.toDouble(numObj), incval);
-						break;
-					default:
-						throw new Error("Invalid opcode here: " + opcode);
-					}
-					setNumOnJRT(fieldnum, num, position);
+	void assignFS() {
+		Object v = pop();
+		jrt.setFS(v);
+		push(v);
+	}
 
-					// put the result value on the stack
-					push(num);
-					position.next();
+	void pushFS() {
+		push(jrt.getFSVar());
+	}
 
-					break;
-				}
-				case INC: {
-					// arg[0] = offset
-					// arg[1] = isGlobal
-					inc(position.intArg(0), position.boolArg(1));
-					position.next();
-					break;
-				}
-				case DEC: {
-					// arg[0] = offset
-					// arg[1] = isGlobal
-					dec(position.intArg(0), position.boolArg(1));
-					position.next();
-					break;
-				}
-				case POSTINC: {
-					// arg[0] = offset
-					// arg[1] = isGlobal
-					pop();
-					push(inc(position.intArg(0), position.boolArg(1)));
-					position.next();
-					break;
-				}
-				case POSTDEC: {
-					// arg[0] = offset
-					// arg[1] = isGlobal
-					pop();
-					push(dec(position.intArg(0), position.boolArg(1)));
-					position.next();
-					break;
-				}
-				case INC_ARRAY_REF: {
-					// arg[0] = offset
-					// arg[1] = isGlobal
-					// stack[0] = array index
-					boolean isGlobal = position.boolArg(1);
-					Object o1 = runtimeStack.getVariable(position.intArg(0), isGlobal);
-					if (o1 == null || o1 instanceof UninitializedObject) {
-						o1 = new AssocArray(sortedArrayKeys);
-						runtimeStack.setVariable(position.intArg(0), o1, isGlobal);
-					}
-					AssocArray aa = (AssocArray) o1;
-					Object key = pop();
-					Object o = aa.get(key);
-					assert o != null;
-					double ans = JRT.toDouble(o) + 1;
-					if (JRT.isActuallyLong(ans)) {
-						aa.put(key, (long) Math.rint(ans));
-					} else {
-						aa.put(key, ans);
-					}
-					position.next();
-					break;
-				}
-				case DEC_ARRAY_REF: {
-					// arg[0] = offset
-					// arg[1] = isGlobal
-					// stack[0] = array index
-					boolean isGlobal = position.boolArg(1);
-					Object o1 = runtimeStack.getVariable(position.intArg(0), isGlobal);
-					if (o1 == null || o1 instanceof UninitializedObject) {
-						o1 = new AssocArray(sortedArrayKeys);
-						runtimeStack.setVariable(position.intArg(0), o1, isGlobal);
-					}
-					AssocArray aa = (AssocArray) o1;
-					Object key = pop();
-					Object o = aa.get(key);
-					assert o != null;
-					double ans = JRT.toDouble(o) - 1;
-					if (JRT.isActuallyLong(ans)) {
-						aa.put(key, (long) Math.rint(ans));
-					} else {
-						aa.put(key, ans);
-					}
-					position.next();
-					break;
-				}
-				case INC_DOLLAR_REF: {
-					// stack[0] = dollar index (field number)
-					long fieldnum = JRT.parseFieldNumber(pop(), position);
-
-					Object numObj = jrt.jrtGetInputField(fieldnum, position);
-					double original = JRT.toDouble(numObj);
-					double num = original + 1;
-					setNumOnJRT(fieldnum, num, position);
-
-					if (JRT.isActuallyLong(original)) {
-						push((long) Math.rint(original));
-					} else {
-						push(Double.valueOf(original));
-					}
+	void assignRS() {
+		Object v = pop();
+		jrt.setRS(v);
+		push(v);
+	}
 
-					position.next();
-					break;
-				}
-				case DEC_DOLLAR_REF: {
-					// stack[0] = dollar index (field number)
-					// same code as GET_INPUT_FIELD:
-					long fieldnum = JRT.parseFieldNumber(pop(), position);
-
-					Object numObj = jrt.jrtGetInputField(fieldnum, position);
-					double original = JRT.toDouble(numObj);
-					double num = original - 1;
-					setNumOnJRT(fieldnum, num, position);
-
-					if (JRT.isActuallyLong(original)) {
-						push((long) Math.rint(original));
-					} else {
-						push(Double.valueOf(original));
-					}
+	void pushRS() {
+		push(jrt.getRSVar());
+	}
 
-					position.next();
-					break;
-				}
-				case DEREFERENCE: {
-					// arg[0] = offset
-					// arg[1] = isGlobal
-					boolean isGlobal = position.boolArg(2);
-					Object o = runtimeStack.getVariable(position.intArg(0), isGlobal);
-					if (o == null) {
-						if (position.boolArg(1)) {
-							// is_array
-							push(runtimeStack.setVariable(position.intArg(0), new AssocArray(sortedArrayKeys), isGlobal));
-						} else {
-							push(runtimeStack.setVariable(position.intArg(0), BLANK, isGlobal));
-						}
-					} else {
-						push(o);
-					}
-					position.next();
-					break;
-				}
-				case DEREF_ARRAY: {
-					// stack[0] = array index
-					// stack[1] = AssocArray
-					Object idx = pop(); // idx
-					Object array = pop(); // map
-					if (!(array instanceof AssocArray)) {
-						throw new AwkRuntimeException("Attempting to index a non-associative-array.");
-					}
-					Object o = ((AssocArray) array).get(idx);
-					assert o != null;
-					push(o);
-					position.next();
-					break;
-				}
-				case SRAND: {
-					// arg[0] = numArgs (where 0 = no args, anything else = one argument)
-					// stack[0] = seed (only if numArgs != 0)
-					long numArgs = position.intArg(0);
-					int seed;
-					if (numArgs == 0) {
-						// use the time of day for the seed
-						seed = JRT.timeSeed();
-					} else {
-						Object o = pop();
-						if (o instanceof Double) {
-							seed = ((Double) o).intValue();
-						} else if (o instanceof Long) {
-							seed = ((Long) o).intValue();
-						} else if (o instanceof Integer) {
-							seed = ((Integer) o).intValue();
-						} else {
-							try {
-								seed = Integer.parseInt(o.toString());
-							} catch (NumberFormatException nfe) {
-								seed = 0;
-							}
-						}
-					}
-					randomNumberGenerator.setSeed(seed);
-					push(oldseed);
-					oldseed = seed;
-					position.next();
-					break;
-				}
-				case RAND: {
-					push(randomNumberGenerator.nextDouble());
-					position.next();
-					break;
-				}
-				case INTFUNC: {
-					// stack[0] = arg to int() function
-					push((long) JRT.toDouble(pop()));
-					position.next();
-					break;
-				}
-				case SQRT: {
-					// stack[0] = arg to sqrt() function
-					push(Math.sqrt(JRT.toDouble(pop())));
-					position.next();
-					break;
-				}
-				case LOG: {
-					// stack[0] = arg to log() function
-					push(Math.log(JRT.toDouble(pop())));
-					position.next();
-					break;
-				}
-				case EXP: {
-					// stack[0] = arg to exp() function
-					push(Math.exp(JRT.toDouble(pop())));
-					position.next();
-					break;
-				}
-				case SIN: {
-					// stack[0] = arg to sin() function
-					push(Math.sin(JRT.toDouble(pop())));
-					position.next();
-					break;
-				}
-				case COS: {
-					// stack[0] = arg to cos() function
-					push(Math.cos(JRT.toDouble(pop())));
-					position.next();
-					break;
-				}
-				case ATAN2: {
-					// stack[0] = 2nd arg to atan2() function
-					// stack[1] = 1st arg to atan2() function
-					double d2 = JRT.toDouble(pop());
-					double d1 = JRT.toDouble(pop());
-					push(Math.atan2(d1, d2));
-					position.next();
-					break;
-				}
-				case MATCH: {
-					// stack[0] = 2nd arg to match() function
-					// stack[1] = 1st arg to match() function
-					String ere = jrt.toAwkString(pop());
-					String s = jrt.toAwkString(pop());
-
-					// check if IGNORECASE set
-					int flags = 0;
-
-					if (globalVariableOffsets.containsKey("IGNORECASE")) {
-						Integer offsetObj = globalVariableOffsets.get("IGNORECASE");
-						Object ignorecase = runtimeStack.getVariable(offsetObj, true);
-
-						if (JRT.toDouble(ignorecase) != 0) {
-							flags |= Pattern.CASE_INSENSITIVE;
-						}
-					}
+	void assignOFS() {
+		Object v = pop();
+		jrt.setOFS(v);
+		push(v);
+	}
 
-					Pattern pattern = Pattern.compile(ere, flags);
-					Matcher matcher = pattern.matcher(s);
-					boolean result = matcher.find();
-					if (result) {
-						int start = matcher.start() + 1;
-						int len = matcher.end() - matcher.start();
-						jrt.setRSTART(start);
-						jrt.setRLENGTH(len);
-						push(start);
-					} else {
-						jrt.setRSTART(0);
-						jrt.setRLENGTH(-1);
-						push(0);
-					}
-					position.next();
-					break;
-				}
-				case INDEX: {
-					// stack[0] = 2nd arg to index() function
-					// stack[1] = 1st arg to index() function
-					String s2 = jrt.toAwkString(pop());
-					String s1 = jrt.toAwkString(pop());
-					push(s1.indexOf(s2) + 1);
-					position.next();
-					break;
-				}
-				case SUB_FOR_DOLLAR_0: {
-					// arg[0] = isGlobal
-					// stack[0] = replacement string
-					// stack[1] = ere
-					boolean isGsub = position.boolArg(0);
-					String repl = jrt.toAwkString(pop());
-					String ere = jrt.toAwkString(pop());
-					String orig = jrt.toAwkString(jrt.jrtGetInputField(0));
-					String newstring;
-					if (isGsub) {
-						newstring = replaceAll(orig, ere, repl);
-					} else {
-						newstring = replaceFirst(orig, ere, repl);
-					}
-					// assign it to "$0"
-					jrt.setInputLine(newstring);
-					jrt.jrtParseFields();
-					position.next();
-					break;
-				}
-				case SUB_FOR_DOLLAR_REFERENCE: {
-					// arg[0] = isGlobal
-					// stack[0] = field num
-					// stack[1] = original field value
-					// stack[2] = replacement string
-					// stack[3] = ere
-					boolean isGsub = position.boolArg(0);
-					long fieldNum = JRT.parseFieldNumber(pop(), position);
-					String orig = jrt.toAwkString(pop());
-					String repl = jrt.toAwkString(pop());
-					String ere = jrt.toAwkString(pop());
-					String newstring;
-					if (isGsub) {
-						newstring = replaceAll(orig, ere, repl);
-					} else {
-						newstring = replaceFirst(orig, ere, repl);
-					}
-					// assign it to "$0"
-					if (fieldNum == 0) {
-						jrt.setInputLine(newstring);
-						jrt.jrtParseFields();
-					} else {
-						jrt.jrtSetInputField(newstring, fieldNum, position);
-					}
-					position.next();
-					break;
-				}
-				case SUB_FOR_VARIABLE: {
-					// arg[0] = offset
-					// arg[1] = isGlobal
-					// arg[2] = isGsub
-					// stack[0] = original variable value
-					// stack[1] = replacement string
-					// stack[2] = ere
-					long offset = position.intArg(0);
-					boolean isGlobal = position.boolArg(1);
-					String newString = execSubOrGSub(position, 2);
-					// assign it to "offset/global"
-					assign(offset, newString, isGlobal, position);
-					pop();
-					position.next();
-					break;
-				}
-				case SUB_FOR_ARRAY_REFERENCE: {
-					// arg[0] = offset
-					// arg[1] = isGlobal
-					// arg[2] = isGsub
-					// stack[0] = original variable value
-					// stack[1] = replacement string
-					// stack[2] = ere
-					// stack[3] = array index
-					// ARRAY reference offset/isGlobal
-					long offset = position.intArg(0);
-					boolean isGlobal = position.boolArg(1);
-					Object arrIdx = pop();
-					String newString = execSubOrGSub(position, 2);
-					// assign it to "offset/arrIdx/global"
-					assignArray(offset, arrIdx, newString, isGlobal);
-					pop();
-					position.next();
-					break;
-				}
-				case SPLIT: {
-					// arg[0] = num args
-					// stack[0] = field_sep (only if num args == 3)
-					// stack[1] = array
-					// stack[2] = string
-					long numArgs = position.intArg(0);
-					String fsString;
-					if (numArgs == 2) {
-						fsString = jrt.toAwkString(jrt.getFSVar());
-					} else if (numArgs == 3) {
-						fsString = jrt.toAwkString(pop());
-					} else {
-						throw new Error("Invalid # of args. split() requires 2 or 3. Got: " + numArgs);
-					}
-					Object o = pop();
-					if (!(o instanceof AssocArray)) {
-						throw new AwkRuntimeException(position.lineNumber(), o + " is not an array.");
-					}
-					String s = jrt.toAwkString(pop());
-					Enumeration<Object> tokenizer;
-					if (fsString.equals(" ")) {
-						tokenizer = new StringTokenizer(s);
-					} else if (fsString.length() == 1) {
-						tokenizer = new SingleCharacterTokenizer(s, fsString.charAt(0));
-					} else if (fsString.isEmpty()) {
-						tokenizer = new CharacterTokenizer(s);
-					} else {
-						tokenizer = new RegexTokenizer(s, fsString);
-					}
+	void pushOFS() {
+		push(jrt.getOFSVar());
+	}
 
-					AssocArray assocArray = (AssocArray) o;
-					assocArray.clear();
-					int cnt = 0;
-					while (tokenizer.hasMoreElements()) {
-						assocArray.put(++cnt, tokenizer.nextElement());
-					}
-					push(cnt);
-					position.next();
-					break;
-				}
-				case SUBSTR: {
-					// arg[0] = num args
-					// stack[0] = length (only if num args == 3)
-					// stack[1] = start pos
-					// stack[2] = string
-					long numArgs = position.intArg(0);
-					int startPos, length;
-					String s;
-					if (numArgs == 3) {
-						length = (int) JRT.toLong(pop());
-						startPos = (int) JRT.toDouble(pop());
-						s = jrt.toAwkString(pop());
-					} else if (numArgs == 2) {
-						startPos = (int) JRT.toDouble(pop());
-						s = jrt.toAwkString(pop());
-						length = s.length() - startPos + 1;
-					} else {
-						throw new Error("numArgs for SUBSTR must be 2 or 3. It is " + numArgs);
-					}
-					if (startPos <= 0) {
-						startPos = 1;
-					}
-					if (length <= 0 || startPos > s.length()) {
-						push(BLANK);
-					} else {
-						if (startPos + length > s.length()) {
-							push(s.substring(startPos - 1));
-						} else {
-							push(s.substring(startPos - 1, startPos + length - 1));
-						}
-					}
-					position.next();
-					break;
-				}
-				case TOLOWER: {
-					// stack[0] = string
-					push(jrt.toAwkString(pop()).toLowerCase());
-					position.next();
-					break;
-				}
-				case TOUPPER: {
-					// stack[0] = string
-					push(jrt.toAwkString(pop()).toUpperCase());
-					position.next();
-					break;
-				}
-				case SYSTEM: {
-// stack[0] = command string
-					String s = jrt.toAwkString(pop());
-					push(jrt.jrtSystem(s));
-					position.next();
-					break;
-				}
-				case SWAP: {
-					// stack[0] = item1
-					// stack[1] = item2
-					swapOnStack();
-					position.next();
-					break;
-				}
-				case CMP_EQ: {
-					// stack[0] = item2
-					// stack[1] = item1
-					Object o2 = pop();
-					Object o1 = pop();
-					push(JRT.compare2(o1, o2, 0) ? ONE : ZERO);
-					position.next();
-					break;
-				}
-				case CMP_LT: {
-					// stack[0] = item2
-					// stack[1] = item1
-					Object o2 = pop();
-					Object o1 = pop();
-					push(JRT.compare2(o1, o2, -1) ? ONE : ZERO);
-					position.next();
-					break;
-				}
-				case CMP_GT: {
-					// stack[0] = item2
-					// stack[1] = item1
-					Object o2 = pop();
-					Object o1 = pop();
-					push(JRT.compare2(o1, o2, 1) ? ONE : ZERO);
-					position.next();
-					break;
-				}
-				case MATCHES: {
-					// stack[0] = item2
-					// stack[1] = item1
-					Object o2 = pop();
-					Object o1 = pop();
-					// use o1's string value
-					String s = o1.toString();
-					// assume o2 is a regexp
-					if (o2 instanceof Pattern) {
-						Pattern p = (Pattern) o2;
-						Matcher m = p.matcher(s);
-						// m.matches() matches the ENTIRE string
-						// m.find() is more appropriate
-						boolean result = m.find();
-						push(result ? 1 : 0);
-					} else {
-						String r = jrt.toAwkString(o2);
-						boolean result = Pattern.compile(r).matcher(s).find();
-						push(result ? 1 : 0);
-					}
-					position.next();
-					break;
-				}
-				case ADD: {
-					// stack[0] = item2
-					// stack[1] = item1
-					Object o2 = pop();
-					Object o1 = pop();
-					double d1 = JRT.toDouble(o1);
-					double d2 = JRT.toDouble(o2);
-					double ans = d1 + d2;
-					if (JRT.isActuallyLong(ans)) {
-						push((long) Math.rint(ans));
-					} else {
-						push(ans);
-					}
-					position.next();
-					break;
-				}
-				case SUBTRACT: {
-					// stack[0] = item2
-					// stack[1] = item1
-					Object o2 = pop();
-					Object o1 = pop();
-					double d1 = JRT.toDouble(o1);
-					double d2 = JRT.toDouble(o2);
-					double ans = d1 - d2;
-					if (JRT.isActuallyLong(ans)) {
-						push((long) Math.rint(ans));
-					} else {
-						push(ans);
-					}
-					position.next();
-					break;
-				}
-				case MULTIPLY: {
-					// stack[0] = item2
-					// stack[1] = item1
-					Object o2 = pop();
-					Object o1 = pop();
-					double d1 = JRT.toDouble(o1);
-					double d2 = JRT.toDouble(o2);
-					double ans = d1 * d2;
-					if (JRT.isActuallyLong(ans)) {
-						push((long) Math.rint(ans));
-					} else {
-						push(ans);
-					}
-					position.next();
-					break;
-				}
-				case DIVIDE: {
-					// stack[0] = item2
-					// stack[1] = item1
-					Object o2 = pop();
-					Object o1 = pop();
-					double d1 = JRT.toDouble(o1);
-					double d2 = JRT.toDouble(o2);
-					double ans = d1 / d2;
-					if (JRT.isActuallyLong(ans)) {
-						push((long) Math.rint(ans));
-					} else {
-						push(ans);
-					}
-					position.next();
-					break;
-				}
-				case MOD: {
-					// stack[0] = item2
-					// stack[1] = item1
-					Object o2 = pop();
-					Object o1 = pop();
-					double d1 = JRT.toDouble(o1);
-					double d2 = JRT.toDouble(o2);
-					double ans = d1 % d2;
-					if (JRT.isActuallyLong(ans)) {
-						push((long) Math.rint(ans));
-					} else {
-						push(ans);
-					}
-					position.next();
-					break;
-				}
-				case POW: {
-					// stack[0] = item2
-					// stack[1] = item1
-					Object o2 = pop();
-					Object o1 = pop();
-					double d1 = JRT.toDouble(o1);
-					double d2 = JRT.toDouble(o2);
-					double ans = Math.pow(d1, d2);
-					if (JRT.isActuallyLong(ans)) {
-						push((long) Math.rint(ans));
-					} else {
-						push(ans);
-					}
-					position.next();
-					break;
-				}
-				case DUP: {
-					// stack[0] = top of stack item
-					Object o = pop();
-					push(o);
-					push(o);
-					position.next();
-					break;
-				}
-				case KEYLIST: {
-					// stack[0] = AssocArray
-					Object o = pop();
-					assert o != null;
-					if (!(o instanceof AssocArray)) {
-						throw new AwkRuntimeException(
-								position.lineNumber(),
-								"Cannot get a key list (via 'in') of a non associative array. arg = " + o.getClass() + ", " + o);
-					}
-					AssocArray aa = (AssocArray) o;
-					push(new ArrayDeque<>(aa.keySet()));
-					position.next();
-					break;
-				}
-				case IS_EMPTY_KEYLIST: {
-					// arg[0] = address
-					// stack[0] = Deque
-					Object o = pop();
-					if (o == null || !(o instanceof Deque)) {
-						throw new AwkRuntimeException(
-								position.lineNumber(),
-								"Cannot get a key list (via 'in') of a non associative array. arg = " + o.getClass() + ", " + o);
-					}
-					Deque<?> keylist = (Deque<?>) o;
-					if (keylist.isEmpty()) {
-						position.jump(position.addressArg());
-					} else {
-						position.next();
-					}
-					break;
-				}
-				case GET_FIRST_AND_REMOVE_FROM_KEYLIST: {
-					// stack[0] = Deque
-					Object o = pop();
-					if (o == null || !(o instanceof Deque)) {
-						throw new AwkRuntimeException(
-								position.lineNumber(),
-								"Cannot get a key list (via 'in') of a non associative array. arg = " + o.getClass() + ", " + o);
-					}
-					// pop off and return the head of the key set
-					Deque<?> keylist = (Deque<?>) o;
-					assert !keylist.isEmpty();
-					push(keylist.removeFirst());
-					position.next();
-					break;
-				}
-				case CHECK_CLASS: {
-					// arg[0] = class object
-					// stack[0] = item to check
-					Object o = pop();
-					if (!position.classArg().isInstance(o)) {
-						throw new AwkRuntimeException(
-								position.lineNumber(),
-								"Verification failed. Top-of-stack = " + o.getClass() + " isn't an instance of " + position.classArg());
-					}
-					push(o);
-					position.next();
-					break;
-				}
-				case CONSUME_INPUT: {
-					// arg[0] = address
-					// false = do NOT put result on stack...
-					// instead, put it in field vars ($0, $1, ...)
-					if (avmConsumeInput(false)) {
-						position.next();
-					} else {
-						position.jump(position.addressArg());
-					}
-					break;
-				}
+	void assignORS() {
+		Object v = pop();
+		jrt.setORS(v);
+		push(v);
+	}
 
-				case SET_INPUT_FOR_EVAL: {
-					jrt.setInputLineforEval(settings.getInput());
-					position.next();
-					break;
-				}
+	void pushORS() {
+		push(jrt.getORSVar());
+	}
 
-				case GETLINE_INPUT: {
-					avmConsumeInputForGetline();
-					position.next();
-					break;
-				}
-				case USE_AS_FILE_INPUT: {
-// stack[0] = filename
-					String s = jrt.toAwkString(pop());
-					avmConsumeFileInputForGetline(s);
-					position.next();
-					break;
-				}
-				case USE_AS_COMMAND_INPUT: {
-// stack[0] = command line
-					String s = jrt.toAwkString(pop());
-					avmConsumeCommandInputForGetline(s);
-					position.next();
-					break;
-				}
-				case ENVIRON_OFFSET: {
-					// stack[0] = offset
-					//// assignArray(offset, arrIdx, newstring, isGlobal);
-					environOffset = position.intArg(0);
-					assert environOffset != NULL_OFFSET;
-					// set the initial variables
-					Map<String, String> env = System.getenv();
-					for (Map.Entry<String, String> var : env.entrySet()) {
-						assignArray(environOffset, var.getKey(), var.getValue(), true);
-						pop(); // clean up the stack after the assignment
-					}
-					position.next();
-					break;
-				}
-				case ARGC_OFFSET: {
-					// stack[0] = offset
-					argcOffset = position.intArg(0);
-					assert argcOffset != NULL_OFFSET;
-					// assign(argcOffset, arguments.size(), true, position); // true = global
-					// +1 to include the "java Awk" (ARGV[0])
-					assign(argcOffset, arguments.size() + 1, true, position); // true = global
-					pop(); // clean up the stack after the assignment
-					jrt.setARGC(arguments.size() + 1);
-					position.next();
-					break;
-				}
-				case ARGV_OFFSET: {
-					// stack[0] = offset
-					argvOffset = position.intArg(0);
-					assert argvOffset != NULL_OFFSET;
-					// consume argv (looping from 1 to argc)
-					int argc = (int) JRT.toDouble(runtimeStack.getVariable(argcOffset, true)); // true = global
-					assignArray(argvOffset, 0, "java Awk", true);
-					pop();
-					for (int i = 1; i < argc; i++) {
-						// assignArray(argvOffset, i+1, arguments.get(i), true);
-						assignArray(argvOffset, i, arguments.get(i - 1), true);
-						pop(); // clean up the stack after the assignment
-					}
-					position.next();
-					break;
-				}
-				case GET_INPUT_FIELD: {
-// stack[0] = field number
-					Object fieldNumber = pop();
-					push(jrt.jrtGetInputField(fieldNumber, position));
-					position.next();
-					break;
-				}
-				case GET_INPUT_FIELD_CONST: {
-					long fieldnum = position.intArg(0);
-					push(jrt.jrtGetInputField(fieldnum, position));
-					position.next();
-					break;
-				}
-				case APPLY_RS: {
-					jrt.applyRS(jrt.getRSVar());
-					position.next();
-					break;
-				}
-				case CALL_FUNCTION: {
-					// arg[0] = function address
-					// arg[1] = function name
-					// arg[2] = # of formal parameters
-					// arg[3] = # of actual parameters
-					// stack[0] = last actual parameter
-					// stack[1] = before-last actual parameter
-					// ...
-					// stack[n-1] = first actual parameter
-					// etc.
-					Address funcAddr = position.addressArg();
-					// String func_name = position.arg(1).toString();
-					long numFormalParams = position.intArg(2);
-					long numActualParams = position.intArg(3);
-					assert numFormalParams >= numActualParams;
-					runtimeStack.pushFrame(numFormalParams, position.current());
-					// Arguments are stacked, so first in the stack is the last for the function
-					for (long i = numActualParams - 1; i >= 0; i--) {
-						runtimeStack.setVariable(i, pop(), false); // false = local
-					}
-					position.jump(funcAddr);
-					// position.next();
-					break;
-				}
-				case FUNCTION: {
-					// important for compilation,
-					// not needed for interpretation
-					// arg[0] = function name
-					// arg[1] = # of formal parameters
-					position.next();
-					break;
-				}
-				case SET_RETURN_RESULT: {
-					// stack[0] = return result
-					runtimeStack.setReturnValue(pop());
-					position.next();
-					break;
-				}
-				case RETURN_FROM_FUNCTION: {
-					position.jump(runtimeStack.popFrame());
-					push(runtimeStack.getReturnValue());
-					position.next();
-					break;
-				}
-				case SET_NUM_GLOBALS: {
-					// arg[0] = # of globals
-					assert position.intArg(0) == globalVariableOffsets.size();
-					runtimeStack.setNumGlobals(position.intArg(0));
-
-					// now that we have the global variable size,
-					// we can allocate the initial variables
-
-					// assign -v variables (from initialVariables container)
-					for (Map.Entry<String, Object> entry : initialVariables.entrySet()) {
-						String key = entry.getKey();
-						if (functionNames.contains(key)) {
-							throw new IllegalArgumentException("Cannot assign a scalar to a function name (" + key + ").");
-						}
-						Integer offsetObj = globalVariableOffsets.get(key);
-						Boolean arrayObj = globalVariableArrays.get(key);
-						if (offsetObj != null) {
-							assert arrayObj != null;
-							if (arrayObj.booleanValue()) {
-								throw new IllegalArgumentException("Cannot assign a scalar to a non-scalar variable (" + key + ").");
-							} else {
-								Object obj = entry.getValue();
-								runtimeStack.setFilelistVariable(offsetObj.intValue(), obj);
-							}
-						}
-					}
+	void assignRSTART() {
+		Object v = pop();
+		jrt.setRSTART(v);
+		push(v);
+	}
 
-					position.next();
-					break;
-				}
-				case CLOSE: {
-					// stack[0] = file or command line to close
-					String s = jrt.toAwkString(pop());
-					push(jrt.jrtClose(s));
-					position.next();
-					break;
-				}
-				case APPLY_SUBSEP: {
-					// arg[0] = # of elements for SUBSEP application
-					// stack[0] = first element
-					// stack[1] = second element
-					// etc.
-					long count = position.intArg(0);
-					assert count >= 1;
-					// String s;
-					if (count == 1) {
-						push(jrt.toAwkString(pop()));
-					} else {
-						StringBuilder sb = new StringBuilder();
-						sb.append(jrt.toAwkString(pop()));
-						String subsep = jrt.toAwkString(jrt.getSUBSEPVar());
-						for (int i = 1; i < count; i++) {
-							sb.insert(0, subsep);
-							sb.insert(0, jrt.toAwkString(pop()));
-						}
-						push(sb.toString());
-					}
-					position.next();
-					break;
-				}
-				case DELETE_ARRAY_ELEMENT: {
-					// arg[0] = offset
-					// arg[1] = isGlobal
-					// stack[0] = array index
-					long offset = position.intArg(0);
-					boolean isGlobal = position.boolArg(1);
-					AssocArray aa = (AssocArray) runtimeStack.getVariable(offset, isGlobal);
-					Object key = pop();
-					if (aa != null) {
-						aa.remove(key);
-					}
-					position.next();
-					break;
-				}
-				case DELETE_ARRAY: {
-					// arg[0] = offset
-					// arg[1] = isGlobal
-					// (nothing on the stack)
-					long offset = position.intArg(0);
-					boolean isGlobal = position.boolArg(1);
-					runtimeStack.removeVariable(offset, isGlobal);
-					position.next();
-					break;
-				}
-				case SET_EXIT_ADDRESS: {
-					// arg[0] = exit address
-					exitAddress = position.addressArg();
-					position.next();
-					break;
-				}
-				case SET_WITHIN_END_BLOCKS: {
-					// arg[0] = whether within the END blocks section
-					withinEndBlocks = position.boolArg(0);
-					position.next();
-					break;
-				}
-				case EXIT_WITHOUT_CODE:
-				case EXIT_WITH_CODE: {
-					if (opcode == Opcode.EXIT_WITH_CODE) {
-						// stack[0] = exit code
-						exitCode = (int) JRT.toDouble(pop());
-					}
-					throwExitException = true;
-
-					// If in BEGIN or in a rule, jump to the END section
-					if (!withinEndBlocks && exitAddress != null) {
-						// clear runtime stack
-						runtimeStack.popAllFrames();
-						// clear operand stack
-						operandStack.clear();
-						position.jump(exitAddress);
-					} else {
-						// Exit immediately with ExitException
-						jrt.jrtCloseAll();
-						// clear operand stack
-						operandStack.clear();
-						throw new ExitException(exitCode, "The AWK script requested an exit");
-						// position.next();
-					}
-					break;
-				}
-				case REGEXP: {
-					// Literal regex tuples must provide a precompiled Pattern as arg[1]
-					Pattern pattern = position.patternArg(1);
-					push(pattern);
-					position.next();
-					break;
-				}
-				case CONDITION_PAIR: {
-					// stack[0] = End condition
-					// stack[1] = Start condition
-					ConditionPair cp = conditionPairs.get(position.current());
-					if (cp == null) {
-						cp = new ConditionPair();
-						conditionPairs.put(position.current(), cp);
-					}
-					boolean end = jrt.toBoolean(pop());
-					boolean start = jrt.toBoolean(pop());
-					push(cp.update(start, end) ? ONE : ZERO);
-					position.next();
-					break;
-				}
-				case IS_IN: {
-					// stack[0] = AssocArray
-					// stack[1] = key to check
-					Object arr = pop();
-					Object arg = pop();
-					AssocArray aa = (AssocArray) arr;
-					boolean result = aa.isIn(arg);
-					push(result ? ONE : ZERO);
-					position.next();
-					break;
-				}
-				case THIS: {
-					// this is in preparation for a function
-					// call for the JVM-COMPILED script, only
-					// therefore, do NOTHING for the interpreted
-					// version
-					position.next();
-					break;
-				}
-				case EXEC: {
-					// stack[0] = Jawk code
-
-					// Experimental feature. Use with caution.
-					String awkCode = jrt.toAwkString(pop());
-					List<ScriptSource> scriptSources = new ArrayList<ScriptSource>(1);
-					scriptSources
-							.add(new ScriptSource(ScriptSource.DESCRIPTION_COMMAND_LINE_SCRIPT, new StringReader(awkCode)));
-
-					org.metricshub.jawk.frontend.AwkParser ap = new org.metricshub.jawk.frontend.AwkParser(
-							extensionFunctions);
-					try {
-						AstNode ast = ap.parse(scriptSources);
-						if (ast != null) {
-							ast.semanticAnalysis();
-							ast.semanticAnalysis();
-							AwkTuples newTuples = createTuples();
-							int result = ast.populateTuples(newTuples);
-							assert result == 0;
-							newTuples.postProcess();
-							ap.populateGlobalVariableNameToOffsetMappings(newTuples);
-							AVM newAvm = createSubAvm(
-									settings,
-									extensionInstances,
-									extensionFunctions);
-							int subScriptExitCode = 0;
-							try {
-								newAvm.interpret(newTuples);
-							} catch (ExitException ex) {
-								subScriptExitCode = ex.getCode();
-							}
-							push(subScriptExitCode);
-						} else {
-							push(-1);
-						}
-					} catch (IOException ioe) {
-						throw new AwkRuntimeException(position.lineNumber(), "IO Exception caught : " + ioe);
-					}
+	void pushRSTART() {
+		push(jrt.getRSTART());
+	}
 
-					position.next();
-					break;
-				}
-				case EXTENSION: {
-					// arg[0] = extension function metadata
-					// arg[1] = # of args on the stack
-					// arg[2] = true if parent is NOT an extension function call
-					// (i.e., initial extension in calling expression)
-					// stack[0] = first actual parameter
-					// stack[1] = second actual parameter
-					// etc.
-					ExtensionFunction function = position.extensionFunctionArg();
-					long numArgs = position.intArg(1);
-					boolean isInitial = position.boolArg(2);
-
-					Object[] args = new Object[(int) numArgs];
-					for (int i = (int) numArgs - 1; i >= 0; i--) {
-						args[i] = pop();
-					}
+	void assignRLENGTH() {
+		Object v = pop();
+		jrt.setRLENGTH(v);
+		push(v);
+	}
 
-					String extensionClassName = function.getExtensionClassName();
-					JawkExtension extension = extensionInstances.get(extensionClassName);
-					if (extension == null) {
-						throw new AwkRuntimeException(
-								position.lineNumber(),
-								"Extension instance for class '" + extensionClassName
-										+ "' is not registered");
-					}
-					if (!(extension instanceof AbstractExtension)) {
-						throw new AwkRuntimeException(
-								position.lineNumber(),
-								"Extension instance for class '" + extensionClassName
-										+ "' does not extend "
-										+ AbstractExtension.class.getName());
-					}
+	void pushRLENGTH() {
+		push(jrt.getRLENGTH());
+	}
 
-					Object retval = function.invoke((AbstractExtension) extension, args);
+	void assignFILENAME() {
+		Object v = pop();
+		jrt.setFILENAMEViaJrt(v == null ? "" : v.toString());
+		push(v == null ? "" : v.toString());
+	}
 
-					// block if necessary
-					// (convert retval into the return value
-					// from the block operation ...)
-					if (isInitial && retval != null && retval instanceof BlockObject) {
-						retval = new BlockManager().block((BlockObject) retval);
-					}
-					// (... and proceed)
-
-					if (retval == null) {
-						retval = "";
-					} else
-						if (!(retval instanceof Integer
-								||
-								retval instanceof Long
-								||
-								retval instanceof Double
-								||
-								retval instanceof String
-								||
-								retval instanceof AssocArray
-								||
-								retval instanceof BlockObject)) {
-									// all other extension results are converted
-									// to a string (via Object.toString())
-									retval = retval.toString();
-								}
-					push(retval);
-
-					position.next();
-					break;
-				}
-				case ASSIGN_NF: {
-					Object v = pop();
-					jrt.setNF(v);
-					push(v);
-					position.next();
-					break;
-				}
-				case PUSH_NF: {
-					push(jrt.getNF());
-					position.next();
-					break;
-				}
-				case ASSIGN_NR: {
-					Object v = pop();
-					jrt.setNR(v);
-					push(v);
-					position.next();
-					break;
-				}
-				case PUSH_NR: {
-					push(jrt.getNR());
-					position.next();
-					break;
-				}
-				case ASSIGN_FNR: {
-					Object v = pop();
-					jrt.setFNR(v);
-					push(v);
-					position.next();
-					break;
-				}
-				case PUSH_FNR: {
-					push(jrt.getFNR());
-					position.next();
-					break;
-				}
-				case ASSIGN_FS: {
-					Object v = pop();
-					jrt.setFS(v);
-					push(v);
-					position.next();
-					break;
-				}
-				case PUSH_FS: {
-					push(jrt.getFSVar());
-					position.next();
-					break;
-				}
-				case ASSIGN_RS: {
-					Object v = pop();
-					jrt.setRS(v);
-					push(v);
-					position.next();
-					break;
-				}
-				case PUSH_RS: {
-					push(jrt.getRSVar());
-					position.next();
-					break;
-				}
-				case ASSIGN_OFS: {
-					Object v = pop();
-					jrt.setOFS(v);
-					push(v);
-					position.next();
-					break;
-				}
-				case PUSH_OFS: {
-					push(jrt.getOFSVar());
-					position.next();
-					break;
-				}
-				case ASSIGN_ORS: {
-					Object v = pop();
-					jrt.setORS(v);
-					push(v);
-					position.next();
-					break;
-				}
-				case PUSH_ORS: {
-					push(jrt.getORSVar());
-					position.next();
-					break;
-				}
-				case ASSIGN_RSTART: {
-					Object v = pop();
-					jrt.setRSTART(v);
-					push(v);
-					position.next();
-					break;
-				}
-				case PUSH_RSTART: {
-					push(jrt.getRSTART());
-					position.next();
-					break;
-				}
-				case ASSIGN_RLENGTH: {
-					Object v = pop();
-					jrt.setRLENGTH(v);
-					push(v);
-					position.next();
-					break;
-				}
-				case PUSH_RLENGTH: {
-					push(jrt.getRLENGTH());
-					position.next();
-					break;
-				}
-				case ASSIGN_FILENAME: {
-					Object v = pop();
-					jrt.setFILENAMEViaJrt(v == null ? "" : v.toString());
-					push(v == null ? "" : v.toString());
-					position.next();
-					break;
-				}
-				case PUSH_FILENAME: {
-					push(jrt.getFILENAME());
-					position.next();
-					break;
-				}
-				case ASSIGN_SUBSEP: {
-					Object v = pop();
-					jrt.setSUBSEP(v);
-					push(v);
-					position.next();
-					break;
-				}
-				case PUSH_SUBSEP: {
-					push(jrt.getSUBSEPVar());
-					position.next();
-					break;
-				}
-				case ASSIGN_CONVFMT: {
-					Object v = pop();
-					jrt.setCONVFMT(v);
-					push(v);
-					position.next();
-					break;
-				}
-				case PUSH_CONVFMT: {
-					push(jrt.getCONVFMTVar());
-					position.next();
-					break;
-				}
-				case ASSIGN_OFMT: {
-					Object v = pop();
-					jrt.setOFMT(v);
-					push(v);
-					position.next();
-					break;
-				}
-				case PUSH_OFMT: {
-					push(getOFMT());
-					position.next();
-					break;
-				}
-				case ASSIGN_ARGC: {
-					Object v = pop();
-					jrt.setARGC(v);
-					push(v);
-					position.next();
-					break;
-				}
-				case PUSH_ARGC: {
-					push(jrt.getARGCVar());
-					position.next();
-					break;
-				}
-				default:
-					throw new Error("invalid opcode: " + position.opcode());
-				}
-			}
+	void pushFILENAME() {
+		push(jrt.getFILENAME());
+	}
 
-			// End of the instructions
-			jrt.jrtCloseAll();
-		} catch (RuntimeException re) {
-// clear runtime stack
-			runtimeStack.popAllFrames();
-// clear operand stack
-			operandStack.clear();
-			if (re instanceof AwkSandboxException) {
-				throw re;
-			}
-			throw new AwkRuntimeException(position.lineNumber(), re.getMessage(), re);
-		} catch (AssertionError ae) {
-// clear runtime stack
-			runtimeStack.popAllFrames();
-// clear operand stack
-			operandStack.clear();
-			throw ae;
-		}
+	void assignSUBSEP() {
+		Object v = pop();
+		jrt.setSUBSEP(v);
+		push(v);
+	}
 
-		// If <code>exit</code> was called, throw an ExitException
-		if (throwExitException) {
-			throw new ExitException(exitCode, "The AWK script requested an exit");
-		}
+	void pushSUBSEP() {
+		push(jrt.getSUBSEPVar());
+	}
+
+	void assignCONVFMT() {
+		Object v = pop();
+		jrt.setCONVFMT(v);
+		push(v);
+	}
+
+	void pushCONVFMT() {
+		push(jrt.getCONVFMTVar());
+	}
+
+	void assignOFMT() {
+		Object v = pop();
+		jrt.setOFMT(v);
+		push(v);
+	}
+
+	void pushOFMT() {
+		push(getOFMT());
+	}
+
+	void assignARGC() {
+		Object v = pop();
+		jrt.setARGC(v);
+		push(v);
+	}
+
+	void pushARGC() {
+		push(jrt.getARGCVar());
 	}
 
 	/**
@@ -2150,10 +2959,10 @@ private String replaceAll(String orig, String ere, String repl) {
 	/**
 	 * Awk variable assignment functionality.
 	 */
-	private void assign(long l, Object value, boolean isGlobal, PositionTracker position) {
+	private void assign(long l, Object value, boolean isGlobal) {
 		// check if curr value already refers to an array
 		if (runtimeStack.getVariable(l, isGlobal) instanceof AssocArray) {
-			throw new AwkRuntimeException(position.lineNumber(), "cannot assign anything to an unindexed associative array");
+			throw new AwkRuntimeException("cannot assign anything to an unindexed associative array");
 		}
 		push(value);
 		runtimeStack.setVariable(l, value, isGlobal);
@@ -2191,7 +3000,7 @@ private void assignArray(long offset, Object arrIdx, Object rhs, boolean isGloba
 	 * Numerically increases an Awk variable by one; the result
 	 * is placed back into that variable.
 	 */
-	private Object inc(long l, boolean isGlobal) {
+	Object inc(long l, boolean isGlobal) {
 		Object o = runtimeStack.getVariable(l, isGlobal);
 		if (o == null || o instanceof UninitializedObject) {
 			o = ZERO;
@@ -2205,7 +3014,7 @@ private Object inc(long l, boolean isGlobal) {
 	 * Numerically decreases an Awk variable by one; the result
 	 * is placed back into that variable.
 	 */
-	private Object dec(long l, boolean isGlobal) {
+	Object dec(long l, boolean isGlobal) {
 		Object o = runtimeStack.getVariable(l, isGlobal);
 		if (o == null || o instanceof UninitializedObject) {
 			o = ZERO;
@@ -2306,14 +3115,17 @@ public final void assignVariable(String name, Object obj) {
 		}
 	}
 
-	private void swapOnStack() {
-		Object o1 = pop();
-		Object o2 = pop();
-		push(o1);
-		push(o2);
+	void swapOnStack() {
+		int top = operandStackSize - 1;
+		Object o = operandStack[top];
+		operandStack[top] = operandStack[top - 1];
+		operandStack[top - 1] = o;
+		double d = numberStack[top];
+		numberStack[top] = numberStack[top - 1];
+		numberStack[top - 1] = d;
 	}
 
-	private void avmConsumeInputForGetline() throws IOException {
+	void avmConsumeInputForGetline() throws IOException {
 		if (avmConsumeInput(true)) {
 			push(1);
 		} else {
@@ -2344,7 +3156,7 @@ private void avmConsumeCommandInputForGetline(String cmd) throws IOException {
 	private boolean avmConsumeFileInput(String filename) throws IOException {
 		boolean retval = jrt.jrtConsumeFileInput(filename);
 		if (retval) {
-			push(jrt.getInputLine());
+			push(new StrNum(jrt.getInputLine()));
 		} else {
 			push("");
 		}
@@ -2354,7 +3166,7 @@ private boolean avmConsumeFileInput(String filename) throws IOException {
 	private boolean avmConsumeCommandInput(String cmd) throws IOException {
 		boolean retval = jrt.jrtConsumeCommandInput(cmd);
 		if (retval) {
-			push(jrt.getInputLine());
+			push(new StrNum(jrt.getInputLine()));
 		} else {
 			push("");
 		}
@@ -2373,7 +3185,7 @@ private boolean avmConsumeCommandInput(String cmd) throws IOException {
 	private boolean avmConsumeInput(boolean forGetline) throws IOException {
 		boolean retval = jrt.consumeInput(settings.getInput(), forGetline, locale);
 		if (retval && forGetline) {
-			push(jrt.getInputLine());
+			push(new StrNum(jrt.getInputLine()));
 		}
 		return retval;
 	}
@@ -2384,6 +3196,12 @@ public Object getFS() {
 		return jrt.getFSVar();
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public Object getFIELDWIDTHS() {
+		return fieldWidthsOffset < 0 ? null : runtimeStack.getVariable(fieldWidthsOffset, true);
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public Object getCONVFMT() {
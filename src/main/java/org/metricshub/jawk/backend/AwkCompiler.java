@@ -0,0 +1,1178 @@
+package org.metricshub.jawk.backend;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * Jawk
+ * ჻჻჻჻჻჻
+ * Copyright (C) 2006 - 2025 MetricsHub
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import org.metricshub.jawk.backend.ClassFileWriter.Label;
+import org.metricshub.jawk.backend.ClassFileWriter.MethodWriter;
+import org.metricshub.jawk.ext.ExtensionFunction;
+import org.metricshub.jawk.intermediate.AwkTuples;
+import org.metricshub.jawk.intermediate.Opcode;
+import org.metricshub.jawk.intermediate.PositionTracker;
+
+/**
+ * Translates {@link AwkTuples} into a JVM class extending
+ * {@link CompiledScript}, so that the JIT compiler of the JVM can optimize
+ * the script itself instead of the interpreter loop of the {@link AVM}.
+ * <p>
+ * The generated bytecode replaces the dispatch of the tuples: jumps become
+ * JVM branches, AWK functions become JVM methods, and each tuple becomes
+ * a direct call to the method implementing its opcode, with the tuple
+ * arguments as constants. The object arguments (strings, regular expressions,
+ * extension functions), the global variables and the function names are
+ * registered by the constructor of the class, which therefore runs without
+ * the tuples it has been generated from. The operand stack and the variables
+ * of the script are still those of the {@link AVM}, so the generated code
+ * behaves exactly like the interpreter.
+ * <p>
+ * Tuples that cannot be translated (for instance a jump out of a function,
+ * or a method exceeding the limits of the class file format) make
+ * {@link #compile(AwkTuples)} throw an {@link UnsupportedOperationException},
+ * in which case the tuples should be interpreted.
+ */
+public final class AwkCompiler {
+
+	/** Name of the generated class, when not specified */
+	public static final String DEFAULT_CLASS_NAME = "AwkScript";
+
+	/** Maximum number of tuples compiled in one JVM method */
+	private static final int MAX_SEGMENT_SIZE = 1000;
+
+	private static final int MAX_STACK = 8;
+
+	/** Size above which the registrations continue in a new method */
+	private static final int MAX_REGISTRATION_SIZE = 30000;
+
+	private static final String SCRIPT_CLASS = "org/metricshub/jawk/backend/CompiledScript";
+	private static final String OPCODE_CLASS = "org/metricshub/jawk/intermediate/Opcode";
+	private static final String OPCODE_DESCRIPTOR = "L" + OPCODE_CLASS + ";";
+
+	// Tuples, as collected by analyze()
+	private int size;
+	private Opcode[] opcodes;
+	private int[] targets;
+	private int[] lineNumbers;
+	/** Object arguments of the tuples, see {@link #constantArg(PositionTracker, Opcode)} */
+	private Object[] constantArgs;
+
+	/** For each tuple, the start of the function containing it, or -1 */
+	private int[] functionOf;
+	/** For each tuple outside functions, the segment containing it */
+	private int[] segmentOf;
+	private final List<int[]> segments = new ArrayList<int[]>();
+	private final TreeMap<Integer, int[]> functions = new TreeMap<Integer, int[]>();
+	/** Tuples where the control flow may enter a segment */
+	private final TreeSet<Integer> entries = new TreeSet<Integer>();
+
+	private String className;
+
+	/** Profile to specialize the tuples with, or <code>null</code> */
+	private ExecutionProfile profile;
+
+	/**
+	 * Compiles the tuples and loads the resulting class in a new class loader.
+	 *
+	 * @param tuples the tuples to compile
+	 * @return the generated class
+	 * @throws UnsupportedOperationException if the tuples cannot be compiled
+	 */
+	public Class<? extends CompiledScript> compile(AwkTuples tuples) {
+		return compile(tuples, (ExecutionProfile) null);
+	}
+
+	/**
+	 * Compiles the tuples, specialized for the specified profile, and loads
+	 * the resulting class in a new class loader.
+	 *
+	 * @param tuples the tuples to compile
+	 * @param tuplesProfile the profile of the tuples, or <code>null</code>
+	 *        to compile them without any speculation
+	 * @return the generated class
+	 * @throws UnsupportedOperationException if the tuples cannot be compiled
+	 */
+	Class<? extends CompiledScript> compile(AwkTuples tuples, ExecutionProfile tuplesProfile) {
+		byte[] classBytes = compile(tuples, DEFAULT_CLASS_NAME, tuplesProfile);
+		ScriptClassLoader loader = new ScriptClassLoader(CompiledScript.class.getClassLoader());
+		return loader.define(DEFAULT_CLASS_NAME, classBytes).asSubclass(CompiledScript.class);
+	}
+
+	/**
+	 * Compiles the tuples into a class file.
+	 *
+	 * @param tuples the tuples to compile
+	 * @param name binary name of the class to generate
+	 * @return the content of the class file
+	 * @throws UnsupportedOperationException if the tuples cannot be compiled
+	 */
+	public byte[] compile(AwkTuples tuples, String name) {
+		return compile(tuples, name, null);
+	}
+
+	/**
+	 * Compiles the tuples, specialized for the specified profile, into a class
+	 * file.
+	 *
+	 * @param tuples the tuples to compile
+	 * @param name binary name of the class to generate
+	 * @param tuplesProfile the profile of the tuples, or <code>null</code>
+	 *        to compile them without any speculation
+	 * @return the content of the class file
+	 * @throws UnsupportedOperationException if the tuples cannot be compiled
+	 */
+	byte[] compile(AwkTuples tuples, String name, ExecutionProfile tuplesProfile) {
+		profile = tuplesProfile;
+		className = name.replace('.', '/');
+		analyze(tuples);
+
+		ClassFileWriter cw = new ClassFileWriter(className, SCRIPT_CLASS);
+		cw.setSourceFile("script.awk");
+		writeConstructor(cw, tuples);
+		writeDispatch(cw);
+		PositionTracker position = tuples.top();
+		for (int s = 0; s < segments.size(); s++) {
+			writeSegment(cw, s, position);
+		}
+		for (Integer start : functions.keySet()) {
+			writeFunction(cw, start, position);
+		}
+		return cw.toByteArray();
+	}
+
+	/**
+	 * Collects the tuples and splits them into functions and segments.
+	 */
+	private void analyze(AwkTuples tuples) {
+		List<Opcode> opcodeList = new ArrayList<Opcode>();
+		List<Integer> targetList = new ArrayList<Integer>();
+		List<Integer> lineList = new ArrayList<Integer>();
+		List<Object> constantList = new ArrayList<Object>();
+		for (PositionTracker position = tuples.top(); !position.isEOF(); position.next()) {
+			Opcode opcode = position.opcode();
+			opcodeList.add(opcode);
+			targetList.add(hasTarget(opcode) ? position.addressArg().index() : -1);
+			lineList.add(position.lineNumber());
+			constantList.add(constantArg(position, opcode));
+		}
+		size = opcodeList.size();
+		opcodes = opcodeList.toArray(new Opcode[size]);
+		targets = new int[size];
+		lineNumbers = new int[size];
+		constantArgs = constantList.toArray();
+		for (int i = 0; i < size; i++) {
+			targets[i] = targetList.get(i);
+			lineNumbers[i] = lineList.get(i);
+			if (targets[i] >= size) {
+				throw new UnsupportedOperationException("Tuple " + i + " jumps beyond the last tuple");
+			}
+		}
+
+		// Functions are made of the tuples reachable from their first tuple
+		functionOf = new int[size];
+		Arrays.fill(functionOf, -1);
+		for (int i = 0; i < size; i++) {
+			if (opcodes[i] != Opcode.CALL_FUNCTION || functions.containsKey(targets[i])) {
+				continue;
+			}
+			int start = targets[i];
+			boolean[] body = findReachable(start);
+			List<Integer> indexes = new ArrayList<Integer>();
+			for (int j = 0; j < size; j++) {
+				if (!body[j]) {
+					continue;
+				}
+				if (functionOf[j] != -1) {
+					throw new UnsupportedOperationException("Overlapping functions at tuple " + j);
+				}
+				if (j == size - 1 && fallsThrough(opcodes[j])) {
+					throw new UnsupportedOperationException("Function at tuple " + start + " does not return");
+				}
+				functionOf[j] = start;
+				indexes.add(j);
+			}
+			functions.put(start, toArray(indexes));
+		}
+
+		// The other tuples are split into segments
+		segmentOf = new int[size];
+		List<Integer> current = new ArrayList<Integer>();
+		for (int i = 0; i < size; i++) {
+			if (functionOf[i] != -1) {
+				continue;
+			}
+			if (current.size() == MAX_SEGMENT_SIZE) {
+				addSegment(current);
+				current.clear();
+			}
+			segmentOf[i] = segments.size();
+			current.add(i);
+		}
+		if (!current.isEmpty()) {
+			addSegment(current);
+		}
+
+		// Find where the control flow crosses segment boundaries. Tuples that
+		// cannot be reached (like the markers preceding functions) are ignored.
+		boolean[] reachable = findReachable(0);
+		for (int i = 0; i < size; i++) {
+			if (opcodes[i] == Opcode.SET_EXIT_ADDRESS) {
+				addEntry(targets[i]);
+				boolean[] endSection = findReachable(targets[i]);
+				for (int j = 0; j < size; j++) {
+					reachable[j] |= endSection[j];
+				}
+			}
+		}
+		for (int i = 0; i < size; i++) {
+			if (!reachable[i]) {
+				continue;
+			}
+			if (functionOf[i] != -1) {
+				throw new UnsupportedOperationException("Tuple " + i + " is reached from outside its function");
+			}
+			if (opcodes[i] == Opcode.CONSUME_INPUT) {
+				// Tiered execution switches to the compiled script before a record
+				addEntry(i);
+			}
+			int target = targets[i];
+			if (target != -1 && opcodes[i] != Opcode.CALL_FUNCTION && crossesSegment(i, target)) {
+				addEntry(target);
+			}
+			if (fallsThrough(opcodes[i]) && i + 1 < size && crossesSegment(i, i + 1)) {
+				addEntry(i + 1);
+			}
+		}
+	}
+
+	/**
+	 * @return the object argument of the tuple, registered as a constant by
+	 *         the generated constructor, or <code>null</code>
+	 */
+	private static Object constantArg(PositionTracker position, Opcode opcode) {
+		switch (opcode) {
+		case PUSH:
+			return position.arg(0);
+		case REGEXP:
+			return position.patternArg(1);
+		case CHECK_CLASS:
+			return position.classArg();
+		case EXTENSION:
+			return position.extensionFunctionArg();
+		case IFFALSE_CMP_CONST:
+		case IFTRUE_CMP_CONST:
+			return position.arg(2);
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Marks the tuples that the control flow may reach from the specified
+	 * tuple, without entering the functions it calls.
+	 */
+	private boolean[] findReachable(int from) {
+		boolean[] reachable = new boolean[size];
+		Deque<Integer> pending = new ArrayDeque<Integer>();
+		pending.push(from);
+		while (!pending.isEmpty()) {
+			int i = pending.pop();
+			if (i >= size || reachable[i]) {
+				continue;
+			}
+			reachable[i] = true;
+			if (targets[i] != -1 && opcodes[i] != Opcode.CALL_FUNCTION) {
+				pending.push(targets[i]);
+			}
+			if (fallsThrough(opcodes[i])) {
+				pending.push(i + 1);
+			}
+		}
+		return reachable;
+	}
+
+	private static int[] toArray(List<Integer> indexes) {
+		int[] array = new int[indexes.size()];
+		for (int j = 0; j < array.length; j++) {
+			array[j] = indexes.get(j);
+		}
+		return array;
+	}
+
+	private void addSegment(List<Integer> indexes) {
+		int[] segment = toArray(indexes);
+		segments.add(segment);
+		entries.add(segment[0]);
+	}
+
+	private void addEntry(int index) {
+		if (functionOf[index] != -1) {
+			throw new UnsupportedOperationException("Tuple " + index + " is reached from outside its function");
+		}
+		entries.add(index);
+	}
+
+	private boolean crossesSegment(int from, int to) {
+		return functionOf[to] != -1 || segmentOf[to] != segmentOf[from];
+	}
+
+	private static boolean hasTarget(Opcode opcode) {
+		switch (opcode) {
+		case GOTO:
+		case IFFALSE:
+		case IFTRUE:
+		case IFFALSE_NUM:
+		case IFTRUE_NUM:
+		case IFFALSE_CMP_CONST:
+		case IFTRUE_CMP_CONST:
+		case IS_EMPTY_KEYLIST:
+		case CONSUME_INPUT:
+		case CALL_FUNCTION:
+		case SET_EXIT_ADDRESS:
+		case TAIL_CALL:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private static boolean fallsThrough(Opcode opcode) {
+		switch (opcode) {
+		case GOTO:
+		case EXIT_WITH_CODE:
+		case EXIT_WITHOUT_CODE:
+		case RETURN_FROM_FUNCTION:
+		case TAIL_CALL:
+			return false;
+		default:
+			return true;
+		}
+	}
+
+	/**
+	 * Writes the constructor, which registers the constants of the tuples
+	 * and the names of the global variables and functions, so that the
+	 * generated class does not need the tuples to run.
+	 * <p>
+	 * The registrations are written in separate methods, called by the
+	 * constructor, to stay within the size limit of a method.
+	 */
+	private void writeConstructor(ClassFileWriter cw, AwkTuples tuples) {
+		List<MethodWriter> registrations = new ArrayList<MethodWriter>();
+		for (int i = 0; i < size; i++) {
+			if (constantArgs[i] != null) {
+				writeConstant(registration(cw, registrations), i, constantArgs[i]);
+			}
+		}
+		Map<String, Integer> offsets = new TreeMap<String, Integer>(tuples.getGlobalVariableOffsetMap());
+		Map<String, Boolean> arrays = tuples.getGlobalVariableAarrayMap();
+		for (Map.Entry<String, Integer> global : offsets.entrySet()) {
+			MethodWriter m = registration(cw, registrations);
+			m.op(ClassFileWriter.ALOAD_0);
+			m.pushString(global.getKey());
+			m.pushInt(global.getValue());
+			m.pushBoolean(Boolean.TRUE.equals(arrays.get(global.getKey())));
+			call(m, "global", "(Ljava/lang/String;IZ)V");
+		}
+		for (String function : new TreeSet<String>(tuples.getFunctionNameSet())) {
+			MethodWriter m = registration(cw, registrations);
+			m.op(ClassFileWriter.ALOAD_0);
+			m.pushString(function);
+			call(m, "function", "(Ljava/lang/String;)V");
+		}
+
+		MethodWriter m = cw
+				.method(
+						ClassFileWriter.ACC_PUBLIC,
+						"<init>",
+						"(Lorg/metricshub/jawk/backend/AVM;)V",
+						MAX_STACK,
+						2);
+		m.op(ClassFileWriter.ALOAD_0);
+		m.op(ClassFileWriter.ALOAD_1);
+		m.pushInt(size);
+		m.pushInt(tuples.getConditionPairCount());
+		m.pushInt(tuples.getMaxFieldReference());
+		m.invoke(ClassFileWriter.INVOKESPECIAL, SCRIPT_CLASS, "<init>", "(Lorg/metricshub/jawk/backend/AVM;III)V");
+		for (int r = 0; r < registrations.size(); r++) {
+			registrations.get(r).op(ClassFileWriter.RETURN);
+			m.op(ClassFileWriter.ALOAD_0);
+			m.invoke(ClassFileWriter.INVOKEVIRTUAL, className, "register" + r, "()V");
+		}
+		m.op(ClassFileWriter.RETURN);
+	}
+
+	/**
+	 * Returns the method where to write the next registration of the
+	 * constructor, starting a new one when the last one is full.
+	 */
+	private static MethodWriter registration(ClassFileWriter cw, List<MethodWriter> registrations) {
+		if (!registrations.isEmpty()) {
+			MethodWriter last = registrations.get(registrations.size() - 1);
+			if (last.size() < MAX_REGISTRATION_SIZE) {
+				return last;
+			}
+		}
+		MethodWriter m = cw.method(ClassFileWriter.ACC_FINAL, "register" + registrations.size(), "()V", MAX_STACK, 1);
+		registrations.add(m);
+		return m;
+	}
+
+	private static void writeConstant(MethodWriter m, int index, Object value) {
+		m.op(ClassFileWriter.ALOAD_0);
+		m.pushInt(index);
+		if (value instanceof String) {
+			m.pushString((String) value);
+			call(m, "constant", "(ILjava/lang/String;)V");
+		} else if (value instanceof Long) {
+			m.pushLong((Long) value);
+			call(m, "constant", "(IJ)V");
+		} else if (value instanceof Double) {
+			m.pushDouble((Double) value);
+			call(m, "constant", "(ID)V");
+		} else if (value instanceof Pattern) {
+			m.pushString(((Pattern) value).pattern());
+			m.pushInt(((Pattern) value).flags());
+			call(m, "constantPattern", "(ILjava/lang/String;I)V");
+		} else if (value instanceof Class) {
+			m.pushClass(((Class<?>) value).getName().replace('.', '/'));
+			call(m, "constantClass", "(ILjava/lang/Class;)V");
+		} else if (value instanceof ExtensionFunction) {
+			m.pushString(((ExtensionFunction) value).getKeyword());
+			call(m, "constantExtension", "(ILjava/lang/String;)V");
+		} else {
+			throw new UnsupportedOperationException("Unsupported constant in tuple " + index + ": " + value);
+		}
+	}
+
+	/**
+	 * Writes <code>dispatch(int)</code>, which calls the segment containing
+	 * the specified entry point.
+	 */
+	private void writeDispatch(ClassFileWriter cw) {
+		MethodWriter m = cw.method(ClassFileWriter.ACC_PROTECTED, "dispatch", "(I)I", MAX_STACK, 2);
+		int[] keys = new int[entries.size()];
+		Label[] labels = new Label[keys.length];
+		int k = 0;
+		for (Integer entry : entries) {
+			keys[k] = entry;
+			labels[k] = new Label();
+			k++;
+		}
+		Label invalid = new Label();
+		m.op(ClassFileWriter.ILOAD_1);
+		m.lookupSwitch(invalid, keys, labels);
+		for (k = 0; k < keys.length; k++) {
+			m.mark(labels[k]);
+			m.op(ClassFileWriter.ALOAD_0);
+			m.op(ClassFileWriter.ILOAD_1);
+			m.invoke(ClassFileWriter.INVOKEVIRTUAL, className, "segment" + segmentOf[keys[k]], "(I)I");
+			m.op(ClassFileWriter.IRETURN);
+		}
+		m.mark(invalid);
+		writeInvalidEntry(m);
+	}
+
+	private void writeInvalidEntry(MethodWriter m) {
+		m.op(ClassFileWriter.ALOAD_0);
+		m.op(ClassFileWriter.ILOAD_1);
+		m.invoke(ClassFileWriter.INVOKEVIRTUAL, SCRIPT_CLASS, "invalidEntry", "(I)I");
+		m.op(ClassFileWriter.IRETURN);
+	}
+
+	private void writeSegment(ClassFileWriter cw, int s, PositionTracker position) {
+		int[] segment = segments.get(s);
+		MethodWriter m = cw.method(ClassFileWriter.ACC_FINAL, "segment" + s, "(I)I", MAX_STACK, 2);
+		Label[] labels = new Label[size];
+		for (int index : segment) {
+			labels[index] = new Label();
+		}
+
+		// Jump to the requested entry point
+		List<Integer> segmentEntries = new ArrayList<Integer>();
+		for (Integer entry : entries.subSet(segment[0], true, segment[segment.length - 1], true)) {
+			if (functionOf[entry] == -1 && segmentOf[entry] == s) {
+				segmentEntries.add(entry);
+			}
+		}
+		Label invalid = null;
+		if (segmentEntries.size() > 1) {
+			invalid = new Label();
+			int[] keys = new int[segmentEntries.size()];
+			Label[] entryLabels = new Label[keys.length];
+			for (int k = 0; k < keys.length; k++) {
+				keys[k] = segmentEntries.get(k);
+				entryLabels[k] = labels[keys[k]];
+			}
+			m.op(ClassFileWriter.ILOAD_1);
+			m.lookupSwitch(invalid, keys, entryLabels);
+		}
+
+		for (int index : segment) {
+			position.jump(index);
+			m.mark(labels[index]);
+			m.lineNumber(lineNumbers[index]);
+			writeTuple(m, position, writeGuard(m, index), labels, false);
+			if (fallsThrough(opcodes[index])) {
+				int next = index + 1;
+				if (next >= size) {
+					returnIndex(m, -1);
+				} else if (crossesSegment(index, next)) {
+					returnIndex(m, next);
+				}
+			}
+		}
+
+		if (invalid != null) {
+			m.mark(invalid);
+			writeInvalidEntry(m);
+		}
+	}
+
+	private void writeFunction(ClassFileWriter cw, int start, PositionTracker position) {
+		int[] body = functions.get(start);
+		MethodWriter m = cw.method(ClassFileWriter.ACC_FINAL, "function" + start, "()V", MAX_STACK, 1);
+		Label[] labels = new Label[size];
+		for (int index : body) {
+			labels[index] = new Label();
+		}
+		if (body[0] != start) {
+			m.jump(ClassFileWriter.GOTO, labels[start]);
+		}
+		for (int index : body) {
+			position.jump(index);
+			m.mark(labels[index]);
+			m.lineNumber(lineNumbers[index]);
+			writeTuple(m, position, opcodes[index], labels, true);
+		}
+	}
+
+	private static void returnIndex(MethodWriter m, int index) {
+		m.pushInt(index);
+		m.op(ClassFileWriter.IRETURN);
+	}
+
+	/**
+	 * Writes a jump to the specified tuple: a branch when the tuple belongs to
+	 * the method being written, or a return of its index otherwise.
+	 */
+	private static void jump(MethodWriter m, int condition, int target, Label[] labels) {
+		if (labels[target] != null) {
+			m.jump(condition, labels[target]);
+		} else if (condition == ClassFileWriter.GOTO) {
+			returnIndex(m, target);
+		} else {
+			Label skip = new Label();
+			m.jump(condition == ClassFileWriter.IFEQ ? ClassFileWriter.IFNE : ClassFileWriter.IFEQ, skip);
+			returnIndex(m, target);
+			m.mark(skip);
+		}
+	}
+
+	/**
+	 * Writes a conditional jump to the target of the specified tuple. When
+	 * the profile shows that one way was never followed, that way is
+	 * compiled as a return to the interpreter.
+	 */
+	private void branch(MethodWriter m, int condition, int index, Label[] labels, boolean inFunction) {
+		int target = targets[index];
+		if (profile == null || inFunction) {
+			jump(m, condition, target, labels);
+		} else if (profile.isNeverTaken(index)) {
+			Label skip = new Label();
+			m.jump(condition == ClassFileWriter.IFEQ ? ClassFileWriter.IFNE : ClassFileWriter.IFEQ, skip);
+			writeDeoptimization(m, index, target);
+			m.mark(skip);
+		} else if (profile.isAlwaysTaken(index)) {
+			jump(m, condition, target, labels);
+			writeDeoptimization(m, index, index + 1);
+		} else {
+			jump(m, condition, target, labels);
+		}
+	}
+
+	/**
+	 * Writes the guard of a generic tuple outside functions whose operands
+	 * were always numbers according to the profile, so that it can be
+	 * compiled as its numeric variant.
+	 *
+	 * @return the opcode to compile the tuple with
+	 */
+	private Opcode writeGuard(MethodWriter m, int index) {
+		Opcode opcode = opcodes[index];
+		Opcode variant = ExecutionProfile.numericVariant(opcode);
+		if (profile == null || variant == null || !profile.hasNumberOperands(index)) {
+			return opcode;
+		}
+		Label numbers = new Label();
+		m.op(ClassFileWriter.ALOAD_0);
+		m.pushInt(opcode == Opcode.IFFALSE || opcode == Opcode.IFTRUE ? 1 : 2);
+		call(m, "hasNumberOperands", "(I)Z");
+		m.jump(ClassFileWriter.IFNE, numbers);
+		writeDeoptimization(m, index, index);
+		m.mark(numbers);
+		return variant;
+	}
+
+	/**
+	 * Writes a return to the interpreter.
+	 *
+	 * @param index index of the tuple whose speculation failed
+	 * @param resume index of the tuple the interpreter must resume with
+	 */
+	private void writeDeoptimization(MethodWriter m, int index, int resume) {
+		m.op(ClassFileWriter.ALOAD_0);
+		m.pushInt(index);
+		m.pushInt(resume);
+		call(m, "deoptimize", "(II)I");
+		m.op(ClassFileWriter.IRETURN);
+	}
+
+	private static void call(MethodWriter m, String name, String descriptor) {
+		m.invoke(ClassFileWriter.INVOKEVIRTUAL, SCRIPT_CLASS, name, descriptor);
+	}
+
+	private void writeTuple(
+			MethodWriter m,
+			PositionTracker position,
+			Opcode opcode,
+			Label[] labels,
+			boolean inFunction) {
+		int index = position.current();
+		switch (opcode) {
+		case NOP:
+		case THIS:
+		case FUNCTION:
+			return;
+		case GOTO:
+			jump(m, ClassFileWriter.GOTO, targets[index], labels);
+			return;
+		case IFFALSE:
+			m.op(ClassFileWriter.ALOAD_0);
+			call(m, "popBoolean", "()Z");
+			branch(m, ClassFileWriter.IFEQ, index, labels, inFunction);
+			return;
+		case IFTRUE:
+			m.op(ClassFileWriter.ALOAD_0);
+			call(m, "popBoolean", "()Z");
+			branch(m, ClassFileWriter.IFNE, index, labels, inFunction);
+			return;
+		case IFFALSE_NUM:
+			m.op(ClassFileWriter.ALOAD_0);
+			call(m, "popNumber", "()D");
+			m.op(ClassFileWriter.DCONST_0);
+			m.op(ClassFileWriter.DCMPL);
+			branch(m, ClassFileWriter.IFEQ, index, labels, inFunction);
+			return;
+		case IFTRUE_NUM:
+			m.op(ClassFileWriter.ALOAD_0);
+			call(m, "popNumber", "()D");
+			m.op(ClassFileWriter.DCONST_0);
+			m.op(ClassFileWriter.DCMPL);
+			branch(m, ClassFileWriter.IFNE, index, labels, inFunction);
+			return;
+		case IFFALSE_CMP_CONST:
+			m.op(ClassFileWriter.ALOAD_0);
+			m.pushInt(index);
+			m.pushInt((int) position.intArg(1));
+			call(m, "compareWithConstant", "(II)Z");
+			branch(m, ClassFileWriter.IFEQ, index, labels, inFunction);
+			return;
+		case TAIL_CALL:
+			m.op(ClassFileWriter.ALOAD_0);
+			m.pushLong(position.intArg(1));
+			m.pushLong(position.intArg(2));
+			call(m, "tailCall", "(JJ)V");
+			jump(m, ClassFileWriter.GOTO, targets[index], labels);
+			return;
+		case IFTRUE_CMP_CONST:
+			m.op(ClassFileWriter.ALOAD_0);
+			m.pushInt(index);
+			m.pushInt((int) position.intArg(1));
+			call(m, "compareWithConstant", "(II)Z");
+			branch(m, ClassFileWriter.IFNE, index, labels, inFunction);
+			return;
+		case IS_EMPTY_KEYLIST:
+			m.op(ClassFileWriter.ALOAD_0);
+			call(m, "isEmptyKeylist", "()Z");
+			jump(m, ClassFileWriter.IFNE, targets[index], labels);
+			return;
+		case CONSUME_INPUT:
+			m.op(ClassFileWriter.ALOAD_0);
+			call(m, "consumeInput", "()Z");
+			jump(m, ClassFileWriter.IFEQ, targets[index], labels);
+			return;
+		case CALL_FUNCTION:
+			m.op(ClassFileWriter.ALOAD_0);
+			m.pushLong(position.intArg(2));
+			m.pushLong(position.intArg(3));
+			m.pushInt(index);
+			call(m, "callFunction", "(JJI)V");
+			m.op(ClassFileWriter.ALOAD_0);
+			m.invoke(ClassFileWriter.INVOKEVIRTUAL, className, "function" + targets[index], "()V");
+			m.op(ClassFileWriter.ALOAD_0);
+			call(m, "returnFromFunction", "()V");
+			return;
+		case RETURN_FROM_FUNCTION:
+			if (inFunction) {
+				m.op(ClassFileWriter.RETURN);
+			} else {
+				// Function never called: unreachable
+				m.op(ClassFileWriter.ALOAD_0);
+				m.pushInt(index);
+				call(m, "invalidEntry", "(I)I");
+				m.op(ClassFileWriter.IRETURN);
+			}
+			return;
+		case EXIT_WITH_CODE:
+		case EXIT_WITHOUT_CODE:
+			m.op(ClassFileWriter.ALOAD_0);
+			m.pushBoolean(opcode == Opcode.EXIT_WITH_CODE);
+			if (inFunction) {
+				call(m, "exitFromFunction", "(Z)V");
+				m.op(ClassFileWriter.RETURN);
+			} else {
+				call(m, "exit", "(Z)I");
+				m.op(ClassFileWriter.IRETURN);
+			}
+			return;
+		default:
+			break;
+		}
+
+		m.op(ClassFileWriter.ALOAD_0);
+		switch (opcode) {
+		case PUSH:
+		case REGEXP:
+			m.pushInt(index);
+			call(m, "pushConstant", "(I)V");
+			break;
+		case CHECK_CLASS:
+			m.pushInt(index);
+			call(m, "checkClass", "(I)V");
+			break;
+		case SET_EXIT_ADDRESS:
+			m.pushInt(targets[index]);
+			call(m, "setExitAddress", "(I)V");
+			break;
+		case CONDITION_PAIR:
+			m.pushInt((int) position.intArg(0));
+			call(m, "conditionPair", "(I)V");
+			break;
+		case MATCH:
+			m.pushInt((int) position.intArg(0));
+			call(m, "match", "(I)V");
+			break;
+		case EXTENSION:
+			m.pushInt(index);
+			m.pushLong(position.intArg(1));
+			m.pushBoolean(position.boolArg(2));
+			call(m, "extension", "(IJZ)V");
+			break;
+		case PRINT:
+		case PRINT_TO_PIPE:
+		case PRINTF:
+		case PRINTF_TO_PIPE:
+		case SPRINTF:
+		case LENGTH:
+		case SRAND:
+		case SPLIT:
+		case SUBSTR:
+		case APPLY_SUBSEP:
+		case SET_NUM_GLOBALS:
+		case ENVIRON_OFFSET:
+		case ARGC_OFFSET:
+		case ARGV_OFFSET:
+		case GET_INPUT_FIELD_CONST:
+			m.pushLong(position.intArg(0));
+			call(m, methodName(opcode), "(J)V");
+			break;
+		case PRINT_TO_FILE:
+		case PRINTF_TO_FILE:
+		case ASSIGN:
+		case ASSIGN_POP:
+		case ASSIGN_ARRAY:
+		case INC:
+		case DEC:
+		case POSTINC:
+		case POSTDEC:
+		case INC_ARRAY_REF:
+		case DEC_ARRAY_REF:
+		case DELETE_ARRAY_ELEMENT:
+		case DELETE_ARRAY:
+			m.pushLong(position.intArg(0));
+			m.pushBoolean(position.boolArg(1));
+			call(m, methodName(opcode), "(JZ)V");
+			break;
+		case PLUS_EQ_ARRAY_FIELD:
+		case INC_ARRAY_REF_SUBSEP:
+		case INLINE_RETURN:
+			m.pushLong(position.intArg(0));
+			m.pushLong(position.intArg(1));
+			m.pushBoolean(position.boolArg(2));
+			call(m, methodName(opcode), "(JJZ)V");
+			break;
+		case INLINE_FRAME:
+			m.pushLong(position.intArg(0));
+			m.pushLong(position.intArg(1));
+			m.pushLong(position.intArg(2));
+			m.pushBoolean(position.boolArg(3));
+			call(m, methodName(opcode), "(JJJZ)V");
+			break;
+		case DEREFERENCE:
+		case SUB_FOR_VARIABLE:
+		case SUB_FOR_ARRAY_REFERENCE:
+			m.pushLong(position.intArg(0));
+			m.pushBoolean(position.boolArg(1));
+			m.pushBoolean(position.boolArg(2));
+			call(m, methodName(opcode), "(JZZ)V");
+			break;
+		case SUB_FOR_DOLLAR_0:
+		case SUB_FOR_DOLLAR_REFERENCE:
+		case SET_WITHIN_END_BLOCKS:
+			m.pushBoolean(position.boolArg(0));
+			call(m, methodName(opcode), "(Z)V");
+			break;
+		case PLUS_EQ:
+		case MINUS_EQ:
+		case MULT_EQ:
+		case DIV_EQ:
+		case MOD_EQ:
+		case POW_EQ:
+			m.getStatic(OPCODE_CLASS, opcode.name(), OPCODE_DESCRIPTOR);
+			m.pushLong(position.intArg(0));
+			m.pushBoolean(position.boolArg(1));
+			call(m, "assignOperation", "(" + OPCODE_DESCRIPTOR + "JZ)V");
+			break;
+		case PLUS_EQ_ARRAY:
+		case MINUS_EQ_ARRAY:
+		case MULT_EQ_ARRAY:
+		case DIV_EQ_ARRAY:
+		case MOD_EQ_ARRAY:
+		case POW_EQ_ARRAY:
+			m.getStatic(OPCODE_CLASS, opcode.name(), OPCODE_DESCRIPTOR);
+			m.pushLong(position.intArg(0));
+			m.pushBoolean(position.boolArg(1));
+			call(m, "assignOperationArray", "(" + OPCODE_DESCRIPTOR + "JZ)V");
+			break;
+		case PLUS_EQ_INPUT_FIELD:
+		case MINUS_EQ_INPUT_FIELD:
+		case MULT_EQ_INPUT_FIELD:
+		case DIV_EQ_INPUT_FIELD:
+		case MOD_EQ_INPUT_FIELD:
+		case POW_EQ_INPUT_FIELD:
+			m.getStatic(OPCODE_CLASS, opcode.name(), OPCODE_DESCRIPTOR);
+			call(m, "assignOperationInputField", "(" + OPCODE_DESCRIPTOR + ")V");
+			break;
+		case CMP_EQ:
+			m.pushInt(0);
+			call(m, "compare", "(I)V");
+			break;
+		case CMP_LT:
+			m.pushInt(-1);
+			call(m, "compare", "(I)V");
+			break;
+		case CMP_GT:
+			m.pushInt(1);
+			call(m, "compare", "(I)V");
+			break;
+		case CMP_EQ_NUM:
+			m.pushInt(0);
+			call(m, "compareNumbers", "(I)V");
+			break;
+		case CMP_LT_NUM:
+			m.pushInt(-1);
+			call(m, "compareNumbers", "(I)V");
+			break;
+		case CMP_GT_NUM:
+			m.pushInt(1);
+			call(m, "compareNumbers", "(I)V");
+			break;
+		default:
+			// Instructions without arguments
+			call(m, methodName(opcode), "()V");
+			break;
+		}
+	}
+
+	/**
+	 * Returns the name of the {@link CompiledScript} method implementing the
+	 * specified opcode.
+	 */
+	private static String methodName(Opcode opcode) {
+		switch (opcode) {
+		case PRINT:
+			return "print";
+		case PRINT_TO_FILE:
+			return "printToFile";
+		case PRINT_TO_PIPE:
+			return "printToPipe";
+		case PRINTF:
+			return "printf";
+		case PRINTF_TO_FILE:
+			return "printfToFile";
+		case PRINTF_TO_PIPE:
+			return "printfToPipe";
+		case SPRINTF:
+			return "sprintf";
+		case LENGTH:
+			return "length";
+		case POP:
+			return "pop";
+		case TO_NUMBER:
+			return "toNumber";
+		case NOT:
+			return "not";
+		case NEGATE:
+			return "negate";
+		case UNARY_PLUS:
+			return "unaryPlus";
+		case CONCAT:
+			return "concat";
+		case CONCAT_STR:
+			return "concatStrings";
+		case ASSIGN:
+			return "assign";
+		case ASSIGN_POP:
+			return "assignPop";
+		case PLUS_EQ_ARRAY_FIELD:
+			return "plusEqArrayField";
+		case INC_ARRAY_REF_SUBSEP:
+			return "incArrayRefSubsep";
+		case INLINE_FRAME:
+			return "inlineFrame";
+		case INLINE_RETURN:
+			return "inlineReturn";
+		case ASSIGN_ARRAY:
+			return "assignArray";
+		case ASSIGN_AS_INPUT:
+			return "assignAsInput";
+		case ASSIGN_AS_INPUT_FIELD:
+			return "assignAsInputField";
+		case INC:
+			return "inc";
+		case DEC:
+			return "dec";
+		case POSTINC:
+			return "postInc";
+		case POSTDEC:
+			return "postDec";
+		case INC_ARRAY_REF:
+			return "incArrayRef";
+		case DEC_ARRAY_REF:
+			return "decArrayRef";
+		case INC_DOLLAR_REF:
+			return "incDollarRef";
+		case DEC_DOLLAR_REF:
+			return "decDollarRef";
+		case DEREFERENCE:
+			return "dereference";
+		case DEREF_ARRAY:
+			return "derefArray";
+		case SRAND:
+			return "srand";
+		case RAND:
+			return "rand";
+		case INTFUNC:
+			return "intFunc";
+		case SQRT:
+			return "sqrt";
+		case LOG:
+			return "log";
+		case EXP:
+			return "exp";
+		case SIN:
+			return "sin";
+		case COS:
+			return "cos";
+		case ATAN2:
+			return "atan2";
+		case INDEX:
+			return "index";
+		case SUB_FOR_DOLLAR_0:
+			return "subForDollar0";
+		case SUB_FOR_DOLLAR_REFERENCE:
+			return "subForDollarReference";
+		case SUB_FOR_VARIABLE:
+			return "subForVariable";
+		case SUB_FOR_ARRAY_REFERENCE:
+			return "subForArrayReference";
+		case SPLIT:
+			return "split";
+		case SUBSTR:
+			return "substr";
+		case TOLOWER:
+			return "toLower";
+		case TOUPPER:
+			return "toUpper";
+		case SYSTEM:
+			return "system";
+		case SWAP:
+			return "swap";
+		case MATCHES:
+			return "matches";
+		case ADD:
+			return "add";
+		case SUBTRACT:
+			return "subtract";
+		case MULTIPLY:
+			return "multiply";
+		case DIVIDE:
+			return "divide";
+		case MOD:
+			return "mod";
+		case POW:
+			return "pow";
+		case ADD_NUM:
+			return "addNumbers";
+		case SUBTRACT_NUM:
+			return "subtractNumbers";
+		case MULTIPLY_NUM:
+			return "multiplyNumbers";
+		case DIVIDE_NUM:
+			return "divideNumbers";
+		case DUP:
+			return "dup";
+		case KEYLIST:
+			return "keylist";
+		case GET_FIRST_AND_REMOVE_FROM_KEYLIST:
+			return "getFirstAndRemoveFromKeylist";
+		case SET_INPUT_FOR_EVAL:
+			return "setInputForEval";
+		case GETLINE_INPUT:
+			return "getlineInput";
+		case USE_AS_FILE_INPUT:
+			return "useAsFileInput";
+		case USE_AS_COMMAND_INPUT:
+			return "useAsCommandInput";
+		case ENVIRON_OFFSET:
+			return "setEnvironOffset";
+		case ARGC_OFFSET:
+			return "setArgcOffset";
+		case ARGV_OFFSET:
+			return "setArgvOffset";
+		case GET_INPUT_FIELD:
+		case GET_INPUT_FIELD_CONST:
+			return "getInputField";
+		case APPLY_RS:
+			return "applyRS";
+		case SET_RETURN_RESULT:
+			return "setReturnResult";
+		case SET_NUM_GLOBALS:
+			return "setNumGlobals";
+		case CLOSE:
+			return "close";
+		case APPLY_SUBSEP:
+			return "applySubsep";
+		case DELETE_ARRAY_ELEMENT:
+			return "deleteArrayElement";
+		case DELETE_ARRAY:
+			return "deleteArray";
+		case SET_WITHIN_END_BLOCKS:
+			return "setWithinEndBlocks";
+		case IS_IN:
+			return "isIn";
+		case EXEC:
+			return "exec";
+		case ASSIGN_NF:
+			return "assignNF";
+		case PUSH_NF:
+			return "pushNF";
+		case ASSIGN_NR:
+			return "assignNR";
+		case PUSH_NR:
+			return "pushNR";
+		case ASSIGN_FNR:
+			return "assignFNR";
+		case PUSH_FNR:
+			return "pushFNR";
+		case ASSIGN_FS:
+			return "assignFS";
+		case PUSH_FS:
+			return "pushFS";
+		case ASSIGN_RS:
+			return "assignRS";
+		case PUSH_RS:
+			return "pushRS";
+		case ASSIGN_OFS:
+			return "assignOFS";
+		case PUSH_OFS:
+			return "pushOFS";
+		case ASSIGN_ORS:
+			return "assignORS";
+		case PUSH_ORS:
+			return "pushORS";
+		case ASSIGN_RSTART:
+			return "assignRSTART";
+		case PUSH_RSTART:
+			return "pushRSTART";
+		case ASSIGN_RLENGTH:
+			return "assignRLENGTH";
+		case PUSH_RLENGTH:
+			return "pushRLENGTH";
+		case ASSIGN_FILENAME:
+			return "assignFILENAME";
+		case PUSH_FILENAME:
+			return "pushFILENAME";
+		case ASSIGN_SUBSEP:
+			return "assignSUBSEP";
+		case PUSH_SUBSEP:
+			return "pushSUBSEP";
+		case ASSIGN_CONVFMT:
+			return "assignCONVFMT";
+		case PUSH_CONVFMT:
+			return "pushCONVFMT";
+		case ASSIGN_OFMT:
+			return "assignOFMT";
+		case PUSH_OFMT:
+			return "pushOFMT";
+		case ASSIGN_ARGC:
+			return "assignARGC";
+		case PUSH_ARGC:
+			return "pushARGC";
+		default:
+			throw new UnsupportedOperationException("Unsupported opcode: " + opcode);
+		}
+	}
+
+	/**
+	 * Class loader defining the generated script classes, so that they can
+	 * be garbage collected with it.
+	 */
+	private static final class ScriptClassLoader extends ClassLoader {
+
+		private ScriptClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		private Class<?> define(String name, byte[] classBytes) {
+			return defineClass(name, classBytes, 0, classBytes.length);
+		}
+	}
+}
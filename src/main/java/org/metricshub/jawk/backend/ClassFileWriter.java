@@ -0,0 +1,531 @@
+package org.metricshub.jawk.backend;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * Jawk
+ * ჻჻჻჻჻჻
+ * Copyright (C) 2006 - 2025 MetricsHub
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal writer of JVM class files, covering what the {@link AwkCompiler}
+ * needs: constants, methods with their bytecode and line numbers, and
+ * the source file name.
+ * <p>
+ * Class files are written in version 49 (Java 5), which the JVM still
+ * verifies by type inference, so no <code>StackMapTable</code> needs
+ * to be computed.
+ */
+final class ClassFileWriter {
+
+	static final int ACC_PUBLIC = 0x0001;
+	static final int ACC_PROTECTED = 0x0004;
+	static final int ACC_FINAL = 0x0010;
+	static final int ACC_SUPER = 0x0020;
+
+	// Opcodes used by the compiler
+	static final int ICONST_M1 = 0x02;
+	static final int ICONST_0 = 0x03;
+	static final int LCONST_0 = 0x09;
+	static final int DCONST_0 = 0x0e;
+	static final int BIPUSH = 0x10;
+	static final int SIPUSH = 0x11;
+	static final int LDC = 0x12;
+	static final int LDC_W = 0x13;
+	static final int LDC2_W = 0x14;
+	static final int ILOAD_1 = 0x1b;
+	static final int ALOAD_0 = 0x2a;
+	static final int ALOAD_1 = 0x2b;
+	static final int ALOAD_2 = 0x2c;
+	static final int POP = 0x57;
+	static final int DCMPL = 0x97;
+	static final int IFEQ = 0x99;
+	static final int IFNE = 0x9a;
+	static final int GOTO = 0xa7;
+	static final int LOOKUPSWITCH = 0xab;
+	static final int IRETURN = 0xac;
+	static final int RETURN = 0xb1;
+	static final int GETSTATIC = 0xb2;
+	static final int INVOKEVIRTUAL = 0xb6;
+	static final int INVOKESPECIAL = 0xb7;
+
+	private static final int CLASS_VERSION = 49;
+
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_INTEGER = 3;
+	private static final int CONSTANT_LONG = 5;
+	private static final int CONSTANT_DOUBLE = 6;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_STRING = 8;
+	private static final int CONSTANT_FIELDREF = 9;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+	private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+	private final DataOutputStream pool = new DataOutputStream(poolBytes);
+	private final Map<String, Integer> poolIndexes = new HashMap<String, Integer>();
+	private int poolCount = 1;
+
+	private final int thisClass;
+	private final int superClass;
+	private final List<MethodWriter> methods = new ArrayList<MethodWriter>();
+	private int sourceFile;
+
+	/**
+	 * Creates a writer for a public final class.
+	 *
+	 * @param className internal name of the class (e.g. <code>a/b/C</code>)
+	 * @param superClassName internal name of its super class
+	 */
+	ClassFileWriter(String className, String superClassName) {
+		thisClass = classRef(className);
+		superClass = classRef(superClassName);
+	}
+
+	void setSourceFile(String name) {
+		sourceFile = utf8(name);
+	}
+
+	MethodWriter method(int access, String name, String descriptor, int maxStack, int maxLocals) {
+		MethodWriter method = new MethodWriter(access, utf8(name), utf8(descriptor), maxStack, maxLocals);
+		methods.add(method);
+		return method;
+	}
+
+	/**
+	 * Serializes the class.
+	 *
+	 * @return the content of the class file
+	 */
+	byte[] toByteArray() {
+		int codeAttribute = utf8("Code");
+		int lineNumberAttribute = utf8("LineNumberTable");
+		int sourceFileAttribute = sourceFile != 0 ? utf8("SourceFile") : 0;
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(0xCAFEBABE);
+			out.writeShort(0);
+			out.writeShort(CLASS_VERSION);
+			out.writeShort(poolCount);
+			pool.flush();
+			poolBytes.writeTo(out);
+			out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+			out.writeShort(thisClass);
+			out.writeShort(superClass);
+			out.writeShort(0); // interfaces
+			out.writeShort(0); // fields
+			out.writeShort(methods.size());
+			for (MethodWriter method : methods) {
+				method.writeTo(out, codeAttribute, lineNumberAttribute);
+			}
+			if (sourceFile != 0) {
+				out.writeShort(1);
+				out.writeShort(sourceFileAttribute);
+				out.writeInt(2);
+				out.writeShort(sourceFile);
+			} else {
+				out.writeShort(0);
+			}
+			out.flush();
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	int utf8(String value) {
+		String key = "U" + value;
+		Integer index = poolIndexes.get(key);
+		if (index == null) {
+			try {
+				pool.writeByte(CONSTANT_UTF8);
+				pool.writeUTF(value);
+			} catch (IOException e) {
+				throw new UnsupportedOperationException("Constant too long: " + e.getMessage(), e);
+			}
+			index = addPoolEntry(key, 1);
+		}
+		return index;
+	}
+
+	int classRef(String internalName) {
+		String key = "C" + internalName;
+		Integer index = poolIndexes.get(key);
+		if (index == null) {
+			int name = utf8(internalName);
+			writePool(CONSTANT_CLASS, name);
+			index = addPoolEntry(key, 1);
+		}
+		return index;
+	}
+
+	int integer(int value) {
+		String key = "I" + value;
+		Integer index = poolIndexes.get(key);
+		if (index == null) {
+			try {
+				pool.writeByte(CONSTANT_INTEGER);
+				pool.writeInt(value);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			index = addPoolEntry(key, 1);
+		}
+		return index;
+	}
+
+	int longConstant(long value) {
+		String key = "J" + value;
+		Integer index = poolIndexes.get(key);
+		if (index == null) {
+			try {
+				pool.writeByte(CONSTANT_LONG);
+				pool.writeLong(value);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			// long constants take two entries in the pool
+			index = addPoolEntry(key, 2);
+		}
+		return index;
+	}
+
+	int doubleConstant(double value) {
+		String key = "D" + Double.doubleToRawLongBits(value);
+		Integer index = poolIndexes.get(key);
+		if (index == null) {
+			try {
+				pool.writeByte(CONSTANT_DOUBLE);
+				pool.writeDouble(value);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			// double constants take two entries in the pool
+			index = addPoolEntry(key, 2);
+		}
+		return index;
+	}
+
+	int string(String value) {
+		String key = "S" + value;
+		Integer index = poolIndexes.get(key);
+		if (index == null) {
+			int utf8 = utf8(value);
+			writePool(CONSTANT_STRING, utf8);
+			index = addPoolEntry(key, 1);
+		}
+		return index;
+	}
+
+	int methodRef(String owner, String name, String descriptor) {
+		return memberRef(CONSTANT_METHODREF, owner, name, descriptor);
+	}
+
+	int fieldRef(String owner, String name, String descriptor) {
+		return memberRef(CONSTANT_FIELDREF, owner, name, descriptor);
+	}
+
+	private int memberRef(int tag, String owner, String name, String descriptor) {
+		String key = "M" + tag + owner + '.' + name + descriptor;
+		Integer index = poolIndexes.get(key);
+		if (index == null) {
+			int ownerIndex = classRef(owner);
+			int nameAndType = nameAndType(name, descriptor);
+			writePool(tag, ownerIndex, nameAndType);
+			index = addPoolEntry(key, 1);
+		}
+		return index;
+	}
+
+	private int nameAndType(String name, String descriptor) {
+		String key = "N" + name + ':' + descriptor;
+		Integer index = poolIndexes.get(key);
+		if (index == null) {
+			int nameIndex = utf8(name);
+			int descriptorIndex = utf8(descriptor);
+			writePool(CONSTANT_NAME_AND_TYPE, nameIndex, descriptorIndex);
+			index = addPoolEntry(key, 1);
+		}
+		return index;
+	}
+
+	private void writePool(int tag, int... shorts) {
+		try {
+			pool.writeByte(tag);
+			for (int s : shorts) {
+				pool.writeShort(s);
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private int addPoolEntry(String key, int size) {
+		int index = poolCount;
+		poolCount += size;
+		if (poolCount > 0xFFFF) {
+			throw new UnsupportedOperationException("Too many constants");
+		}
+		poolIndexes.put(key, index);
+		return index;
+	}
+
+	/**
+	 * A position in the bytecode of a method, possibly referenced before
+	 * being marked.
+	 */
+	static final class Label {
+
+		private int position = -1;
+
+		/** Pairs of (instruction position, offset position) to patch */
+		private final List<int[]> references = new ArrayList<int[]>();
+	}
+
+	/**
+	 * Writer of the bytecode of one method.
+	 */
+	final class MethodWriter {
+
+		private final int access;
+		private final int name;
+		private final int descriptor;
+		private final int maxStack;
+		private final int maxLocals;
+
+		private byte[] code = new byte[256];
+		private int size;
+
+		private int[] lineNumbers = new int[32];
+		private int lineNumberCount;
+		private int lastLine = -1;
+
+		private MethodWriter(int access, int name, int descriptor, int maxStack, int maxLocals) {
+			this.access = access;
+			this.name = name;
+			this.descriptor = descriptor;
+			this.maxStack = maxStack;
+			this.maxLocals = maxLocals;
+		}
+
+		int size() {
+			return size;
+		}
+
+		void op(int opcode) {
+			writeByte(opcode);
+		}
+
+		void pushInt(int value) {
+			if (value >= -1 && value <= 5) {
+				writeByte(ICONST_0 + value);
+			} else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+				writeByte(BIPUSH);
+				writeByte(value);
+			} else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+				writeByte(SIPUSH);
+				writeShort(value);
+			} else {
+				loadConstant(integer(value));
+			}
+		}
+
+		void pushBoolean(boolean value) {
+			pushInt(value ? 1 : 0);
+		}
+
+		void pushLong(long value) {
+			if (value == 0 || value == 1) {
+				writeByte(LCONST_0 + (int) value);
+			} else {
+				writeByte(LDC2_W);
+				writeShort(longConstant(value));
+			}
+		}
+
+		void pushDouble(double value) {
+			writeByte(LDC2_W);
+			writeShort(doubleConstant(value));
+		}
+
+		void pushString(String value) {
+			loadConstant(string(value));
+		}
+
+		void pushClass(String internalName) {
+			loadConstant(classRef(internalName));
+		}
+
+		private void loadConstant(int index) {
+			if (index <= 0xFF) {
+				writeByte(LDC);
+				writeByte(index);
+			} else {
+				writeByte(LDC_W);
+				writeShort(index);
+			}
+		}
+
+		void invoke(int opcode, String owner, String methodName, String methodDescriptor) {
+			writeByte(opcode);
+			writeShort(methodRef(owner, methodName, methodDescriptor));
+		}
+
+		void getStatic(String owner, String fieldName, String fieldDescriptor) {
+			writeByte(GETSTATIC);
+			writeShort(fieldRef(owner, fieldName, fieldDescriptor));
+		}
+
+		/**
+		 * Writes a <code>goto</code> or a conditional jump to the specified label.
+		 */
+		void jump(int opcode, Label label) {
+			int instruction = size;
+			writeByte(opcode);
+			writeOffset(label, instruction, false);
+		}
+
+		void lookupSwitch(Label defaultLabel, int[] keys, Label[] labels) {
+			int instruction = size;
+			writeByte(LOOKUPSWITCH);
+			while (size % 4 != 0) {
+				writeByte(0);
+			}
+			writeOffset(defaultLabel, instruction, true);
+			writeInt(keys.length);
+			int[] sortedKeys = keys.clone();
+			Arrays.sort(sortedKeys);
+			for (int key : sortedKeys) {
+				int i = 0;
+				while (keys[i] != key) {
+					i++;
+				}
+				writeInt(key);
+				writeOffset(labels[i], instruction, true);
+			}
+		}
+
+		void mark(Label label) {
+			label.position = size;
+			for (int[] reference : label.references) {
+				patch(reference[1], size - reference[0], reference[2] != 0);
+			}
+			label.references.clear();
+		}
+
+		/**
+		 * Associates the next instructions with the specified line of the
+		 * source.
+		 */
+		void lineNumber(int line) {
+			if (line == lastLine || line < 0 || line > 0xFFFF) {
+				return;
+			}
+			if (lineNumberCount + 2 > lineNumbers.length) {
+				lineNumbers = Arrays.copyOf(lineNumbers, lineNumbers.length * 2);
+			}
+			lineNumbers[lineNumberCount++] = size;
+			lineNumbers[lineNumberCount++] = line;
+			lastLine = line;
+		}
+
+		private void writeOffset(Label label, int instruction, boolean wide) {
+			if (label.position >= 0) {
+				int offset = label.position - instruction;
+				if (wide) {
+					writeInt(offset);
+				} else {
+					writeShort(offset);
+				}
+			} else {
+				label.references.add(new int[] { instruction, size, wide ? 1 : 0 });
+				if (wide) {
+					writeInt(0);
+				} else {
+					writeShort(0);
+				}
+			}
+		}
+
+		private void patch(int position, int offset, boolean wide) {
+			if (wide) {
+				code[position] = (byte) (offset >>> 24);
+				code[position + 1] = (byte) (offset >>> 16);
+				code[position + 2] = (byte) (offset >>> 8);
+				code[position + 3] = (byte) offset;
+			} else {
+				code[position] = (byte) (offset >>> 8);
+				code[position + 1] = (byte) offset;
+			}
+		}
+
+		private void writeByte(int b) {
+			if (size == code.length) {
+				code = Arrays.copyOf(code, code.length * 2);
+			}
+			code[size++] = (byte) b;
+		}
+
+		private void writeShort(int s) {
+			writeByte(s >>> 8);
+			writeByte(s);
+		}
+
+		private void writeInt(int i) {
+			writeShort(i >>> 16);
+			writeShort(i);
+		}
+
+		private void writeTo(DataOutputStream out, int codeAttribute, int lineNumberAttribute) throws IOException {
+			if (size > Short.MAX_VALUE) {
+				// branch offsets are signed 16-bit values
+				throw new UnsupportedOperationException("Method too large: " + size + " bytes");
+			}
+			int lineNumberEntries = lineNumberCount / 2;
+			int lineNumberTableLength = 2 + lineNumberEntries * 4;
+			out.writeShort(access);
+			out.writeShort(name);
+			out.writeShort(descriptor);
+			out.writeShort(1); // attributes
+			out.writeShort(codeAttribute);
+			out.writeInt(2 + 2 + 4 + size + 2 + 2 + 6 + lineNumberTableLength);
+			out.writeShort(maxStack);
+			out.writeShort(maxLocals);
+			out.writeInt(size);
+			out.write(code, 0, size);
+			out.writeShort(0); // exception table
+			out.writeShort(1); // attributes
+			out.writeShort(lineNumberAttribute);
+			out.writeInt(lineNumberTableLength);
+			out.writeShort(lineNumberEntries);
+			for (int i = 0; i < lineNumberCount; i++) {
+				out.writeShort(lineNumbers[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,826 @@
+package org.metricshub.jawk.backend;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * Jawk
+ * ჻჻჻჻჻჻
+ * Copyright (C) 2006 - 2025 MetricsHub
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import org.metricshub.jawk.ExitException;
+import org.metricshub.jawk.ext.ExtensionFunction;
+import org.metricshub.jawk.intermediate.AwkTuples;
+import org.metricshub.jawk.intermediate.Opcode;
+
+/**
+ * Base class of the scripts generated by the {@link AwkCompiler}.
+ * <p>
+ * A compiled script is bound to the {@link AVM} that runs it. The generated
+ * subclass only contains the control flow of the tuples (jumps, function
+ * calls) as JVM bytecode; the semantics of each instruction remain
+ * implemented by the AVM and are reached through the protected methods
+ * of this class, which the generated code calls with the tuple arguments
+ * as constants.
+ * <p>
+ * The non-function tuples are split into segments, each compiled as a
+ * method of the generated class. {@link #execute()} drives the segments:
+ * a segment returns the index of the next tuple to run whenever the control
+ * flow leaves it, and {@link #dispatch(int)} resolves that index to the
+ * segment that contains it.
+ */
+public abstract class CompiledScript {
+
+	private final AVM avm;
+
+	/**
+	 * Object arguments of the tuples (constants pushed on the stack,
+	 * regular expressions, classes and extension functions), by tuple index,
+	 * as registered by the generated constructor.
+	 */
+	private final Object[] constants;
+
+	private final int conditionPairCount;
+	private final int maxFieldReference;
+	private final Map<String, Integer> globalVariableOffsets = new HashMap<String, Integer>();
+	private final Map<String, Boolean> globalVariableArrays = new HashMap<String, Boolean>();
+	private final Set<String> functionNames = new HashSet<String>();
+
+	/**
+	 * Binds the compiled script to the interpreter that will run it.
+	 * <p>
+	 * The constructor of the generated subclass then registers the constants
+	 * of the tuples, and the names of the global variables and functions, so
+	 * that the script can run without the tuples it has been compiled from.
+	 *
+	 * @param avm the interpreter providing the instruction semantics
+	 * @param tupleCount number of tuples the script has been compiled from
+	 * @param conditionPairCount number of range patterns
+	 *        (see {@link AwkTuples#getConditionPairCount()})
+	 * @param maxFieldReference highest input field read with a constant index
+	 *        (see {@link AwkTuples#getMaxFieldReference()})
+	 */
+	protected CompiledScript(AVM avm, int tupleCount, int conditionPairCount, int maxFieldReference) {
+		this.avm = avm;
+		this.constants = new Object[tupleCount];
+		this.conditionPairCount = conditionPairCount;
+		this.maxFieldReference = maxFieldReference;
+	}
+
+	/**
+	 * Instantiates a generated script class for the specified interpreter.
+	 *
+	 * @param scriptClass the class generated by the {@link AwkCompiler}
+	 * @param avm the interpreter providing the instruction semantics
+	 * @return the new compiled script
+	 */
+	static CompiledScript newInstance(Class<? extends CompiledScript> scriptClass, AVM avm) {
+		try {
+			return scriptClass.getConstructor(AVM.class).newInstance(avm);
+		} catch (InvocationTargetException e) {
+			throw new IllegalStateException("Unable to instantiate " + scriptClass.getName(), e.getCause());
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Unable to instantiate " + scriptClass.getName(), e);
+		}
+	}
+
+	int getConditionPairCount() {
+		return conditionPairCount;
+	}
+
+	int getMaxFieldReference() {
+		return maxFieldReference;
+	}
+
+	Map<String, Integer> getGlobalVariableOffsetMap() {
+		return Collections.unmodifiableMap(globalVariableOffsets);
+	}
+
+	Map<String, Boolean> getGlobalVariableAarrayMap() {
+		return Collections.unmodifiableMap(globalVariableArrays);
+	}
+
+	Set<String> getFunctionNameSet() {
+		return Collections.unmodifiableSet(functionNames);
+	}
+
+	// Registration of the constants and names, by the generated constructor
+
+	protected final void constant(int tupleIndex, String value) {
+		constants[tupleIndex] = value;
+	}
+
+	protected final void constant(int tupleIndex, long value) {
+		constants[tupleIndex] = Long.valueOf(value);
+	}
+
+	protected final void constant(int tupleIndex, double value) {
+		constants[tupleIndex] = Double.valueOf(value);
+	}
+
+	protected final void constantPattern(int tupleIndex, String regexp, int flags) {
+		constants[tupleIndex] = Pattern.compile(regexp, flags);
+	}
+
+	protected final void constantClass(int tupleIndex, Class<?> cls) {
+		constants[tupleIndex] = cls;
+	}
+
+	protected final void constantExtension(int tupleIndex, String keyword) {
+		constants[tupleIndex] = avm.getExtensionFunction(keyword);
+	}
+
+	protected final void global(String name, int offset, boolean isArray) {
+		globalVariableOffsets.put(name, Integer.valueOf(offset));
+		globalVariableArrays.put(name, Boolean.valueOf(isArray));
+	}
+
+	protected final void function(String name) {
+		functionNames.add(name);
+	}
+
+	/**
+	 * Runs the script from its first tuple until the end of the tuples.
+	 *
+	 * @throws ExitException when the script calls <code>exit</code>
+	 * @throws IOException upon an IO error
+	 */
+	final void execute() throws ExitException, IOException {
+		execute(0);
+	}
+
+	/**
+	 * Runs the script from the specified entry point until the end of the
+	 * tuples, or until one of the speculations the script has been compiled
+	 * with fails (see {@link ExecutionProfile}).
+	 *
+	 * @param from index of the first tuple to run, which must be the start of
+	 *        a segment or an <code>CONSUME_INPUT</code> tuple
+	 * @return -1 at the end of the tuples, or the index of the tuple the
+	 *         interpreter must resume with
+	 * @throws ExitException when the script calls <code>exit</code>
+	 * @throws IOException upon an IO error
+	 */
+	final int execute(int from) throws ExitException, IOException {
+		int index = from;
+		while (index >= 0) {
+			try {
+				index = dispatch(index);
+			} catch (ExitJump jump) {
+				index = jump.target;
+			}
+		}
+		return index == -1 ? -1 : -2 - index;
+	}
+
+	/**
+	 * Runs the segment containing the specified tuple, starting at this tuple.
+	 *
+	 * @param index index of the tuple to run
+	 * @return index of the next tuple to run, -1 at the end of the tuples, or
+	 *         the value returned by {@link #deoptimize(int, int)} when a
+	 *         speculation fails
+	 * @throws ExitException when the script calls <code>exit</code>
+	 * @throws IOException upon an IO error
+	 */
+	protected abstract int dispatch(int index) throws ExitException, IOException;
+
+	/**
+	 * Finds the line of the script being executed when the specified
+	 * exception was thrown, as recorded in the line number table of the
+	 * generated class.
+	 *
+	 * @param t the exception thrown by the script
+	 * @return the line number, or -1 if unknown
+	 */
+	final int lineNumberOf(Throwable t) {
+		String className = getClass().getName();
+		for (StackTraceElement element : t.getStackTrace()) {
+			if (className.equals(element.getClassName())) {
+				return element.getLineNumber();
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Called when the control flow reaches a tuple that is not the start
+	 * of a segment, which denotes a bug in the compiler.
+	 *
+	 * @param index index of the tuple
+	 * @return never returns
+	 */
+	protected final int invalidEntry(int index) {
+		throw new Error("Tuple " + index + " is not an entry point of " + getClass().getName());
+	}
+
+	/**
+	 * Called when a guard of the generated code fails, to hand the control
+	 * back to the interpreter.
+	 *
+	 * @param index index of the tuple whose speculation failed
+	 * @param resume index of the tuple the interpreter must resume with
+	 * @return the value the segment must return so that {@link #execute(int)}
+	 *         returns <code>resume</code>
+	 */
+	protected final int deoptimize(int index, int resume) {
+		avm.deoptimize(index);
+		return -2 - resume;
+	}
+
+	/**
+	 * Guard of the tuples compiled with their numeric variant.
+	 *
+	 * @param count number of operands to check
+	 * @return whether the operands at the top of the stack are all numbers
+	 */
+	protected final boolean hasNumberOperands(int count) {
+		return avm.hasNumberOperands(count);
+	}
+
+	/**
+	 * Unwinds the generated code when <code>exit</code> is called from within
+	 * a function, so that {@link #execute()} continues with the END blocks.
+	 */
+	private static final class ExitJump extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int target;
+
+		private ExitJump(int target) {
+			super(null, null, false, false);
+			this.target = target;
+		}
+	}
+
+	// Instructions.
+	// Each method below delegates to the AVM method implementing the
+	// corresponding opcode.
+
+	protected final void pushConstant(int tupleIndex) {
+		avm.push(constants[tupleIndex]);
+	}
+
+	protected final void pop() {
+		avm.pop();
+	}
+
+	protected final boolean popBoolean() {
+		return avm.popBoolean();
+	}
+
+	protected final double popNumber() {
+		return avm.popNumber();
+	}
+
+	protected final void print(long numArgs) {
+		avm.print(numArgs);
+	}
+
+	protected final void printToFile(long numArgs, boolean append) {
+		avm.printToFile(numArgs, append);
+	}
+
+	protected final void printToPipe(long numArgs) {
+		avm.printToPipe(numArgs);
+	}
+
+	protected final void printf(long numArgs) {
+		avm.printf(numArgs);
+	}
+
+	protected final void printfToFile(long numArgs, boolean append) {
+		avm.printfToFile(numArgs, append);
+	}
+
+	protected final void printfToPipe(long numArgs) {
+		avm.printfToPipe(numArgs);
+	}
+
+	protected final void sprintf(long numArgs) {
+		avm.sprintf(numArgs);
+	}
+
+	protected final void length(long num) {
+		avm.length(num);
+	}
+
+	protected final void toNumber() {
+		avm.toNumber();
+	}
+
+	protected final void not() {
+		avm.not();
+	}
+
+	protected final void negate() {
+		avm.negate();
+	}
+
+	protected final void unaryPlus() {
+		avm.unaryPlus();
+	}
+
+	protected final void concat() {
+		avm.concat();
+	}
+
+	protected final void concatStrings() {
+		avm.concatStrings();
+	}
+
+	protected final void assign(long offset, boolean isGlobal) {
+		avm.assign(offset, isGlobal);
+	}
+
+	protected final void assignPop(long offset, boolean isGlobal) {
+		avm.assignPop(offset, isGlobal);
+	}
+
+	protected final void assignArray(long offset, boolean isGlobal) {
+		avm.assignArray(offset, isGlobal);
+	}
+
+	protected final void assignOperationArray(Opcode opcode, long offset, boolean isGlobal) {
+		avm.assignOperationArray(opcode, offset, isGlobal);
+	}
+
+	protected final void plusEqArrayField(long fieldnum, long offset, boolean isGlobal) {
+		avm.plusEqArrayField(fieldnum, offset, isGlobal);
+	}
+
+	protected final void assignAsInput() {
+		avm.assignAsInput();
+	}
+
+	protected final void assignAsInputField() {
+		avm.assignAsInputField();
+	}
+
+	protected final void assignOperation(Opcode opcode, long offset, boolean isGlobal) {
+		avm.assignOperation(opcode, offset, isGlobal);
+	}
+
+	protected final void assignOperationInputField(Opcode opcode) {
+		avm.assignOperationInputField(opcode);
+	}
+
+	protected final void inc(long offset, boolean isGlobal) {
+		avm.inc(offset, isGlobal);
+	}
+
+	protected final void dec(long offset, boolean isGlobal) {
+		avm.dec(offset, isGlobal);
+	}
+
+	protected final void postInc(long offset, boolean isGlobal) {
+		avm.postInc(offset, isGlobal);
+	}
+
+	protected final void postDec(long offset, boolean isGlobal) {
+		avm.postDec(offset, isGlobal);
+	}
+
+	protected final void incArrayRef(long offset, boolean isGlobal) {
+		avm.incArrayRef(offset, isGlobal);
+	}
+
+	protected final void incArrayRefSubsep(long count, long offset, boolean isGlobal) {
+		avm.incArrayRefSubsep(count, offset, isGlobal);
+	}
+
+	protected final void inlineFrame(long numVariables, long numActualParams, long offset, boolean isGlobal) {
+		avm.inlineFrame(numVariables, numActualParams, offset, isGlobal);
+	}
+
+	protected final void tailCall(long numFormalParams, long numActualParams) {
+		avm.tailCall(numFormalParams, numActualParams);
+	}
+
+	protected final void inlineReturn(long numVariables, long offset, boolean isGlobal) {
+		avm.inlineReturn(numVariables, offset, isGlobal);
+	}
+
+	protected final void decArrayRef(long offset, boolean isGlobal) {
+		avm.decArrayRef(offset, isGlobal);
+	}
+
+	protected final void incDollarRef() {
+		avm.incDollarRef();
+	}
+
+	protected final void decDollarRef() {
+		avm.decDollarRef();
+	}
+
+	protected final void dereference(long offset, boolean isArray, boolean isGlobal) {
+		avm.dereference(offset, isArray, isGlobal);
+	}
+
+	protected final void derefArray() {
+		avm.derefArray();
+	}
+
+	protected final void srand(long numArgs) {
+		avm.srand(numArgs);
+	}
+
+	protected final void rand() {
+		avm.rand();
+	}
+
+	protected final void intFunc() {
+		avm.intFunc();
+	}
+
+	protected final void sqrt() {
+		avm.sqrt();
+	}
+
+	protected final void log() {
+		avm.log();
+	}
+
+	protected final void exp() {
+		avm.exp();
+	}
+
+	protected final void sin() {
+		avm.sin();
+	}
+
+	protected final void cos() {
+		avm.cos();
+	}
+
+	protected final void atan2() {
+		avm.atan2();
+	}
+
+	protected final void match(int ignoreCaseOffset) {
+		avm.match(ignoreCaseOffset);
+	}
+
+	protected final void index() {
+		avm.index();
+	}
+
+	protected final void subForDollar0(boolean isGsub) {
+		avm.subForDollar0(isGsub);
+	}
+
+	protected final void subForDollarReference(boolean isGsub) {
+		avm.subForDollarReference(isGsub);
+	}
+
+	protected final void subForVariable(long offset, boolean isGlobal, boolean isGsub) {
+		avm.subForVariable(offset, isGlobal, isGsub);
+	}
+
+	protected final void subForArrayReference(long offset, boolean isGlobal, boolean isGsub) {
+		avm.subForArrayReference(offset, isGlobal, isGsub);
+	}
+
+	protected final void split(long numArgs) {
+		avm.split(numArgs);
+	}
+
+	protected final void substr(long numArgs) {
+		avm.substr(numArgs);
+	}
+
+	protected final void toLower() {
+		avm.toLower();
+	}
+
+	protected final void toUpper() {
+		avm.toUpper();
+	}
+
+	protected final void system() {
+		avm.system();
+	}
+
+	protected final void swap() {
+		avm.swapOnStack();
+	}
+
+	protected final void compare(int mode) {
+		avm.compare(mode);
+	}
+
+	protected final void compareNumbers(int mode) {
+		avm.compareNumbers(mode);
+	}
+
+	protected final boolean compareWithConstant(int tupleIndex, int mode) {
+		return avm.compareWithConstant(constants[tupleIndex], mode);
+	}
+
+	protected final void matches() {
+		avm.matches();
+	}
+
+	protected final void add() {
+		avm.add();
+	}
+
+	protected final void addNumbers() {
+		avm.addNumbers();
+	}
+
+	protected final void subtractNumbers() {
+		avm.subtractNumbers();
+	}
+
+	protected final void multiplyNumbers() {
+		avm.multiplyNumbers();
+	}
+
+	protected final void divideNumbers() {
+		avm.divideNumbers();
+	}
+
+	protected final void subtract() {
+		avm.subtract();
+	}
+
+	protected final void multiply() {
+		avm.multiply();
+	}
+
+	protected final void divide() {
+		avm.divide();
+	}
+
+	protected final void mod() {
+		avm.mod();
+	}
+
+	protected final void pow() {
+		avm.pow();
+	}
+
+	protected final void dup() {
+		avm.dup();
+	}
+
+	protected final void keylist() {
+		avm.keylist();
+	}
+
+	protected final boolean isEmptyKeylist() {
+		return avm.isEmptyKeylist();
+	}
+
+	protected final void getFirstAndRemoveFromKeylist() {
+		avm.getFirstAndRemoveFromKeylist();
+	}
+
+	protected final void checkClass(int tupleIndex) {
+		avm.checkClass((Class<?>) constants[tupleIndex]);
+	}
+
+	protected final boolean consumeInput() throws IOException {
+		return avm.consumeInput();
+	}
+
+	protected final void setInputForEval() throws IOException {
+		avm.setInputForEval();
+	}
+
+	protected final void getlineInput() throws IOException {
+		avm.avmConsumeInputForGetline();
+	}
+
+	protected final void useAsFileInput() throws IOException {
+		avm.useAsFileInput();
+	}
+
+	protected final void useAsCommandInput() throws IOException {
+		avm.useAsCommandInput();
+	}
+
+	protected final void setEnvironOffset(long offset) {
+		avm.setEnvironOffset(offset);
+	}
+
+	protected final void setArgcOffset(long offset) {
+		avm.setArgcOffset(offset);
+	}
+
+	protected final void setArgvOffset(long offset) {
+		avm.setArgvOffset(offset);
+	}
+
+	protected final void getInputField() {
+		avm.getInputField();
+	}
+
+	protected final void getInputField(long fieldnum) {
+		avm.getInputField(fieldnum);
+	}
+
+	protected final void applyRS() {
+		avm.applyRS();
+	}
+
+	protected final void callFunction(long numFormalParams, long numActualParams, int returnIndex) {
+		avm.callFunction(numFormalParams, numActualParams, returnIndex);
+	}
+
+	protected final void setReturnResult() {
+		avm.setReturnResult();
+	}
+
+	protected final void returnFromFunction() {
+		avm.returnFromFunction();
+	}
+
+	protected final void setNumGlobals(long numGlobals) {
+		avm.setNumGlobals(numGlobals);
+	}
+
+	protected final void close() {
+		avm.close();
+	}
+
+	protected final void applySubsep(long count) {
+		avm.applySubsep(count);
+	}
+
+	protected final void deleteArrayElement(long offset, boolean isGlobal) {
+		avm.deleteArrayElement(offset, isGlobal);
+	}
+
+	protected final void deleteArray(long offset, boolean isGlobal) {
+		avm.deleteArray(offset, isGlobal);
+	}
+
+	protected final void setExitAddress(int index) {
+		avm.setExitAddress(index);
+	}
+
+	protected final void setWithinEndBlocks(boolean within) {
+		avm.setWithinEndBlocks(within);
+	}
+
+	protected final int exit(boolean withCode) throws ExitException {
+		return avm.exit(withCode);
+	}
+
+	protected final void exitFromFunction(boolean withCode) throws ExitException {
+		throw new ExitJump(avm.exit(withCode));
+	}
+
+	protected final void conditionPair(int slot) {
+		avm.conditionPair(slot);
+	}
+
+	protected final void isIn() {
+		avm.isIn();
+	}
+
+	protected final void exec() {
+		avm.exec();
+	}
+
+	protected final void extension(int tupleIndex, long numArgs, boolean isInitial) {
+		avm.extension((ExtensionFunction) constants[tupleIndex], numArgs, isInitial);
+	}
+
+	protected final void assignNF() {
+		avm.assignNF();
+	}
+
+	protected final void pushNF() {
+		avm.pushNF();
+	}
+
+	protected final void assignNR() {
+		avm.assignNR();
+	}
+
+	protected final void pushNR() {
+		avm.pushNR();
+	}
+
+	protected final void assignFNR() {
+		avm.assignFNR();
+	}
+
+	protected final void pushFNR() {
+		avm.pushFNR();
+	}
+
+	protected final void assignFS() {
+		avm.assignFS();
+	}
+
+	protected final void pushFS() {
+		avm.pushFS();
+	}
+
+	protected final void assignRS() {
+		avm.assignRS();
+	}
+
+	protected final void pushRS() {
+		avm.pushRS();
+	}
+
+	protected final void assignOFS() {
+		avm.assignOFS();
+	}
+
+	protected final void pushOFS() {
+		avm.pushOFS();
+	}
+
+	protected final void assignORS() {
+		avm.assignORS();
+	}
+
+	protected final void pushORS() {
+		avm.pushORS();
+	}
+
+	protected final void assignRSTART() {
+		avm.assignRSTART();
+	}
+
+	protected final void pushRSTART() {
+		avm.pushRSTART();
+	}
+
+	protected final void assignRLENGTH() {
+		avm.assignRLENGTH();
+	}
+
+	protected final void pushRLENGTH() {
+		avm.pushRLENGTH();
+	}
+
+	protected final void assignFILENAME() {
+		avm.assignFILENAME();
+	}
+
+	protected final void pushFILENAME() {
+		avm.pushFILENAME();
+	}
+
+	protected final void assignSUBSEP() {
+		avm.assignSUBSEP();
+	}
+
+	protected final void pushSUBSEP() {
+		avm.pushSUBSEP();
+	}
+
+	protected final void assignCONVFMT() {
+		avm.assignCONVFMT();
+	}
+
+	protected final void pushCONVFMT() {
+		avm.pushCONVFMT();
+	}
+
+	protected final void assignOFMT() {
+		avm.assignOFMT();
+	}
+
+	protected final void pushOFMT() {
+		avm.pushOFMT();
+	}
+
+	protected final void assignARGC() {
+		avm.assignARGC();
+	}
+
+	protected final void pushARGC() {
+		avm.pushARGC();
+	}
+}
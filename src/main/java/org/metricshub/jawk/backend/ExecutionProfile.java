@@ -0,0 +1,211 @@
+package org.metricshub.jawk.backend;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * Jawk
+ * ჻჻჻჻჻჻
+ * Copyright (C) 2006 - 2025 MetricsHub
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import org.metricshub.jawk.intermediate.Opcode;
+
+/**
+ * Type and branch profile of the tuples, gathered by the {@link AVM} while
+ * it interprets them with tiered execution enabled (see
+ * {@link org.metricshub.jawk.util.AwkSettings#getTierUpThreshold()}).
+ * <p>
+ * The {@link AwkCompiler} relies on the profile to specialize the generic
+ * tuples outside functions:
+ * <ul>
+ * <li>an arithmetic, comparison or conditional jump tuple that only ever
+ * operated on numbers is compiled as its numeric variant (e.g.
+ * {@link Opcode#ADD_NUM}), behind a guard checking the operands;
+ * <li>a conditional jump that always went the same way is compiled without
+ * its other branch.
+ * </ul>
+ * When a speculation turns out to be wrong, the compiled script hands the
+ * control back to the interpreter (see {@link #deoptimize(int)}), which
+ * resumes at the tuple concerned and profiles the tuples again until the
+ * next compilation.
+ */
+final class ExecutionProfile {
+
+	private static final byte NUMBERS = 1;
+	private static final byte OTHERS = 2;
+
+	/**
+	 * Maximum number of compilations, after which the tuples are compiled
+	 * without any speculation
+	 */
+	private static final int MAX_COMPILATIONS = 4;
+
+	private final int threshold;
+	private final byte[] operandKinds;
+	private final long[] taken;
+	private final long[] notTaken;
+	private long records;
+	private int compilations;
+
+	/**
+	 * @param size number of tuples to profile
+	 * @param threshold number of records to interpret before compiling the
+	 *        tuples
+	 */
+	ExecutionProfile(int size, int threshold) {
+		this.threshold = threshold;
+		operandKinds = new byte[size];
+		taken = new long[size];
+		notTaken = new long[size];
+	}
+
+	/**
+	 * Records the kind of the operands of the specified tuple.
+	 *
+	 * @param index index of the tuple
+	 * @param numbers whether all of its operands are numbers
+	 */
+	void operands(int index, boolean numbers) {
+		operandKinds[index] |= numbers ? NUMBERS : OTHERS;
+	}
+
+	/**
+	 * Records the outcome of the specified conditional jump.
+	 *
+	 * @param index index of the tuple
+	 * @param jump whether the jump was taken
+	 */
+	void branch(int index, boolean jump) {
+		if (jump) {
+			taken[index]++;
+		} else {
+			notTaken[index]++;
+		}
+	}
+
+	/**
+	 * Records an input record and tells whether the tuples must be compiled.
+	 *
+	 * @return <code>true</code> once enough records have been interpreted
+	 *         since the last compilation
+	 */
+	boolean record() {
+		return ++records > threshold;
+	}
+
+	/**
+	 * Records a compilation of the tuples based on this profile.
+	 */
+	void compiled() {
+		compilations++;
+		records = 0;
+	}
+
+	/**
+	 * @return whether the next compilation may speculate on this profile
+	 */
+	boolean isSpeculative() {
+		return compilations < MAX_COMPILATIONS;
+	}
+
+	/**
+	 * Records that a speculation on the specified tuple failed, so that the
+	 * next compilation does not speculate on it anymore.
+	 *
+	 * @param index index of the tuple whose guard failed
+	 */
+	void deoptimize(int index) {
+		operandKinds[index] |= OTHERS;
+		taken[index]++;
+		notTaken[index]++;
+	}
+
+	/**
+	 * @param index index of the tuple
+	 * @return whether all the operands of the tuple were numbers so far
+	 */
+	boolean hasNumberOperands(int index) {
+		return operandKinds[index] == NUMBERS;
+	}
+
+	/**
+	 * @param index index of a conditional jump
+	 * @return whether the jump has been evaluated but never taken
+	 */
+	boolean isNeverTaken(int index) {
+		return taken[index] == 0 && notTaken[index] > 0;
+	}
+
+	/**
+	 * @param index index of a conditional jump
+	 * @return whether the jump has been evaluated and always taken
+	 */
+	boolean isAlwaysTaken(int index) {
+		return notTaken[index] == 0 && taken[index] > 0;
+	}
+
+	/**
+	 * Returns the numeric variant of the specified generic opcode, to be used
+	 * when its operands are known to be numbers.
+	 *
+	 * @param opcode a generic opcode
+	 * @return its numeric variant, or <code>null</code> if there is none
+	 */
+	static Opcode numericVariant(Opcode opcode) {
+		switch (opcode) {
+		case ADD:
+			return Opcode.ADD_NUM;
+		case SUBTRACT:
+			return Opcode.SUBTRACT_NUM;
+		case MULTIPLY:
+			return Opcode.MULTIPLY_NUM;
+		case DIVIDE:
+			return Opcode.DIVIDE_NUM;
+		case CMP_EQ:
+			return Opcode.CMP_EQ_NUM;
+		case CMP_LT:
+			return Opcode.CMP_LT_NUM;
+		case CMP_GT:
+			return Opcode.CMP_GT_NUM;
+		case IFFALSE:
+			return Opcode.IFFALSE_NUM;
+		case IFTRUE:
+			return Opcode.IFTRUE_NUM;
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * @param opcode an opcode
+	 * @return whether tuples with this opcode are conditional jumps whose
+	 *         outcome is profiled
+	 */
+	static boolean isProfiledBranch(Opcode opcode) {
+		switch (opcode) {
+		case IFFALSE:
+		case IFTRUE:
+		case IFFALSE_NUM:
+		case IFTRUE_NUM:
+		case IFFALSE_CMP_CONST:
+		case IFTRUE_CMP_CONST:
+			return true;
+		default:
+			return false;
+		}
+	}
+}
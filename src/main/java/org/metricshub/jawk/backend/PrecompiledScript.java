@@ -0,0 +1,205 @@
+package org.metricshub.jawk.backend;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * Jawk
+ * ჻჻჻჻჻჻
+ * Copyright (C) 2006 - 2025 MetricsHub
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import org.metricshub.jawk.intermediate.AwkTuples;
+import org.metricshub.jawk.util.DestDirClassLoader;
+
+/**
+ * An AWK script compiled ahead of time: the JVM class generated from its
+ * tuples by the {@link AwkCompiler} or, when the tuples could not be
+ * compiled, the tuples themselves.
+ * <p>
+ * A precompiled script is stored either in a jar file, or as files in a
+ * directory, containing one of:
+ * <ul>
+ * <li><code>AwkScript.class</code>, the generated class, which holds the
+ * constants, global variables and function names of the script
+ * <li><code>AwkScript.tuples</code>, the serialized {@link AwkTuples}, to be
+ * interpreted, when they could not be compiled
+ * </ul>
+ * Loading a precompiled script therefore skips the parsing of the script,
+ * and its bytecode generation.
+ */
+public final class PrecompiledScript {
+
+	/** Name of the generated class in a precompiled script */
+	public static final String CLASS_NAME = AwkCompiler.DEFAULT_CLASS_NAME;
+
+	private static final String CLASS_FILE = CLASS_NAME + ".class";
+	private static final String TUPLES_FILE = CLASS_NAME + ".tuples";
+
+	private final AwkTuples tuples;
+	private final Class<? extends CompiledScript> scriptClass;
+
+	private PrecompiledScript(AwkTuples tuples, Class<? extends CompiledScript> scriptClass) {
+		this.tuples = tuples;
+		this.scriptClass = scriptClass;
+	}
+
+	/**
+	 * @return the tuples to interpret, or <code>null</code> if the script has
+	 *         been compiled to JVM bytecode (see {@link #getScriptClass()})
+	 */
+	public AwkTuples getTuples() {
+		return tuples;
+	}
+
+	/**
+	 * @return the class generated from the tuples, or <code>null</code> if
+	 *         they could not be compiled and must be interpreted
+	 */
+	public Class<? extends CompiledScript> getScriptClass() {
+		return scriptClass;
+	}
+
+	/**
+	 * Whether the specified file designates a precompiled script (a jar file,
+	 * or a directory), rather than serialized tuples.
+	 *
+	 * @param file the file to check
+	 * @return whether {@link #load(File)} or {@link #write(AwkTuples, File)}
+	 *         apply to this file
+	 */
+	public static boolean isPrecompiledScript(File file) {
+		return file.isDirectory() || file.getName().endsWith(".jar");
+	}
+
+	/**
+	 * Compiles the tuples and writes the result to the specified jar file, or
+	 * directory.
+	 *
+	 * @param tuples the tuples to compile (not modified)
+	 * @param file the jar file to create, or the directory where to write the
+	 *        class, or the tuples
+	 * @return whether the tuples could be compiled to JVM bytecode (otherwise,
+	 *         only the tuples are written and will be interpreted)
+	 * @throws IOException when the files cannot be written
+	 */
+	public static boolean write(AwkTuples tuples, File file) throws IOException {
+		byte[] classBytes;
+		try {
+			classBytes = new AwkCompiler().compile(tuples, CLASS_NAME);
+		} catch (UnsupportedOperationException e) {
+			classBytes = null;
+		}
+
+		if (file.isDirectory()) {
+			// Remove what a previous compilation may have left
+			Files.deleteIfExists(new File(file, classBytes != null ? TUPLES_FILE : CLASS_FILE).toPath());
+			if (classBytes != null) {
+				try (OutputStream out = new FileOutputStream(new File(file, CLASS_FILE))) {
+					out.write(classBytes);
+				}
+			} else {
+				try (OutputStream out = new FileOutputStream(new File(file, TUPLES_FILE))) {
+					writeTuples(tuples, out);
+				}
+			}
+		} else {
+			Manifest manifest = new Manifest();
+			manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+			try (JarOutputStream jar = new JarOutputStream(new FileOutputStream(file), manifest)) {
+				if (classBytes != null) {
+					jar.putNextEntry(new JarEntry(CLASS_FILE));
+					jar.write(classBytes);
+				} else {
+					jar.putNextEntry(new JarEntry(TUPLES_FILE));
+					writeTuples(tuples, jar);
+				}
+				jar.closeEntry();
+			}
+		}
+		return classBytes != null;
+	}
+
+	private static void writeTuples(AwkTuples tuples, OutputStream out) throws IOException {
+		// Not closed: this would close the jar
+		ObjectOutputStream oos = new ObjectOutputStream(out);
+		oos.writeObject(tuples);
+		oos.flush();
+	}
+
+	/**
+	 * Loads a precompiled script from the specified jar file, or directory.
+	 * <p>
+	 * The generated class is loaded and initialized right away, so the jar
+	 * file is closed when this method returns.
+	 *
+	 * @param file the jar file, or the directory, written by
+	 *        {@link #write(AwkTuples, File)}
+	 * @return the precompiled script
+	 * @throws IOException when the files cannot be read
+	 * @throws ClassNotFoundException when the tuples or the class cannot be
+	 *         loaded (typically, when they were written by another version)
+	 */
+	public static PrecompiledScript load(File file) throws IOException, ClassNotFoundException {
+		ClassLoader parent = CompiledScript.class.getClassLoader();
+		if (file.isDirectory()) {
+			if (new File(file, CLASS_FILE).isFile()) {
+				return new PrecompiledScript(null, loadClass(new DestDirClassLoader(file.getPath(), parent)));
+			}
+			try (InputStream in = new FileInputStream(new File(file, TUPLES_FILE))) {
+				return new PrecompiledScript(readTuples(in), null);
+			}
+		}
+
+		// The generated class only refers to classes of the parent class
+		// loader, which remain available once the jar file is closed
+		try (URLClassLoader loader = new URLClassLoader(new URL[] { file.toURI().toURL() }, parent)) {
+			if (loader.findResource(CLASS_FILE) != null) {
+				return new PrecompiledScript(null, loadClass(loader));
+			}
+			try (InputStream in = loader.getResourceAsStream(TUPLES_FILE)) {
+				if (in == null) {
+					throw new IOException(file + " contains neither " + CLASS_FILE + " nor " + TUPLES_FILE);
+				}
+				return new PrecompiledScript(readTuples(in), null);
+			}
+		}
+	}
+
+	private static Class<? extends CompiledScript> loadClass(ClassLoader loader) throws ClassNotFoundException {
+		return Class.forName(CLASS_NAME, true, loader).asSubclass(CompiledScript.class);
+	}
+
+	private static AwkTuples readTuples(InputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream ois = new ObjectInputStream(in);
+		return (AwkTuples) ois.readObject();
+	}
+}
@@ -22,13 +22,11 @@
  * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
  */
 
-import java.util.ArrayDeque;
 import java.util.Arrays;
-import java.util.Deque;
-import java.util.LinkedList;
 
 import org.metricshub.jawk.intermediate.UninitializedObject;
 import org.metricshub.jawk.jrt.AssocArray;
+import org.metricshub.jawk.jrt.StrNum;
 
 /**
  * Runtime stack used by the AVM interpreter.
@@ -39,15 +37,28 @@ class RuntimeStack {
 
 	private Object[] globals = null;
 	private Object[] locals = null;
-	private Deque<Object[]> localsStack = new LinkedList<Object[]>();
-	private Deque<Integer> returnIndexes = new ArrayDeque<Integer>();
+
+	/**
+	 * Frames of the functions being called, indexed by call depth. Frames are
+	 * cleared and kept when functions return, so that the next call at the
+	 * same depth reuses them instead of allocating a new one.
+	 */
+	private Object[][] frames = new Object[16][];
+	private int[] frameSizes = new int[16];
+	private int[] returnIndexes = new int[16];
+	private int depth = 0;
+
+	/** Offset of the global variable whose assignments are reported, or -1 */
+	private int watchedGlobal = -1;
+
+	private Runnable watchedGlobalListener;
 
 	@SuppressWarnings("unused")
 	public void dump() {
 		System.out.println("globals = " + Arrays.toString(globals));
 		System.out.println("locals = " + Arrays.toString(locals));
-		System.out.println("localsStack = " + localsStack);
-		System.out.println("returnIndexes = " + returnIndexes);
+		System.out.println("frames = " + Arrays.deepToString(Arrays.copyOf(frames, depth)));
+		System.out.println("returnIndexes = " + Arrays.toString(Arrays.copyOf(returnIndexes, depth)));
 	}
 
 	Object[] getNumGlobals() {
@@ -93,8 +104,15 @@ Object getVariable(long offset, boolean isGlobal) {
 	Object setVariable(long offset, Object val, boolean isGlobal) {
 		assert globals != null;
 		assert offset != AVM.NULL_OFFSET;
+		if (val instanceof StrNum) {
+			// do not keep the whole record in memory
+			((StrNum) val).detach();
+		}
 		if (isGlobal) {
 			globals[(int) offset] = val;
+			if (offset == watchedGlobal) {
+				watchedGlobalListener.run();
+			}
 			return val;
 		} else {
 			locals[(int) offset] = val;
@@ -119,24 +137,52 @@ void setFilelistVariable(int offset, Object value) {
 		assert globals != null;
 		assert offset != AVM.NULL_OFFSET;
 		globals[offset] = value;
+		if (offset == watchedGlobal) {
+			watchedGlobalListener.run();
+		}
+	}
+
+	/**
+	 * Reports the assignments of a global variable to the specified listener.
+	 *
+	 * @param offset the offset of the global variable, or -1 to report none
+	 * @param listener called after each assignment of the variable
+	 */
+	void watchGlobal(int offset, Runnable listener) {
+		watchedGlobal = offset;
+		watchedGlobalListener = listener;
 	}
 
 	void pushFrame(long numFormalParams, int positionIdx) {
-		localsStack.push(locals);
-		locals = new Object[(int) numFormalParams];
-		returnIndexes.push(positionIdx);
+		if (depth == frames.length) {
+			frames = Arrays.copyOf(frames, depth * 2);
+			frameSizes = Arrays.copyOf(frameSizes, depth * 2);
+			returnIndexes = Arrays.copyOf(returnIndexes, depth * 2);
+		}
+		Object[] frame = frames[depth];
+		if (frame == null || frame.length < numFormalParams) {
+			frame = new Object[(int) numFormalParams];
+			frames[depth] = frame;
+		}
+		frameSizes[depth] = (int) numFormalParams;
+		returnIndexes[depth] = positionIdx;
+		depth++;
+		locals = frame;
 	}
 
 	/** returns the position index */
 	int popFrame() {
-		locals = localsStack.pop();
-		return returnIndexes.pop();
+		depth--;
+		// Clear the frame before it gets reused (and release its values);
+		// only the variables of the function may have been set
+		Arrays.fill(frames[depth], 0, frameSizes[depth], null);
+		locals = depth > 0 ? frames[depth - 1] : null;
+		return returnIndexes[depth];
 	}
 
 	void popAllFrames() {
-		for (int i = localsStack.size(); i > 0; i--) {
-			locals = localsStack.pop();
-			returnIndexes.pop();
+		while (depth > 0) {
+			popFrame();
 		}
 	}
 
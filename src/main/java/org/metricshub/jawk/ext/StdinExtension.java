@@ -25,12 +25,12 @@
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import org.metricshub.jawk.jrt.BlockObject;
 import org.metricshub.jawk.jrt.IllegalAwkArgumentException;
 import org.metricshub.jawk.jrt.JRT;
+import org.metricshub.jawk.jrt.StrNum;
 import org.metricshub.jawk.jrt.VariableManager;
 import org.metricshub.jawk.util.AwkSettings;
 import org.metricshub.jawk.ext.annotations.JawkFunction;
@@ -129,7 +129,7 @@ public void init(VariableManager vm, JRT jrt, final AwkSettings settings) {
 			public void run() {
 				try (
 						BufferedReader br = new BufferedReader(
-								new InputStreamReader(settings.getInput(), StandardCharsets.UTF_8))) {
+								new InputStreamReader(settings.getInput(), settings.getCharset()))) {
 					String line;
 					while ((line = br.readLine()) != null) {
 						getLineInput.put(line);
@@ -218,8 +218,7 @@ private Object stdInGetLine() {
 				isEof = true;
 				return 0;
 			}
-			getJrt().setInputLine((String) lineObj);
-			getJrt().jrtParseFields();
+			getJrt().jrtParseRecord(new StrNum((String) lineObj));
 			return 1;
 		} catch (InterruptedException ie) {
 			return -1;
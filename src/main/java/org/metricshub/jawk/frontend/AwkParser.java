@@ -2552,6 +2552,7 @@ public int populateTuples(AwkTuples tuples) {
 			symbolTable.getID("FNR");
 			symbolTable.getID("NF");
 			symbolTable.getID("FS");
+			symbolTable.getID("FIELDWIDTHS");
 			symbolTable.getID("RS");
 			symbolTable.getID("OFS");
 			symbolTable.getID("ORS");
@@ -2691,6 +2692,7 @@ public int populateTuples(AwkTuples tuples) {
 			symbolTable.getID("FNR");
 			symbolTable.getID("NF");
 			symbolTable.getID("FS");
+			symbolTable.getID("FIELDWIDTHS");
 			symbolTable.getID("RS");
 			symbolTable.getID("SUBSEP");
 			symbolTable.getID("CONVFMT");
@@ -82,6 +82,19 @@ public boolean add(Tuple t) {
 
 	private boolean optimized;
 
+	private boolean linked;
+
+	private int conditionPairCount;
+
+	private int maxFieldReference;
+
+	/**
+	 * Compact encoding of the queue, built by {@link #top()}. The queue is
+	 * released (set to <code>null</code>) once encoded, so that only the
+	 * compact encoding is kept (and serialized) for the rest of the run.
+	 */
+	private CodeStream code;
+
 	/**
 	 * <p>
 	 * toOpcodeString.
@@ -1605,25 +1618,44 @@ public void extension(ExtensionFunction function, int paramCount, boolean isInit
 	public void dump(PrintStream ps) {
 		ps.println("(intermediate serialVersionUID = " + serialVersionUID + ")");
 		ps.println();
-		for (int i = 0; i < queue.size(); i++) {
+		int size = queue == null ? code.size() : queue.size();
+		for (int i = 0; i < size; i++) {
+			Object tuple = queue == null ? code.toString(i * CodeStream.STRIDE) : queue.get(i);
 			Address address = addressManager.getAddress(i);
 			if (address == null) {
-				ps.println(i + " : " + queue.get(i));
+				ps.println(i + " : " + tuple);
 			} else {
-				ps.println(i + " : [" + address + "] : " + queue.get(i));
+				ps.println(i + " : [" + address + "] : " + tuple);
 			}
 		}
 	}
 
 	/**
+	 * Returns a position at the first tuple, to interpret (or compile) the
+	 * tuples.
 	 * <p>
-	 * top.
-	 * </p>
+	 * The first call encodes the tuples into a compact {@link CodeStream}
+	 * and releases the {@link Tuple} objects: the tuples can no longer be
+	 * modified (post-processed, optimized, linked) afterwards.
 	 *
 	 * @return a {@link org.metricshub.jawk.intermediate.PositionTracker} object
 	 */
 	public PositionTracker top() {
-		return new PositionTracker(queue);
+		if (code == null) {
+			code = new CodeStream(queue);
+			queue = null;
+		}
+		return new PositionTracker(code);
+	}
+
+	/**
+	 * @throws IllegalStateException if the tuples have been released by
+	 *         {@link #top()}
+	 */
+	private void checkNotEncoded() {
+		if (queue == null) {
+			throw new IllegalStateException("The tuples cannot be modified once encoded for interpretation");
+		}
 	}
 
 	/**
@@ -1639,6 +1671,7 @@ public void postProcess() {
 		if (postProcessed) {
 			return;
 		}
+		checkNotEncoded();
 		if (!queue.isEmpty() && queue.get(0).hasNext()) {
 			postProcessed = true;
 			return;
@@ -1650,6 +1683,89 @@ public void postProcess() {
 		postProcessed = true;
 	}
 
+	/**
+	 * Resolves the lookups that would otherwise be performed by name or by
+	 * tuple index every time a tuple is executed. Must be called once the
+	 * global variable offsets have been populated.
+	 * <ul>
+	 * <li>MATCH tuples receive the offset of the <code>IGNORECASE</code> global
+	 * variable, or -1 when the script does not reference it.
+	 * <li>CONDITION_PAIR tuples receive a sequential slot, so that the state of
+	 * the range patterns can be kept in an array
+	 * (see {@link #getConditionPairCount()}).
+	 * <li>The highest input field read with a constant index is recorded, so
+	 * that records are only split as far as needed
+	 * (see {@link #getMaxFieldReference()}).
+	 * </ul>
+	 * <p>
+	 * This method is idempotent.
+	 */
+	public void link() {
+		if (linked) {
+			return;
+		}
+		checkNotEncoded();
+		if (!postProcessed) {
+			postProcess();
+		}
+		Integer ignoreCaseOffset = globalVarOffsetMap.get("IGNORECASE");
+		int slot = 0;
+		long maxField = 0;
+		for (Tuple tuple : queue) {
+			switch (tuple.getOpcode()) {
+			case MATCH:
+				tuple.setIntArg(0, ignoreCaseOffset == null ? -1 : ignoreCaseOffset.intValue());
+				break;
+			case CONDITION_PAIR:
+				tuple.setIntArg(0, slot++);
+				break;
+			case GET_INPUT_FIELD_CONST:
+			case PLUS_EQ_ARRAY_FIELD:
+				maxField = Math.max(maxField, tuple.getInts()[0]);
+				break;
+			case GET_INPUT_FIELD:
+			case ASSIGN_AS_INPUT_FIELD:
+			case PLUS_EQ_INPUT_FIELD:
+			case MINUS_EQ_INPUT_FIELD:
+			case MULT_EQ_INPUT_FIELD:
+			case DIV_EQ_INPUT_FIELD:
+			case MOD_EQ_INPUT_FIELD:
+			case POW_EQ_INPUT_FIELD:
+			case SUB_FOR_DOLLAR_REFERENCE:
+			case INC_DOLLAR_REF:
+			case DEC_DOLLAR_REF:
+			case PUSH_NF:
+			case ASSIGN_NF:
+				// computed field index, or all the fields are needed
+				maxField = Integer.MAX_VALUE;
+				break;
+			default:
+				break;
+			}
+		}
+		conditionPairCount = slot;
+		maxFieldReference = (int) Math.min(maxField, Integer.MAX_VALUE);
+		linked = true;
+	}
+
+	/**
+	 * @return the number of range pattern slots assigned by {@link #link()}
+	 */
+	public int getConditionPairCount() {
+		return conditionPairCount;
+	}
+
+	/**
+	 * @return the highest input field the script reads with a constant index
+	 *         (e.g. 3 if it only uses <code>$1</code> and <code>$3</code>), as
+	 *         computed by {@link #link()}, or {@link Integer#MAX_VALUE} if it
+	 *         uses <code>NF</code>, assigns fields or reads a field with a
+	 *         computed index
+	 */
+	public int getMaxFieldReference() {
+		return maxFieldReference;
+	}
+
 	/**
 	 * Performs tuple queue optimizations such as reachability pruning and NOP
 	 * collapsing.
@@ -1664,11 +1780,16 @@ public void postProcess() {
 	 * already run, and it keeps a single optimization toggle (optimize()) for
 	 * callers. Performing the work at the tuple layer also lets us recurse until
 	 * no more changes occur without complicating the parser.
+	 * <p>
+	 * Once the queue is pruned, a {@link TypeInference} pass replaces the
+	 * generic tuples whose operand types are statically known with their
+	 * type-specialized variant (e.g. {@link Opcode#ADD_NUM}).
 	 */
 	public void optimize() {
 		if (optimized) {
 			return;
 		}
+		checkNotEncoded();
 		if (!postProcessed) {
 			postProcess();
 		}
@@ -1679,21 +1800,422 @@ public void optimize() {
 				tuple.touch(queue);
 			}
 		}
+		if (inlineFunctions()) {
+			for (Tuple tuple : queue) {
+				tuple.touch(queue);
+			}
+		}
+		eliminateTailCalls();
 		optimizeQueue();
+		new TypeInference(queue).run();
 		optimized = true;
 	}
 
+	/**
+	 * Maximum number of tuples of a function for it to be inlined at its call
+	 * sites.
+	 */
+	private static final int MAX_INLINED_FUNCTION_SIZE = 32;
+
+	/**
+	 * Body of a user-defined function, from its entry point to its
+	 * <code>RETURN_FROM_FUNCTION</code> tuple.
+	 */
+	private static final class FunctionBody {
+
+		private final Address entry;
+		private final int start;
+		private final int end;
+		private final long numVariables;
+		private final Set<Address> callees = Collections.newSetFromMap(new IdentityHashMap<Address, Boolean>());
+		private boolean selfContained = true;
+
+		private FunctionBody(Address entry, int start, int end, long numVariables) {
+			this.entry = entry;
+			this.start = start;
+			this.end = end;
+			this.numVariables = numVariables;
+		}
+
+		private boolean contains(int index) {
+			return index >= start && index <= end;
+		}
+	}
+
+	/**
+	 * Offsets of the variables used by the functions inlined so far, which
+	 * are shared by all the inlined calls of a same function (or of the
+	 * main program) since they cannot be active at the same time.
+	 */
+	private static final class InliningState {
+
+		private final Set<Address> processed = Collections.newSetFromMap(new IdentityHashMap<Address, Boolean>());
+		private final Map<Address, Long> functionBases = new IdentityHashMap<Address, Long>();
+		private long globalBase = -1;
+	}
+
+	/**
+	 * Replaces the calls to small non-recursive functions with a copy of their
+	 * body, which saves pushing a frame on the runtime stack for each call.
+	 * <p>
+	 * Functions are processed callees first, so that a function is inlined
+	 * with the functions it calls already inlined in its body. The parameters
+	 * and locals of an inlined function are moved to variables of the caller:
+	 * additional locals when the caller is a function, or additional
+	 * (anonymous) globals otherwise. Arrays are passed the same way as by
+	 * <code>CALL_FUNCTION</code>, i.e. by reference.
+	 *
+	 * @return whether some calls have been inlined
+	 */
+	private boolean inlineFunctions() {
+		InliningState state = new InliningState();
+		boolean modified = false;
+		while (true) {
+			Map<Address, FunctionBody> functions = findFunctions();
+			if (functions == null) {
+				return modified;
+			}
+			Set<Address> recursive = findRecursiveFunctions(functions);
+			FunctionBody next = null;
+			for (FunctionBody function : functions.values()) {
+				if (!state.processed.contains(function.entry)
+						&& !recursive.contains(function.entry)
+						&& areProcessed(function.callees, state.processed, recursive)) {
+					next = function;
+					break;
+				}
+			}
+			if (next == null) {
+				return modified;
+			}
+			state.processed.add(next.entry);
+			if (next.selfContained && next.end - next.start < MAX_INLINED_FUNCTION_SIZE) {
+				modified |= inlineCalls(next, functions, state);
+			}
+		}
+	}
+
+	private static boolean areProcessed(Set<Address> callees, Set<Address> processed, Set<Address> recursive) {
+		for (Address callee : callees) {
+			if (!processed.contains(callee) && !recursive.contains(callee)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the bodies of the functions that are called.
+	 *
+	 * @return the functions by entry point, or <code>null</code> if their
+	 *         layout is not the expected one
+	 */
+	private Map<Address, FunctionBody> findFunctions() {
+		Map<Address, FunctionBody> functions = new IdentityHashMap<Address, FunctionBody>();
+		java.util.List<FunctionBody> ordered = new ArrayList<FunctionBody>();
+		for (Tuple tuple : queue) {
+			if (tuple.getOpcode() != Opcode.CALL_FUNCTION || functions.containsKey(tuple.getAddress())) {
+				continue;
+			}
+			Address entry = tuple.getAddress();
+			int start = entry.index();
+			int end = start;
+			while (end < queue.size() && queue.get(end).getOpcode() != Opcode.RETURN_FROM_FUNCTION) {
+				end++;
+			}
+			if (end == queue.size()) {
+				return null;
+			}
+			FunctionBody function = new FunctionBody(entry, start, end, tuple.getInts()[2]);
+			for (int i = start; i <= end; i++) {
+				Tuple bodyTuple = queue.get(i);
+				Address address = bodyTuple.getAddress();
+				if (bodyTuple.getOpcode() == Opcode.CALL_FUNCTION) {
+					function.callees.add(address);
+				} else if (address != null && !function.contains(address.index())) {
+					// Jumps out of the function, e.g. next
+					function.selfContained = false;
+				}
+			}
+			functions.put(entry, function);
+			ordered.add(function);
+		}
+		// Process the functions in the order of the script
+		Collections.sort(ordered, (f1, f2) -> Integer.compare(f1.start, f2.start));
+		Map<Address, FunctionBody> result = new java.util.LinkedHashMap<Address, FunctionBody>();
+		for (FunctionBody function : ordered) {
+			result.put(function.entry, function);
+		}
+		return result;
+	}
+
+	private static Set<Address> findRecursiveFunctions(Map<Address, FunctionBody> functions) {
+		Set<Address> recursive = Collections.newSetFromMap(new IdentityHashMap<Address, Boolean>());
+		for (FunctionBody function : functions.values()) {
+			Set<Address> visited = Collections.newSetFromMap(new IdentityHashMap<Address, Boolean>());
+			Deque<Address> pending = new ArrayDeque<Address>(function.callees);
+			while (!pending.isEmpty()) {
+				Address callee = pending.pop();
+				if (callee == function.entry) {
+					recursive.add(function.entry);
+					break;
+				}
+				FunctionBody body = functions.get(callee);
+				if (visited.add(callee) && body != null) {
+					pending.addAll(body.callees);
+				}
+			}
+		}
+		return recursive;
+	}
+
+	/**
+	 * Replaces the calls of functions to themselves whose result is directly
+	 * returned (<code>return f(...)</code>) with a {@link Opcode#TAIL_CALL},
+	 * which reuses the frame of the current call. Deep recursions then run in
+	 * constant space. The tuples returning the result become unreachable and
+	 * are removed afterwards.
+	 */
+	private void eliminateTailCalls() {
+		Map<Address, FunctionBody> functions = findFunctions();
+		if (functions == null) {
+			return;
+		}
+		for (FunctionBody function : functions.values()) {
+			for (int i = function.start; i + 2 <= function.end; i++) {
+				Tuple call = queue.get(i);
+				if (call.getOpcode() != Opcode.CALL_FUNCTION
+						|| call.getAddress() != function.entry
+						|| queue.get(i + 1).getOpcode() != Opcode.SET_RETURN_RESULT) {
+					continue;
+				}
+				Tuple next = queue.get(i + 2);
+				boolean returns = next.getOpcode() == Opcode.RETURN_FROM_FUNCTION
+						|| (next.getOpcode() == Opcode.GOTO && next.getAddress().index() == function.end);
+				if (!returns) {
+					continue;
+				}
+				Tuple tailCall = new Tuple(
+						Opcode.TAIL_CALL,
+						function.entry,
+						call.getInts()[2],
+						call.getInts()[3]);
+				tailCall.setLineNumber(call.getLineno());
+				tailCall.setNext(call.getNext());
+				queue.set(i, tailCall);
+			}
+		}
+	}
+
+	/**
+	 * Replaces all the calls to the specified function with a copy of its body.
+	 */
+	private boolean inlineCalls(FunctionBody function, Map<Address, FunctionBody> functions, InliningState state) {
+		Tuple setNumGlobals = null;
+		for (Tuple tuple : queue) {
+			if (tuple.getOpcode() == Opcode.SET_NUM_GLOBALS) {
+				setNumGlobals = tuple;
+				break;
+			}
+		}
+		if (state.globalBase < 0 && setNumGlobals != null) {
+			state.globalBase = setNumGlobals.getInts()[0];
+		}
+
+		java.util.List<Tuple> original = new ArrayList<Tuple>(queue);
+		int[] indexMapping = new int[original.size()];
+		java.util.List<Tuple> inlined = new ArrayList<Tuple>(original.size());
+		Map<Address, Integer> copiedAddresses = new IdentityHashMap<Address, Integer>();
+		Map<Address, Long> callerSizes = new IdentityHashMap<Address, Long>();
+		long numGlobals = setNumGlobals == null ? 0 : setNumGlobals.getInts()[0];
+		boolean modified = false;
+
+		for (int i = 0; i < original.size(); i++) {
+			Tuple tuple = original.get(i);
+			indexMapping[i] = inlined.size();
+			if (tuple.getOpcode() != Opcode.CALL_FUNCTION || tuple.getAddress() != function.entry) {
+				inlined.add(tuple);
+				continue;
+			}
+			FunctionBody caller = null;
+			for (FunctionBody candidate : functions.values()) {
+				if (candidate.contains(i)) {
+					caller = candidate;
+					break;
+				}
+			}
+			long base;
+			if (caller != null) {
+				Long callerBase = state.functionBases.get(caller.entry);
+				if (callerBase == null) {
+					callerBase = caller.numVariables;
+					state.functionBases.put(caller.entry, callerBase);
+				}
+				base = callerBase;
+				Long size = callerSizes.get(caller.entry);
+				long required = Math.max(size == null ? caller.numVariables : size, base + function.numVariables);
+				callerSizes.put(caller.entry, required);
+			} else if (setNumGlobals != null) {
+				base = state.globalBase;
+				numGlobals = Math.max(numGlobals, base + function.numVariables);
+			} else {
+				inlined.add(tuple);
+				continue;
+			}
+			copyFunctionBody(function, tuple, base, caller == null, original, inlined, copiedAddresses);
+			modified = true;
+		}
+
+		if (!modified) {
+			return false;
+		}
+
+		queue.clear();
+		queue.addAll(inlined);
+		remapAddresses(indexMapping);
+		for (Map.Entry<Address, Integer> entry : copiedAddresses.entrySet()) {
+			addressManager.resolveAddress(entry.getKey(), entry.getValue());
+		}
+		assignSequentialNextPointers();
+
+		// Callers now need larger frames
+		for (Tuple tuple : queue) {
+			if (tuple.getOpcode() == Opcode.CALL_FUNCTION && callerSizes.containsKey(tuple.getAddress())) {
+				tuple.setIntArg(2, callerSizes.get(tuple.getAddress()));
+			}
+		}
+		if (setNumGlobals != null) {
+			setNumGlobals.setIntArg(0, numGlobals);
+		}
+		return true;
+	}
+
+	/**
+	 * Appends a copy of the body of the function in place of the specified
+	 * <code>CALL_FUNCTION</code> tuple, with its variables moved to the
+	 * specified offset.
+	 */
+	private void copyFunctionBody(
+			FunctionBody function,
+			Tuple call,
+			long base,
+			boolean isGlobal,
+			java.util.List<Tuple> original,
+			java.util.List<Tuple> inlined,
+			Map<Address, Integer> copiedAddresses) {
+		Tuple frame = new Tuple(Opcode.INLINE_FRAME, function.numVariables, call.getInts()[3], base, isGlobal);
+		frame.setLineNumber(call.getLineno());
+		inlined.add(frame);
+
+		// The final "return" jumps to the next tuple, which is useless once inlined
+		int bodyEnd = function.end;
+		if (bodyEnd > function.start) {
+			Tuple last = original.get(bodyEnd - 1);
+			if (last.getOpcode() == Opcode.GOTO && last.getAddress().index() == bodyEnd) {
+				bodyEnd--;
+			}
+		}
+
+		int bodyStart = inlined.size();
+		Map<Address, Address> addresses = new IdentityHashMap<Address, Address>();
+		for (int j = function.start; j < bodyEnd; j++) {
+			Tuple copy = original.get(j).copy();
+			Address address = copy.getAddress();
+			if (address != null && copy.getOpcode() != Opcode.CALL_FUNCTION) {
+				Address copiedAddress = addresses.get(address);
+				if (copiedAddress == null) {
+					copiedAddress = createAddress(address.label());
+					addresses.put(address, copiedAddress);
+					int target = Math.min(address.index(), bodyEnd);
+					copiedAddresses.put(copiedAddress, bodyStart + target - function.start);
+				}
+				copy.setAddress(copiedAddress);
+			}
+			relocateLocalVariables(copy, base, isGlobal);
+			inlined.add(copy);
+		}
+
+		Tuple ret = new Tuple(Opcode.INLINE_RETURN, function.numVariables, base, isGlobal);
+		ret.setLineNumber(original.get(function.end).getLineno());
+		inlined.add(ret);
+	}
+
+	/**
+	 * Moves the local variable referenced by the specified tuple (if any) to
+	 * the variables of the caller, at the specified offset.
+	 */
+	private static void relocateLocalVariables(Tuple tuple, long base, boolean isGlobal) {
+		int offsetArg;
+		int globalArg;
+		switch (tuple.getOpcode()) {
+		case ASSIGN:
+		case ASSIGN_POP:
+		case ASSIGN_ARRAY:
+		case PLUS_EQ:
+		case MINUS_EQ:
+		case MULT_EQ:
+		case DIV_EQ:
+		case MOD_EQ:
+		case POW_EQ:
+		case PLUS_EQ_ARRAY:
+		case MINUS_EQ_ARRAY:
+		case MULT_EQ_ARRAY:
+		case DIV_EQ_ARRAY:
+		case MOD_EQ_ARRAY:
+		case POW_EQ_ARRAY:
+		case INC:
+		case DEC:
+		case POSTINC:
+		case POSTDEC:
+		case INC_ARRAY_REF:
+		case DEC_ARRAY_REF:
+		case DELETE_ARRAY_ELEMENT:
+		case DELETE_ARRAY:
+		case SUB_FOR_VARIABLE:
+		case SUB_FOR_ARRAY_REFERENCE:
+			offsetArg = 0;
+			globalArg = 1;
+			break;
+		case DEREFERENCE:
+			offsetArg = 0;
+			globalArg = 2;
+			break;
+		case PLUS_EQ_ARRAY_FIELD:
+		case INC_ARRAY_REF_SUBSEP:
+		case INLINE_RETURN:
+			offsetArg = 1;
+			globalArg = 2;
+			break;
+		case INLINE_FRAME:
+			offsetArg = 2;
+			globalArg = 3;
+			break;
+		default:
+			return;
+		}
+		if (!tuple.getBools()[globalArg]) {
+			tuple.setIntArg(offsetArg, tuple.getInts()[offsetArg] + base);
+			tuple.setBoolArg(globalArg, isGlobal);
+		}
+	}
+
 	private boolean peepholeOptimize() {
 		boolean modified = false;
 		boolean passModified;
 		do {
-			passModified = peepholeOptimizePass();
+			passModified = peepholeOptimizePass(false);
+			modified |= passModified;
+		} while (passModified);
+		// Superinstructions are only fused once literals are folded, as
+		// folding may reveal longer sequences
+		do {
+			passModified = peepholeOptimizePass(true);
 			modified |= passModified;
 		} while (passModified);
 		return modified;
 	}
 
-	private boolean peepholeOptimizePass() {
+	private boolean peepholeOptimizePass(boolean fuseSuperinstructions) {
 		int originalSize = queue.size();
 		if (originalSize < 2) {
 			return false;
@@ -1715,9 +2237,7 @@ private boolean peepholeOptimizePass() {
 					Tuple nextTuple = original.get(oldIndex + 1);
 					if (nextTuple.getOpcode() == Opcode.GET_INPUT_FIELD
 							&& !hasResolvedAddress(oldIndex + 1)) {
-						PositionTracker position = new PositionTracker(original);
-						position.jump(oldIndex + 1);
-						long fieldIndex = JRT.parseFieldNumber(literal, position);
+						long fieldIndex = JRT.parseFieldNumber(literal, nextTuple.getLineno());
 						Tuple replacement = createGetInputFieldConst(
 								fieldIndex,
 								tuple.getLineno());
@@ -1763,6 +2283,15 @@ private boolean peepholeOptimizePass() {
 				}
 			}
 
+			int fused = fuseSuperinstructions ? fuseSequence(original, oldIndex, optimizedQueue) : 0;
+			if (fused > 0) {
+				indexMapping[oldIndex] = newIndex;
+				oldIndex += fused;
+				newIndex = optimizedQueue.size();
+				modified = true;
+				continue;
+			}
+
 			optimizedQueue.add(tuple);
 			indexMapping[oldIndex] = newIndex;
 			oldIndex++;
@@ -1784,6 +2313,170 @@ private boolean peepholeOptimizePass() {
 		return true;
 	}
 
+	/**
+	 * Replaces the sequence of tuples starting at the specified index with
+	 * fewer tuples (typically a superinstruction) when it matches one of the
+	 * frequent patterns below. Only the first tuple of the sequence may be
+	 * the target of a jump, unless the sequence is removed altogether.
+	 *
+	 * @param original the tuples before this pass
+	 * @param index index of the first tuple of the sequence
+	 * @param optimizedQueue receives the replacement tuples
+	 * @return the number of tuples replaced, 0 when no pattern matches
+	 */
+	private int fuseSequence(java.util.List<Tuple> original, int index, java.util.List<Tuple> optimizedQueue) {
+		int size = original.size();
+		Tuple first = original.get(index);
+		Opcode opcode = first.getOpcode();
+		Opcode next = index + 1 < size && !hasResolvedAddress(index + 1) ? original.get(index + 1).getOpcode() : null;
+		Opcode third = next != null && index + 2 < size && !hasResolvedAddress(index + 2) ?
+				original.get(index + 2).getOpcode() : null;
+
+		// PUSH c, IFFALSE/IFTRUE: constant condition, e.g. a rule without pattern
+		Object literal = literalValue(first);
+		if (literal != null && (next == Opcode.IFFALSE || next == Opcode.IFTRUE)) {
+			if (hasResolvedAddress(index)) {
+				return 0;
+			}
+			boolean value = literal instanceof String ? !((String) literal).isEmpty() : ((Number) literal).doubleValue() != 0;
+			if (value == (next == Opcode.IFTRUE)) {
+				// Always jumps
+				optimizedQueue.add(createTuple(new Tuple(Opcode.GOTO, original.get(index + 1).getAddress()), first));
+			}
+			return 2;
+		}
+
+		// NOT, IFFALSE/IFTRUE: branch on the opposite condition
+		if (opcode == Opcode.NOT && (next == Opcode.IFFALSE || next == Opcode.IFTRUE)) {
+			Opcode branch = next == Opcode.IFFALSE ? Opcode.IFTRUE : Opcode.IFFALSE;
+			optimizedQueue.add(createTuple(new Tuple(branch, original.get(index + 1).getAddress()), first));
+			return 2;
+		}
+
+		// PUSH c, CMP_*, IFFALSE/IFTRUE: compare with a constant and branch
+		if (literal != null
+				&& (next == Opcode.CMP_EQ || next == Opcode.CMP_LT || next == Opcode.CMP_GT)
+				&& (third == Opcode.IFFALSE || third == Opcode.IFTRUE)) {
+			long mode = next == Opcode.CMP_EQ ? 0 : next == Opcode.CMP_LT ? -1 : 1;
+			Opcode branch = third == Opcode.IFFALSE ? Opcode.IFFALSE_CMP_CONST : Opcode.IFTRUE_CMP_CONST;
+			Tuple tuple = new Tuple(branch, original.get(index + 2).getAddress(), mode, first);
+			optimizedQueue.add(createTuple(tuple, first));
+			return 3;
+		}
+
+		// ASSIGN, POP: assignment statement
+		if (opcode == Opcode.ASSIGN && next == Opcode.POP) {
+			Tuple tuple = new Tuple(Opcode.ASSIGN_POP, first.getInts()[0], first.getBools()[1]);
+			optimizedQueue.add(createTuple(tuple, first));
+			return 2;
+		}
+
+		// GET_INPUT_FIELD_CONST, PLUS_EQ_ARRAY, POP: a[$n] += x statement
+		if (opcode == Opcode.GET_INPUT_FIELD_CONST && next == Opcode.PLUS_EQ_ARRAY && third == Opcode.POP) {
+			Tuple operation = original.get(index + 1);
+			Tuple tuple = new Tuple(
+					Opcode.PLUS_EQ_ARRAY_FIELD,
+					first.getInts()[0],
+					operation.getInts()[0],
+					operation.getBools()[1]);
+			optimizedQueue.add(createTuple(tuple, first));
+			return 3;
+		}
+
+		// APPLY_SUBSEP, INC_ARRAY_REF: a[x, y]++
+		if (opcode == Opcode.APPLY_SUBSEP && next == Opcode.INC_ARRAY_REF) {
+			Tuple operation = original.get(index + 1);
+			Tuple tuple = new Tuple(
+					Opcode.INC_ARRAY_REF_SUBSEP,
+					first.getInts()[0],
+					operation.getInts()[0],
+					operation.getBools()[1]);
+			optimizedQueue.add(createTuple(tuple, first));
+			return 2;
+		}
+
+		// a[i]++ statement: the previous value, pushed for the postfix
+		// expression, is discarded
+		if (opcode == Opcode.DEREFERENCE && first.getBools()[1]) {
+			return fusePostIncrementStatement(original, index, optimizedQueue);
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Replaces <code>DEREFERENCE a, i, DEREF_ARRAY, i, INC_ARRAY_REF a, POP</code>
+	 * (where <code>i</code> is a side-effect free index expression) with
+	 * <code>i, INC_ARRAY_REF a</code> (or <code>DEC_ARRAY_REF</code>).
+	 */
+	private int fusePostIncrementStatement(
+			java.util.List<Tuple> original,
+			int index,
+			java.util.List<Tuple> optimizedQueue) {
+		int size = original.size();
+		int indexLength = 0;
+		while (index + 1 + indexLength < size && isPureIndexTuple(original.get(index + 1 + indexLength))) {
+			indexLength++;
+		}
+		int derefArray = index + 1 + indexLength;
+		int increment = derefArray + 1 + indexLength;
+		if (indexLength == 0 || increment + 1 >= size) {
+			return 0;
+		}
+		for (int i = index + 1; i <= increment + 1; i++) {
+			if (hasResolvedAddress(i)) {
+				return 0;
+			}
+		}
+		Tuple array = original.get(index);
+		Tuple operation = original.get(increment);
+		if (original.get(derefArray).getOpcode() != Opcode.DEREF_ARRAY
+				|| (operation.getOpcode() != Opcode.INC_ARRAY_REF && operation.getOpcode() != Opcode.DEC_ARRAY_REF)
+				|| operation.getInts()[0] != array.getInts()[0]
+				|| operation.getBools()[1] != array.getBools()[2]
+				|| original.get(increment + 1).getOpcode() != Opcode.POP) {
+			return 0;
+		}
+		for (int i = 0; i < indexLength; i++) {
+			if (!sameTuple(original.get(index + 1 + i), original.get(derefArray + 1 + i))) {
+				return 0;
+			}
+		}
+		for (int i = index + 1; i < derefArray; i++) {
+			optimizedQueue.add(original.get(i));
+		}
+		optimizedQueue.add(operation);
+		return increment + 2 - index;
+	}
+
+	private static boolean isPureIndexTuple(Tuple tuple) {
+		switch (tuple.getOpcode()) {
+		case PUSH:
+		case GET_INPUT_FIELD_CONST:
+		case APPLY_SUBSEP:
+		case CONCAT:
+			return true;
+		case DEREFERENCE:
+			return !tuple.getBools()[1];
+		default:
+			return false;
+		}
+	}
+
+	private static boolean sameTuple(Tuple t1, Tuple t2) {
+		return t1.getOpcode() == t2.getOpcode()
+				&& Arrays.equals(t1.getTypes(), t2.getTypes())
+				&& Arrays.equals(t1.getInts(), t2.getInts())
+				&& Arrays.equals(t1.getBools(), t2.getBools())
+				&& Arrays.equals(t1.getDoubles(), t2.getDoubles())
+				&& Arrays.equals(t1.getStrings(), t2.getStrings());
+	}
+
+	private static Tuple createTuple(Tuple tuple, Tuple replaced) {
+		tuple.setLineNumber(replaced.getLineno());
+		return tuple;
+	}
+
 	private Object literalValue(Tuple tuple) {
 		if (tuple.getOpcode() != Opcode.PUSH) {
 			return null;
@@ -2113,6 +2806,8 @@ private boolean fallsThrough(Opcode opcode) {
 		case GOTO:
 		case EXIT_WITH_CODE:
 		case EXIT_WITHOUT_CODE:
+		case RETURN_FROM_FUNCTION:
+		case TAIL_CALL:
 			return false;
 		default:
 			return true;
@@ -0,0 +1,257 @@
+package org.metricshub.jawk.intermediate;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * Jawk
+ * ჻჻჻჻჻჻
+ * Copyright (C) 2006 - 2025 MetricsHub
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import org.metricshub.jawk.ext.ExtensionFunction;
+
+/**
+ * Compact encoding of the tuple list, walked by {@link PositionTracker}
+ * when interpreting a script.
+ * <p>
+ * Each tuple is encoded as {@link #STRIDE} consecutive integers of a single
+ * array: the ordinal of its {@link Opcode} (along with the type of each of
+ * its arguments), its line number, and its four arguments. Integer and
+ * boolean arguments are stored as is. All other arguments (strings,
+ * doubles, patterns, addresses, etc.) are stored as an index into a pool
+ * of constants, shared by all the tuples of the script.
+ * <p>
+ * The {@link Tuple} objects remain the representation the optimizer works
+ * with; a code stream is built from them once they are final, and replaces
+ * them from then on (see {@link AwkTuples#top()}).
+ *
+ * @see PositionTracker
+ */
+final class CodeStream implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Number of integers used to encode one tuple
+	 */
+	static final int STRIDE = 6;
+
+	private static final int LINE = 1;
+	static final int ARGS = 2;
+	private static final int NUM_ARGS = 4;
+
+	private static final int OPCODE_MASK = 0xFFFF;
+	private static final int TYPE_SHIFT = 16;
+	private static final int TYPE_BITS = 4;
+	private static final int TYPE_MASK = (1 << TYPE_BITS) - 1;
+
+	static final int NONE = 0;
+	static final int INT = 1;
+	static final int LONG = 2;
+	static final int BOOLEAN = 3;
+	static final int DOUBLE = 4;
+	static final int STRING = 5;
+	static final int PATTERN = 6;
+	static final int ADDRESS = 7;
+	static final int EXTENSION = 8;
+	static final int CLASS = 9;
+
+	private static final Opcode[] OPCODES = Opcode.values();
+
+	private final int[] code;
+	private final Object[] constants;
+	private final int size;
+
+	/**
+	 * Encodes the specified tuples.
+	 *
+	 * @param queue the tuples to encode, whose addresses must all be resolved
+	 */
+	CodeStream(List<Tuple> queue) {
+		size = queue.size();
+		code = new int[size * STRIDE];
+		Map<Object, Integer> values = new HashMap<Object, Integer>();
+		Map<Object, Integer> references = new IdentityHashMap<Object, Integer>();
+		List<Object> pool = new ArrayList<Object>();
+		int base = 0;
+		for (Tuple tuple : queue) {
+			int header = tuple.getOpcode().ordinal();
+			code[base + LINE] = tuple.getLineno();
+			Class<?>[] types = tuple.getTypes();
+			for (int i = 0; i < NUM_ARGS; i++) {
+				Class<?> type = types[i];
+				int tag;
+				int value;
+				if (type == null) {
+					if (i == 0 && tuple.getAddressSupplier() != null) {
+						tuple.setAddress(tuple.getAddressSupplier().get());
+						tag = ADDRESS;
+						value = intern(tuple.getAddress(), references, pool);
+					} else {
+						tag = NONE;
+						value = 0;
+					}
+				} else if (type == Long.class) {
+					long l = tuple.getInts()[i];
+					if (l == (int) l) {
+						tag = INT;
+						value = (int) l;
+					} else {
+						tag = LONG;
+						value = intern(Long.valueOf(l), values, pool);
+					}
+				} else if (type == Boolean.class) {
+					tag = BOOLEAN;
+					value = tuple.getBools()[i] ? 1 : 0;
+				} else if (type == Double.class) {
+					tag = DOUBLE;
+					value = intern(Double.valueOf(tuple.getDoubles()[i]), values, pool);
+				} else if (type == String.class) {
+					tag = STRING;
+					value = intern(tuple.getStrings()[i], values, pool);
+				} else if (type == Pattern.class) {
+					tag = PATTERN;
+					value = intern(tuple.getPatterns()[i], references, pool);
+				} else if (type == Address.class) {
+					tag = ADDRESS;
+					value = intern(tuple.getAddress(), references, pool);
+				} else if (type == ExtensionFunction.class) {
+					tag = EXTENSION;
+					value = intern(tuple.getExtensionFunction(), references, pool);
+				} else if (type == Class.class) {
+					tag = CLASS;
+					value = intern(tuple.getCls(), references, pool);
+				} else {
+					throw new Error("Unknown param type (" + i + "): " + type);
+				}
+				header |= tag << (TYPE_SHIFT + i * TYPE_BITS);
+				code[base + ARGS + i] = value;
+			}
+			code[base] = header;
+			base += STRIDE;
+		}
+		constants = pool.toArray();
+	}
+
+	private static int intern(Object value, Map<Object, Integer> indexes, List<Object> pool) {
+		Integer index = indexes.get(value);
+		if (index == null) {
+			index = pool.size();
+			pool.add(value);
+			indexes.put(value, index);
+		}
+		return index;
+	}
+
+	/**
+	 * @return the number of encoded tuples
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return the encoded tuples, {@link #STRIDE} integers per tuple
+	 */
+	int[] code() {
+		return code;
+	}
+
+	/**
+	 * @return the constants referenced by the encoded tuples
+	 */
+	Object[] constants() {
+		return constants;
+	}
+
+	Opcode opcode(int base) {
+		return OPCODES[ordinal(base)];
+	}
+
+	/**
+	 * @return the ordinal of the opcode of the tuple encoded at the specified
+	 *         position (see {@link Opcodes})
+	 */
+	int ordinal(int base) {
+		return code[base] & OPCODE_MASK;
+	}
+
+	int lineNumber(int base) {
+		return code[base + LINE];
+	}
+
+	int type(int base, int argIdx) {
+		return (code[base] >>> (TYPE_SHIFT + argIdx * TYPE_BITS)) & TYPE_MASK;
+	}
+
+	int rawArg(int base, int argIdx) {
+		return code[base + ARGS + argIdx];
+	}
+
+	/**
+	 * Returns the argument of the tuple encoded at the specified position,
+	 * as it would appear in {@link Tuple#toString()}.
+	 */
+	Object value(int base, int argIdx) {
+		int raw = rawArg(base, argIdx);
+		switch (type(base, argIdx)) {
+		case INT:
+			return Long.valueOf(raw);
+		case BOOLEAN:
+			return Boolean.valueOf(raw != 0);
+		case NONE:
+			return null;
+		default:
+			return constants[raw];
+		}
+	}
+
+	/**
+	 * Renders the tuple encoded at the specified position the same way
+	 * {@link Tuple#toString()} does.
+	 */
+	String toString(int base) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(opcode(base).name());
+		for (int i = 0; i < NUM_ARGS && type(base, i) != NONE; i++) {
+			sb.append(", ");
+			Object value = value(base, i);
+			switch (type(base, i)) {
+			case STRING:
+				sb.append('"').append(value).append('"');
+				break;
+			case PATTERN:
+				sb.append('/').append(value == null ? "" : ((Pattern) value).pattern()).append('/');
+				break;
+			case EXTENSION:
+				sb.append(((ExtensionFunction) value).getKeyword());
+				break;
+			default:
+				sb.append(value);
+				break;
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -514,6 +514,9 @@ public enum Opcode {
 	 * If no match is found, RSTART (and return value) is set to
 	 * 0 and RLENGTH is set to -1.
 	 * <p>
+	 * Argument: offset of the IGNORECASE global variable, or -1 (set by
+	 * {@link AwkTuples#link()})
+	 * <p>
 	 * Stack before: string regexp ...<br/>
 	 * Stack after: RSTART ...
 	 */
@@ -1145,6 +1148,8 @@ public enum Opcode {
 	/**
 	 * Returns a pair of regex patterns.
 	 * <p>
+	 * Argument: slot of the range state (set by {@link AwkTuples#link()})
+	 * <p>
 	 * Stack before: pattern1, pattern2 <br>
 	 * Stack after: regex pair object
 	 */
@@ -1321,7 +1326,197 @@ public enum Opcode {
 	 * Stack before: ...<br/>
 	 * Stack after: ...
 	 */
-	SET_INPUT_FOR_EVAL;
+	SET_INPUT_FOR_EVAL,
+
+	// Type-specialized opcodes. They are never emitted by the parser: the
+	// type inference pass run by AwkTuples.optimize() substitutes them for
+	// their generic counterpart when the type of the operands is known.
+
+	/**
+	 * Same as {@link #ADD}, when both operands are known to be numbers.
+	 * <p>
+	 * Stack before: x1 x2 ...<br/>
+	 * Stack after: x1+x2 ...
+	 */
+	ADD_NUM,
+	/**
+	 * Same as {@link #SUBTRACT}, when both operands are known to be numbers.
+	 * <p>
+	 * Stack before: x1 x2 ...<br/>
+	 * Stack after: x1-x2 ...
+	 */
+	SUBTRACT_NUM,
+	/**
+	 * Same as {@link #MULTIPLY}, when both operands are known to be numbers.
+	 * <p>
+	 * Stack before: x1 x2 ...<br/>
+	 * Stack after: x1*x2 ...
+	 */
+	MULTIPLY_NUM,
+	/**
+	 * Same as {@link #DIVIDE}, when both operands are known to be numbers.
+	 * <p>
+	 * Stack before: x1 x2 ...<br/>
+	 * Stack after: x1/x2 ...
+	 */
+	DIVIDE_NUM,
+	/**
+	 * Same as {@link #CMP_EQ}, when both operands are known to be numbers,
+	 * so that they are compared numerically without conversion.
+	 * <p>
+	 * Stack before: x1 x2 ...<br/>
+	 * Stack after: x1==x2
+	 */
+	CMP_EQ_NUM,
+	/**
+	 * Same as {@link #CMP_LT}, when both operands are known to be numbers.
+	 * <p>
+	 * Stack before: x1 x2 ...<br/>
+	 * Stack after: x1&lt;x2
+	 */
+	CMP_LT_NUM,
+	/**
+	 * Same as {@link #CMP_GT}, when both operands are known to be numbers.
+	 * <p>
+	 * Stack before: x1 x2 ...<br/>
+	 * Stack after: x1&gt;x2
+	 */
+	CMP_GT_NUM,
+	/**
+	 * Same as {@link #IFFALSE}, when the top-of-stack is known to be a number.
+	 * <p>
+	 * Argument: address
+	 * <p>
+	 * Stack before: x ...<br/>
+	 * Stack after: ...
+	 */
+	IFFALSE_NUM,
+	/**
+	 * Same as {@link #IFTRUE}, when the top-of-stack is known to be a number.
+	 * <p>
+	 * Argument: address
+	 * <p>
+	 * Stack before: x ...<br/>
+	 * Stack after: ...
+	 */
+	IFTRUE_NUM,
+	/**
+	 * Same as {@link #CONCAT}, when both operands are known to be strings,
+	 * so that no conversion is needed.
+	 * <p>
+	 * Stack before: x y ...<br/>
+	 * Stack after: x-concatenated-with-y ...
+	 */
+	CONCAT_STR,
+
+	// Superinstructions. They are never emitted by the parser: the peephole
+	// optimizer of AwkTuples substitutes them for frequent sequences of tuples,
+	// so that these sequences are executed with a single dispatch.
+
+	/**
+	 * Compares the top-of-stack with a constant, and jumps to a specified
+	 * address if the comparison is false. Replaces
+	 * <code>PUSH c, CMP_*, IFFALSE</code>.
+	 * <p>
+	 * Argument 1: address<br/>
+	 * Argument 2: comparison mode (0 for ==, -1 for &lt;, 1 for &gt;)<br/>
+	 * Argument 3: constant
+	 * <p>
+	 * Stack before: x ...<br/>
+	 * Stack after: ...
+	 */
+	IFFALSE_CMP_CONST,
+	/**
+	 * Compares the top-of-stack with a constant, and jumps to a specified
+	 * address if the comparison is true. Replaces
+	 * <code>PUSH c, CMP_*, IFTRUE</code>.
+	 * <p>
+	 * Argument 1: address<br/>
+	 * Argument 2: comparison mode (0 for ==, -1 for &lt;, 1 for &gt;)<br/>
+	 * Argument 3: constant
+	 * <p>
+	 * Stack before: x ...<br/>
+	 * Stack after: ...
+	 */
+	IFTRUE_CMP_CONST,
+	/**
+	 * Pops the top-of-stack and assigns it to a variable. Replaces
+	 * <code>ASSIGN, POP</code>.
+	 * <p>
+	 * Argument 1: offset of the particular variable into the variable manager<br/>
+	 * Argument 2: whether the variable is global or local
+	 * <p>
+	 * Stack before: x ...<br/>
+	 * Stack after: ...
+	 */
+	ASSIGN_POP,
+	/**
+	 * Pops the top-of-stack and adds it to the element of an array indexed
+	 * by an input field. Replaces
+	 * <code>GET_INPUT_FIELD_CONST, PLUS_EQ_ARRAY, POP</code>.
+	 * <p>
+	 * Argument 1: field number<br/>
+	 * Argument 2: offset of the array into the variable manager<br/>
+	 * Argument 3: whether the array is global or local
+	 * <p>
+	 * Stack before: x ...<br/>
+	 * Stack after: ...
+	 */
+	PLUS_EQ_ARRAY_FIELD,
+	/**
+	 * Increases by one the element of an array indexed by the
+	 * SUBSEP-separated concatenation of the top stack elements. Replaces
+	 * <code>APPLY_SUBSEP, INC_ARRAY_REF</code>.
+	 * <p>
+	 * Argument 1: number of elements making the index<br/>
+	 * Argument 2: offset of the array into the variable manager<br/>
+	 * Argument 3: whether the array is global or local
+	 * <p>
+	 * Stack before: index-elements ...<br/>
+	 * Stack after: ...
+	 */
+	INC_ARRAY_REF_SUBSEP,
+	/**
+	 * Starts the body of a function inlined at its call site: clears the
+	 * variables holding the parameters and the locals of the function, and
+	 * assigns them the actual parameters. Replaces <code>CALL_FUNCTION</code>.
+	 * <p>
+	 * Argument 1: number of variables of the inlined function<br/>
+	 * Argument 2: number of actual parameters<br/>
+	 * Argument 3: offset of the first variable into the variable manager<br/>
+	 * Argument 4: whether the variables are global or local
+	 * <p>
+	 * Stack before: param1 param2 ... paramN ...<br/>
+	 * Stack after: ...
+	 */
+	INLINE_FRAME,
+	/**
+	 * Ends the body of an inlined function: clears its variables and pushes
+	 * its return value. Replaces <code>RETURN_FROM_FUNCTION</code>.
+	 * <p>
+	 * Argument 1: number of variables of the inlined function<br/>
+	 * Argument 2: offset of the first variable into the variable manager<br/>
+	 * Argument 3: whether the variables are global or local
+	 * <p>
+	 * Stack before: ...<br/>
+	 * Stack after: return-value ...
+	 */
+	INLINE_RETURN,
+	/**
+	 * Calls the current function again from its last statement
+	 * (<code>return f(...)</code>): reinitializes the local variables of the
+	 * current frame with the actual parameters and jumps to the start of the
+	 * function, instead of pushing a new frame. Replaces
+	 * <code>CALL_FUNCTION</code>.
+	 * <p>
+	 * Argument 1: function address<br/>
+	 * Argument 2: # of formal parameters<br/>
+	 * Argument 3: # of actual parameters
+	 * <p>
+	 * Stack before: param1 param2 ... paramN ...<br/>
+	 * Stack after: ...
+	 */
+	TAIL_CALL;
 
 	private static final Opcode[] VALUES = values();
 
@@ -0,0 +1,213 @@
+package org.metricshub.jawk.intermediate;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * Jawk
+ * ჻჻჻჻჻჻
+ * Copyright (C) 2006 - 2025 MetricsHub
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+/**
+ * Ordinals of the {@link Opcode} constants, as compile-time constants.
+ * <p>
+ * The code stream stores the ordinal of each opcode, and the interpreter
+ * switches on these ordinals directly rather than on the enum, which would
+ * look each opcode up in a switch map first. The constants must follow the
+ * declaration order of {@link Opcode}.
+ */
+public final class Opcodes {
+
+	private Opcodes() {}
+
+	public static final int POP = 0;
+	public static final int PUSH = 1;
+	public static final int IFFALSE = 2;
+	public static final int TO_NUMBER = 3;
+	public static final int IFTRUE = 4;
+	public static final int GOTO = 5;
+	public static final int NOP = 6;
+	public static final int PRINT = 7;
+	public static final int PRINT_TO_FILE = 8;
+	public static final int PRINT_TO_PIPE = 9;
+	public static final int PRINTF = 10;
+	public static final int PRINTF_TO_FILE = 11;
+	public static final int PRINTF_TO_PIPE = 12;
+	public static final int SPRINTF = 13;
+	public static final int LENGTH = 14;
+	public static final int CONCAT = 15;
+	public static final int ASSIGN = 16;
+	public static final int ASSIGN_ARRAY = 17;
+	public static final int ASSIGN_AS_INPUT = 18;
+	public static final int ASSIGN_AS_INPUT_FIELD = 19;
+	public static final int DEREFERENCE = 20;
+	public static final int PLUS_EQ = 21;
+	public static final int MINUS_EQ = 22;
+	public static final int MULT_EQ = 23;
+	public static final int DIV_EQ = 24;
+	public static final int MOD_EQ = 25;
+	public static final int POW_EQ = 26;
+	public static final int PLUS_EQ_ARRAY = 27;
+	public static final int MINUS_EQ_ARRAY = 28;
+	public static final int MULT_EQ_ARRAY = 29;
+	public static final int DIV_EQ_ARRAY = 30;
+	public static final int MOD_EQ_ARRAY = 31;
+	public static final int POW_EQ_ARRAY = 32;
+	public static final int PLUS_EQ_INPUT_FIELD = 33;
+	public static final int MINUS_EQ_INPUT_FIELD = 34;
+	public static final int MULT_EQ_INPUT_FIELD = 35;
+	public static final int DIV_EQ_INPUT_FIELD = 36;
+	public static final int MOD_EQ_INPUT_FIELD = 37;
+	public static final int POW_EQ_INPUT_FIELD = 38;
+	public static final int SRAND = 39;
+	public static final int RAND = 40;
+	public static final int INTFUNC = 41;
+	public static final int SQRT = 42;
+	public static final int LOG = 43;
+	public static final int EXP = 44;
+	public static final int SIN = 45;
+	public static final int COS = 46;
+	public static final int ATAN2 = 47;
+	public static final int MATCH = 48;
+	public static final int INDEX = 49;
+	public static final int SUB_FOR_DOLLAR_0 = 50;
+	public static final int SUB_FOR_DOLLAR_REFERENCE = 51;
+	public static final int SUB_FOR_VARIABLE = 52;
+	public static final int SUB_FOR_ARRAY_REFERENCE = 53;
+	public static final int SPLIT = 54;
+	public static final int SUBSTR = 55;
+	public static final int TOLOWER = 56;
+	public static final int TOUPPER = 57;
+	public static final int SYSTEM = 58;
+	public static final int SWAP = 59;
+	public static final int ADD = 60;
+	public static final int SUBTRACT = 61;
+	public static final int MULTIPLY = 62;
+	public static final int DIVIDE = 63;
+	public static final int MOD = 64;
+	public static final int POW = 65;
+	public static final int INC = 66;
+	public static final int DEC = 67;
+	public static final int INC_ARRAY_REF = 68;
+	public static final int DEC_ARRAY_REF = 69;
+	public static final int INC_DOLLAR_REF = 70;
+	public static final int DEC_DOLLAR_REF = 71;
+	public static final int DUP = 72;
+	public static final int NOT = 73;
+	public static final int NEGATE = 74;
+	public static final int CMP_EQ = 75;
+	public static final int CMP_LT = 76;
+	public static final int CMP_GT = 77;
+	public static final int MATCHES = 78;
+	public static final int DEREF_ARRAY = 79;
+	public static final int KEYLIST = 80;
+	public static final int IS_EMPTY_KEYLIST = 81;
+	public static final int GET_FIRST_AND_REMOVE_FROM_KEYLIST = 82;
+	public static final int CHECK_CLASS = 83;
+	public static final int GET_INPUT_FIELD = 84;
+	public static final int GET_INPUT_FIELD_CONST = 85;
+	public static final int CONSUME_INPUT = 86;
+	public static final int GETLINE_INPUT = 87;
+	public static final int USE_AS_FILE_INPUT = 88;
+	public static final int USE_AS_COMMAND_INPUT = 89;
+	public static final int NF_OFFSET = 90;
+	public static final int NR_OFFSET = 91;
+	public static final int FNR_OFFSET = 92;
+	public static final int FS_OFFSET = 93;
+	public static final int RS_OFFSET = 94;
+	public static final int OFS_OFFSET = 95;
+	public static final int RSTART_OFFSET = 96;
+	public static final int RLENGTH_OFFSET = 97;
+	public static final int FILENAME_OFFSET = 98;
+	public static final int SUBSEP_OFFSET = 99;
+	public static final int CONVFMT_OFFSET = 100;
+	public static final int OFMT_OFFSET = 101;
+	public static final int ENVIRON_OFFSET = 102;
+	public static final int ARGC_OFFSET = 103;
+	public static final int ARGV_OFFSET = 104;
+	public static final int APPLY_RS = 105;
+	public static final int CALL_FUNCTION = 106;
+	public static final int FUNCTION = 107;
+	public static final int SET_RETURN_RESULT = 108;
+	public static final int RETURN_FROM_FUNCTION = 109;
+	public static final int SET_NUM_GLOBALS = 110;
+	public static final int CLOSE = 111;
+	public static final int APPLY_SUBSEP = 112;
+	public static final int DELETE_ARRAY_ELEMENT = 113;
+	public static final int SET_EXIT_ADDRESS = 114;
+	public static final int SET_WITHIN_END_BLOCKS = 115;
+	public static final int EXIT_WITH_CODE = 116;
+	public static final int REGEXP = 117;
+	public static final int CONDITION_PAIR = 118;
+	public static final int IS_IN = 119;
+	public static final int THIS = 120;
+	public static final int EXTENSION = 121;
+	public static final int EXEC = 122;
+	public static final int DELETE_ARRAY = 123;
+	public static final int UNARY_PLUS = 124;
+	public static final int EXIT_WITHOUT_CODE = 125;
+	public static final int ASSIGN_NF = 126;
+	public static final int PUSH_NF = 127;
+	public static final int ASSIGN_NR = 128;
+	public static final int PUSH_NR = 129;
+	public static final int ASSIGN_FNR = 130;
+	public static final int PUSH_FNR = 131;
+	public static final int ASSIGN_FS = 132;
+	public static final int PUSH_FS = 133;
+	public static final int ASSIGN_RS = 134;
+	public static final int PUSH_RS = 135;
+	public static final int ASSIGN_OFS = 136;
+	public static final int PUSH_OFS = 137;
+	public static final int ASSIGN_ORS = 138;
+	public static final int PUSH_ORS = 139;
+	public static final int ASSIGN_RSTART = 140;
+	public static final int PUSH_RSTART = 141;
+	public static final int ASSIGN_RLENGTH = 142;
+	public static final int PUSH_RLENGTH = 143;
+	public static final int ASSIGN_FILENAME = 144;
+	public static final int PUSH_FILENAME = 145;
+	public static final int ASSIGN_SUBSEP = 146;
+	public static final int PUSH_SUBSEP = 147;
+	public static final int ASSIGN_CONVFMT = 148;
+	public static final int PUSH_CONVFMT = 149;
+	public static final int ASSIGN_OFMT = 150;
+	public static final int PUSH_OFMT = 151;
+	public static final int ASSIGN_ARGC = 152;
+	public static final int PUSH_ARGC = 153;
+	public static final int ORS_OFFSET = 154;
+	public static final int POSTINC = 155;
+	public static final int POSTDEC = 156;
+	public static final int SET_INPUT_FOR_EVAL = 157;
+	public static final int ADD_NUM = 158;
+	public static final int SUBTRACT_NUM = 159;
+	public static final int MULTIPLY_NUM = 160;
+	public static final int DIVIDE_NUM = 161;
+	public static final int CMP_EQ_NUM = 162;
+	public static final int CMP_LT_NUM = 163;
+	public static final int CMP_GT_NUM = 164;
+	public static final int IFFALSE_NUM = 165;
+	public static final int IFTRUE_NUM = 166;
+	public static final int CONCAT_STR = 167;
+	public static final int IFFALSE_CMP_CONST = 168;
+	public static final int IFTRUE_CMP_CONST = 169;
+	public static final int ASSIGN_POP = 170;
+	public static final int PLUS_EQ_ARRAY_FIELD = 171;
+	public static final int INC_ARRAY_REF_SUBSEP = 172;
+	public static final int INLINE_FRAME = 173;
+	public static final int INLINE_RETURN = 174;
+	public static final int TAIL_CALL = 175;
+}
@@ -1,6 +1,5 @@
 package org.metricshub.jawk.intermediate;
 
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.metricshub.jawk.ext.ExtensionFunction;
 import java.util.regex.Pattern;
 
@@ -28,118 +27,134 @@
 
 /**
  * Marks a position within the tuple list (queue).
+ * <p>
+ * The position is tracked over the compact {@link CodeStream} encoding of
+ * the tuples, so that walking the script only reads from a single array of
+ * integers and its pool of constants.
  *
  * @author Danny Daglas
  */
 public class PositionTracker {
 
 	private int idx = 0;
-	private final java.util.List<Tuple> queue;
-	private Tuple tuple;
+	private int base = 0;
+	private final CodeStream stream;
+	private final int[] code;
+	private final Object[] constants;
+	private final int size;
 
-	@SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "PositionTracker must iterate over the shared tuple list")
 	public PositionTracker(java.util.List<Tuple> queue) {
-		this.queue = queue;
-		this.tuple = queue.isEmpty() ? null : queue.get(idx);
+		this(new CodeStream(queue));
+	}
+
+	PositionTracker(CodeStream stream) {
+		this.stream = stream;
+		this.code = stream.code();
+		this.constants = stream.constants();
+		this.size = stream.size();
+	}
+
+	/**
+	 * @return the number of tuples
+	 */
+	public int size() {
+		return size;
 	}
 
 	public boolean isEOF() {
-		return idx >= queue.size();
+		return idx >= size;
 	}
 
 	public void next() {
-		assert tuple != null;
+		assert idx < size;
 		++idx;
-		tuple = tuple.getNext();
-		assert queue.size() == idx || queue.get(idx) == tuple;
+		base += CodeStream.STRIDE;
 	}
 
 	public void jump(Address address) {
-		idx = address.index();
-		tuple = queue.get(idx);
+		jump(address.index());
 	}
 
 	@Override
 	public String toString() {
-		return "[" + idx + "]-->" + tuple.toString();
+		return "[" + idx + "]-->" + stream.toString(base);
 	}
 
 	public Opcode opcode() {
-		return tuple.getOpcode();
+		return stream.opcode(base);
+	}
+
+	/**
+	 * @return the ordinal of the opcode of the current tuple, one of the
+	 *         {@link Opcodes} constants
+	 */
+	public int opcodeOrdinal() {
+		return stream.ordinal(base);
 	}
 
 	public long intArg(int argIdx) {
-		Class<?> c = tuple.getTypes()[argIdx];
-		if (c == Long.class) {
-			return tuple.getInts()[argIdx];
+		int type = stream.type(base, argIdx);
+		if (type == CodeStream.INT) {
+			return code[base + CodeStream.ARGS + argIdx];
 		}
-		throw new Error("Invalid arg type: " + c + ", arg_idx = " + argIdx + ", tuple = " + tuple);
+		if (type == CodeStream.LONG) {
+			return ((Long) constants[code[base + CodeStream.ARGS + argIdx]]).longValue();
+		}
+		throw invalidArg(argIdx);
 	}
 
 	public boolean boolArg(int argIdx) {
-		Class<?> c = tuple.getTypes()[argIdx];
-		if (c == Boolean.class) {
-			return tuple.getBools()[argIdx];
+		if (stream.type(base, argIdx) == CodeStream.BOOLEAN) {
+			return code[base + CodeStream.ARGS + argIdx] != 0;
 		}
-		throw new Error("Invalid arg type: " + c + ", arg_idx = " + argIdx + ", tuple = " + tuple);
+		throw invalidArg(argIdx);
 	}
 
 	public Object arg(int argIdx) {
-		Class<?> c = tuple.getTypes()[argIdx];
-		if (c == Long.class) {
-			return tuple.getInts()[argIdx];
-		}
-		if (c == Double.class) {
-			return tuple.getDoubles()[argIdx];
-		}
-		if (c == String.class) {
-			return tuple.getStrings()[argIdx];
-		}
-		if (c == Pattern.class) {
-			return tuple.getPatterns()[argIdx];
-		}
-		if (c == Address.class) {
-			assert argIdx == 0;
-			return tuple.getAddress();
-		}
-		if (c == ExtensionFunction.class) {
+		switch (stream.type(base, argIdx)) {
+		case CodeStream.INT:
+			return Long.valueOf(code[base + CodeStream.ARGS + argIdx]);
+		case CodeStream.LONG:
+		case CodeStream.DOUBLE:
+		case CodeStream.STRING:
+		case CodeStream.PATTERN:
+			return constants[code[base + CodeStream.ARGS + argIdx]];
+		case CodeStream.ADDRESS:
+		case CodeStream.EXTENSION:
 			assert argIdx == 0;
-			return tuple.getExtensionFunction();
+			return constants[code[base + CodeStream.ARGS + argIdx]];
+		default:
+			throw invalidArg(argIdx);
 		}
-		throw new Error("Invalid arg type: " + c + ", arg_idx = " + argIdx + ", tuple = " + tuple);
 	}
 
 	public Pattern patternArg(int argIdx) {
-		if (tuple.getTypes()[argIdx] != Pattern.class) {
-			throw new Error("Tuple does not contain a Pattern at index " + argIdx + ": " + tuple);
+		if (stream.type(base, argIdx) != CodeStream.PATTERN) {
+			throw new Error("Tuple does not contain a Pattern at index " + argIdx + ": " + stream.toString(base));
 		}
-		return tuple.getPatterns()[argIdx];
+		return (Pattern) constants[code[base + CodeStream.ARGS + argIdx]];
 	}
 
 	public ExtensionFunction extensionFunctionArg() {
-		if (tuple.getTypes()[0] != ExtensionFunction.class) {
-			throw new Error("Tuple does not contain an extension function: " + tuple);
+		if (stream.type(base, 0) != CodeStream.EXTENSION) {
+			throw new Error("Tuple does not contain an extension function: " + stream.toString(base));
 		}
-		return tuple.getExtensionFunction();
+		return (ExtensionFunction) constants[code[base + CodeStream.ARGS]];
 	}
 
 	public Address addressArg() {
-		assert tuple.getAddress() != null || tuple.getAddressSupplier() != null : "tuple.address = "
-				+ tuple.getAddress() + ", tuple.address_supplier = " + tuple.getAddressSupplier();
-		if (tuple.getAddress() == null) {
-			tuple.setAddress(tuple.getAddressSupplier().get());
-		}
-		return tuple.getAddress();
+		assert stream.type(base, 0) == CodeStream.ADDRESS : "tuple = " + stream.toString(base);
+		return (Address) constants[code[base + CodeStream.ARGS]];
 	}
 
 	public Class<?> classArg() {
-		assert tuple.getCls() != null;
-		return tuple.getCls();
+		assert stream.type(base, 0) == CodeStream.CLASS;
+		return (Class<?>) constants[code[base + CodeStream.ARGS]];
 	}
 
 	public int lineNumber() {
-		assert tuple.getLineno() != -1 : "The line number should have been set by queue.add(), but was not.";
-		return tuple.getLineno();
+		assert stream.lineNumber(base) != -1 : "The line number should have been set by queue.add(), but was not.";
+		return stream.lineNumber(base);
 	}
 
 	public int current() {
@@ -148,6 +163,12 @@ public int current() {
 
 	public void jump(int index) {
 		this.idx = index;
-		tuple = queue.get(this.idx);
+		this.base = index * CodeStream.STRIDE;
+	}
+
+	private Error invalidArg(int argIdx) {
+		return new Error(
+				"Invalid arg type: " + stream.type(base, argIdx) + ", arg_idx = " + argIdx + ", tuple = "
+						+ stream.toString(base));
 	}
 }
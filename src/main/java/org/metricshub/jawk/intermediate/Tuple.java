@@ -78,6 +78,20 @@ class Tuple implements Serializable {
 		types[1] = Boolean.class;
 	}
 
+	Tuple(Opcode opcode, long i1, long i2, boolean b3) {
+		this(opcode, i1, i2);
+		bools[2] = b3;
+		types[2] = Boolean.class;
+	}
+
+	Tuple(Opcode opcode, long i1, long i2, long i3, boolean b4) {
+		this(opcode, i1, i2);
+		ints[2] = i3;
+		types[2] = Long.class;
+		bools[3] = b4;
+		types[3] = Boolean.class;
+	}
+
 	Tuple(Opcode opcode, long i1, boolean b2, boolean b3) {
 		this(opcode, i1, b2);
 		bools[2] = b3;
@@ -120,6 +134,28 @@ class Tuple implements Serializable {
 		types[0] = Address.class;
 	}
 
+	/**
+	 * Creates a tuple with an address, an integer, and the constant pushed by
+	 * the specified {@link Opcode#PUSH} tuple as its third argument.
+	 */
+	Tuple(Opcode opcode, Address address, long i2, Tuple literal) {
+		this(opcode, address);
+		ints[1] = i2;
+		types[1] = Long.class;
+		ints[2] = literal.ints[0];
+		doubles[2] = literal.doubles[0];
+		strings[2] = literal.strings[0];
+		types[2] = literal.types[0];
+	}
+
+	Tuple(Opcode opcode, Address address, long i2, long i3) {
+		this(opcode, address);
+		ints[1] = i2;
+		types[1] = Long.class;
+		ints[2] = i3;
+		types[2] = Long.class;
+	}
+
 	Tuple(Opcode opcode, String strarg, long intarg, boolean boolarg) {
 		this(opcode, strarg, intarg);
 		bools[2] = boolarg;
@@ -237,6 +273,40 @@ Opcode getOpcode() {
 		return opcode;
 	}
 
+	void setOpcode(Opcode opcode) {
+		this.opcode = opcode;
+	}
+
+	void setIntArg(int index, long value) {
+		ints[index] = value;
+		types[index] = Long.class;
+	}
+
+	void setBoolArg(int index, boolean value) {
+		bools[index] = value;
+		types[index] = Boolean.class;
+	}
+
+	/**
+	 * Creates a copy of this tuple, with the same line number but no next
+	 * tuple, typically to inline the body of a function.
+	 */
+	Tuple copy() {
+		Tuple copy = new Tuple(opcode);
+		copy.ints = ints.clone();
+		copy.bools = bools.clone();
+		copy.doubles = doubles.clone();
+		copy.strings = strings.clone();
+		copy.patterns = patterns.clone();
+		copy.types = types.clone();
+		copy.address = address;
+		copy.cls = cls;
+		copy.addressSupplier = addressSupplier;
+		copy.lineno = lineno;
+		copy.extensionFunction = extensionFunction;
+		return copy;
+	}
+
 	long[] getInts() {
 		return ints;
 	}
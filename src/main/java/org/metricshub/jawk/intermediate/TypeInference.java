@@ -0,0 +1,651 @@
+package org.metricshub.jawk.intermediate;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * Jawk
+ * ჻჻჻჻჻჻
+ * Copyright (C) 2006 - 2025 MetricsHub
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Static type inference over a tuple queue.
+ * <p>
+ * The pass infers, for each tuple, whether the values on top of the operand
+ * stack and the scalar variables are always numbers, always strings, always
+ * arrays, or unknown. Generic tuples whose operands are known to be numbers
+ * (or strings) are then rewritten into the type-specialized opcodes (like
+ * {@link Opcode#ADD_NUM} or {@link Opcode#CONCAT_STR}), which the AVM executes
+ * without checking and converting the type of their operands.
+ * <p>
+ * The analysis is conservative: variables are only known after an assignment
+ * on every path leading to a tuple (an uninitialized variable is not a
+ * number), function calls and input consumption (which may assign variables
+ * specified as command-line operands) forget everything known about the
+ * variables, and the stack is only tracked within sequences of tuples
+ * without incoming jumps.
+ *
+ * @see AwkTuples#optimize()
+ */
+final class TypeInference {
+
+	/** Type of a value, as inferred by this pass */
+	enum ValueType {
+		/** Always a {@link Number} */
+		NUMBER,
+		/** Always a {@link String} */
+		STRING,
+		/** Always an associative array */
+		ARRAY,
+		/** Anything */
+		UNKNOWN
+	}
+
+	private static final ValueType[] EMPTY_STACK = new ValueType[0];
+
+	/** Number of stack slots tracked (deeper slots are unknown) */
+	private static final int MAX_TRACKED_SLOTS = 16;
+
+	private final List<Tuple> queue;
+	private final int size;
+
+	/** Tuples reached by a jump, or entry points: the stack is unknown there */
+	private final boolean[] joins;
+
+	/** Known variable types when entering each tuple (null if unreached) */
+	private final Map<Long, ValueType>[] variablesIn;
+
+	/** Known stack types when entering each tuple (top of stack last) */
+	private final ValueType[][] stackIn;
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	TypeInference(List<Tuple> queue) {
+		this.queue = queue;
+		this.size = queue.size();
+		this.joins = new boolean[size];
+		this.variablesIn = new Map[size];
+		this.stackIn = new ValueType[size][];
+	}
+
+	/**
+	 * Runs the inference and rewrites the tuples of the queue.
+	 *
+	 * @return whether any tuple has been rewritten
+	 */
+	boolean run() {
+		if (size == 0) {
+			return false;
+		}
+		Deque<Integer> worklist = new ArrayDeque<Integer>();
+		boolean[] queued = new boolean[size];
+		findJoins(worklist);
+		for (int index : worklist) {
+			queued[index] = true;
+		}
+
+		while (!worklist.isEmpty()) {
+			int index = worklist.removeFirst();
+			queued[index] = false;
+			Tuple tuple = queue.get(index);
+			Frame frame = new Frame(variablesIn[index], stackIn[index]);
+			frame.execute(tuple);
+
+			Opcode opcode = tuple.getOpcode();
+			if (fallsThrough(opcode) && index + 1 < size) {
+				if (propagate(index + 1, frame) && !queued[index + 1]) {
+					queued[index + 1] = true;
+					worklist.addLast(index + 1);
+				}
+			}
+			int target = jumpTarget(tuple);
+			if (target >= 0 && propagate(target, frame) && !queued[target]) {
+				queued[target] = true;
+				worklist.addLast(target);
+			}
+		}
+
+		boolean modified = false;
+		for (int i = 0; i < size; i++) {
+			if (variablesIn[i] != null) {
+				modified |= specialize(queue.get(i), stackIn[i]);
+			}
+		}
+		return modified;
+	}
+
+	/**
+	 * Marks the tuples where several paths meet, and queues the entry points
+	 * (start of the script, functions, and the exit address) with nothing
+	 * known.
+	 */
+	private void findJoins(Deque<Integer> entries) {
+		joins[0] = true;
+		entries.add(0);
+		for (int i = 0; i < size; i++) {
+			Tuple tuple = queue.get(i);
+			Address address = tuple.getAddress();
+			if (address != null && address.index() >= 0 && address.index() < size) {
+				int target = address.index();
+				joins[target] = true;
+				Opcode opcode = tuple.getOpcode();
+				if ((opcode == Opcode.CALL_FUNCTION || opcode == Opcode.SET_EXIT_ADDRESS)
+						&& variablesIn[target] == null) {
+					variablesIn[target] = Collections.emptyMap();
+					stackIn[target] = EMPTY_STACK;
+					entries.add(target);
+				}
+			}
+			if (i + 1 < size && !fallsThrough(tuple.getOpcode())) {
+				joins[i + 1] = true;
+			}
+		}
+		variablesIn[0] = Collections.emptyMap();
+		stackIn[0] = EMPTY_STACK;
+	}
+
+	/**
+	 * Merges the state at the end of a predecessor into the state of the
+	 * specified tuple.
+	 *
+	 * @return whether the state of the tuple has changed
+	 */
+	private boolean propagate(int index, Frame frame) {
+		Map<Long, ValueType> current = variablesIn[index];
+		if (!joins[index]) {
+			// Single predecessor: its state is our state
+			ValueType[] stack = frame.stack();
+			if (current != null && current.equals(frame.variables) && Arrays.equals(stackIn[index], stack)) {
+				return false;
+			}
+			variablesIn[index] = frame.variables;
+			stackIn[index] = stack;
+			return true;
+		}
+		if (current == null) {
+			variablesIn[index] = frame.variables;
+			stackIn[index] = EMPTY_STACK;
+			return true;
+		}
+		if (current.isEmpty()) {
+			return false;
+		}
+		Map<Long, ValueType> merged = new HashMap<Long, ValueType>();
+		for (Map.Entry<Long, ValueType> entry : current.entrySet()) {
+			if (entry.getValue() == frame.variables.get(entry.getKey())) {
+				merged.put(entry.getKey(), entry.getValue());
+			}
+		}
+		if (merged.size() == current.size()) {
+			return false;
+		}
+		variablesIn[index] = merged.isEmpty() ? Collections.<Long, ValueType>emptyMap() : merged;
+		return true;
+	}
+
+	private int jumpTarget(Tuple tuple) {
+		Address address = tuple.getAddress();
+		if (address == null) {
+			return -1;
+		}
+		switch (tuple.getOpcode()) {
+		case CALL_FUNCTION:
+		case SET_EXIT_ADDRESS:
+			// Not a jump: the target is an entry point of its own
+			return -1;
+		default:
+			return address.index();
+		}
+	}
+
+	private static boolean fallsThrough(Opcode opcode) {
+		switch (opcode) {
+		case GOTO:
+		case EXIT_WITH_CODE:
+		case EXIT_WITHOUT_CODE:
+		case RETURN_FROM_FUNCTION:
+		case TAIL_CALL:
+			return false;
+		default:
+			return true;
+		}
+	}
+
+	/**
+	 * Rewrites the tuple into its type-specialized form when the types of its
+	 * operands allow it.
+	 */
+	private static boolean specialize(Tuple tuple, ValueType[] stack) {
+		ValueType top = peek(stack, 0);
+		ValueType second = peek(stack, 1);
+		boolean numbers = top == ValueType.NUMBER && second == ValueType.NUMBER;
+		Opcode specialized;
+		switch (tuple.getOpcode()) {
+		case ADD:
+			specialized = numbers ? Opcode.ADD_NUM : null;
+			break;
+		case SUBTRACT:
+			specialized = numbers ? Opcode.SUBTRACT_NUM : null;
+			break;
+		case MULTIPLY:
+			specialized = numbers ? Opcode.MULTIPLY_NUM : null;
+			break;
+		case DIVIDE:
+			specialized = numbers ? Opcode.DIVIDE_NUM : null;
+			break;
+		case CMP_EQ:
+			specialized = numbers ? Opcode.CMP_EQ_NUM : null;
+			break;
+		case CMP_LT:
+			specialized = numbers ? Opcode.CMP_LT_NUM : null;
+			break;
+		case CMP_GT:
+			specialized = numbers ? Opcode.CMP_GT_NUM : null;
+			break;
+		case IFFALSE:
+			specialized = top == ValueType.NUMBER ? Opcode.IFFALSE_NUM : null;
+			break;
+		case IFTRUE:
+			specialized = top == ValueType.NUMBER ? Opcode.IFTRUE_NUM : null;
+			break;
+		case CONCAT:
+			specialized = top == ValueType.STRING && second == ValueType.STRING ? Opcode.CONCAT_STR : null;
+			break;
+		default:
+			specialized = null;
+			break;
+		}
+		if (specialized == null) {
+			return false;
+		}
+		tuple.setOpcode(specialized);
+		return true;
+	}
+
+	private static ValueType peek(ValueType[] stack, int depth) {
+		int index = stack.length - 1 - depth;
+		return index >= 0 ? stack[index] : ValueType.UNKNOWN;
+	}
+
+	private static long variableKey(long offset, boolean isGlobal) {
+		return (offset << 1) | (isGlobal ? 1 : 0);
+	}
+
+	/**
+	 * Abstract state of the AVM while executing one tuple: the known types
+	 * of the variables and of the top of the operand stack.
+	 */
+	private static final class Frame {
+
+		private Map<Long, ValueType> variables;
+		private final ValueType[] slots = new ValueType[MAX_TRACKED_SLOTS];
+		private int depth;
+
+		Frame(Map<Long, ValueType> variables, ValueType[] stack) {
+			this.variables = variables;
+			System.arraycopy(stack, 0, slots, 0, stack.length);
+			depth = stack.length;
+		}
+
+		ValueType[] stack() {
+			return depth == 0 ? EMPTY_STACK : Arrays.copyOf(slots, depth);
+		}
+
+		private void push(ValueType type) {
+			if (depth == MAX_TRACKED_SLOTS) {
+				// Forget about the deepest slot
+				System.arraycopy(slots, 1, slots, 0, depth - 1);
+				depth--;
+			}
+			slots[depth++] = type;
+		}
+
+		private ValueType pop() {
+			if (depth == 0) {
+				return ValueType.UNKNOWN;
+			}
+			return slots[--depth];
+		}
+
+		private void pop(long count) {
+			for (long i = 0; i < count; i++) {
+				pop();
+			}
+		}
+
+		private ValueType getVariable(long offset, boolean isGlobal) {
+			ValueType type = variables.get(variableKey(offset, isGlobal));
+			return type == null ? ValueType.UNKNOWN : type;
+		}
+
+		/**
+		 * Sets the type of the variable designated by the (offset, isGlobal)
+		 * arguments of the specified tuple.
+		 */
+		private void setVariable(Tuple tuple, ValueType type) {
+			setVariable(tuple.getInts()[0], tuple.getBools()[1], type);
+		}
+
+		private void setVariable(long offset, boolean isGlobal, ValueType type) {
+			Long key = variableKey(offset, isGlobal);
+			if (type == ValueType.UNKNOWN) {
+				if (variables.containsKey(key)) {
+					variables = new HashMap<Long, ValueType>(variables);
+					variables.remove(key);
+				}
+			} else if (variables.get(key) != type) {
+				variables = new HashMap<Long, ValueType>(variables);
+				variables.put(key, type);
+			}
+		}
+
+		private void forgetVariables() {
+			variables = Collections.emptyMap();
+		}
+
+		/**
+		 * Applies the effect of the specified tuple on this state.
+		 */
+		void execute(Tuple tuple) {
+			switch (tuple.getOpcode()) {
+			case NOP:
+			case THIS:
+			case FUNCTION:
+			case GOTO:
+			case SET_EXIT_ADDRESS:
+			case SET_WITHIN_END_BLOCKS:
+			case EXIT_WITH_CODE:
+			case EXIT_WITHOUT_CODE:
+			case RETURN_FROM_FUNCTION:
+				break;
+			case PUSH:
+				push(literalType(tuple));
+				break;
+			case POP:
+			case IFFALSE:
+			case IFTRUE:
+			case IFFALSE_NUM:
+			case IFTRUE_NUM:
+			case IFFALSE_CMP_CONST:
+			case IFTRUE_CMP_CONST:
+			case SET_RETURN_RESULT:
+			case PLUS_EQ_ARRAY_FIELD:
+				pop();
+				break;
+			case INC_ARRAY_REF_SUBSEP:
+				pop(tuple.getInts()[0]);
+				break;
+			case DUP: {
+				ValueType type = pop();
+				push(type);
+				push(type);
+				break;
+			}
+			case SWAP: {
+				ValueType first = pop();
+				ValueType second = pop();
+				push(first);
+				push(second);
+				break;
+			}
+			case ADD:
+			case SUBTRACT:
+			case MULTIPLY:
+			case DIVIDE:
+			case MOD:
+			case POW:
+			case ADD_NUM:
+			case SUBTRACT_NUM:
+			case MULTIPLY_NUM:
+			case DIVIDE_NUM:
+			case CMP_EQ:
+			case CMP_LT:
+			case CMP_GT:
+			case CMP_EQ_NUM:
+			case CMP_LT_NUM:
+			case CMP_GT_NUM:
+			case MATCHES:
+			case ATAN2:
+			case INDEX:
+				pop(2);
+				push(ValueType.NUMBER);
+				break;
+			case NEGATE:
+			case UNARY_PLUS:
+			case NOT:
+			case TO_NUMBER:
+			case INTFUNC:
+			case SQRT:
+			case LOG:
+			case EXP:
+			case SIN:
+			case COS:
+				pop();
+				push(ValueType.NUMBER);
+				break;
+			case RAND:
+				push(ValueType.NUMBER);
+				break;
+			case LENGTH:
+				if (tuple.getInts()[0] != 0) {
+					pop();
+				}
+				push(ValueType.NUMBER);
+				break;
+			case CONCAT:
+			case CONCAT_STR:
+				pop(2);
+				push(ValueType.STRING);
+				break;
+			case TOLOWER:
+			case TOUPPER:
+				pop();
+				push(ValueType.STRING);
+				break;
+			case SPRINTF:
+				pop(tuple.getInts()[0]);
+				push(ValueType.STRING);
+				break;
+			case REGEXP:
+			case GET_INPUT_FIELD_CONST:
+			case PUSH_NF:
+			case PUSH_NR:
+			case PUSH_FNR:
+			case PUSH_FS:
+			case PUSH_RS:
+			case PUSH_OFS:
+			case PUSH_ORS:
+			case PUSH_RSTART:
+			case PUSH_RLENGTH:
+			case PUSH_FILENAME:
+			case PUSH_SUBSEP:
+			case PUSH_CONVFMT:
+			case PUSH_OFMT:
+			case PUSH_ARGC:
+				push(ValueType.UNKNOWN);
+				break;
+			case GET_INPUT_FIELD:
+				pop();
+				push(ValueType.UNKNOWN);
+				break;
+			case DEREF_ARRAY:
+				pop(2);
+				push(ValueType.UNKNOWN);
+				break;
+			case ASSIGN_ARRAY: {
+				pop();
+				ValueType value = pop();
+				push(value);
+				break;
+			}
+			case DEREFERENCE:
+				// arguments: offset, isArray, isGlobal
+				if (tuple.getBools()[1]) {
+					push(ValueType.ARRAY);
+				} else {
+					push(getVariable(tuple.getInts()[0], tuple.getBools()[2]));
+				}
+				break;
+			case ASSIGN: {
+				ValueType value = pop();
+				push(value);
+				setVariable(tuple, value);
+				break;
+			}
+			case ASSIGN_POP:
+				setVariable(tuple, pop());
+				break;
+			case INLINE_FRAME: {
+				long[] ints = tuple.getInts();
+				boolean isGlobal = tuple.getBools()[3];
+				ValueType[] parameters = new ValueType[(int) ints[1]];
+				for (int i = parameters.length - 1; i >= 0; i--) {
+					parameters[i] = pop();
+				}
+				for (long i = 0; i < ints[0]; i++) {
+					// The other variables are cleared, i.e. uninitialized
+					setVariable(ints[2] + i, isGlobal, i < parameters.length ? parameters[(int) i] : ValueType.UNKNOWN);
+				}
+				break;
+			}
+			case TAIL_CALL:
+				// The frame is reinitialized before jumping to the start of
+				// the function
+				pop(tuple.getInts()[2]);
+				forgetVariables();
+				break;
+			case INLINE_RETURN: {
+				long[] ints = tuple.getInts();
+				for (long i = 0; i < ints[0]; i++) {
+					setVariable(ints[1] + i, tuple.getBools()[2], ValueType.UNKNOWN);
+				}
+				push(ValueType.UNKNOWN);
+				break;
+			}
+			case PLUS_EQ:
+			case MINUS_EQ:
+			case MULT_EQ:
+			case DIV_EQ:
+			case MOD_EQ:
+			case POW_EQ:
+				pop();
+				push(ValueType.NUMBER);
+				setVariable(tuple, ValueType.NUMBER);
+				break;
+			case INC:
+			case DEC:
+				setVariable(tuple, ValueType.NUMBER);
+				break;
+			case POSTINC:
+			case POSTDEC:
+				// Pushes the previous value, 0 if it was uninitialized
+				pop();
+				if (getVariable(tuple.getInts()[0], tuple.getBools()[1]) == ValueType.NUMBER) {
+					push(ValueType.NUMBER);
+				} else {
+					push(ValueType.UNKNOWN);
+				}
+				setVariable(tuple, ValueType.NUMBER);
+				break;
+			case PRINT:
+			case PRINT_TO_FILE:
+			case PRINT_TO_PIPE:
+			case PRINTF:
+			case PRINTF_TO_FILE:
+			case PRINTF_TO_PIPE:
+			case ASSIGN_AS_INPUT:
+			case ASSIGN_AS_INPUT_FIELD:
+			case PLUS_EQ_ARRAY:
+			case MINUS_EQ_ARRAY:
+			case MULT_EQ_ARRAY:
+			case DIV_EQ_ARRAY:
+			case MOD_EQ_ARRAY:
+			case POW_EQ_ARRAY:
+			case PLUS_EQ_INPUT_FIELD:
+			case MINUS_EQ_INPUT_FIELD:
+			case MULT_EQ_INPUT_FIELD:
+			case DIV_EQ_INPUT_FIELD:
+			case MOD_EQ_INPUT_FIELD:
+			case POW_EQ_INPUT_FIELD:
+			case INC_ARRAY_REF:
+			case DEC_ARRAY_REF:
+			case INC_DOLLAR_REF:
+			case DEC_DOLLAR_REF:
+			case APPLY_SUBSEP:
+			case IS_IN:
+			case KEYLIST:
+			case IS_EMPTY_KEYLIST:
+			case GET_FIRST_AND_REMOVE_FROM_KEYLIST:
+			case DELETE_ARRAY_ELEMENT:
+			case DELETE_ARRAY:
+			case SRAND:
+			case MATCH:
+			case SUBSTR:
+			case SPLIT:
+			case SUB_FOR_DOLLAR_0:
+			case SUB_FOR_DOLLAR_REFERENCE:
+			case SUB_FOR_ARRAY_REFERENCE:
+			case CHECK_CLASS:
+			case CONDITION_PAIR:
+			case CLOSE:
+			case SYSTEM:
+			case ASSIGN_NF:
+			case ASSIGN_NR:
+			case ASSIGN_FNR:
+			case ASSIGN_FS:
+			case ASSIGN_RS:
+			case ASSIGN_OFS:
+			case ASSIGN_ORS:
+			case ASSIGN_RSTART:
+			case ASSIGN_RLENGTH:
+			case ASSIGN_FILENAME:
+			case ASSIGN_SUBSEP:
+			case ASSIGN_CONVFMT:
+			case ASSIGN_OFMT:
+			case ASSIGN_ARGC:
+				// Leaves the scalar variables alone, but the effect on the
+				// stack is not tracked
+				depth = 0;
+				break;
+			default:
+				// Function calls, input, extensions, etc. may assign any
+				// variable
+				depth = 0;
+				forgetVariables();
+				break;
+			}
+		}
+
+		private static ValueType literalType(Tuple tuple) {
+			Class<?> type = tuple.getTypes()[0];
+			if (type == Long.class || type == Double.class) {
+				return ValueType.NUMBER;
+			}
+			if (type == String.class) {
+				return ValueType.STRING;
+			}
+			return ValueType.UNKNOWN;
+		}
+	}
+}
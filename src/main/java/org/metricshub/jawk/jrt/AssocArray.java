@@ -159,18 +159,18 @@ public boolean isIn(Object key) {
 			// According to AWK semantics, an uninitialized index
 			// evaluates to the empty string, not numeric zero
 			key = "";
+		} else if (key instanceof StrNum) {
+			// input strings are indexed by their text
+			key = key.toString();
 		}
 
 		if (map.containsKey(key)) {
 			return true;
 		}
 
-		try {
-			long iKey = Long.parseLong(key.toString());
-			if (map.containsKey(iKey)) {
-				return true;
-			}
-		} catch (Exception e) {// NOPMD - EmptyCatchBlock: intentionally ignored
+		String keyString = key.toString();
+		if (NumberParser.isLong(keyString) && map.containsKey(Long.parseLong(keyString))) {
+			return true;
 		}
 
 		return false;
@@ -192,6 +192,8 @@ public Object get(Object key) {
 		if (key == null || key instanceof UninitializedObject) {
 			// AWK evaluates an uninitialized subscript to the empty string
 			key = "";
+		} else if (key instanceof StrNum) {
+			key = key.toString();
 		}
 		Object result = map.get(key);
 		if (result != null) {
@@ -199,14 +201,14 @@ public Object get(Object key) {
 		}
 
 		// Did not find it?
-		try {
+		String keyString = key.toString();
+		if (NumberParser.isLong(keyString)) {
 			// try a integer version key
-			key = Long.parseLong(key.toString());
+			key = Long.parseLong(keyString);
 			result = map.get(key);
 			if (result != null) {
 				return result;
 			}
-		} catch (Exception e) {// NOPMD - EmptyCatchBlock: intentionally ignored
 		}
 
 		// based on the AWK specification:
@@ -228,12 +230,17 @@ public Object get(Object key) {
 	public Object put(Object key, Object value) {
 		if (key == null || key instanceof UninitializedObject) {
 			key = "";
+		} else if (key instanceof StrNum) {
+			key = key.toString();
 		}
-		try {
+		if (value instanceof StrNum) {
+			// do not keep the whole record in memory
+			((StrNum) value).detach();
+		}
+		String keyString = key.toString();
+		if (NumberParser.isLong(keyString)) {
 			// Save a primitive version
-			long iKey = Long.parseLong(key.toString());
-			return map.put(iKey, value);
-		} catch (Exception e) {// NOPMD - EmptyCatchBlock: intentionally ignored
+			return map.put(Long.parseLong(keyString), value);
 		}
 
 		return map.put(key, value);
@@ -247,6 +254,9 @@ public Object put(Object key, Object value) {
 	 * @return the previous value of the specified key, or null if key didn't exist
 	 */
 	public Object put(long key, Object value) {
+		if (value instanceof StrNum) {
+			((StrNum) value).detach();
+		}
 		return map.put(key, value);
 	}
 
@@ -277,16 +287,17 @@ public void clear() {
 	public Object remove(Object key) {
 		if (key == null || key instanceof UninitializedObject) {
 			key = "";
+		} else if (key instanceof StrNum) {
+			key = key.toString();
 		}
 		Object result = map.remove(key);
 		if (result != null) {
 			return result;
 		}
 
-		try {
-			long iKey = Long.parseLong(key.toString());
-			return map.remove(iKey);
-		} catch (Exception e) {// NOPMD - EmptyCatchBlock: intentionally ignored
+		String keyString = key.toString();
+		if (NumberParser.isLong(keyString)) {
+			return map.remove(Long.parseLong(keyString));
 		}
 
 		return null;
@@ -0,0 +1,501 @@
+package org.metricshub.jawk.jrt;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * Jawk
+ * ჻჻჻჻჻჻
+ * Copyright (C) 2006 - 2025 MetricsHub
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits records into fields by locating them, without extracting them:
+ * each call to {@link #next()} finds the start and end offsets of the next
+ * field in the record. This lets {@link JRT} keep the record as a single
+ * string with the offsets of its fields, and create a field value only when
+ * the script uses it.
+ * <p>
+ * Depending on the field separator, fields are separated by runs of blanks
+ * and newlines (<code>FS = " "</code>), by a single character, by the
+ * matches of a regular expression, or are single characters
+ * (<code>FS = ""</code>), like the tokens of {@link SingleCharacterTokenizer},
+ * {@link RegexTokenizer} and {@link CharacterTokenizer}. With the gawk
+ * extension <code>FIELDWIDTHS</code>, fields have fixed widths instead, and
+ * in CSV mode they are the fields of RFC 4180 records.
+ * <p>
+ * A splitter is meant to be reused for successive records with
+ * {@link #reset(String)}.
+ */
+abstract class FieldSplitter {
+
+	/** Record being split */
+	private String input;
+
+	/** Start offset of the current field */
+	private int start;
+
+	/** End offset (exclusive) of the current field */
+	private int end;
+
+	/**
+	 * Creates the splitter to use with the specified field separator.
+	 *
+	 * @param fs value of FS
+	 * @return a new splitter
+	 */
+	static FieldSplitter forSeparator(String fs) {
+		if (" ".equals(fs)) {
+			return new BlankSplitter();
+		} else if (fs.length() == 1) {
+			return new CharacterSplitter(fs.charAt(0));
+		} else if (fs.isEmpty()) {
+			return new EachCharacterSplitter();
+		} else {
+			return new RegexSplitter(RegexCache.getInstance().compile(fs));
+		}
+	}
+
+	/**
+	 * Creates the splitter to use with the specified field separator in
+	 * paragraph mode (when RS is empty), where a newline always separates
+	 * fields, in addition to FS.
+	 *
+	 * @param fs value of FS
+	 * @return a new splitter
+	 */
+	static FieldSplitter forParagraphSeparator(String fs) {
+		if (" ".equals(fs) || "\n".equals(fs) || fs.isEmpty()) {
+			// blanks include newlines
+			return forSeparator(fs);
+		}
+		String regex = fs.length() == 1 ? Pattern.quote(fs) : "(?:" + fs + ")";
+		return new RegexSplitter(RegexCache.getInstance().compile(regex + "|\n"));
+	}
+
+	/**
+	 * Creates the splitter of fixed-width fields described by a value of
+	 * <code>FIELDWIDTHS</code>: a list of widths separated by blanks, each
+	 * width optionally prefixed with a number of characters to skip and a
+	 * colon (e.g. <code>"2:3"</code>), the last width being possibly
+	 * <code>*</code> for the rest of the record.
+	 *
+	 * @param fieldWidths value of FIELDWIDTHS
+	 * @return a new splitter
+	 * @throws AwkRuntimeException if the value is invalid
+	 */
+	static FieldSplitter forWidths(String fieldWidths) {
+		FixedWidthSplitter splitter = new FixedWidthSplitter();
+		int length = fieldWidths.length();
+		int i = 0;
+		while (true) {
+			while (i < length && isBlank(fieldWidths.charAt(i))) {
+				i++;
+			}
+			if (i == length) {
+				return splitter;
+			}
+			if (splitter.count > 0 && splitter.widths[splitter.count - 1] < 0) {
+				throw new AwkRuntimeException("`*' must be the last designator in FIELDWIDTHS");
+			}
+			int skip = 0;
+			int width;
+			int numberEnd = skipDigits(fieldWidths, i);
+			if (numberEnd < length && fieldWidths.charAt(numberEnd) == ':' && numberEnd > i) {
+				skip = parseWidth(fieldWidths, i, numberEnd, splitter.count);
+				i = numberEnd + 1;
+				numberEnd = skipDigits(fieldWidths, i);
+			}
+			if (numberEnd == i && i < length && fieldWidths.charAt(i) == '*') {
+				width = -1;
+				numberEnd++;
+			} else {
+				width = parseWidth(fieldWidths, i, numberEnd, splitter.count);
+			}
+			if (numberEnd < length && !isBlank(fieldWidths.charAt(numberEnd))) {
+				throw invalidWidth(fieldWidths, i, splitter.count);
+			}
+			splitter.add(skip, width);
+			i = numberEnd;
+		}
+	}
+
+	private static boolean isBlank(char c) {
+		return c == ' ' || c == '\t' || c == '\n';
+	}
+
+	private static int skipDigits(String s, int i) {
+		while (i < s.length() && s.charAt(i) >= '0' && s.charAt(i) <= '9') {
+			i++;
+		}
+		return i;
+	}
+
+	private static int parseWidth(String fieldWidths, int start, int end, int field) {
+		if (end == start || end - start > 9) {
+			throw invalidWidth(fieldWidths, start, field);
+		}
+		return Integer.parseInt(fieldWidths.substring(start, end));
+	}
+
+	private static AwkRuntimeException invalidWidth(String fieldWidths, int position, int field) {
+		return new AwkRuntimeException(
+				"invalid FIELDWIDTHS value, for field " + (field + 1) + ", near `" + fieldWidths.substring(position) + "'");
+	}
+
+	/**
+	 * Starts splitting a new record.
+	 *
+	 * @param record the record to split
+	 */
+	void reset(String record) {
+		input = record;
+		start = 0;
+		end = 0;
+	}
+
+	/**
+	 * Locates the next field of the record.
+	 *
+	 * @return <code>true</code> if there is a next field, whose offsets are
+	 *         then available with {@link #start()} and {@link #end()}
+	 */
+	abstract boolean next();
+
+	/**
+	 * @return the value of the current field when it is not the text between
+	 *         its offsets (e.g. a quoted CSV field), <code>null</code>
+	 *         otherwise
+	 */
+	String value() {
+		return null;
+	}
+
+	/**
+	 * @return the record being split
+	 */
+	protected final String input() {
+		return input;
+	}
+
+	/**
+	 * Sets the offsets of the current field.
+	 *
+	 * @param fieldStart the start offset of the field
+	 * @param fieldEnd the end offset (exclusive) of the field
+	 */
+	protected final void setField(int fieldStart, int fieldEnd) {
+		start = fieldStart;
+		end = fieldEnd;
+	}
+
+	/**
+	 * @return the start offset of the current field
+	 */
+	final int start() {
+		return start;
+	}
+
+	/**
+	 * @return the end offset (exclusive) of the current field
+	 */
+	final int end() {
+		return end;
+	}
+
+	/**
+	 * Fields separated by runs of blanks (spaces and tabs) and newlines,
+	 * ignoring leading and trailing ones, as specified by POSIX for the
+	 * default value of FS.
+	 */
+	static final class BlankSplitter extends FieldSplitter {
+
+		@Override
+		boolean next() {
+			String s = input();
+			int length = s.length();
+			int i = end();
+			char c;
+			// skip the separators
+			while (true) {
+				if (i == length) {
+					return false;
+				}
+				c = s.charAt(i);
+				if (c != ' ' && c != '\t' && c != '\n') {
+					break;
+				}
+				i++;
+			}
+			int fieldStart = i;
+			// find the end of the field
+			while (++i < length) {
+				c = s.charAt(i);
+				if (c == ' ' || c == '\t' || c == '\n') {
+					break;
+				}
+			}
+			setField(fieldStart, i);
+			return true;
+		}
+	}
+
+	/**
+	 * Fields separated by a single character.
+	 */
+	static final class CharacterSplitter extends FieldSplitter {
+
+		private final char separator;
+
+		private boolean more;
+
+		CharacterSplitter(char separator) {
+			this.separator = separator;
+		}
+
+		@Override
+		void reset(String record) {
+			super.reset(record);
+			more = !record.isEmpty();
+			setField(-1, -1);
+		}
+
+		@Override
+		boolean next() {
+			if (!more) {
+				return false;
+			}
+			String s = input();
+			int fieldStart = end() + 1;
+			int i = s.indexOf(separator, fieldStart);
+			if (i < 0) {
+				setField(fieldStart, s.length());
+				more = false;
+			} else {
+				setField(fieldStart, i);
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Each character is a field.
+	 */
+	static final class EachCharacterSplitter extends FieldSplitter {
+
+		@Override
+		boolean next() {
+			int i = end();
+			if (i >= input().length()) {
+				return false;
+			}
+			setField(i, i + 1);
+			return true;
+		}
+	}
+
+	/**
+	 * Fields separated by the matches of a regular expression, like with
+	 * <code>Pattern.split(input, -1)</code>.
+	 */
+	static final class RegexSplitter extends FieldSplitter {
+
+		private final Pattern pattern;
+
+		private Matcher matcher;
+
+		/** Offset following the last separator found */
+		private int position;
+
+		private boolean more;
+
+		RegexSplitter(Pattern pattern) {
+			this.pattern = pattern;
+		}
+
+		@Override
+		void reset(String record) {
+			super.reset(record);
+			if (matcher == null) {
+				matcher = pattern.matcher(record);
+			} else {
+				matcher.reset(record);
+			}
+			position = 0;
+			more = !record.isEmpty();
+		}
+
+		@Override
+		boolean next() {
+			if (!more) {
+				return false;
+			}
+			int fieldStart = position;
+			while (matcher.find()) {
+				// like Pattern.split(), a zero-width match at the beginning
+				// does not produce an empty leading field
+				if (matcher.end() == 0) {
+					continue;
+				}
+				setField(fieldStart, matcher.start());
+				position = matcher.end();
+				return true;
+			}
+			setField(fieldStart, input().length());
+			more = false;
+			return true;
+		}
+	}
+
+	/**
+	 * Fields of fixed widths (see {@link FieldSplitter#forWidths(String)}).
+	 * Like in gawk, the fields stop at the end of the record: a field
+	 * truncated by the end of the record is kept, the following ones are
+	 * not.
+	 */
+	static final class FixedWidthSplitter extends FieldSplitter {
+
+		/** Number of characters to skip before each field */
+		private int[] skips = new int[8];
+
+		/** Width of each field, -1 for the rest of the record */
+		private int[] widths = new int[8];
+
+		private int count;
+
+		/** Index of the next field */
+		private int field;
+
+		private void add(int skip, int width) {
+			if (count == widths.length) {
+				skips = Arrays.copyOf(skips, count * 2);
+				widths = Arrays.copyOf(widths, count * 2);
+			}
+			skips[count] = skip;
+			widths[count] = width;
+			count++;
+		}
+
+		@Override
+		void reset(String record) {
+			super.reset(record);
+			field = 0;
+		}
+
+		@Override
+		boolean next() {
+			if (field == count) {
+				return false;
+			}
+			int length = input().length();
+			int fieldStart = end() + skips[field];
+			if (fieldStart >= length) {
+				field = count;
+				return false;
+			}
+			int width = widths[field++];
+			setField(fieldStart, width < 0 || width >= length - fieldStart ? length : fieldStart + width);
+			return true;
+		}
+	}
+
+	/**
+	 * Fields of a CSV record, as specified by RFC 4180: fields are separated
+	 * by commas, and may be enclosed in double quotes, in which case they may
+	 * contain commas, newlines and double quotes (escaped by doubling them).
+	 * The enclosing quotes are not part of the field value.
+	 * <p>
+	 * Fields without quotes, or without escaped quotes, are located by their
+	 * offsets like the other fields: only the fields with escaped quotes (or
+	 * with text following their closing quote) have their value built by
+	 * the splitter (see {@link #value()}).
+	 */
+	static final class CsvSplitter extends FieldSplitter {
+
+		/** Offset following the last separator found */
+		private int position;
+
+		private boolean more;
+
+		private String value;
+
+		@Override
+		void reset(String record) {
+			super.reset(record);
+			position = 0;
+			more = !record.isEmpty();
+			value = null;
+		}
+
+		@Override
+		String value() {
+			return value;
+		}
+
+		@Override
+		boolean next() {
+			if (!more) {
+				return false;
+			}
+			String s = input();
+			int length = s.length();
+			int i = position;
+			int separator;
+			value = null;
+			if (i < length && s.charAt(i) == '"') {
+				StringBuilder decoded = null;
+				int from = ++i;
+				int quote;
+				while ((quote = s.indexOf('"', i)) >= 0 && quote + 1 < length && s.charAt(quote + 1) == '"') {
+					if (decoded == null) {
+						decoded = new StringBuilder();
+					}
+					decoded.append(s, from, quote + 1);
+					from = quote + 2;
+					i = from;
+				}
+				// an unterminated quoted field ends with the record
+				int contentEnd = quote < 0 ? length : quote;
+				i = quote < 0 ? length : quote + 1;
+				separator = s.indexOf(',', i);
+				int fieldEnd = separator < 0 ? length : separator;
+				if (decoded == null && fieldEnd == i) {
+					setField(from, contentEnd);
+				} else {
+					if (decoded == null) {
+						decoded = new StringBuilder();
+					}
+					decoded.append(s, from, contentEnd).append(s, i, fieldEnd);
+					value = decoded.toString();
+					setField(position, fieldEnd);
+				}
+			} else {
+				separator = s.indexOf(',', i);
+				setField(i, separator < 0 ? length : separator);
+			}
+			if (separator < 0) {
+				more = false;
+			} else {
+				position = separator + 1;
+			}
+			return true;
+		}
+	}
+}
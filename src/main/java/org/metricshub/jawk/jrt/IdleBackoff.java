@@ -0,0 +1,86 @@
+package org.metricshub.jawk.jrt;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * Jawk
+ * ჻჻჻჻჻჻
+ * Copyright (C) 2006 - 2025 MetricsHub
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Pauses between the reads of a source that returned no bytes.
+ * <p>
+ * A non-blocking source (e.g. a channel over a non-blocking stream) returns
+ * 0 bytes while nothing is available. Reading it again right away would
+ * spin at 100% CPU, so the readers wait before each new attempt: they
+ * yield first, then park for twice as long each time, up to
+ * {@link #MAX_NANOS}.
+ */
+final class IdleBackoff {
+
+	/**
+	 * Shortest and longest pauses.
+	 */
+	private static final long MIN_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+	private static final long MAX_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private IdleBackoff() {}
+
+	/**
+	 * Waits before reading the source again.
+	 *
+	 * @param backoff the previous pause in nanoseconds, 0 for the first one
+	 * @return the pause to use the next time
+	 * @throws InterruptedException if the thread was interrupted meanwhile
+	 */
+	static long pause(long backoff) throws InterruptedException {
+		long next;
+		if (backoff == 0) {
+			Thread.yield();
+			next = MIN_NANOS;
+		} else {
+			LockSupport.parkNanos(backoff);
+			next = Math.min(backoff * 2, MAX_NANOS);
+		}
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+		return next;
+	}
+
+	/**
+	 * Waits before reading the source again, on the thread running the
+	 * script.
+	 *
+	 * @param backoff the previous pause in nanoseconds, 0 for the first one
+	 * @return the pause to use the next time
+	 * @throws InterruptedIOException if the thread was interrupted meanwhile
+	 */
+	static long pauseReading(long backoff) throws InterruptedIOException {
+		try {
+			return pause(backoff);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the input");
+		}
+	}
+}
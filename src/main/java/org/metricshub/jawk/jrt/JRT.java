@@ -32,23 +32,23 @@
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IllegalFormatException;
-import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.math.BigDecimal;
 import org.metricshub.jawk.intermediate.PositionTracker;
 import org.metricshub.jawk.intermediate.UninitializedObject;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -104,8 +104,39 @@ public class JRT {
 	private PartitioningReader partitioningReader = null;
 	// Current input line ($0).
 	private String inputLine = null;
-	// Current input fields ($0, $1, $2, ...).
-	private List<String> inputFields = new ArrayList<String>(100);
+	// Values of the current input fields ($0, $1, $2, ...), null for the
+	// fields whose value has not been created from their offsets yet.
+	private Object[] inputFields = new Object[64];
+	// Number of fields of $0 split (or assigned) so far.
+	private int fieldCount = 0;
+	// Record the fields were split from.
+	private String fieldRecord = null;
+	// Start and end offsets in fieldRecord of $1, $2, ... (2 per field).
+	private int[] fieldOffsets = new int[128];
+	// Splitter of the fields of $0 that have not been split yet, if any.
+	private FieldSplitter pendingFields = null;
+	// Splitter for the current value of FS.
+	private FieldSplitter fieldSplitter = null;
+	private String fieldSplitterFs = null;
+	private boolean fieldSplitterParagraph = false;
+	// Charset of the input, and of the output to files and commands.
+	private Charset charset = StandardCharsets.UTF_8;
+	// Whether the input is read on a background thread (--read-ahead).
+	private boolean readAhead = false;
+	// Whether records and fields are read as CSV (--csv).
+	private boolean csv = false;
+	// Splitters of CSV fields, for records and for split().
+	private FieldSplitter csvSplitter = null;
+	private FieldSplitter csvArraySplitter = null;
+	// Splitter for FIELDWIDTHS, null when the fields are split with FS.
+	private FieldSplitter fixedWidthSplitter = null;
+	// Whether FIELDWIDTHS has been assigned since its splitter was created.
+	private boolean fieldWidthsAssigned = false;
+	// Splitter for the last separator used with split().
+	private FieldSplitter arraySplitter = null;
+	private String arraySplitterFs = null;
+	// Number of fields split as soon as $0 is parsed.
+	private int fieldSplitLimit = Integer.MAX_VALUE;
 	private AssocArray arglistAa = null;
 	private int arglistIdx;
 	private boolean hasFilenames = false;
@@ -332,10 +363,15 @@ public String toAwkStringForOutput(Object o) {
 		// it to a Double. Because if it's a literal representation of a number,
 		// we will need to display it as a number ("12.00" --> 12)
 		Object val = o;
-		if (!(val instanceof Number)) {
-			try {
-				val = new BigDecimal(val.toString()).doubleValue();
-			} catch (NumberFormatException e) {// NOPMD - EmptyCatchBlock: intentionally ignored
+		if (val instanceof StrNum) {
+			StrNum strnum = (StrNum) val;
+			if (strnum.isDecimal()) {
+				val = strnum.doubleValue();
+			}
+		} else if (!(val instanceof Number)) {
+			String s = val.toString();
+			if (NumberParser.isDecimal(s)) {
+				val = NumberParser.parseDouble(s);
 			}
 		}
 
@@ -357,33 +393,15 @@ public static double toDouble(final Object o) {
 			return ((Number) o).doubleValue();
 		}
 
-		if (o instanceof Character) {
-			return (double) ((Character) o).charValue();
+		if (o instanceof StrNum) {
+			return ((StrNum) o).doubleValue();
 		}
 
-		// Try to convert the string to a number.
-		String s = o.toString();
-		int length = s.length();
-
-		// Optimization: We don't need to handle strings that are longer than 26 chars
-		// because a Double cannot be longer than 26 chars when converted to String.
-		if (length > 26) {
-			length = 26;
-		}
-
-		// Loop:
-		// If convervsion fails, try with one character less.
-		// 25fix will convert to 25 (any numeric prefix will work)
-		while (length > 0) {
-			try {
-				return Double.parseDouble(s.substring(0, length));
-			} catch (NumberFormatException nfe) {
-				length--;
-			}
+		if (o instanceof Character) {
+			return (double) ((Character) o).charValue();
 		}
 
-		// Failed (not even with one char)
-		return 0;
+		return NumberParser.parseDouble(o.toString());
 	}
 
 	/**
@@ -413,32 +431,15 @@ public static long toLong(final Object o) {
 			return ((Number) o).longValue();
 		}
 
-		if (o instanceof Character) {
-			return (long) ((Character) o).charValue();
+		if (o instanceof StrNum) {
+			return (long) ((StrNum) o).doubleValue();
 		}
 
-		// Try to convert the string to a number.
-		String s = o.toString();
-		int length = s.length();
-
-		// Optimization: We don't need to handle strings that are longer than 20 chars
-		// because a Long cannot be longer than 20 chars when converted to String.
-		if (length > 20) {
-			length = 20;
+		if (o instanceof Character) {
+			return (long) ((Character) o).charValue();
 		}
 
-		// Loop:
-		// If convervsion fails, try with one character less.
-		// 25fix will convert to 25 (any numeric prefix will work)
-		while (length > 0) {
-			try {
-				return Long.parseLong(s.substring(0, length));
-			} catch (NumberFormatException nfe) {
-				length--;
-			}
-		}
-		// Failed (not even with one char)
-		return 0;
+		return NumberParser.parseLong(o.toString());
 	}
 
 	/**
@@ -452,16 +453,45 @@ public static long toLong(final Object o) {
 	 * @return the parsed field number as a long
 	 */
 	public static long parseFieldNumber(Object obj, PositionTracker position) {
+		return parseFieldNumber(obj, position.lineNumber());
+	}
+
+	/**
+	 * Convert a field designator to a non-negative long, raising an AWK runtime
+	 * exception when the value is invalid.
+	 *
+	 * @param obj the object identifying the field (for example, a literal
+	 *        folded by the optimizer)
+	 * @param lineNumber the line number of the field reference, used for
+	 *        error reporting
+	 * @return the parsed field number as a long
+	 */
+	public static long parseFieldNumber(Object obj, int lineNumber) {
 		long num = toLong(obj);
 		if (num < 0) {
 			throw new AwkRuntimeException(
-					position.lineNumber(),
+					lineNumber,
 					"Field $(" + obj.toString()
 							+ ") is incorrect.");
 		}
 		return num;
 	}
 
+	/**
+	 * Convert a field designator to a non-negative long, raising an AWK runtime
+	 * exception (without line number) when the value is invalid.
+	 *
+	 * @param obj the object identifying the field
+	 * @return the parsed field number as a long
+	 */
+	public static long parseFieldNumber(Object obj) {
+		long num = toLong(obj);
+		if (num < 0) {
+			throw new AwkRuntimeException("Field $(" + obj.toString() + ") is incorrect.");
+		}
+		return num;
+	}
+
 	/**
 	 * Compares two objects. Whether to employ less-than, equals, or
 	 * greater-than checks depends on the mode chosen by the callee.
@@ -478,12 +508,9 @@ public static long parseFieldNumber(Object obj, PositionTracker position) {
 	 * @return a boolean
 	 */
 	public static boolean compare2(Object o1, Object o2, int mode) {
-		// Pre-compute String representations of o1 and o2
-		String o1String = o1.toString();
-		String o2String = o2.toString();
-
 		// Special case of Uninitialized objects
 		if (o1 instanceof UninitializedObject) {
+			String o2String = o2.toString();
 			if (o2 instanceof UninitializedObject || "".equals(o2String) || "0".equals(o2String)) {
 				return mode == 0;
 			} else {
@@ -491,6 +518,7 @@ public static boolean compare2(Object o1, Object o2, int mode) {
 			}
 		}
 		if (o2 instanceof UninitializedObject) {
+			String o1String = o1.toString();
 			if ("".equals(o1String) || "0".equals(o1String)) {
 				return mode == 0;
 			} else {
@@ -498,30 +526,25 @@ public static boolean compare2(Object o1, Object o2, int mode) {
 			}
 		}
 
-		if (!(o1 instanceof Number)) {
-			try {
-				o1 = new BigDecimal(o1String).doubleValue();
-			} catch (NumberFormatException nfe) { // NOPMD - ignore invalid number
-				// ignore invalid number, handled by subsequent logic
-			}
-		}
-		if (!(o2 instanceof Number)) {
-			try {
-				o2 = new BigDecimal(o2String).doubleValue();
-			} catch (NumberFormatException nfe) { // NOPMD - ignore invalid number
-				// ignore invalid number, handled by subsequent logic
-			}
-		}
+		// fields are compared without extracting their text when they are numbers
+		Object n1 = toComparable(o1);
+		Object n2 = toComparable(o2);
 
-		if ((o1 instanceof Number) && (o2 instanceof Number)) {
+		if ((n1 instanceof Number) && (n2 instanceof Number)) {
 			if (mode < 0) {
-				return ((Number) o1).doubleValue() < ((Number) o2).doubleValue();
+				return ((Number) n1).doubleValue() < ((Number) n2).doubleValue();
 			} else if (mode == 0) {
-				return ((Number) o1).doubleValue() == ((Number) o2).doubleValue();
+				return ((Number) n1).doubleValue() == ((Number) n2).doubleValue();
 			} else {
-				return ((Number) o1).doubleValue() > ((Number) o2).doubleValue();
+				return ((Number) n1).doubleValue() > ((Number) n2).doubleValue();
 			}
 		} else {
+			if (o1 instanceof StrNum || o2 instanceof StrNum) {
+				int comparison = compareChars(toCharSequence(o1), toCharSequence(o2));
+				return mode == 0 ? comparison == 0 : mode < 0 ? comparison < 0 : comparison > 0;
+			}
+			String o1String = o1.toString();
+			String o2String = o2.toString();
 			// string equality usually occurs more often than natural ordering comparison
 			if (mode == 0) {
 				return o1String.equals(o2String);
@@ -533,6 +556,56 @@ public static boolean compare2(Object o1, Object o2, int mode) {
 		}
 	}
 
+	private static CharSequence toCharSequence(Object o) {
+		return o instanceof StrNum ? (StrNum) o : o.toString();
+	}
+
+	/**
+	 * Compares two character sequences lexicographically, like
+	 * {@link String#compareTo(String)}.
+	 *
+	 * @param s1 the 1st sequence
+	 * @param s2 the 2nd sequence
+	 * @return a negative, zero or positive value if s1 is respectively
+	 *         less than, equal to or greater than s2
+	 */
+	private static int compareChars(CharSequence s1, CharSequence s2) {
+		int length1 = s1.length();
+		int length2 = s2.length();
+		int length = Math.min(length1, length2);
+		for (int i = 0; i < length; i++) {
+			char c1 = s1.charAt(i);
+			char c2 = s2.charAt(i);
+			if (c1 != c2) {
+				return c1 - c2;
+			}
+		}
+		return length1 - length2;
+	}
+
+	/**
+	 * Returns the numeric value of an operand of a comparison if it looks
+	 * like a number, or the operand itself otherwise.
+	 *
+	 * @param o the operand
+	 * @return a {@link Double} if the operand compares as a number,
+	 *         <code>o</code> otherwise
+	 */
+	private static Object toComparable(Object o) {
+		if (o instanceof Number) {
+			return o;
+		}
+		if (o instanceof StrNum) {
+			StrNum strnum = (StrNum) o;
+			return strnum.isNumeric() ? (Object) strnum.doubleValue() : o;
+		}
+		String string = o.toString();
+		if (NumberParser.isDecimal(string)) {
+			return NumberParser.parseDouble(string);
+		}
+		return o;
+	}
+
 	/**
 	 * Return an object which is numerically equivalent to
 	 * one plus a given object. For Integers and Doubles,
@@ -549,16 +622,7 @@ public static boolean compare2(Object o1, Object o2, int mode) {
 	 */
 	public static Object inc(Object o) {
 		assert o != null;
-		double ans;
-		if (o instanceof Number) {
-			ans = ((Number) o).doubleValue() + 1;
-		} else {
-			try {
-				ans = Double.parseDouble(o.toString()) + 1;
-			} catch (NumberFormatException nfe) {
-				ans = 1;
-			}
-		}
+		double ans = toDouble(o) + 1;
 		if (isActuallyLong(ans)) {
 			return (long) Math.rint(ans);
 		} else {
@@ -581,16 +645,7 @@ public static Object inc(Object o) {
 	 *         Otherwise, a Double object is returned.
 	 */
 	public static Object dec(Object o) {
-		double ans;
-		if (o instanceof Number) {
-			ans = ((Number) o).doubleValue() - 1;
-		} else {
-			try {
-				ans = Double.parseDouble(o.toString()) - 1;
-			} catch (NumberFormatException nfe) {
-				ans = 1;
-			}
-		}
+		double ans = toDouble(o) - 1;
 		if (isActuallyLong(ans)) {
 			return (long) Math.rint(ans);
 		} else {
@@ -610,6 +665,8 @@ public static Object dec(Object o) {
 	 *         <li><strong>Long</strong> - o.longValue() != 0
 	 *         <li><strong>Double</strong> - o.doubleValue() != 0
 	 *         <li><strong>String</strong> - o.length() &gt; 0
+	 *         <li><strong>StrNum</strong> - its numeric value != 0 if it
+	 *         looks like a number, o.length() &gt; 0 otherwise
 	 *         <li><strong>UninitializedObject</strong> - false
 	 *         <li><strong>Pattern</strong> - $0 ~ o
 	 *         </ul>
@@ -625,6 +682,8 @@ public final boolean toBoolean(Object o) {
 			val = ((Double) o).doubleValue() != 0;
 		} else if (o instanceof String) {
 			val = (o.toString().length() > 0);
+		} else if (o instanceof StrNum) {
+			val = ((StrNum) o).toBoolean();
 		} else if (o instanceof UninitializedObject) {
 			val = false;
 		} else if (o instanceof Pattern) {
@@ -680,6 +739,57 @@ public int split(Object fieldSeparator, Object array, Object string) {
 		}
 	}
 
+	/**
+	 * Splits a string into the elements of an array, like the
+	 * <code>split()</code> AWK function. The elements are strnums.
+	 * <p>
+	 * The fields are located the same way as in records (see
+	 * {@link #jrtParseFields()}), and the splitter of the last separator
+	 * is reused.
+	 *
+	 * @param fieldSeparator the field separator
+	 * @param array the array to populate (cleared first)
+	 * @param string the string to split
+	 * @return the number of elements
+	 */
+	public int jrtSplit(String fieldSeparator, AssocArray array, String string) {
+		if (!fieldSeparator.equals(arraySplitterFs)) {
+			arraySplitter = FieldSplitter.forSeparator(fieldSeparator);
+			arraySplitterFs = fieldSeparator;
+		}
+		return splitWorker(arraySplitter, array, string);
+	}
+
+	/**
+	 * Splits a string into the elements of an array, like the
+	 * <code>split()</code> AWK function without separator: with FS, or as a
+	 * CSV record in CSV mode (see {@link #setCsv(boolean)}).
+	 *
+	 * @param array the array to populate (cleared first)
+	 * @param string the string to split
+	 * @return the number of elements
+	 */
+	public int jrtSplit(AssocArray array, String string) {
+		if (csv) {
+			return splitWorker(csvArraySplitter, array, string);
+		}
+		return jrtSplit(this.fs, array, string);
+	}
+
+	private static int splitWorker(FieldSplitter splitter, AssocArray array, String string) {
+		splitter.reset(string);
+		array.clear();
+		int cnt = 0;
+		while (splitter.next()) {
+			String value = splitter.value();
+			if (value == null) {
+				value = string.substring(splitter.start(), splitter.end());
+			}
+			array.put(++cnt, new StrNum(value));
+		}
+		return cnt;
+	}
+
 	private static int splitWorker(Enumeration<Object> e, AssocArray aa) {
 		int cnt = 0;
 		aa.clear();
@@ -720,8 +830,8 @@ public String getInputLine() {
 	 * @return current NF value
 	 */
 	public Integer getNF() {
-		int size = inputFields.size();
-		return Integer.valueOf(size == 0 ? 0 : size - 1);
+		splitFields(Integer.MAX_VALUE);
+		return Integer.valueOf(fieldCount);
 	}
 
 	/**
@@ -789,6 +899,64 @@ public String getFSString() {
 	 */
 	public void setFS(Object value) {
 		this.fs = value == null ? "" : value.toString();
+		// assigning FS switches back from FIELDWIDTHS to FS splitting
+		fixedWidthSplitter = null;
+		fieldWidthsAssigned = false;
+	}
+
+	/**
+	 * Notifies that FIELDWIDTHS has been assigned, so that the next records
+	 * are split with its new value, until FS is assigned.
+	 */
+	public void fieldWidthsAssigned() {
+		fieldWidthsAssigned = true;
+	}
+
+	/**
+	 * Sets the charset of the input, and of the output to files and commands
+	 * (see {@link org.metricshub.jawk.util.AwkSettings#getCharset()});
+	 * UTF-8 by default.
+	 *
+	 * @param charset the charset to use
+	 */
+	public void setCharset(Charset charset) {
+		this.charset = charset;
+	}
+
+	/**
+	 * Sets whether the input files and streams are read ahead on a
+	 * background thread (see {@link ReadAheadChannel}).
+	 *
+	 * @param readAhead whether to read the input ahead
+	 */
+	public void setReadAhead(boolean readAhead) {
+		this.readAhead = readAhead;
+	}
+
+	/**
+	 * Sets whether the input is read as CSV, as specified by RFC 4180, like
+	 * with the <code>--csv</code> option of gawk and the One True Awk:
+	 * records end with newlines that are not in quoted fields, and fields are
+	 * separated by commas, regardless of RS, FS and FIELDWIDTHS.
+	 *
+	 * @param csv whether the input is read as CSV
+	 */
+	public void setCsv(boolean csv) {
+		this.csv = csv;
+		if (csv && csvSplitter == null) {
+			csvSplitter = new FieldSplitter.CsvSplitter();
+			csvArraySplitter = new FieldSplitter.CsvSplitter();
+		}
+		if (partitioningReader != null) {
+			partitioningReader.setCsv(csv);
+		}
+	}
+
+	/**
+	 * @return whether the input is read as CSV (see {@link #setCsv(boolean)})
+	 */
+	public boolean isCsv() {
+		return csv;
 	}
 
 	/**
@@ -1035,7 +1203,7 @@ public boolean consumeInput(final InputStream input, boolean forGetline, Locale
 
 			if (!forGetline) {
 				// For getline the caller will re-acquire $0; otherwise parse fields
-				jrtParseFields();
+				jrtParseRecord(new StrNum(inputLine));
 			}
 			// NR is managed by JRT
 			this.nr++;
@@ -1120,9 +1288,7 @@ private boolean prepareNextReader(InputStream input) throws IOException {
 			String arg = nextArgument();
 			if (arg == null) {
 				if (partitioningReader == null && !hasFilenames) {
-					partitioningReader = new PartitioningReader(
-							new InputStreamReader(input, StandardCharsets.UTF_8),
-							this.rs);
+					partitioningReader = newPartitioningReader(input, false);
 					this.filename = "";
 					return true;
 				}
@@ -1131,9 +1297,7 @@ private boolean prepareNextReader(InputStream input) throws IOException {
 			if (arg.indexOf('=') != -1) {
 				setFilelistVariable(arg);
 				if (partitioningReader == null && !hasFilenames) {
-					partitioningReader = new PartitioningReader(
-							new InputStreamReader(input, StandardCharsets.UTF_8),
-							this.rs);
+					partitioningReader = newPartitioningReader(input, false);
 					this.filename = "";
 					return true;
 				}
@@ -1141,10 +1305,7 @@ private boolean prepareNextReader(InputStream input) throws IOException {
 					this.nr++;
 				}
 			} else {
-				partitioningReader = new PartitioningReader(
-						new InputStreamReader(new FileInputStream(arg), StandardCharsets.UTF_8),
-						this.rs,
-						true);
+				partitioningReader = newPartitioningReader(new FileInputStream(arg), true);
 				this.filename = arg;
 				this.fnr = 0L;
 				ready = true;
@@ -1153,6 +1314,28 @@ private boolean prepareNextReader(InputStream input) throws IOException {
 		return true;
 	}
 
+	/**
+	 * Creates a reader of the records of the specified input, with the
+	 * current RS and CSV mode. The reader reads the bytes of the input
+	 * through a channel (the {@link java.nio.channels.FileChannel} of files),
+	 * and decodes them only when it consumes the records. With read-ahead,
+	 * the channel is read on a background thread.
+	 *
+	 * @param input the input to read
+	 * @param fromFileNameList whether the input is a file of the filename list
+	 * @return a new partitioning reader
+	 */
+	private PartitioningReader newPartitioningReader(InputStream input, boolean fromFileNameList) {
+		ReadableByteChannel channel = input instanceof FileInputStream ?
+				((FileInputStream) input).getChannel() : Channels.newChannel(input);
+		if (readAhead) {
+			channel = new ReadAheadChannel(channel);
+		}
+		PartitioningReader reader = new PartitioningReader(channel, this.rs, fromFileNameList, charset);
+		reader.setCsv(csv);
+		return reader;
+	}
+
 	/**
 	 * Read input from stdin, only once, and just for simple AWK expression evaluation
 	 * <p>
@@ -1161,12 +1344,10 @@ private boolean prepareNextReader(InputStream input) throws IOException {
 	 * @throws IOException if couldn't read stdin (should never happen, as it's based on a String)
 	 */
 	public void setInputLineforEval(InputStream input) throws IOException {
-		partitioningReader = new PartitioningReader(
-				new InputStreamReader(input, StandardCharsets.UTF_8),
-				this.rs);
+		partitioningReader = newPartitioningReader(input, false);
 		inputLine = partitioningReader.readRecord();
 		if (inputLine != null) {
-			jrtParseFields();
+			jrtParseRecord(new StrNum(inputLine));
 			this.nr++;
 		}
 	}
@@ -1200,38 +1381,144 @@ private void setFilelistVariable(String nameValue) {
 		vm.assignVariable(name, obj);
 	}
 
+	/**
+	 * Replaces $0 with a record read from the input and splits it into
+	 * $1, $2, etc. Unlike a string assigned by the script, the record
+	 * keeps its strnum type as $0.
+	 *
+	 * @param record the record read from the input
+	 */
+	public void jrtParseRecord(StrNum record) {
+		inputLine = record.toString();
+		jrtParseFields();
+		inputFields[0] = record;
+	}
+
+	/**
+	 * Sets how many fields are split as soon as a record is parsed, the
+	 * following fields being split only when they are accessed. Scripts that
+	 * only read a few fields with a constant index (see
+	 * {@link org.metricshub.jawk.intermediate.AwkTuples#getMaxFieldReference()})
+	 * thus do not pay for splitting the rest of wide records.
+	 *
+	 * @param limit number of fields to split eagerly
+	 */
+	public void setFieldSplitLimit(int limit) {
+		fieldSplitLimit = limit;
+	}
+
 	/**
 	 * Splits $0 into $1, $2, etc.
 	 * Called when an update to $0 has occurred.
+	 * <p>
+	 * Only the fields up to the limit set with {@link #setFieldSplitLimit(int)}
+	 * are split right away. Splitting a field only records its offsets in the
+	 * record: its value is created when it is accessed.
 	 */
 	public void jrtParseFields() {
-		String fsString = this.fs;
 		assert inputLine != null;
 
-		inputFields.clear();
-		inputFields.add(inputLine); // $0
+		inputFields[0] = inputLine; // $0
+		fieldCount = 0;
+		fieldRecord = inputLine;
+		pendingFields = null;
 
 		if (!inputLine.isEmpty()) {
-			Enumeration<Object> tokenizer;
-			if (fsString.equals(" ")) {
-				tokenizer = new StringTokenizer(inputLine);
-			} else if (fsString.length() == 1) {
-				tokenizer = new SingleCharacterTokenizer(inputLine, fsString.charAt(0));
-			} else if (fsString.equals("")) {
-				tokenizer = new CharacterTokenizer(inputLine);
-			} else {
-				tokenizer = new RegexTokenizer(inputLine, fsString);
-			}
-
-			while (tokenizer.hasMoreElements()) {
-				inputFields.add((String) tokenizer.nextElement());
+			FieldSplitter splitter = csv ? csvSplitter : getFixedWidthSplitter();
+			if (splitter == null) {
+				String fsString = this.fs;
+				// with RS="", newlines separate fields too
+				boolean paragraph = rs.isEmpty();
+				if (!fsString.equals(fieldSplitterFs) || paragraph != fieldSplitterParagraph) {
+					fieldSplitter = paragraph ?
+							FieldSplitter.forParagraphSeparator(fsString) : FieldSplitter.forSeparator(fsString);
+					fieldSplitterFs = fsString;
+					fieldSplitterParagraph = paragraph;
+				}
+				splitter = fieldSplitter;
 			}
+			splitter.reset(inputLine);
+			pendingFields = splitter;
+			splitFields(fieldSplitLimit);
 		}
 
 		// recalc NF
 		recalculateNF();
 	}
 
+	/**
+	 * Returns the splitter of fixed-width fields to use when
+	 * <code>FIELDWIDTHS</code> has been assigned more recently than
+	 * <code>FS</code>, like in gawk.
+	 *
+	 * @return the splitter for the value of FIELDWIDTHS, or <code>null</code>
+	 *         to split the fields with FS
+	 */
+	private FieldSplitter getFixedWidthSplitter() {
+		if (fieldWidthsAssigned) {
+			// parsed only once after each assignment
+			String widths = vm == null ? "" : toAwkString(vm.getFIELDWIDTHS());
+			fixedWidthSplitter = widths.isEmpty() ? null : FieldSplitter.forWidths(widths);
+			fieldWidthsAssigned = false;
+		}
+		return fixedWidthSplitter;
+	}
+
+	/**
+	 * Splits the pending fields of $0, if any, until field
+	 * <code>fieldIndex</code> is available.
+	 *
+	 * @param fieldIndex index of the last field needed
+	 */
+	private void splitFields(int fieldIndex) {
+		FieldSplitter splitter = pendingFields;
+		if (splitter == null) {
+			return;
+		}
+		while (fieldCount < fieldIndex) {
+			if (!splitter.next()) {
+				pendingFields = null;
+				return;
+			}
+			int offset = fieldCount << 1;
+			ensureFieldCapacity(++fieldCount);
+			fieldOffsets[offset] = splitter.start();
+			fieldOffsets[offset + 1] = splitter.end();
+			String value = splitter.value();
+			inputFields[fieldCount] = value == null ? null : new StrNum(value);
+		}
+	}
+
+	/**
+	 * Grows the field arrays so that they can hold field
+	 * <code>fieldIndex</code>.
+	 *
+	 * @param fieldIndex index of the field
+	 */
+	private void ensureFieldCapacity(int fieldIndex) {
+		if (fieldIndex >= inputFields.length) {
+			inputFields = Arrays.copyOf(inputFields, Math.max(fieldIndex + 1, inputFields.length * 2));
+			fieldOffsets = Arrays.copyOf(fieldOffsets, inputFields.length * 2);
+		}
+	}
+
+	/**
+	 * Returns the value of a field that has been split, creating it from the
+	 * offsets of the field if needed.
+	 *
+	 * @param fieldIndex index of the field, between 1 and fieldCount
+	 * @return the value of the field
+	 */
+	private Object getField(int fieldIndex) {
+		Object value = inputFields[fieldIndex];
+		if (value == null) {
+			int offset = (fieldIndex - 1) << 1;
+			value = new StrNum(fieldRecord, fieldOffsets[offset], fieldOffsets[offset + 1]);
+			inputFields[fieldIndex] = value;
+		}
+		return value;
+	}
+
 	private void recalculateNF() {
 		// NF is managed internally by JRT; parser reads via PUSH_NF
 	}
@@ -1240,7 +1527,7 @@ private void recalculateNF() {
 	 * @return true if at least one input field has been initialized.
 	 */
 	public boolean hasInputFields() {
-		return !inputFields.isEmpty();
+		return inputFields[0] != null;
 	}
 
 	/**
@@ -1255,18 +1542,15 @@ public void jrtSetNF(Object nfObj) {
 		if (nf < 0) {
 			nf = 0;
 		}
+		splitFields(Integer.MAX_VALUE);
 
-		int currentNF = inputFields.size() - 1;
-
-		if (nf < currentNF) {
-			for (int i = currentNF; i > nf; i--) {
-				inputFields.remove(i);
-			}
-		} else if (nf > currentNF) {
-			for (int i = currentNF + 1; i <= nf; i++) {
-				inputFields.add("");
+		if (nf > fieldCount) {
+			ensureFieldCapacity(nf);
+			for (int i = fieldCount + 1; i <= nf; i++) {
+				inputFields[i] = "";
 			}
 		}
+		fieldCount = nf;
 
 		rebuildDollarZeroFromFields();
 	}
@@ -1301,12 +1585,17 @@ public Object jrtGetInputField(long fieldnum, PositionTracker position) {
 			throw new AwkRuntimeException(position.lineNumber(), message);
 		}
 		int fieldIndex = (int) fieldnum;
-		if (fieldIndex < inputFields.size()) {
-			String retval = inputFields.get(fieldIndex);
-			assert retval != null;
-			return retval;
+		if (fieldIndex == 0) {
+			Object retval = inputFields[0];
+			return retval == null ? BLANK : retval;
+		}
+		if (fieldIndex > fieldCount) {
+			splitFields(fieldIndex);
+			if (fieldIndex > fieldCount) {
+				return BLANK;
+			}
 		}
-		return BLANK;
+		return getField(fieldIndex);
 	}
 
 	public Object jrtGetInputField(long fieldnum) {
@@ -1336,17 +1625,20 @@ public String jrtSetInputField(Object valueObj, long fieldNum, PositionTracker p
 		}
 		String value = valueObj.toString();
 		int fieldIndex = (int) fieldNum;
+		splitFields(Integer.MAX_VALUE);
 // if the value is BLANK
 		if (valueObj instanceof UninitializedObject) {
-			if (fieldIndex < inputFields.size()) {
-				inputFields.set(fieldIndex, "");
+			if (fieldIndex <= fieldCount) {
+				inputFields[fieldIndex] = "";
 			}
 		} else {
 // append the list to accommodate the new value
-			for (int i = inputFields.size() - 1; i < fieldIndex; i++) {
-				inputFields.add("");
+			ensureFieldCapacity(fieldIndex);
+			for (int i = fieldCount + 1; i < fieldIndex; i++) {
+				inputFields[i] = "";
 			}
-			inputFields.set(fieldIndex, value);
+			fieldCount = Math.max(fieldCount, fieldIndex);
+			inputFields[fieldIndex] = value;
 		}
 // rebuild $0
 		rebuildDollarZeroFromFields();
@@ -1358,13 +1650,19 @@ public String jrtSetInputField(Object valueObj, long fieldNum, PositionTracker p
 	private void rebuildDollarZeroFromFields() {
 		StringBuilder newDollarZeroSb = new StringBuilder();
 		String ofsValue = this.ofs;
-		for (int i = 1; i < inputFields.size(); i++) {
+		for (int i = 1; i <= fieldCount; i++) {
 			if (i > 1) {
 				newDollarZeroSb.append(ofsValue);
 			}
-			newDollarZeroSb.append(inputFields.get(i));
+			Object value = inputFields[i];
+			if (value == null) {
+				int offset = (i - 1) << 1;
+				newDollarZeroSb.append(fieldRecord, fieldOffsets[offset], fieldOffsets[offset + 1]);
+			} else {
+				newDollarZeroSb.append(value);
+			}
 		}
-		inputFields.set(0, newDollarZeroSb.toString());
+		inputFields[0] = newDollarZeroSb.toString();
 	}
 
 	/**
@@ -1444,7 +1742,7 @@ public PrintStream jrtGetPrintStream(String fileNameParam, boolean append) {
 		PrintStream ps = outputFiles.get(fileNameParam);
 		if (ps == null) {
 			try {
-				ps = new PrintStream(new FileOutputStream(fileNameParam, append), true, StandardCharsets.UTF_8.name()); // true
+				ps = new PrintStream(new FileOutputStream(fileNameParam, append), true, charset.name()); // true
 				// =
 				// autoflush
 				outputFiles.put(fileNameParam, ps);
@@ -1469,9 +1767,7 @@ public boolean jrtConsumeFileInput(String fileNameParam) throws IOException {
 		PartitioningReader pr = fileReaders.get(fileNameParam);
 		if (pr == null) {
 			try {
-				pr = new PartitioningReader(
-						new InputStreamReader(new FileInputStream(fileNameParam), StandardCharsets.UTF_8),
-						this.rs);
+				pr = newPartitioningReader(new FileInputStream(fileNameParam), false);
 				fileReaders.put(fileNameParam, pr);
 				this.filename = fileNameParam;
 			} catch (IOException ioe) {
@@ -1524,9 +1820,7 @@ public boolean jrtConsumeCommandInput(String cmd) throws IOException {
 				p.getOutputStream().close();
 				DataPump.dump(cmd, p.getErrorStream(), System.err);
 				commandProcesses.put(cmd, p);
-				pr = new PartitioningReader(
-						new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8),
-						this.rs);
+				pr = newPartitioningReader(p.getInputStream(), false);
 				commandReaders.put(cmd, pr);
 				this.filename = "";
 			} catch (IOException ioe) {
@@ -1572,7 +1866,7 @@ public PrintStream jrtSpawnForOutput(String cmd) {
 			}
 			outputProcesses.put(cmd, p);
 			try {
-				ps = new PrintStream(p.getOutputStream(), true, StandardCharsets.UTF_8.name()); // true
+				ps = new PrintStream(p.getOutputStream(), true, charset.name()); // true
 				// = auto-flush
 				outputStreams.put(cmd, ps);
 			} catch (java.io.UnsupportedEncodingException e) {
@@ -1852,7 +2146,7 @@ public static Integer replaceFirst(String origValue, String repl, String ere, St
 		// Reset provided StringBuffer
 		sb.setLength(0);
 
-		Pattern p = Pattern.compile(ere);
+		Pattern p = RegexCache.getInstance().compile(ere);
 		Matcher m = p.matcher(origValue);
 		int cnt = 0;
 		if (m.find()) {
@@ -1879,7 +2173,7 @@ public static Integer replaceAll(String origValue, String repl, String ere, Stri
 		// remove special meaning for backslash and dollar signs and handle '&'
 		repl = prepareReplacement(repl);
 
-		Pattern p = Pattern.compile(ere);
+		Pattern p = RegexCache.getInstance().compile(ere);
 		Matcher m = p.matcher(origValue);
 		int cnt = 0;
 		while (m.find()) {
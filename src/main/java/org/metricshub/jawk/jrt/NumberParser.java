@@ -0,0 +1,358 @@
+package org.metricshub.jawk.jrt;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * Jawk
+ * ჻჻჻჻჻჻
+ * Copyright (C) 2006 - 2025 MetricsHub
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+/**
+ * Converts strings to numbers the way AWK does, i.e. like the C
+ * <code>strtod()</code> function: leading blanks are skipped, and the
+ * longest prefix forming a decimal number (optional sign, digits with an
+ * optional decimal point, optional exponent) is converted. Strings without
+ * such a prefix convert to 0.
+ * <p>
+ * Like in gawk, hexadecimal strings are not recognized (<code>"0x1A"</code>
+ * converts to 0), and infinity and NaN are only recognized with an explicit
+ * sign (<code>"+inf"</code>, <code>"-nan"</code>).
+ * <p>
+ * The conversion is done in a single pass over the characters, without
+ * allocating memory nor throwing exceptions, except for the rare numbers
+ * with more than 18 significant digits or a large exponent, which are
+ * delegated to {@link Double#parseDouble(String)}.
+ */
+public final class NumberParser {
+
+	/** Powers of ten that are exactly represented as doubles */
+	private static final double[] POWERS_OF_TEN = {
+			1e0,
+			1e1,
+			1e2,
+			1e3,
+			1e4,
+			1e5,
+			1e6,
+			1e7,
+			1e8,
+			1e9,
+			1e10,
+			1e11,
+			1e12,
+			1e13,
+			1e14,
+			1e15,
+			1e16,
+			1e17,
+			1e18,
+			1e19,
+			1e20,
+			1e21,
+			1e22 };
+
+	/** Largest integer such that all smaller integers are exact doubles */
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+	/** Maximum number of significant digits accumulated in a long */
+	private static final int MAX_DIGITS = 18;
+
+	private NumberParser() {}
+
+	/**
+	 * Converts the numeric prefix of the specified string, after leading
+	 * blanks, like <code>strtod()</code>.
+	 *
+	 * @param s the string to convert
+	 * @return the value of its numeric prefix, or 0 if it has none
+	 */
+	public static double parseDouble(CharSequence s) {
+		int length = s.length();
+		int start = skipBlanks(s, 0, length);
+		int end = decimalEnd(s, start, length);
+		if (end == -1) {
+			return parseSpecial(s, start, length);
+		}
+		return toDouble(s, start, end);
+	}
+
+	/**
+	 * Converts the numeric prefix of the specified string, after leading
+	 * blanks, and truncates it toward zero.
+	 *
+	 * @param s the string to convert
+	 * @return the integer value of its numeric prefix, or 0 if it has none
+	 */
+	public static long parseLong(CharSequence s) {
+		int length = s.length();
+		int start = skipBlanks(s, 0, length);
+		int end = decimalEnd(s, start, length);
+		if (end == -1) {
+			return (long) parseSpecial(s, start, length);
+		}
+		int i = start;
+		boolean negative = false;
+		char c = s.charAt(i);
+		if (c == '+' || c == '-') {
+			negative = c == '-';
+			i++;
+		}
+		if (end - i <= MAX_DIGITS) {
+			long value = 0;
+			for (; i < end; i++) {
+				c = s.charAt(i);
+				if (c < '0' || c > '9') {
+					// Fraction or exponent
+					return (long) toDouble(s, start, end);
+				}
+				value = value * 10 + (c - '0');
+			}
+			return negative ? -value : value;
+		}
+		return (long) toDouble(s, start, end);
+	}
+
+	/**
+	 * Tells whether the whole string is a decimal number, without blanks
+	 * around it, i.e. whether it would be accepted by
+	 * {@link java.math.BigDecimal#BigDecimal(String)}.
+	 *
+	 * @param s the string to check
+	 * @return <code>true</code> if the string is a decimal number
+	 */
+	public static boolean isDecimal(CharSequence s) {
+		int length = s.length();
+		return length > 0 && decimalEnd(s, 0, length) == length;
+	}
+
+	/**
+	 * Tells whether the string looks like a number, as POSIX defines it for
+	 * input values: a decimal number, optionally with blanks around it.
+	 *
+	 * @param s the string to check
+	 * @return <code>true</code> if the string is a decimal number, possibly
+	 *         preceded and followed by blanks
+	 */
+	public static boolean looksNumeric(CharSequence s) {
+		int length = s.length();
+		int start = skipBlanks(s, 0, length);
+		int end = length;
+		while (end > start && isBlank(s.charAt(end - 1))) {
+			end--;
+		}
+		return end > start && decimalEnd(s, start, end) == end;
+	}
+
+	/**
+	 * Tells whether the whole string is an integer that
+	 * {@link Long#parseLong(String)} would accept (optional sign, followed
+	 * by digits, within the range of a long).
+	 *
+	 * @param s the string to check
+	 * @return <code>true</code> if the string can be parsed as a long
+	 */
+	public static boolean isLong(CharSequence s) {
+		int length = s.length();
+		int i = 0;
+		if (length > 0 && (s.charAt(0) == '+' || s.charAt(0) == '-')) {
+			i++;
+		}
+		if (i == length) {
+			return false;
+		}
+		int digits = length - i;
+		for (; i < length; i++) {
+			char c = s.charAt(i);
+			if (c < '0' || c > '9') {
+				return false;
+			}
+		}
+		if (digits <= MAX_DIGITS) {
+			return true;
+		}
+		// Rare: let Long.parseLong() check the range
+		try {
+			Long.parseLong(s.toString());
+			return true;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	private static int skipBlanks(CharSequence s, int from, int length) {
+		int i = from;
+		while (i < length && isBlank(s.charAt(i))) {
+			i++;
+		}
+		return i;
+	}
+
+	private static boolean isBlank(char c) {
+		return c == ' ' || (c >= '\t' && c <= '\r');
+	}
+
+	/**
+	 * Finds the end of the decimal number starting at the specified index:
+	 * optional sign, digits with an optional decimal point (at least one
+	 * digit), and an optional exponent (only when followed by digits).
+	 *
+	 * @return the index after the number, or -1 if there is no number
+	 */
+	private static int decimalEnd(CharSequence s, int from, int length) {
+		int i = from;
+		if (i < length && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+			i++;
+		}
+		int digits = 0;
+		while (i < length && isDigit(s.charAt(i))) {
+			i++;
+			digits++;
+		}
+		if (i < length && s.charAt(i) == '.') {
+			i++;
+			while (i < length && isDigit(s.charAt(i))) {
+				i++;
+				digits++;
+			}
+		}
+		if (digits == 0) {
+			return -1;
+		}
+		if (i < length && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+			int j = i + 1;
+			if (j < length && (s.charAt(j) == '+' || s.charAt(j) == '-')) {
+				j++;
+			}
+			if (j < length && isDigit(s.charAt(j))) {
+				i = j + 1;
+				while (i < length && isDigit(s.charAt(i))) {
+					i++;
+				}
+			}
+		}
+		return i;
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	/**
+	 * Converts the decimal number between the specified indexes, as found
+	 * by {@link #decimalEnd(CharSequence, int, int)}.
+	 */
+	private static double toDouble(CharSequence s, int start, int end) {
+		int i = start;
+		boolean negative = false;
+		char c = s.charAt(i);
+		if (c == '+' || c == '-') {
+			negative = c == '-';
+			i++;
+		}
+
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean fraction = false;
+		for (; i < end; i++) {
+			c = s.charAt(i);
+			if (c == '.') {
+				fraction = true;
+			} else if (isDigit(c)) {
+				if (mantissa != 0 || c != '0') {
+					if (++digits > MAX_DIGITS) {
+						return slowParse(s, start, end);
+					}
+					mantissa = mantissa * 10 + (c - '0');
+				}
+				if (fraction) {
+					exponent--;
+				}
+			} else {
+				// Exponent
+				break;
+			}
+		}
+		if (i < end) {
+			i++;
+			boolean negativeExponent = false;
+			c = s.charAt(i);
+			if (c == '+' || c == '-') {
+				negativeExponent = c == '-';
+				i++;
+			}
+			if (end - i > 4) {
+				return slowParse(s, start, end);
+			}
+			int value = 0;
+			for (; i < end; i++) {
+				value = value * 10 + (s.charAt(i) - '0');
+			}
+			exponent += negativeExponent ? -value : value;
+		}
+
+		double result;
+		if (mantissa == 0) {
+			result = 0;
+		} else if (mantissa > MAX_EXACT_MANTISSA || exponent > 22 || exponent < -22) {
+			return slowParse(s, start, end);
+		} else if (exponent >= 0) {
+			// Both operands are exact, so is the correctly rounded product
+			result = mantissa * POWERS_OF_TEN[exponent];
+		} else {
+			result = mantissa / POWERS_OF_TEN[-exponent];
+		}
+		return negative ? -result : result;
+	}
+
+	private static double slowParse(CharSequence s, int start, int end) {
+		// The syntax has been checked: no NumberFormatException
+		return Double.parseDouble(s.subSequence(start, end).toString());
+	}
+
+	/**
+	 * Recognizes <code>+inf</code>, <code>-inf</code>, <code>+nan</code>
+	 * and <code>-nan</code> (case insensitive, and also
+	 * <code>infinity</code>).
+	 */
+	private static double parseSpecial(CharSequence s, int start, int length) {
+		if (length - start < 4) {
+			return 0;
+		}
+		char sign = s.charAt(start);
+		if (sign != '+' && sign != '-') {
+			return 0;
+		}
+		if (regionMatches(s, start + 1, "inf")) {
+			return sign == '-' ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+		}
+		if (regionMatches(s, start + 1, "nan")) {
+			return Double.NaN;
+		}
+		return 0;
+	}
+
+	private static boolean regionMatches(CharSequence s, int from, String lowerCase) {
+		for (int k = 0; k < lowerCase.length(); k++) {
+			if (Character.toLowerCase(s.charAt(from + k)) != lowerCase.charAt(k)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -24,13 +24,45 @@
 
 import java.io.FilterReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * A reader which consumes one record at a time from
  * an underlying input reader.
+ * <p>
+ * The input is read into a <code>char[]</code> buffer, which is compacted
+ * (the remaining part of the last record moved to its beginning) only when
+ * more input must be read, so that consuming a record does not shift the
+ * rest of the buffer. Records separated by a literal string (like the
+ * default newline) are found with a direct scan of the buffer, the
+ * characters already scanned not being scanned again when more input is
+ * read. Only record separators that actually are regular expressions are
+ * matched with a {@link Matcher} (against the buffer itself, without
+ * copying it).
+ * <p>
+ * When created with a {@link ReadableByteChannel}, the reader works on the
+ * UTF-8 bytes of the input as long as the record separator is a literal
+ * ASCII string (which cannot be part of a multibyte UTF-8 sequence), or on
+ * the ISO-8859-1 bytes of the input with any literal record separator: the
+ * input is read by large chunks and the record separators are found in the
+ * bytes, each record being decoded only once, when it is consumed. The
+ * remaining bytes are decoded as characters if the record separator
+ * changes to a regular expression, or in CSV mode.
+ * <p>
+ * When the record separator is empty, records are paragraphs, read one at a
+ * time: they are separated by blank lines, and the newlines at the start and
+ * end of the input are ignored.
  * <h2>Greedy Regex Matching</h2>
  * The current implementation matches setRecordSeparator against
  * contents of an input buffer (the underlying input
@@ -47,9 +79,11 @@
  * it can match ab or abc, and the reader may
  * accept either one, depending on input buffer boundaries.
  * The implemented way to employ greedy regex matching
- * is to consume subsequent input until the match
- * does not occur at the end of the input buffer,
- * or no input is available. However, this behavior
+ * is to read subsequent input (by chunks) and match again
+ * as long as the matcher hits the end of the input buffer
+ * ({@link Matcher#hitEnd()}), i.e. as long as more input
+ * could change the match, until no input is available.
+ * However, this behavior
  * is not desirable in all cases (i.e., interactive
  * input against some sort of ambiguous newline
  * regex). To enable greedy setRecordSeparator regex consumption,
@@ -66,8 +100,14 @@ public class PartitioningReader extends FilterReader {
 		FORCE_GREEDY_RS = grs.equals("1") || grs.equalsIgnoreCase("yes") || grs.equalsIgnoreCase("true");
 	}
 
+	/** Characters with a special meaning in regular expressions */
+	private static final String REGEX_METACHARACTERS = "\\^$.|?*+()[]{}";
+
+	/** Record separator when it is a regular expression, <code>null</code> otherwise */
 	private Pattern rs;
 	private Matcher matcher;
+	/** Record separator when it is a literal string, <code>null</code> otherwise */
+	private String literalSeparator;
 	private boolean fromFileNameList;
 
 	/**
@@ -92,11 +132,69 @@ public PartitioningReader(Reader reader, String recordSeparator) {
 	public PartitioningReader(Reader r, String recordSeparator, boolean fromFileNameList) {
 		super(r);
 		this.fromFileNameList = fromFileNameList;
+		this.byteInput = null;
+		setRecordSeparator(recordSeparator);
+	}
+
+	/**
+	 * Construct the partitioning reader of UTF-8 input, which finds the
+	 * records in the bytes of the input when possible.
+	 *
+	 * @param channel The channel of the input data.
+	 * @param recordSeparator The record separator, as a regular expression.
+	 * @param fromFileNameList Whether the underlying input
+	 *        is a file from the filename list (the parameters passed
+	 *        into AWK after the script argument).
+	 */
+	public PartitioningReader(ReadableByteChannel channel, String recordSeparator, boolean fromFileNameList) {
+		this(channel, recordSeparator, fromFileNameList, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Construct the partitioning reader of UTF-8 or ISO-8859-1 input, which
+	 * finds the records in the bytes of the input when possible.
+	 *
+	 * @param channel The channel of the input data.
+	 * @param recordSeparator The record separator, as a regular expression.
+	 * @param fromFileNameList Whether the underlying input
+	 *        is a file from the filename list (the parameters passed
+	 *        into AWK after the script argument).
+	 * @param charset The charset of the input: UTF-8, or ISO-8859-1 to read
+	 *        each byte as a character
+	 */
+	public PartitioningReader(
+			ReadableByteChannel channel,
+			String recordSeparator,
+			boolean fromFileNameList,
+			Charset charset) {
+		this(new ByteInput(channel, charset), recordSeparator, fromFileNameList);
+	}
+
+	private PartitioningReader(ByteInput byteInput, String recordSeparator, boolean fromFileNameList) {
+		// the characters are decoded from the bytes not consumed as records yet
+		super(new InputStreamReader(byteInput, byteInput.charset));
+		this.fromFileNameList = fromFileNameList;
+		this.byteInput = byteInput;
+		this.byteMode = true;
 		setRecordSeparator(recordSeparator);
 	}
 
+	/** Bytes of the input, when created with a channel */
+	private final ByteInput byteInput;
+
+	/**
+	 * Whether the records are still read from {@link #byteInput}, and not
+	 * from the characters decoded from it
+	 */
+	private boolean byteMode = false;
+
+	/** {@link #literalSeparator} in bytes, when it is an ASCII string */
+	private byte[] byteSeparator;
+
 	private String recordSeparator = null;
-	private boolean consumeAll = false;
+
+	/** Whether records are paragraphs (when the record separator is empty) */
+	private boolean paragraph = false;
 
 	/**
 	 * Assign a new record separator for this partitioning reader.
@@ -105,21 +203,78 @@ public PartitioningReader(Reader r, String recordSeparator, boolean fromFileName
 	 */
 	public final void setRecordSeparator(String recordSeparator) {
 		if (!recordSeparator.equals(this.recordSeparator)) {
+			paragraph = false;
+			rs = null;
+			matcher = null;
+			literalSeparator = null;
+			byteSeparator = null;
 			if ("".equals(recordSeparator)) {
-				consumeAll = true;
-				rs = Pattern.compile("\\z", Pattern.DOTALL | Pattern.MULTILINE);
-			} else if ("\n".equals(recordSeparator) || "\r\n".equals(recordSeparator) || "\r".equals(recordSeparator)) {
-				// For performance reason, handle the default RS in a specific way here
-				consumeAll = false;
-				rs = Pattern.compile(recordSeparator, Pattern.LITERAL);
+				paragraph = true;
+			} else if (isLiteral(recordSeparator)) {
+				// For performance reason, scan for literal separators (like the
+				// default RS) instead of matching them
+				literalSeparator = recordSeparator;
+				if (byteInput != null && isSingleByte(recordSeparator, byteInput.charset)) {
+					byteSeparator = recordSeparator.getBytes(byteInput.charset);
+				}
 			} else {
-				consumeAll = false;
 				rs = Pattern.compile(recordSeparator, Pattern.DOTALL | Pattern.MULTILINE);
 			}
 			this.recordSeparator = recordSeparator;
+			scanned = position;
 		}
 	}
 
+	/**
+	 * @param regex a regular expression
+	 * @return whether the regular expression only matches itself
+	 */
+	private static boolean isLiteral(String regex) {
+		for (int i = 0; i < regex.length(); i++) {
+			if (REGEX_METACHARACTERS.indexOf(regex.charAt(i)) >= 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param s a string
+	 * @param charset UTF-8 or ISO-8859-1
+	 * @return whether each character of the string is a single byte in the
+	 *         charset, which cannot be part of the encoding of another
+	 *         character: ASCII characters in UTF-8, all the ISO-8859-1
+	 *         characters
+	 */
+	private static boolean isSingleByte(String s, Charset charset) {
+		char max = StandardCharsets.ISO_8859_1.equals(charset) ? (char) 0xff : (char) 0x7f;
+		for (int i = 0; i < s.length(); i++) {
+			if (s.charAt(i) > max) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Whether records are read as CSV (see {@link #setCsv(boolean)})
+	 */
+	private boolean csv = false;
+
+	/**
+	 * Sets whether records are read as CSV, as specified by RFC 4180: a
+	 * record ends with a newline (optionally preceded by a carriage return,
+	 * which is removed) that is not within a quoted field. The record
+	 * separator is then ignored.
+	 *
+	 * @param csv whether records are read as CSV
+	 */
+	public void setCsv(boolean csv) {
+		this.csv = csv;
+		scanned = position;
+		csvQuoted = false;
+	}
+
 	/**
 	 * <p>
 	 * fromFilenameList.
@@ -132,20 +287,83 @@ public boolean fromFilenameList() {
 		return fromFileNameList;
 	}
 
-	private StringBuilder remaining = new StringBuilder();
-	private char[] readBuffer = new char[4096];
+	/** Input read so far */
+	private char[] buffer = new char[8192];
+
+	/** Offset in {@link #buffer} of the input not consumed yet */
+	private int position = 0;
+
+	/** Offset in {@link #buffer} of the end of the input read so far */
+	private int limit = 0;
+
+	/**
+	 * Offset in {@link #buffer} up to which the input has been scanned for a
+	 * literal record separator or the end of a CSV record
+	 */
+	private int scanned = 0;
+
+	private boolean eof = false;
 
-	/** {@inheritDoc} */
-	@Override
-	public int read(char[] b, int start, int len) throws IOException {
-		int readChars = super.read(b, start, len);
-		if (readChars >= 0) {
-			remaining.append(b, start, readChars);
+	/**
+	 * Reads more input into the buffer, after having compacted it (or grown
+	 * it if it is full).
+	 *
+	 * @return <code>false</code> if no more input is available
+	 * @throws IOException upon an IO error
+	 */
+	private boolean fill() throws IOException {
+		if (eof) {
+			return false;
+		}
+		if (position > 0) {
+			System.arraycopy(buffer, position, buffer, 0, limit - position);
+			limit -= position;
+			scanned -= position;
+			position = 0;
+		}
+		if (limit == buffer.length) {
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+		int len;
+		long backoff = 0;
+		while ((len = in.read(buffer, limit, buffer.length - limit)) == 0) {
+			// nothing available yet
+			backoff = IdleBackoff.pauseReading(backoff);
 		}
-		return readChars;
+		if (len < 0) {
+			eof = true;
+			return false;
+		}
+		limit += len;
+		return true;
 	}
 
-	private boolean eof = false;
+	/**
+	 * Consumes the input up to the specified offset as a record.
+	 *
+	 * @param end offset of the end of the record
+	 * @param next offset of the input following its record separator
+	 * @return the record
+	 */
+	private String record(int end, int next) {
+		String retVal = new String(buffer, position, end - position);
+		position = next;
+		scanned = next;
+		return retVal;
+	}
+
+	/**
+	 * Consumes the rest of the input as a record, once all the input has
+	 * been read.
+	 *
+	 * @return the record, null if no input is left
+	 */
+	private String lastRecord() {
+		if (position == limit) {
+			return null;
+		}
+		return record(limit, limit);
+	}
 
 	/**
 	 * Consume one record from the reader.
@@ -156,49 +374,367 @@ public int read(char[] b, int start, int len) throws IOException {
 	 * @throws java.io.IOException upon an IO error
 	 */
 	public String readRecord() throws IOException {
-		if (matcher == null) {
-			matcher = rs.matcher(remaining);
+		if (byteMode) {
+			if (byteSeparator != null && !csv) {
+				return byteInput.readRecord(byteSeparator);
+			}
+			// from now on, read the characters decoded from the bytes left
+			byteMode = false;
+		}
+		if (csv) {
+			return readCsvRecord();
+		} else if (paragraph) {
+			return readParagraphRecord();
+		} else if (literalSeparator != null) {
+			return readLiteralRecord();
 		} else {
-			matcher.reset(remaining);
+			return readRegexRecord();
+		}
+	}
+
+	/**
+	 * Consume one record separated by {@link #literalSeparator}.
+	 *
+	 * @return the next record, null if no more records exist
+	 * @throws IOException upon an IO error
+	 */
+	private String readLiteralRecord() throws IOException {
+		String separator = literalSeparator;
+		int separatorLength = separator.length();
+		char first = separator.charAt(0);
+		while (true) {
+			int i = indexOf(buffer, first, scanned, limit);
+			while (i >= 0 && i + separatorLength <= limit) {
+				if (separatorLength == 1 || matchesSeparator(buffer, i + 1, separator)) {
+					return record(i, i + separatorLength);
+				}
+				i = indexOf(buffer, first, i + 1, limit);
+			}
+			// a separator may start within the last characters
+			scanned = i >= 0 ? i : limit;
+			if (!fill()) {
+				return lastRecord();
+			}
 		}
+	}
 
-		while (consumeAll || eof || remaining.length() == 0 || !matcher.find()) {
-			int len = read(readBuffer, 0, readBuffer.length);
-			if (eof || (len < 0)) {
-				eof = true;
-				String retVal = remaining.toString();
-				remaining.setLength(0);
-				if (retVal.length() == 0) {
+	private static int indexOf(char[] b, char c, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (b[i] == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean matchesSeparator(char[] b, int offset, String separator) {
+		for (int j = 1; j < separator.length(); j++) {
+			if (b[offset++] != separator.charAt(j)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Consume one paragraph: the lines up to the next blank line, or the end
+	 * of the input. The newlines before a paragraph are skipped (the extra
+	 * blank lines that separate it from the previous one, or the newlines at
+	 * the start of the input), and the newline at the end of the input is
+	 * removed.
+	 * <p>
+	 * Like {@link #readLiteralRecord()}, the input is scanned in a single
+	 * pass, and only the current paragraph is kept in the buffer.
+	 *
+	 * @return the next record, null if no more records exist
+	 * @throws IOException upon an IO error
+	 */
+	private String readParagraphRecord() throws IOException {
+		do {
+			while (position < limit && buffer[position] == '\n') {
+				position++;
+			}
+		} while (position == limit && fill());
+		if (scanned < position) {
+			scanned = position;
+		}
+		while (true) {
+			int i = indexOf(buffer, '\n', scanned, limit);
+			while (i >= 0 && i + 1 < limit) {
+				if (buffer[i + 1] == '\n') {
+					return record(i, i + 2);
+				}
+				i = indexOf(buffer, '\n', i + 2, limit);
+			}
+			// a blank line may start with the last character
+			scanned = i >= 0 ? i : limit;
+			if (!fill()) {
+				if (position == limit) {
 					return null;
-				} else {
-					return retVal;
 				}
-			} else if (len == 0) {
-				throw new RuntimeException("len == 0 ?!");
-			}
-			matcher = rs.matcher(remaining);
-		}
-
-		// if force greedy regex consumption:
-		if (FORCE_GREEDY_RS) {
-			// attempt to move last match away from the end of the input
-			// so that buffer bounderies landing in the middle of
-			// regexp matches that *could* match the regexp if more chars
-			// were read
-			// (one char at a time!)
-			while (matcher.find() && matcher.end() == remaining.length() && matcher.requireEnd()) {
-				if (read(readBuffer, 0, 1) >= 0) {
-					matcher = rs.matcher(remaining);
+				// only one newline may be left at the end of the input
+				int end = buffer[limit - 1] == '\n' ? limit - 1 : limit;
+				return record(end, limit);
+			}
+		}
+	}
+
+	/**
+	 * Consume one record separated by the matches of {@link #rs}.
+	 *
+	 * @return the next record, null if no more records exist
+	 * @throws IOException upon an IO error
+	 */
+	private String readRegexRecord() throws IOException {
+		while (true) {
+			if (position < limit) {
+				CharBuffer input = CharBuffer.wrap(buffer, position, limit - position);
+				if (matcher == null) {
+					matcher = rs.matcher(input);
 				} else {
-					break;
+					matcher.reset(input);
 				}
+				if (matcher.find()) {
+					// With greedy consumption, a match that hit the end of the
+					// input read so far (like \n+ ending with the buffer) might
+					// be different with more input: match again once it is read.
+					// fillMore() keeps the offsets of the matcher valid when no
+					// more input is available.
+					if (!FORCE_GREEDY_RS || !matcher.hitEnd() || !fillMore()) {
+						break;
+					}
+					continue;
+				}
+			}
+			if (!fillMore()) {
+				return lastRecord();
 			}
 		}
 
 		// we have a record separator!
+		return record(position + matcher.start(), position + matcher.end());
+	}
 
-		String retVal = remaining.substring(0, matcher.start());
-		remaining.delete(0, matcher.end());
-		return retVal;
+	/**
+	 * Reads more input for the record separator to be matched again against
+	 * the input not consumed yet: at least as much input as is already
+	 * available, as long as it can be read without blocking, so that matching
+	 * a long record again after each read does not take quadratic time.
+	 *
+	 * @return <code>false</code> if no more input is available
+	 * @throws IOException upon an IO error
+	 */
+	private boolean fillMore() throws IOException {
+		int available = limit - position;
+		if (!fill()) {
+			return false;
+		}
+		while (limit - position < 2 * available && in.ready() && fill()) {
+			// read on
+		}
+		return true;
+	}
+
+	/** Whether the scanned characters of the current CSV record end within quotes */
+	private boolean csvQuoted = false;
+
+	/**
+	 * Consume one CSV record from the reader, in a single pass over the
+	 * input: the characters scanned before more input has to be read are
+	 * not scanned again.
+	 *
+	 * @return the next record, null if no more records exist
+	 * @throws IOException upon an IO error
+	 */
+	private String readCsvRecord() throws IOException {
+		while (true) {
+			char[] b = buffer;
+			for (int i = scanned; i < limit; i++) {
+				char c = b[i];
+				if (c == '"') {
+					// quotes escaped by doubling them toggle twice
+					csvQuoted = !csvQuoted;
+				} else if (c == '\n' && !csvQuoted) {
+					int end = i > position && b[i - 1] == '\r' ? i - 1 : i;
+					return record(end, i + 1);
+				}
+			}
+			scanned = limit;
+			if (!fill()) {
+				csvQuoted = false;
+				return lastRecord();
+			}
+		}
+	}
+
+	/**
+	 * Input read from a channel into a <code>byte[]</code> buffer
+	 * (compacted like the <code>char[]</code> buffer of the reader), in
+	 * which records separated by ASCII strings are found without decoding
+	 * the input. As an {@link InputStream}, it provides the bytes not
+	 * consumed as records yet.
+	 */
+	private static final class ByteInput extends InputStream {
+
+		private final ReadableByteChannel channel;
+
+		private final Charset charset;
+
+		/** Input read so far */
+		private byte[] buffer = new byte[65536];
+
+		/** Offset in {@link #buffer} of the input not consumed yet */
+		private int position = 0;
+
+		/** Offset in {@link #buffer} of the end of the input read so far */
+		private int limit = 0;
+
+		/** Offset in {@link #buffer} up to which the input has been scanned */
+		private int scanned = 0;
+
+		private boolean eof = false;
+
+		private ByteInput(ReadableByteChannel channel, Charset charset) {
+			this.channel = channel;
+			this.charset = charset;
+		}
+
+		/**
+		 * Reads more input into the buffer, after having compacted it (or
+		 * grown it if it is full).
+		 *
+		 * @return <code>false</code> if no more input is available
+		 * @throws IOException upon an IO error
+		 */
+		private boolean fill() throws IOException {
+			if (eof) {
+				return false;
+			}
+			if (position > 0) {
+				System.arraycopy(buffer, position, buffer, 0, limit - position);
+				limit -= position;
+				scanned -= position;
+				position = 0;
+			}
+			if (limit == buffer.length) {
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			}
+			int len;
+			long backoff = 0;
+			while ((len = channel.read(ByteBuffer.wrap(buffer, limit, buffer.length - limit))) == 0) {
+				// nothing available yet
+				backoff = IdleBackoff.pauseReading(backoff);
+			}
+			if (len < 0) {
+				eof = true;
+				return false;
+			}
+			limit += len;
+			return true;
+		}
+
+		/**
+		 * Consumes the input up to the specified offset as a record.
+		 *
+		 * @param end offset of the end of the record
+		 * @param next offset of the input following its record separator
+		 * @return the record, decoded
+		 */
+		private String record(int end, int next) {
+			String retVal = new String(buffer, position, end - position, charset);
+			position = next;
+			scanned = next;
+			return retVal;
+		}
+
+		/**
+		 * Consume one record separated by the specified ASCII string.
+		 *
+		 * @param separator the bytes of the record separator
+		 * @return the next record, null if no more records exist
+		 * @throws IOException upon an IO error
+		 */
+		private String readRecord(byte[] separator) throws IOException {
+			int separatorLength = separator.length;
+			byte first = separator[0];
+			while (true) {
+				byte[] b = buffer;
+				int i = scanned;
+				int end = limit;
+				while (i < end && b[i] != first) {
+					i++;
+				}
+				while (i < end && i + separatorLength <= end) {
+					if (matchesSeparator(b, i, separator)) {
+						return record(i, i + separatorLength);
+					}
+					i++;
+					while (i < end && b[i] != first) {
+						i++;
+					}
+				}
+				// a separator may start within the last bytes
+				scanned = i;
+				if (!fill()) {
+					if (position == limit) {
+						return null;
+					}
+					return record(limit, limit);
+				}
+			}
+		}
+
+		private static boolean matchesSeparator(byte[] b, int offset, byte[] separator) {
+			for (int j = 1; j < separator.length; j++) {
+				if (b[offset + j] != separator[j]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (position == limit && !fill()) {
+				return -1;
+			}
+			scanned = position + 1;
+			return buffer[position++] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (position == limit && !fill()) {
+				return -1;
+			}
+			int n = Math.min(len, limit - position);
+			System.arraycopy(buffer, position, b, off, n);
+			position += n;
+			scanned = position;
+			return n;
+		}
+
+		/**
+		 * @return the number of bytes buffered, or else left in the file when
+		 *         reading a {@link FileChannel}, so that the reader knows how
+		 *         much input can be read without blocking
+		 */
+		@Override
+		public int available() throws IOException {
+			long n = limit - position;
+			if (n == 0 && channel instanceof FileChannel && channel.isOpen()) {
+				FileChannel file = (FileChannel) channel;
+				n = Math.max(0, file.size() - file.position());
+			}
+			return (int) Math.min(n, Integer.MAX_VALUE);
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
 	}
 }
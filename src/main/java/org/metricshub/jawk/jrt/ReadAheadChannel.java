@@ -0,0 +1,227 @@
+package org.metricshub.jawk.jrt;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * Jawk
+ * ჻჻჻჻჻჻
+ * Copyright (C) 2006 - 2025 MetricsHub
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Channel reading its source ahead on a background thread.
+ * <p>
+ * A daemon thread reads the source into a bounded ring of chunks, while the
+ * thread reading this channel (the interpreter, through a
+ * {@link PartitioningReader}) consumes the chunks already read. Waiting for
+ * the input (slow disks, pipes, decompressing commands) then overlaps with
+ * the execution of the script, and the thread reading this channel only
+ * blocks when the next chunk is not available yet.
+ * <p>
+ * Each chunk is handed over as soon as it is read, so that interactive
+ * input is still processed line by line.
+ */
+public final class ReadAheadChannel implements ReadableByteChannel {
+
+	/**
+	 * Size of a chunk of the ring.
+	 */
+	static final int CHUNK_SIZE = 64 * 1024;
+
+	/**
+	 * Number of chunks of the ring, i.e. how far the source is read ahead.
+	 */
+	static final int CHUNK_COUNT = 4;
+
+	/**
+	 * Marks the end of the source (or a failure to read it).
+	 */
+	private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+	private final ReadableByteChannel source;
+
+	/**
+	 * Chunks read from the source, in order, then {@link #END}.
+	 */
+	private final BlockingQueue<ByteBuffer> filled = new ArrayBlockingQueue<ByteBuffer>(CHUNK_COUNT + 1);
+
+	/**
+	 * Chunks consumed, to be filled again by the background thread.
+	 */
+	private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<ByteBuffer>(CHUNK_COUNT);
+
+	private final Thread reader;
+
+	/**
+	 * Failure to read the source, rethrown once the bytes read before it are
+	 * consumed.
+	 */
+	private volatile Throwable failure;
+
+	private ByteBuffer current;
+
+	private boolean ended;
+
+	private volatile boolean open = true;
+
+	/**
+	 * Starts reading the specified source ahead.
+	 *
+	 * @param source the channel to read on a background thread
+	 */
+	public ReadAheadChannel(ReadableByteChannel source) {
+		this.source = source;
+		for (int i = 0; i < CHUNK_COUNT; i++) {
+			free.add(ByteBuffer.allocate(CHUNK_SIZE));
+		}
+		reader = new Thread(this::readAhead, "jawk-read-ahead");
+		reader.setDaemon(true);
+		reader.start();
+	}
+
+	/**
+	 * Body of the background thread: fills the free chunks with the source
+	 * until its end.
+	 */
+	private void readAhead() {
+		try {
+			while (true) {
+				ByteBuffer chunk = free.take();
+				chunk.clear();
+				int len;
+				long backoff = 0;
+				while ((len = source.read(chunk)) == 0) {
+					// nothing available yet
+					backoff = IdleBackoff.pause(backoff);
+				}
+				if (len < 0) {
+					break;
+				}
+				chunk.flip();
+				filled.add(chunk);
+			}
+		} catch (InterruptedException e) {
+			// closed
+		} catch (IOException | RuntimeException | Error e) {
+			if (open) {
+				failure = e;
+			}
+		} finally {
+			// whatever happened, the reader of this channel must not wait
+			// forever (the ring never holds more than CHUNK_COUNT chunks:
+			// END always fits)
+			filled.add(END);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int read(ByteBuffer dst) throws IOException {
+		if (!open) {
+			throw new ClosedChannelException();
+		}
+		if (ended) {
+			return endOfInput();
+		}
+		int total = 0;
+		while (dst.hasRemaining()) {
+			if (current == null || !current.hasRemaining()) {
+				if (current != null) {
+					free.add(current);
+				}
+				// block for the next chunk only if nothing was read yet
+				current = total == 0 ? takeChunk() : filled.poll();
+				if (current == null) {
+					break;
+				}
+				if (current == END) {
+					current = null;
+					ended = true;
+					break;
+				}
+			}
+			int len = Math.min(dst.remaining(), current.remaining());
+			if (len == current.remaining()) {
+				dst.put(current);
+			} else {
+				ByteBuffer part = current.duplicate();
+				part.limit(part.position() + len);
+				dst.put(part);
+				current.position(current.position() + len);
+			}
+			total += len;
+		}
+		return total == 0 && ended ? endOfInput() : total;
+	}
+
+	/**
+	 * @return -1, once the bytes read before the end of the source are
+	 *         consumed
+	 * @throws IOException the failure to read the source, if any
+	 */
+	private int endOfInput() throws IOException {
+		Throwable e = failure;
+		if (e != null) {
+			failure = null;
+			if (e instanceof RuntimeException) {
+				throw (RuntimeException) e;
+			}
+			if (e instanceof Error) {
+				throw (Error) e;
+			}
+			throw (IOException) e;
+		}
+		return -1;
+	}
+
+	private ByteBuffer takeChunk() throws IOException {
+		try {
+			return filled.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the input");
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean isOpen() {
+		return open;
+	}
+
+	/**
+	 * Stops reading ahead and closes the source.
+	 *
+	 * @throws IOException if the source cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		if (open) {
+			open = false;
+			reader.interrupt();
+			source.close();
+		}
+	}
+}
@@ -0,0 +1,225 @@
+package org.metricshub.jawk.jrt;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * Jawk
+ * ჻჻჻჻჻჻
+ * Copyright (C) 2006 - 2025 MetricsHub
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded cache of compiled regular expressions, keyed by the expression
+ * text and the {@link Pattern} flags.
+ * <p>
+ * Scripts commonly use the same dynamic regular expression for every input
+ * record (e.g. <code>$0 ~ pat</code> or <code>gsub(pat, s)</code>), and
+ * compiling it each time is much more expensive than the match itself.
+ * The cache is split into independently locked stripes, each of which evicts
+ * its least recently used entry when full, so that concurrent AVM instances
+ * rarely contend on the same lock.
+ * <p>
+ * The instance returned by {@link #getInstance()} is shared by the whole JVM.
+ * Its size can be set with the <code>jawk.regexCacheSize</code> system
+ * property (0 disables caching).
+ */
+public final class RegexCache {
+
+	private static final int DEFAULT_MAXIMUM_SIZE = 256;
+
+	private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+	private static final RegexCache INSTANCE = new RegexCache(
+			Integer.getInteger("jawk.regexCacheSize", DEFAULT_MAXIMUM_SIZE).intValue(),
+			DEFAULT_CONCURRENCY_LEVEL);
+
+	private final Stripe[] stripes;
+
+	private final AtomicLong hitCount = new AtomicLong();
+
+	private final AtomicLong missCount = new AtomicLong();
+
+	/**
+	 * Creates a new cache.
+	 *
+	 * @param maximumSize maximum number of patterns kept in the cache
+	 * @param concurrencyLevel number of independently locked stripes; it is
+	 *        rounded down to a power of two and never exceeds
+	 *        <code>maximumSize</code>
+	 */
+	public RegexCache(int maximumSize, int concurrencyLevel) {
+		if (maximumSize < 0) {
+			throw new IllegalArgumentException("maximumSize must not be negative: " + maximumSize);
+		}
+		int stripeCount = Integer.highestOneBit(Math.max(1, Math.min(concurrencyLevel, maximumSize)));
+		stripes = new Stripe[stripeCount];
+		int remaining = maximumSize;
+		for (int i = 0; i < stripeCount; i++) {
+			int capacity = remaining / (stripeCount - i);
+			stripes[i] = new Stripe(capacity);
+			remaining -= capacity;
+		}
+	}
+
+	/**
+	 * @return the cache shared by all AVM instances of this JVM
+	 */
+	public static RegexCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns the compiled form of the specified regular expression.
+	 *
+	 * @param regex the regular expression
+	 * @return the compiled pattern
+	 * @throws java.util.regex.PatternSyntaxException if the expression is invalid
+	 */
+	public Pattern compile(String regex) {
+		return compile(regex, 0);
+	}
+
+	/**
+	 * Returns the compiled form of the specified regular expression with the
+	 * specified flags.
+	 *
+	 * @param regex the regular expression
+	 * @param flags the {@link Pattern} flags
+	 * @return the compiled pattern
+	 * @throws java.util.regex.PatternSyntaxException if the expression is invalid
+	 */
+	public Pattern compile(String regex, int flags) {
+		Key key = new Key(regex, flags);
+		Stripe stripe = stripes[spread(key.hashCode()) & (stripes.length - 1)];
+		Pattern pattern;
+		synchronized (stripe) {
+			pattern = stripe.get(key);
+		}
+		if (pattern != null) {
+			hitCount.incrementAndGet();
+			return pattern;
+		}
+		missCount.incrementAndGet();
+		// Compile outside of the lock: an invalid expression must not be cached
+		// and other threads should not wait for the compilation
+		pattern = Pattern.compile(regex, flags);
+		if (stripe.capacity > 0) {
+			synchronized (stripe) {
+				stripe.put(key, pattern);
+			}
+		}
+		return pattern;
+	}
+
+	/**
+	 * @return the number of lookups that found an already compiled pattern
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * @return the number of lookups that required compiling the pattern
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * @return the number of patterns currently held in the cache
+	 */
+	public int size() {
+		int size = 0;
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				size += stripe.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Removes all the patterns from the cache and resets the counters.
+	 */
+	public void clear() {
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				stripe.clear();
+			}
+		}
+		hitCount.set(0);
+		missCount.set(0);
+	}
+
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Access-ordered map evicting its least recently used entry when full.
+	 */
+	private static final class Stripe extends LinkedHashMap<Key, Pattern> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int capacity;
+
+		private Stripe(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Pattern> eldest) {
+			return size() > capacity;
+		}
+	}
+
+	private static final class Key {
+
+		private final String regex;
+
+		private final int flags;
+
+		private Key(String regex, int flags) {
+			this.regex = regex;
+			this.flags = flags;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return flags == other.flags && regex.equals(other.regex);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * regex.hashCode() + flags;
+		}
+	}
+}
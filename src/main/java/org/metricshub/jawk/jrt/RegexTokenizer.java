@@ -23,6 +23,7 @@
  */
 
 import java.util.Enumeration;
+import java.util.regex.Matcher;
 
 /**
  * Similar to StringTokenizer, except that tokens are delimited
@@ -32,33 +33,47 @@
  */
 public class RegexTokenizer implements Enumeration<Object> {
 
-	private String[] array;
+	private final String input;
+	private final Matcher matcher;
 	private int idx = 0;
+	private boolean hasMoreTokens;
 
 	/**
 	 * Construct a RegexTokenizer.
+	 * <p>
+	 * Tokens are produced one at a time, as they are requested, with the same
+	 * result as <code>Pattern.split(input, -1)</code>.
 	 *
 	 * @param input The input string to tokenize.
 	 * @param delimitterRegexPattern The regular expression delineating tokens
 	 *        within the input string.
 	 */
 	public RegexTokenizer(String input, String delimitterRegexPattern) {
-		if (input.isEmpty()) {
-			array = new String[0];
-		} else {
-			array = input.split(delimitterRegexPattern, -1);
-		}
+		this.input = input;
+		this.matcher = RegexCache.getInstance().compile(delimitterRegexPattern).matcher(input);
+		hasMoreTokens = !input.isEmpty();
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public boolean hasMoreElements() {
-		return idx < array.length;
+		return hasMoreTokens;
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public Object nextElement() {
-		return array[idx++];
+		while (matcher.find()) {
+			// like Pattern.split(), a zero-width match at the beginning
+			// does not produce an empty leading token
+			if (matcher.end() == 0) {
+				continue;
+			}
+			String token = input.substring(idx, matcher.start());
+			idx = matcher.end();
+			return token;
+		}
+		hasMoreTokens = false;
+		return input.substring(idx);
 	}
 }
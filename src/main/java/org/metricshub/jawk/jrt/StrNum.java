@@ -0,0 +1,215 @@
+package org.metricshub.jawk.jrt;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * Jawk
+ * ჻჻჻჻჻჻
+ * Copyright (C) 2006 - 2025 MetricsHub
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+/**
+ * A string coming from the input data: a field, an element created by
+ * <code>split()</code>, or a line read by <code>getline</code>.
+ * <p>
+ * POSIX calls such a value a <em>strnum</em>: it is a string, but it compares
+ * as a number when it looks like one (<code>$3 &gt; 100</code>). The numeric
+ * value of the text and whether it looks numeric are computed the first time
+ * they are needed, and kept for later uses of the same value, so that a field
+ * is parsed at most once no matter how many times the script uses it.
+ * <p>
+ * A field is a view over the record it was split from: its text is only
+ * extracted as a {@link String} when {@link #toString()} is called, e.g. when
+ * the field is printed, used as an array subscript, or stored in a variable
+ * or an array (see {@link #detach()}). Until then, it is parsed, compared and
+ * matched against regular expressions as a {@link CharSequence}.
+ * <p>
+ * Instances are immutable from the outside: {@link #toString()} always
+ * returns the original text.
+ */
+public final class StrNum implements CharSequence {
+
+	/** The numeric value has been computed */
+	private static final byte PARSED = 1;
+
+	/** The text has been checked for looking like a number */
+	private static final byte CHECKED = 2;
+
+	/** The text looks like a number */
+	private static final byte NUMERIC = 4;
+
+	/** The number is preceded or followed by blanks */
+	private static final byte PADDED = 8;
+
+	/** The record the text is taken from, or the text itself */
+	private String source;
+
+	/** Start offset of the text in source */
+	private int start;
+
+	/** End offset (exclusive) of the text in source */
+	private int end;
+
+	/** The text, once extracted from source */
+	private String text;
+
+	private double number;
+
+	private byte state;
+
+	/**
+	 * Creates a strnum value for the specified text.
+	 *
+	 * @param text the original text
+	 */
+	public StrNum(String text) {
+		this.source = text;
+		this.start = 0;
+		this.end = text.length();
+		this.text = text;
+	}
+
+	/**
+	 * Creates a strnum value for a part of a record.
+	 *
+	 * @param record the record
+	 * @param start start offset of the text in the record
+	 * @param end end offset (exclusive) of the text in the record
+	 */
+	StrNum(String record, int start, int end) {
+		this.source = record;
+		this.start = start;
+		this.end = end;
+	}
+
+	/**
+	 * Returns the numeric value of the text, i.e. the value of its longest
+	 * numeric prefix, as computed by {@link NumberParser#parseDouble(CharSequence)}.
+	 *
+	 * @return the numeric value, or 0 if the text does not start with a number
+	 */
+	public double doubleValue() {
+		if ((state & PARSED) == 0) {
+			number = NumberParser.parseDouble(this);
+			state |= PARSED;
+		}
+		return number;
+	}
+
+	/**
+	 * Returns whether the whole text looks like a number, blanks around it
+	 * being allowed like POSIX specifies, in which case this value compares
+	 * as a number and is a number as a condition.
+	 *
+	 * @return <code>true</code> if the text is a decimal number, possibly
+	 *         with leading and trailing blanks
+	 */
+	public boolean isNumeric() {
+		if ((state & CHECKED) == 0) {
+			if (NumberParser.isDecimal(this)) {
+				state |= CHECKED | NUMERIC;
+			} else if (NumberParser.looksNumeric(this)) {
+				state |= CHECKED | NUMERIC | PADDED;
+			} else {
+				state |= CHECKED;
+			}
+		}
+		return (state & NUMERIC) != 0;
+	}
+
+	/**
+	 * Returns whether the whole text is a number, without blanks around it,
+	 * in which case this value prints as a number.
+	 *
+	 * @return <code>true</code> if the text is a decimal number
+	 */
+	public boolean isDecimal() {
+		return isNumeric() && (state & PADDED) == 0;
+	}
+
+	/**
+	 * Returns the value of this strnum as an AWK condition: its numeric value
+	 * if it looks like a number, whether it is non-empty otherwise.
+	 *
+	 * @return the boolean value
+	 */
+	public boolean toBoolean() {
+		return isNumeric() ? doubleValue() != 0 : end > start;
+	}
+
+	/**
+	 * Makes this value independent of the record it was split from, so that
+	 * storing it does not keep the whole record in memory.
+	 *
+	 * @return this value
+	 */
+	public StrNum detach() {
+		toString();
+		return this;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int length() {
+		return end - start;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public char charAt(int index) {
+		return source.charAt(start + index);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public CharSequence subSequence(int from, int to) {
+		return source.subSequence(start + from, start + to);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof StrNum && toString().equals(other.toString());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		return toString().hashCode();
+	}
+
+	/**
+	 * @return the original text
+	 */
+	@Override
+	public String toString() {
+		String s = text;
+		if (s == null) {
+			s = source.substring(start, end);
+			text = s;
+			// the record is not needed anymore
+			source = s;
+			start = 0;
+			end = s.length();
+		}
+		return s;
+	}
+}
@@ -110,6 +110,18 @@ public interface VariableManager {
 	 */
 	Object getSUBSEP();
 
+	/**
+	 * <p>
+	 * getFIELDWIDTHS.
+	 * </p>
+	 *
+	 * @return the contents of the FIELDWIDTHS variable (a gawk extension),
+	 *         or <code>null</code> if the script does not use it.
+	 */
+	default Object getFIELDWIDTHS() {
+		return null;
+	}
+
 	/**
 	 * Set the contents of the FILENAME variable.
 	 *
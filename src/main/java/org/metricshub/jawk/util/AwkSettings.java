@@ -24,6 +24,8 @@
 
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -87,6 +89,51 @@ public class AwkSettings {
 	 */
 	private boolean catchIllegalFormatExceptions = true;
 
+	/**
+	 * Whether to translate the tuples into JVM bytecode before running them,
+	 * instead of interpreting them;
+	 * <code>false</code> by default, unless the
+	 * <code>jawk.useJvmCompiler</code> system property is set to
+	 * <code>true</code>.
+	 */
+	private boolean useJvmCompiler = Boolean.getBoolean("jawk.useJvmCompiler");
+
+	/**
+	 * Default number of input records after which the interpreted tuples
+	 * are compiled, when tiered execution is enabled with the
+	 * <code>--tiered</code> command line option.
+	 */
+	public static final int DEFAULT_TIER_UP_THRESHOLD = 1000;
+
+	/**
+	 * Number of input records to interpret while profiling the tuples before
+	 * compiling them into JVM bytecode specialized for the observed types;
+	 * <code>0</code> (tiered execution disabled) by default, unless the
+	 * <code>jawk.tierUpThreshold</code> system property is set.
+	 */
+	private int tierUpThreshold = Integer.getInteger("jawk.tierUpThreshold", 0).intValue();
+
+	/**
+	 * Whether to read the input as CSV, as specified by RFC 4180;
+	 * <code>false</code> by default.
+	 */
+	private boolean csv = false;
+
+	/**
+	 * Whether to treat the input and output as bytes (ISO-8859-1 characters)
+	 * instead of UTF-8 text;
+	 * <code>false</code> by default.
+	 */
+	private boolean charactersAsBytes = false;
+
+	/**
+	 * Whether to read the input ahead on a background thread;
+	 * <code>false</code> by default, unless the
+	 * <code>jawk.readAhead</code> system property is set to
+	 * <code>true</code>.
+	 */
+	private boolean readAhead = Boolean.getBoolean("jawk.readAhead");
+
 	/**
 	 * Output stream;
 	 * <code>System.out</code> by default,
@@ -127,6 +174,11 @@ public String toDescriptionString() {
 		desc.append("fieldSeparator = ").append(getFieldSeparator()).append(newLine);
 		desc.append("useSortedArrayKeys = ").append(isUseSortedArrayKeys()).append(newLine);
 		desc.append("catchIllegalFormatExceptions = ").append(isCatchIllegalFormatExceptions()).append(newLine);
+		desc.append("useJvmCompiler = ").append(isUseJvmCompiler()).append(newLine);
+		desc.append("tierUpThreshold = ").append(getTierUpThreshold()).append(newLine);
+		desc.append("csv = ").append(isCsv()).append(newLine);
+		desc.append("charactersAsBytes = ").append(isCharactersAsBytes()).append(newLine);
+		desc.append("readAhead = ").append(isReadAhead()).append(newLine);
 
 		return desc.toString();
 	}
@@ -333,6 +385,130 @@ public void setCatchIllegalFormatExceptions(boolean catchIllegalFormatExceptions
 		this.catchIllegalFormatExceptions = catchIllegalFormatExceptions;
 	}
 
+	/**
+	 * Whether to translate the tuples into JVM bytecode before running them;
+	 * <code>false</code> by default.
+	 * Scripts that cannot be translated are interpreted as usual.
+	 *
+	 * @return the useJvmCompiler
+	 */
+	public boolean isUseJvmCompiler() {
+		return useJvmCompiler;
+	}
+
+	/**
+	 * Whether to translate the tuples into JVM bytecode before running them;
+	 * <code>false</code> by default.
+	 * Scripts that cannot be translated are interpreted as usual.
+	 *
+	 * @param useJvmCompiler the useJvmCompiler to set
+	 */
+	public void setUseJvmCompiler(boolean useJvmCompiler) {
+		this.useJvmCompiler = useJvmCompiler;
+	}
+
+	/**
+	 * Number of input records to interpret while profiling the tuples, before
+	 * compiling them into JVM bytecode specialized for the observed types;
+	 * <code>0</code> (tiered execution disabled) by default.
+	 * Ignored when {@link #isUseJvmCompiler()} is set.
+	 *
+	 * @return the tierUpThreshold
+	 */
+	public int getTierUpThreshold() {
+		return tierUpThreshold;
+	}
+
+	/**
+	 * Number of input records to interpret while profiling the tuples, before
+	 * compiling them into JVM bytecode specialized for the observed types;
+	 * <code>0</code> (tiered execution disabled) by default.
+	 * Ignored when {@link #isUseJvmCompiler()} is set.
+	 *
+	 * @param tierUpThreshold the tierUpThreshold to set
+	 */
+	public void setTierUpThreshold(int tierUpThreshold) {
+		this.tierUpThreshold = tierUpThreshold;
+	}
+
+	/**
+	 * Whether to read the input as CSV, as specified by RFC 4180:
+	 * records end with newlines that are not within quoted fields, and
+	 * fields are separated by commas, regardless of RS and FS;
+	 * <code>false</code> by default.
+	 *
+	 * @return the csv
+	 */
+	public boolean isCsv() {
+		return csv;
+	}
+
+	/**
+	 * Whether to read the input as CSV, as specified by RFC 4180;
+	 * <code>false</code> by default.
+	 *
+	 * @param csv the csv to set
+	 */
+	public void setCsv(boolean csv) {
+		this.csv = csv;
+	}
+
+	/**
+	 * Whether to treat the input and output as bytes, like gawk in the C
+	 * locale: each byte of the input is a character (decoded as ISO-8859-1),
+	 * and each character is written as a single byte, so that data is
+	 * passed through unchanged, without UTF-8 decoding and encoding;
+	 * <code>false</code> by default.
+	 *
+	 * @return the charactersAsBytes
+	 */
+	public boolean isCharactersAsBytes() {
+		return charactersAsBytes;
+	}
+
+	/**
+	 * Whether to treat the input and output as bytes (ISO-8859-1 characters)
+	 * instead of UTF-8 text;
+	 * <code>false</code> by default.
+	 *
+	 * @param charactersAsBytes the charactersAsBytes to set
+	 */
+	public void setCharactersAsBytes(boolean charactersAsBytes) {
+		this.charactersAsBytes = charactersAsBytes;
+	}
+
+	/**
+	 * @return the charset of the input, and of the output to files and
+	 *         commands: ISO-8859-1 when {@link #isCharactersAsBytes()} is
+	 *         set, UTF-8 otherwise
+	 */
+	public Charset getCharset() {
+		return charactersAsBytes ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8;
+	}
+
+	/**
+	 * Whether to read the input files and streams ahead on a background
+	 * thread, so that waiting for the input overlaps with the execution of
+	 * the script;
+	 * <code>false</code> by default.
+	 *
+	 * @return the readAhead
+	 */
+	public boolean isReadAhead() {
+		return readAhead;
+	}
+
+	/**
+	 * Whether to read the input files and streams ahead on a background
+	 * thread;
+	 * <code>false</code> by default.
+	 *
+	 * @param readAhead the readAhead to set
+	 */
+	public void setReadAhead(boolean readAhead) {
+		this.readAhead = readAhead;
+	}
+
 	/**
 	 * <p>
 	 * Getter for the field <code>locale</code>.
@@ -439,6 +615,31 @@ public void setCatchIllegalFormatExceptions(boolean catchIllegalFormatExceptions
 			throw unsupported();
 		}
 
+		@Override
+		public void setUseJvmCompiler(boolean useJvmCompiler) {
+			throw unsupported();
+		}
+
+		@Override
+		public void setTierUpThreshold(int tierUpThreshold) {
+			throw unsupported();
+		}
+
+		@Override
+		public void setCsv(boolean csv) {
+			throw unsupported();
+		}
+
+		@Override
+		public void setCharactersAsBytes(boolean charactersAsBytes) {
+			throw unsupported();
+		}
+
+		@Override
+		public void setReadAhead(boolean readAhead) {
+			throw unsupported();
+		}
+
 		@Override
 		public void setLocale(Locale pLocale) {
 			throw unsupported();
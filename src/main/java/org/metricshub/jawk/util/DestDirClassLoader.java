@@ -37,7 +37,8 @@
  * except that it does not forward calls to its parent,
  * if it can not find the class its self.
  * <p>
- * For Jawk, this is used when the -d argument is present.
+ * For Jawk, this is used to load the scripts compiled ahead of time in a
+ * directory (see the -K and -L arguments).
  *
  * @author Danny Daglas
  */
@@ -56,6 +57,20 @@ public DestDirClassLoader(String dirname) {
 		this.dirname = dirname;
 	}
 
+	/**
+	 * <p>
+	 * Constructor for DestDirClassLoader.
+	 * </p>
+	 *
+	 * @param dirname a {@link java.lang.String} object
+	 * @param parent the class loader of the classes used by the loaded
+	 *        classes
+	 */
+	public DestDirClassLoader(String dirname, ClassLoader parent) {
+		super(parent);
+		this.dirname = dirname;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	protected Class<?> findClass(String name) throws ClassNotFoundException {
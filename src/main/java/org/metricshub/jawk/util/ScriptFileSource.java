@@ -25,6 +25,7 @@
 import java.io.IOException;
 import java.io.Reader;
 import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
@@ -38,6 +39,7 @@ public class ScriptFileSource extends ScriptSource {
 
 	private String filePath;
 	private Reader fileReader;
+	private Charset charset = StandardCharsets.UTF_8;
 
 	/**
 	 * <p>
@@ -63,12 +65,22 @@ public String getFilePath() {
 		return filePath;
 	}
 
+	/**
+	 * Sets the encoding of the script file, UTF-8 by default. Must be called
+	 * before {@link #getReader()} opens the file.
+	 *
+	 * @param charset the encoding of the script file
+	 */
+	public void setCharset(Charset charset) {
+		this.charset = charset;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public Reader getReader() {
 		if (fileReader == null) {
 			try {
-				fileReader = Files.newBufferedReader(Paths.get(filePath), StandardCharsets.UTF_8);
+				fileReader = Files.newBufferedReader(Paths.get(filePath), charset);
 			} catch (IOException ex) {
 				throw new UncheckedIOException("Failed to open script source for reading: " + filePath, ex);
 			}
@@ -0,0 +1,225 @@
+package org.metricshub.jawk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import org.junit.Test;
+import org.metricshub.jawk.backend.AwkCompiler;
+import org.metricshub.jawk.backend.CompiledScript;
+import org.metricshub.jawk.backend.PrecompiledScript;
+import org.metricshub.jawk.intermediate.AwkTuples;
+import org.metricshub.jawk.jrt.AwkRuntimeException;
+import org.metricshub.jawk.util.AwkSettings;
+
+public class AwkCompilerTest {
+
+	/**
+	 * Runs the script with the JVM compiler, after making sure that the tuples
+	 * can be compiled (so that we're not testing the interpreter fallback).
+	 */
+	private static String runCompiled(String script, String input) throws Exception {
+		Awk awk = new Awk();
+		AwkTuples tuples = awk.compile(script);
+		Class<? extends CompiledScript> scriptClass = new AwkCompiler().compile(tuples);
+		assertNotNull(scriptClass);
+
+		AwkSettings settings = new AwkSettings();
+		settings.setUseJvmCompiler(true);
+		settings.setInput(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		settings.setOutputStream(new PrintStream(out, true, StandardCharsets.UTF_8.name()));
+		try {
+			awk.invoke(tuples, settings);
+		} catch (ExitException e) {
+			if (e.getCode() != 0) {
+				return out.toString(StandardCharsets.UTF_8.name()) + "exit " + e.getCode() + "\n";
+			}
+		}
+		return out.toString(StandardCharsets.UTF_8.name());
+	}
+
+	@Test
+	public void testRulesAndFields() throws Exception {
+		assertEquals(
+				"b 2\nc 3\n3 5\n",
+				runCompiled("$2 > 1 { print $1, $2; s += $2 } END { print NR, s }", "a 1\nb 2\nc 3\n"));
+	}
+
+	@Test
+	public void testRecursiveFunction() throws Exception {
+		assertEquals(
+				"6765\n",
+				runCompiled("function fib(n) { return n < 2 ? n : fib(n - 1) + fib(n - 2) }\nBEGIN { print fib(20) }", ""));
+	}
+
+	@Test
+	public void testArrayParameter() throws Exception {
+		assertEquals(
+				"3 6\n",
+				runCompiled(
+						"function fill(a, n,  i) { for (i = 1; i <= n; i++) a[i] = i; return n }\n"
+								+ "BEGIN { n = fill(arr, 3); for (k in arr) s += arr[k]; print n, s }",
+						""));
+	}
+
+	@Test
+	public void testExitInFunction() throws Exception {
+		assertEquals(
+				"before\nend\nexit 3\n",
+				runCompiled(
+						"function die(code) { exit code }\n"
+								+ "{ print \"before\"; die(3); print \"after\" }\n"
+								+ "END { print \"end\" }",
+						"x\ny\n"));
+	}
+
+	@Test
+	public void testRangePattern() throws Exception {
+		assertEquals("b\nc\nd\n", runCompiled("/b/,/d/", "a\nb\nc\nd\ne\n"));
+	}
+
+	@Test
+	public void testLoopsAndGetline() throws Exception {
+		assertEquals(
+				"1 a:b\n3 c:d\n1\n3\n",
+				runCompiled(
+						"NR % 2 == 1 { first = $0; getline; print NR - 1, first \":\" $0 }\n"
+								+ "END { i = 0; do { if (i++ == 1) continue; print i } while (i < 3) }",
+						"a\nb\nc\nd\n"));
+	}
+
+	@Test
+	public void testLargeScript() throws Exception {
+		// Enough tuples to be split into several methods
+		StringBuilder script = new StringBuilder("BEGIN {\n");
+		for (int i = 0; i < 500; i++) {
+			script.append("if (x < ").append(i).append(") y++; else x += 2\n");
+		}
+		script.append("print x, y + 0 }");
+		assertEquals("1000 0\n", runCompiled(script.toString(), ""));
+	}
+
+	@Test
+	public void testRuntimeErrorLineNumber() throws Exception {
+		String script = "BEGIN {\n  x = 1\n  $(-x) = 2\n}";
+		assertEquals(runtimeErrorLine(script, false), runtimeErrorLine(script, true));
+	}
+
+	private static int runtimeErrorLine(String script, boolean useJvmCompiler) throws Exception {
+		AwkSettings settings = new AwkSettings();
+		settings.setUseJvmCompiler(useJvmCompiler);
+		settings.setOutputStream(new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8.name()));
+		try {
+			new Awk().invoke(script, settings);
+		} catch (AwkRuntimeException e) {
+			return e.getLineNumber();
+		}
+		fail("Negative field index must fail");
+		return -1;
+	}
+
+	@Test
+	public void testCliOption() throws Exception {
+		AwkTestSupport
+				.cliTest("--jvm-compile runs the compiled script")
+				.argument("--jvm-compile")
+				.script("{ n[$1]++ } END { print n[\"a\"], n[\"b\"] }")
+				.stdin("a\nb\na\n")
+				.expectLines("2 1")
+				.runAndAssert();
+	}
+
+	@Test
+	public void testPrecompiledJar() throws Exception {
+		File jar = File.createTempFile("jawk", ".jar");
+		jar.deleteOnExit();
+		Cli.main(new String[] { "-K", jar.getAbsolutePath(), "{ print toupper($0) }" });
+
+		assertEquals("ABC\n", runPrecompiled(jar, "abc\n"));
+	}
+
+	@Test
+	public void testPrecompiledDirectory() throws Exception {
+		Path dir = Files.createTempDirectory("jawk");
+		dir.toFile().deleteOnExit();
+		Cli.main(new String[] { "-K", dir.toString(), "function twice(s) { return s s } { print twice($1) }" });
+		for (File file : dir.toFile().listFiles()) {
+			file.deleteOnExit();
+		}
+
+		assertEquals("aa\nbb\n", runPrecompiled(dir.toFile(), "a\nb\n"));
+	}
+
+	@Test
+	public void testPrecompiledJarWithoutTuples() throws Exception {
+		File jar = File.createTempFile("jawk", ".jar");
+		jar.deleteOnExit();
+		Cli.main(new String[] { "-K", jar.getAbsolutePath(), "{ print $1 }" });
+
+		List<String> entries = new ArrayList<String>();
+		try (JarFile jarFile = new JarFile(jar)) {
+			for (JarEntry entry : Collections.list(jarFile.entries())) {
+				entries.add(entry.getName());
+			}
+		}
+		assertEquals(Arrays.asList("META-INF/MANIFEST.MF", "AwkScript.class"), entries);
+	}
+
+	@Test
+	public void testPrecompiledConstants() throws Exception {
+		File jar = File.createTempFile("jawk", ".jar");
+		jar.deleteOnExit();
+		Cli
+				.main(
+						new String[]
+						{
+								"-K",
+								jar.getAbsolutePath(),
+								"function half(n) { return n / 2 }\n"
+										+ "/^b/,/^c/ { print \"range\", $0 }\n"
+										+ "$1 ~ /[ac]+/ { print \"match\", $1, half(x) * 1.5 }\n"
+										+ "$1 == \"d\" { print toupper(\"last\"), 12345678901; exit 2 }\n"
+										+ "END { print NR, x }" });
+
+		assertEquals(
+				"match a 3\nrange b\nrange c\nmatch c 3\nLAST 12345678901\n4 4\nexit 2\n",
+				runPrecompiled(jar, "a\nb\nc\nd\ne\n", "-v", "x=4"));
+	}
+
+	private static String runPrecompiled(File file, String input, String... options) throws Exception {
+		List<String> args = new ArrayList<String>(Arrays.asList(options));
+		args.add("-L");
+		args.add(file.getAbsolutePath());
+		Cli cli = Cli.parseCommandLineArguments(args.toArray(new String[args.size()]));
+		PrecompiledScript script = cli.getPrecompiledScript();
+		assertNotNull(script);
+		assertNotNull("The script must have been compiled to JVM bytecode", script.getScriptClass());
+		assertNull("The compiled script must not need its tuples", script.getTuples());
+
+		AwkSettings settings = cli.getSettings();
+		settings.setInput(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		settings.setOutputStream(new PrintStream(out, false, StandardCharsets.UTF_8.name()));
+		try {
+			new Awk().invoke(script, settings);
+		} catch (ExitException e) {
+			return out.toString(StandardCharsets.UTF_8.name()) + "exit " + e.getCode() + "\n";
+		}
+		return out.toString(StandardCharsets.UTF_8.name());
+	}
+}
@@ -106,7 +106,7 @@ public void spec08RsEmptyParagraphMode() throws Exception {
 						"BEGIN{RS=\"\"}{n=split($0, lines, \"" + escapedEOL
 								+ "\"); count=0; for(i=1;i<=n;i++){if(lines[i]!=\"\"){count++}}; print \"REC:\" NR \":\" count \"lines\"}")
 				.stdin("p1-line1\n\n\np2-line1\np2-line2\n\np3\n")
-				.expectLines("REC:1:4lines")
+				.expectLines("REC:1:1lines", "REC:2:2lines", "REC:3:1lines")
 				.runAndAssert();
 	}
 
@@ -914,7 +914,7 @@ public void spec90RsEmptyIgnoresLeadingBlanks() throws Exception {
 						"BEGIN{RS=\"\"}{gsub(\"(" + escapedEOL
 								+ ")+\",\" \",$0); sub(\"^ +\",\"\",$0); sub(\" +$\",\"\",$0); print \"REC-\" NR \":\" $0}")
 				.stdin("\n\npara1\n\n\npara2\n\n")
-				.expectLines("REC-1:para1 para2")
+				.expectLines("REC-1:para1", "REC-2:para2")
 				.runAndAssert();
 	}
 
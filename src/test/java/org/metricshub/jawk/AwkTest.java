@@ -987,4 +987,28 @@ public void cliEnablesSandboxMode() {
 		assertTrue(cli.isSandbox());
 	}
 
+	/**
+	 * Numbers computed on the operand stack keep their type (integral or not)
+	 * when they are stored, printed or compared.
+	 */
+	@Test
+	public void testNumericExpressionChains() throws Exception {
+		AwkTestSupport
+				.awkTest("numeric expression chains")
+				.script(
+						"BEGIN {\n"
+								+ "  y = -0 * 1; print y, -y\n"
+								+ "  print int(-3.7), sqrt(16), 7 % 3, 1 / 4, -(1 / 4)\n"
+								+ "  a = 1 + 2; b = a == 3; c = 1 + 2 < 2 + 2; print b, c\n"
+								+ "  if (1 + 1) print \"true\"\n"
+								+ "  if (1 - 1) print \"false\"\n"
+								+ "  s = 0; for (i = 1; i <= 10; i++) s += i * 1.5; print s\n"
+								+ "  n = 3; n *= 2.5; print n; n /= 2.5; print n\n"
+								+ "  arr[\"k\"] = 1; arr[\"k\"] += 0.5; print arr[\"k\"]\n"
+								+ "  print 0.1 + 0.2, 10 / 3\n"
+								+ "}")
+				.expectLines("0 0", "-3 4 1 0.25 -0.25", "1 1", "true", "82.5", "7.5", "3", "1.5", "0.3 3.33333")
+				.runAndAssert();
+	}
+
 }
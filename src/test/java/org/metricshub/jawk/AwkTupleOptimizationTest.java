@@ -1,8 +1,10 @@
 package org.metricshub.jawk;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayOutputStream;
@@ -10,6 +12,8 @@
 import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -17,6 +21,7 @@
 import org.metricshub.jawk.intermediate.Address;
 import org.metricshub.jawk.intermediate.AwkTuples;
 import org.metricshub.jawk.intermediate.Opcode;
+import org.metricshub.jawk.intermediate.Opcodes;
 import org.metricshub.jawk.intermediate.PositionTracker;
 
 public class AwkTupleOptimizationTest {
@@ -253,6 +258,236 @@ public void compilesExpressionBasedFieldWithConstOpcode() throws Exception {
 		assertLiteralFieldUsesConstOpcode(script, "alpha beta", new String[] { "beta" }, 2);
 	}
 
+	@Test
+	public void specializesNumericOperations() throws Exception {
+		String script = "BEGIN { n = 3; m = 2; for (i = 0; i < n; i++) { y = i * 2 + 1; if (y > m) print y / 2 } }\n";
+		AwkTestSupport
+				.awkTest("specializes numeric operations")
+				.script(script)
+				.expectLines("1.5", "2.5")
+				.runAndAssert();
+
+		List<Opcode> opcodes = collectOpcodes(new Awk().compile(script));
+		assertTrue("Loop condition should compare numbers", opcodes.contains(Opcode.CMP_LT_NUM));
+		assertTrue("Expected numeric MULTIPLY", opcodes.contains(Opcode.MULTIPLY_NUM));
+		assertTrue("Expected numeric ADD", opcodes.contains(Opcode.ADD_NUM));
+		assertTrue("Expected numeric DIVIDE", opcodes.contains(Opcode.DIVIDE_NUM));
+		assertTrue("Expected numeric CMP_GT", opcodes.contains(Opcode.CMP_GT_NUM));
+		assertTrue("Comparison results should be tested as numbers", opcodes.contains(Opcode.IFFALSE_NUM));
+		assertFalse("Generic ADD should have been replaced", opcodes.contains(Opcode.ADD));
+	}
+
+	@Test
+	public void specializesStringConcatenation() throws Exception {
+		String script = "BEGIN { a = \"foo\"; b = a \"bar\"; print b toupper(a) }\n";
+		AwkTestSupport
+				.awkTest("specializes string concatenation")
+				.script(script)
+				.expect("foobarFOO\n")
+				.runAndAssert();
+
+		List<Opcode> opcodes = collectOpcodes(new Awk().compile(script));
+		assertTrue("Expected string CONCAT", opcodes.contains(Opcode.CONCAT_STR));
+		assertFalse("Generic CONCAT should have been replaced", opcodes.contains(Opcode.CONCAT));
+	}
+
+	@Test
+	public void keepsGenericOpcodesForUntypedValues() throws Exception {
+		// Fields, uninitialized variables, variables that may be assigned by
+		// a function call or as a command-line operand are not typed
+		String script = "function f() { x = \"a\" }\n"
+				+ "BEGIN { x = 1; f(); print x + 1; print u + 1 }\n"
+				+ "{ n = 1; getline; print $1 + n; print v + 1 }\n";
+		AwkTestSupport
+				.awkTest("keeps generic opcodes for untyped values")
+				.script(script)
+				.file("input", "3\n4\n")
+				.operand("v=x", "{{input}}")
+				.expectLines("1", "1", "5", "1")
+				.runAndAssert();
+
+		List<Opcode> opcodes = collectOpcodes(new Awk().compile(script));
+		assertTrue("Expected generic ADD", opcodes.contains(Opcode.ADD));
+		assertFalse("Untyped operands must not be specialized", opcodes.contains(Opcode.ADD_NUM));
+	}
+
+	@Test
+	public void removesConstantConditions() throws Exception {
+		String script = "BEGIN { print \"begin\" }\n{ print }\n";
+		AwkTestSupport
+				.awkTest("removes constant conditions")
+				.script(script)
+				.stdin("a\nb\n")
+				.expectLines("begin", "a", "b")
+				.runAndAssert();
+
+		List<Opcode> opcodes = collectOpcodes(new Awk().compile(script));
+		assertFalse("Rules without pattern should not test a condition", opcodes.contains(Opcode.IFFALSE));
+		assertFalse("Rules without pattern should not test a condition", opcodes.contains(Opcode.IFFALSE_NUM));
+	}
+
+	@Test
+	public void fusesGroupByAccumulation() throws Exception {
+		String script = "{ a[$1] += $3 }\nEND { print a[\"x\"], a[\"y\"] }\n";
+		AwkTestSupport
+				.awkTest("fuses group-by accumulation")
+				.script(script)
+				.stdin("x 1 2\ny 1 3\nx 1 4.5\n")
+				.expect("6.5 3\n")
+				.runAndAssert();
+
+		List<Opcode> opcodes = collectOpcodes(new Awk().compile(script));
+		assertTrue("Expected PLUS_EQ_ARRAY_FIELD superinstruction", opcodes.contains(Opcode.PLUS_EQ_ARRAY_FIELD));
+		assertFalse("PLUS_EQ_ARRAY should have been fused", opcodes.contains(Opcode.PLUS_EQ_ARRAY));
+	}
+
+	@Test
+	public void fusesArrayIncrementStatements() throws Exception {
+		String rule = "{ n[$1]++; c[$1, $2]++ }\n";
+		AwkTestSupport
+				.awkTest("fuses array increment statements")
+				.script(rule + "END { print n[\"x\"], n[\"y\"], c[\"x\", 1], c[\"y\", 2] }\n")
+				.stdin("x 1\ny 2\nx 1\n")
+				.expect("2 1 2 1\n")
+				.runAndAssert();
+
+		List<Opcode> opcodes = collectOpcodes(new Awk().compile(rule));
+		assertTrue("Expected INC_ARRAY_REF", opcodes.contains(Opcode.INC_ARRAY_REF));
+		assertTrue("Expected INC_ARRAY_REF_SUBSEP superinstruction", opcodes.contains(Opcode.INC_ARRAY_REF_SUBSEP));
+		assertFalse("Previous values should not be fetched", opcodes.contains(Opcode.DEREF_ARRAY));
+	}
+
+	@Test
+	public void keepsPostIncrementValueInExpressions() throws Exception {
+		String script = "{ v = n[$1]++; print v + 0 }\n";
+		AwkTestSupport
+				.awkTest("keeps post-increment value in expressions")
+				.script(script)
+				.stdin("x\nx\ny\n")
+				.expectLines("0", "1", "0")
+				.runAndAssert();
+
+		List<Opcode> opcodes = collectOpcodes(new Awk().compile(script));
+		assertTrue("Previous value is needed", opcodes.contains(Opcode.DEREF_ARRAY));
+		assertTrue("Expected ASSIGN_POP superinstruction", opcodes.contains(Opcode.ASSIGN_POP));
+	}
+
+	@Test
+	public void fusesComparisonsWithConstants() throws Exception {
+		String script = "NR >= 2 { if ($1 != \"x\") print }\n";
+		AwkTestSupport
+				.awkTest("fuses comparisons with constants")
+				.script(script)
+				.stdin("y\nx\n10\n2\n")
+				.expectLines("10", "2")
+				.runAndAssert();
+
+		List<Opcode> opcodes = collectOpcodes(new Awk().compile(script));
+		assertTrue("Expected IFTRUE_CMP_CONST superinstruction", opcodes.contains(Opcode.IFTRUE_CMP_CONST));
+		assertFalse("Comparisons should have been fused", opcodes.contains(Opcode.CMP_EQ));
+		assertFalse("Comparisons should have been fused", opcodes.contains(Opcode.CMP_LT));
+	}
+
+	@Test
+	public void linksRangeSlotsAndIgnoreCase() throws Exception {
+		String script = "BEGIN { IGNORECASE = 1; print match(\"ABC\", \"b\") }\n"
+				+ "/a/,/b/ { print \"1:\" $0 }\n"
+				+ "/c/,/d/ { print \"2:\" $0 }\n";
+		AwkTestSupport
+				.awkTest("links range slots and IGNORECASE")
+				.script(script)
+				.stdin("x\na\nc\nb\nd\n")
+				.expectLines("2", "1:a", "1:c", "2:c", "1:b", "2:b", "2:d")
+				.runAndAssert();
+
+		AwkTuples tuples = new Awk().compile(script);
+		assertEquals(2, tuples.getConditionPairCount());
+		List<Long> slots = new ArrayList<>();
+		PositionTracker tracker = tuples.top();
+		while (!tracker.isEOF()) {
+			if (tracker.opcode() == Opcode.CONDITION_PAIR) {
+				slots.add(tracker.intArg(0));
+			} else if (tracker.opcode() == Opcode.MATCH) {
+				assertEquals(
+						tuples.getGlobalVariableOffsetMap().get("IGNORECASE").longValue(),
+						tracker.intArg(0));
+			}
+			tracker.next();
+		}
+		assertEquals(Arrays.asList(0L, 1L), slots);
+	}
+
+	@Test
+	public void linksMaxFieldReference() throws Exception {
+		AwkTestSupport
+				.awkTest("splits records up to the last field used")
+				.script("BEGIN { FS = \"[,;]\" } { print $3 \"|\" $1 }")
+				.stdin("a,b;c,d,e,f\nx\n\ng;h,i\n")
+				.expectLines("c|a", "|x", "|", "i|g")
+				.runAndAssert();
+
+		assertEquals(3, new Awk().compile("{ print $3, $1 }").getMaxFieldReference());
+		assertEquals(2, new Awk().compile("{ n[$2] += 1 }").getMaxFieldReference());
+		assertEquals(0, new Awk().compile("{ print }").getMaxFieldReference());
+		assertEquals(Integer.MAX_VALUE, new Awk().compile("{ print $1, NF }").getMaxFieldReference());
+		assertEquals(Integer.MAX_VALUE, new Awk().compile("{ i = 2; print $i }").getMaxFieldReference());
+		assertEquals(Integer.MAX_VALUE, new Awk().compile("{ $2 = \"x\" }").getMaxFieldReference());
+	}
+
+	@Test
+	public void inlinesSmallFunctions() throws Exception {
+		String script = "function max(a, b) { return a > b ? a : b }\n"
+				+ "function count(arr, key,  previous) { previous = arr[key]; arr[key] = max(previous + 1, 1) }\n"
+				+ "{ count(seen, $1); m = max(m, $2) }\n"
+				+ "END { print m, seen[\"a\"], seen[\"b\"], max(max(1, 9), max(4, 2)) }\n";
+		AwkTestSupport
+				.awkTest("inlines small functions")
+				.script(script)
+				.stdin("a 3\nb 7\na 5\n")
+				.expect("7 2 1 9\n")
+				.runAndAssert();
+
+		List<Opcode> opcodes = collectOpcodes(new Awk().compile(script));
+		assertTrue("Expected inlined functions", opcodes.contains(Opcode.INLINE_FRAME));
+		assertFalse("All the calls should have been inlined", opcodes.contains(Opcode.CALL_FUNCTION));
+		assertFalse("Inlined functions should have been removed", opcodes.contains(Opcode.RETURN_FROM_FUNCTION));
+	}
+
+	@Test
+	public void keepsCallsToRecursiveFunctions() throws Exception {
+		String script = "function fact(n) { return n <= 1 ? 1 : n * fact(n - 1) }\n"
+				+ "function twice(n,  result) { result = 2 * fact(n); return result }\n"
+				+ "BEGIN { print twice(5), result }\n";
+		AwkTestSupport
+				.awkTest("keeps calls to recursive functions")
+				.script(script)
+				.expect("240 \n")
+				.runAndAssert();
+
+		List<Opcode> opcodes = collectOpcodes(new Awk().compile(script));
+		assertTrue("twice() should have been inlined", opcodes.contains(Opcode.INLINE_FRAME));
+		assertTrue("fact() is recursive", opcodes.contains(Opcode.CALL_FUNCTION));
+	}
+
+	@Test
+	public void eliminatesSelfTailCalls() throws Exception {
+		String script = "function sum(n, acc) { if (n == 0) return acc; return sum(n - 1, acc + n) }\n"
+				+ "function last(a, i,  seen) { seen[i] = 1; if (!((i + 1) in a)) return a[i]; return last(a, i + 1) }\n"
+				+ "BEGIN { print sum(100000, 0); split(\"x y z\", parts); print last(parts, 1) }\n";
+		AwkTestSupport
+				.awkTest("eliminates self tail calls")
+				.script(script)
+				.expectLines("5000050000", "z")
+				.runAndAssert();
+
+		List<Opcode> opcodes = collectOpcodes(new Awk().compile(script));
+		assertTrue("Expected tail calls", opcodes.contains(Opcode.TAIL_CALL));
+		assertEquals(
+				"Only the calls from BEGIN should push a frame",
+				2,
+				Collections.frequency(opcodes, Opcode.CALL_FUNCTION));
+	}
+
 	@Test
 	public void rejectsNegativeLiteralFieldIndex() throws Exception {
 		AwkTestSupport
@@ -262,6 +497,47 @@ public void rejectsNegativeLiteralFieldIndex() throws Exception {
 				.runAndAssert();
 	}
 
+	@Test
+	public void encodesTuplesAsCodeStream() throws Exception {
+		String script = "function f(a) { return a \"-\" 12345678901234 }\n"
+				+ "/x+/ { n = 2.5; print f($1), n, sqrt(4) }\n";
+		AwkTestSupport
+				.awkTest("tuples encoded as a code stream")
+				.script(script)
+				.stdin("xx")
+				.expectLines("xx-12345678901234 2.5 2")
+				.runAndAssert();
+
+		AwkTuples tuples = new Awk().compile(script);
+		String[] dump = dumpTuples(tuples).split("\\R");
+		int line = 2;
+		PositionTracker tracker = tuples.top();
+		while (!tracker.isEOF()) {
+			String tuple = dump[line++];
+			assertEquals(
+					tuple.substring(tuple.lastIndexOf(" : ") + 3),
+					tracker.toString().substring(tracker.toString().indexOf("-->") + 3));
+			tracker.next();
+		}
+		assertEquals("Every tuple should be encoded", dump.length, line);
+		assertTrue(hasLiteralPush(tuples, Long.valueOf(12345678901234L)));
+		assertTrue(hasLiteralPush(tuples, Double.valueOf(2.5)));
+
+		Field queueField = AwkTuples.class.getDeclaredField("queue");
+		queueField.setAccessible(true);
+		assertNull("The tuples should be released once encoded", queueField.get(tuples));
+		assertArrayEquals("The code stream should be dumped like the tuples", dump, dumpTuples(tuples).split("\\R"));
+	}
+
+	@Test
+	public void opcodeOrdinalsMatchTheEnum() throws Exception {
+		Field[] fields = Opcodes.class.getFields();
+		assertEquals(Opcode.values().length, fields.length);
+		for (Opcode opcode : Opcode.values()) {
+			assertEquals(opcode.name(), opcode.ordinal(), Opcodes.class.getField(opcode.name()).getInt(null));
+		}
+	}
+
 	private static List<Opcode> collectOpcodes(AwkTuples tuples) {
 		List<Opcode> opcodes = new ArrayList<>();
 		PositionTracker tracker = tuples.top();
@@ -328,11 +604,16 @@ private static boolean usesAddress(Opcode opcode) {
 		switch (opcode) {
 		case IFFALSE:
 		case IFTRUE:
+		case IFFALSE_NUM:
+		case IFTRUE_NUM:
+		case IFFALSE_CMP_CONST:
+		case IFTRUE_CMP_CONST:
 		case GOTO:
 		case IS_EMPTY_KEYLIST:
 		case CONSUME_INPUT:
 		case CALL_FUNCTION:
 		case SET_EXIT_ADDRESS:
+		case TAIL_CALL:
 			return true;
 		default:
 			return false;
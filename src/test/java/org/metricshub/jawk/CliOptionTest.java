@@ -22,8 +22,11 @@
  * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
  */
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.nio.charset.StandardCharsets;
+
 import org.junit.Test;
 
 public class CliOptionTest {
@@ -43,4 +46,34 @@ public void longNoOptimizeOptionDisablesOptimization() {
 
 		assertTrue(cli.isDisableOptimize());
 	}
+
+	@Test
+	public void csvOptionsEnableCsvInput() {
+		Cli cli = new Cli();
+		cli.parse(new String[] { "--csv", "{ print 1 }" });
+		assertTrue(cli.getSettings().isCsv());
+
+		cli = new Cli();
+		cli.parse(new String[] { "-k", "{ print 1 }" });
+		assertTrue(cli.getSettings().isCsv());
+	}
+
+	@Test
+	public void charactersAsBytesOptionsSetLatin1Charset() {
+		Cli cli = new Cli();
+		cli.parse(new String[] { "--characters-as-bytes", "{ print 1 }" });
+		assertTrue(cli.getSettings().isCharactersAsBytes());
+		assertEquals(StandardCharsets.ISO_8859_1, cli.getSettings().getCharset());
+
+		cli = new Cli();
+		cli.parse(new String[] { "-b", "{ print 1 }" });
+		assertTrue(cli.getSettings().isCharactersAsBytes());
+	}
+
+	@Test
+	public void readAheadOptionEnablesReadAhead() {
+		Cli cli = new Cli();
+		cli.parse(new String[] { "--read-ahead", "{ print 1 }" });
+		assertTrue(cli.getSettings().isReadAhead());
+	}
 }
@@ -7,6 +7,7 @@
 import org.junit.Test;
 import org.metricshub.jawk.intermediate.UninitializedObject;
 import org.metricshub.jawk.jrt.AssocArray;
+import org.metricshub.jawk.jrt.AwkRuntimeException;
 import org.metricshub.jawk.jrt.JRT;
 
 public class JRTTest {
@@ -188,4 +189,162 @@ public void testRegexFsKeepsLeadingAndTrailingSeparators() throws Exception {
 				.expectLines("a")
 				.runAndAssert();
 	}
+
+	@Test
+	public void testDefaultFsSplitsOnBlanksAndNewlines() throws Exception {
+		AwkTestSupport
+				.awkTest("default fs splits on spaces, tabs and newlines only")
+				.script("BEGIN { RS = \"\" } { print NF, length($3), length($4) }")
+				.stdin(" a\tb\nc\rd \f e\n")
+				.expectLines("5 3 1")
+				.runAndAssert();
+	}
+
+	@Test
+	public void testSplitReusesSeparators() throws Exception {
+		AwkTestSupport
+				.awkTest("split() with successive separators")
+				.script(
+						"BEGIN { for (i = 0; i < 2; i++) { print split(\"a1b22c\", x, /[0-9]+/), x[3]; print split(\" p  q \", y), y[2]; print split(\"a,b\", z, \",\"), z[2] } }")
+				.expectLines("3 c", "2 q", "2 b", "3 c", "2 q", "2 b")
+				.runAndAssert();
+	}
+
+	@Test
+	public void testFieldWidths() throws Exception {
+		AwkTestSupport
+				.awkTest("FIELDWIDTHS with skipped characters and the rest of the record")
+				.script("BEGIN { FIELDWIDTHS = \"2 1:3 *\" } { print NF \"|\" $1 \"|\" $2 \"|\" $3 }")
+				.stdin("abcdefghij\nabcd\na\n")
+				.expectLines("3|ab|def|ghij", "2|ab|d|", "1|a||")
+				.runAndAssert();
+	}
+
+	@Test
+	public void testFieldSeparatorAssignmentDisablesFieldWidths() throws Exception {
+		AwkTestSupport
+				.awkTest("FS assigned after FIELDWIDTHS")
+				.script("NR == 1 { FIELDWIDTHS = \"1 1\" } NR == 2 { FS = FS } { print $1 }")
+				.stdin("ab c\nab c\nab c\n")
+				.expectLines("ab", "a", "ab")
+				.runAndAssert();
+	}
+
+	@Test
+	public void testFieldWidthsReassignedAfterFieldSeparator() throws Exception {
+		AwkTestSupport
+				.cliTest("FIELDWIDTHS assigned with -v, then FS, then FIELDWIDTHS again")
+				.argument("-v", "FIELDWIDTHS=1 1")
+				.script("NR == 1 { FS = FS } NR == 2 { FIELDWIDTHS = FIELDWIDTHS } { print $1 }")
+				.stdin("ab c\nab c\nab c\n")
+				.expectLines("a", "ab", "a")
+				.runAndAssert();
+	}
+
+	@Test
+	public void testFieldWidthsAssignedOnlyWithDashV() throws Exception {
+		AwkTestSupport
+				.cliTest("FIELDWIDTHS assigned with -v, not mentioned by the script")
+				.argument("-v", "FIELDWIDTHS=1 2")
+				.script("{ print $1 \"|\" $2 }")
+				.stdin("a b c d\n")
+				.expectLines("a| b")
+				.runAndAssert();
+	}
+
+	@Test
+	public void testFieldWidthsAssignedOnlyAsOperand() throws Exception {
+		AwkTestSupport
+				.cliTest("FIELDWIDTHS assigned as an operand, not mentioned by the script")
+				.script("{ print $1 \"|\" $2 }")
+				.file("input", "a b c d\n")
+				.operand("{{input}}", "FIELDWIDTHS=1 2", "{{input}}")
+				.expectLines("a|b", "a| b")
+				.runAndAssert();
+	}
+
+	@Test
+	public void testInvalidFieldWidths() throws Exception {
+		AwkTestSupport
+				.awkTest("FIELDWIDTHS with * before the last field")
+				.script("BEGIN { FIELDWIDTHS = \"2 * 2\" } { print $1 }")
+				.stdin("abc\n")
+				.expectThrow(AwkRuntimeException.class)
+				.runAndAssert();
+	}
+
+	@Test
+	public void testCsvInput() throws Exception {
+		AwkTestSupport
+				.cliTest("--csv with quoted fields, embedded newlines and CRLF")
+				.argument("--csv")
+				.script("{ n = NF; gsub(/\\n/, \"|\"); print NR \": \" n \" [\" $1 \"][\" $2 \"][\" $3 \"]\" }")
+				.stdin("a,\"b,c\",d\r\n\"x\"\"y\",\"multi\nline\",\n,,\n")
+				.expectLines("1: 3 [a][b,c][d]", "2: 3 [x\"y][multi|line][]", "3: 3 [][][]")
+				.runAndAssert();
+	}
+
+	@Test
+	public void testCsvSplit() throws Exception {
+		AwkTestSupport
+				.cliTest("split() without separator in CSV mode")
+				.argument("--csv")
+				.script("BEGIN { n = split(\"1,\\\"2,3\\\",\\\"4\\\"\\\"\\\"\", a); print n, a[2], a[3] }")
+				.expectLines("3 2,3 4\"")
+				.runAndAssert();
+	}
+
+	@Test
+	public void testCharactersAsBytes() throws Exception {
+		AwkTestSupport
+				.cliTest("-b reads and writes each byte as a character")
+				.argument("-b")
+				.script("{ print length($0), substr($0, 2, 2), toupper($0) }")
+				.stdin("aéb\nxÿ日\n")
+				.expectLines("4 é AéB", "6 ÿ Xÿ日")
+				.runAndAssert();
+	}
+
+	@Test
+	public void testCharactersAsBytesInScript() throws Exception {
+		AwkTestSupport
+				.cliTest("-b reads the script literals and regular expressions as bytes")
+				.argument("-b")
+				.script("BEGIN { print length(\"é\") } /^caf.$/ { print \"short\" } /^caf..$/ && /é/ { print \"bytes\" }")
+				.stdin("café\n")
+				.expectLines("2", "bytes")
+				.runAndAssert();
+	}
+
+	@Test
+	public void testCharactersAsBytesInScriptFile() throws Exception {
+		AwkTestSupport
+				.cliTest("-b after -f reads the script file as bytes")
+				.argument("-f", "{{bytes.awk}}", "-b")
+				.file("bytes.awk", "{ sub(/é/, \"[&]\"); print length(\"€\"), $0 }\n")
+				.stdin("café\n")
+				.expectLines("3 caf[é]")
+				.runAndAssert();
+	}
+
+	@Test
+	public void testReadAhead() throws Exception {
+		AwkTestSupport
+				.cliTest("--read-ahead with getline and RS changed between records")
+				.argument("--read-ahead")
+				.script("NR == 1 { RS = \";\" } { getline x; print NR \": \" $0 \"|\" x }")
+				.stdin("a\nb;c;d;e")
+				.expectLines("2: a|b", "4: c|d", "5: e|")
+				.runAndAssert();
+	}
+
+	@Test
+	public void testParagraphMode() throws Exception {
+		AwkTestSupport
+				.awkTest("RS=\"\" reads paragraphs, newlines separating fields")
+				.script("BEGIN { RS = \"\"; FS = \",\" } { print NR \": \" NF \" \" $2 \" \" $3 }")
+				.stdin("\n\na,b\nc\n\n\n\nd,e\n")
+				.expectLines("1: 3 b c", "2: 2 e ")
+				.runAndAssert();
+	}
 }
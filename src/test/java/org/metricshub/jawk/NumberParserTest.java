@@ -0,0 +1,129 @@
+package org.metricshub.jawk;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * Jawk
+ * ჻჻჻჻჻჻
+ * Copyright (C) 2006 - 2025 MetricsHub
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import org.junit.Test;
+import org.metricshub.jawk.jrt.NumberParser;
+
+public class NumberParserTest {
+
+	private static void assertParsed(double expected, String s) {
+		assertEquals(
+				"\"" + s + "\"",
+				Double.doubleToLongBits(expected),
+				Double.doubleToLongBits(NumberParser.parseDouble(s)));
+	}
+
+	@Test
+	public void parsesNumericPrefix() {
+		assertParsed(0, "");
+		assertParsed(0, "abc");
+		assertParsed(0, "+");
+		assertParsed(0, ".");
+		assertParsed(0, "0x1A");
+		assertParsed(25, "25fix");
+		assertParsed(12, "  \t12 ");
+		assertParsed(-3.5, "-3.5.1");
+		assertParsed(0.5, ".5");
+		assertParsed(5, "5.");
+		assertParsed(1, "1(e)");
+		assertParsed(600000, "6e5(x)");
+		assertParsed(1, "1e");
+		assertParsed(1, "1e+");
+		assertParsed(100, "1E+2x");
+		assertParsed(0.01, "1e-2");
+		assertParsed(-0.0, "-0");
+		assertParsed(1e-30, "0.000000000000000000000000000001");
+		assertParsed(12345678901234567890.0, "12345678901234567890");
+		assertParsed(Double.POSITIVE_INFINITY, "1e999");
+		assertParsed(0, "1e-999");
+	}
+
+	@Test
+	public void parsesSignedInfinityAndNan() {
+		assertParsed(Double.POSITIVE_INFINITY, "+inf");
+		assertParsed(Double.NEGATIVE_INFINITY, "-Infinity");
+		assertParsed(Double.NaN, "+nan");
+		assertParsed(Double.NaN, "-NAN");
+		assertParsed(0, "inf");
+		assertParsed(0, "nan");
+	}
+
+	@Test
+	public void roundsLikeParseDouble() {
+		Random random = new Random(42);
+		for (int i = 0; i < 100000; i++) {
+			StringBuilder sb = new StringBuilder();
+			if (random.nextBoolean()) {
+				sb.append('-');
+			}
+			int digits = 1 + random.nextInt(20);
+			for (int d = 0; d < digits; d++) {
+				sb.append((char) ('0' + random.nextInt(10)));
+			}
+			if (random.nextBoolean()) {
+				sb.insert(sb.length() - random.nextInt(digits), '.');
+			}
+			if (random.nextBoolean()) {
+				sb.append('e').append(random.nextInt(60) - 30);
+			}
+			String s = sb.toString();
+			assertParsed(Double.parseDouble(s), s);
+			assertTrue(s, NumberParser.isDecimal(s));
+		}
+	}
+
+	@Test
+	public void parsesLongs() {
+		assertEquals(12, NumberParser.parseLong("12.7"));
+		assertEquals(-3, NumberParser.parseLong(" -3.9x"));
+		assertEquals(1000, NumberParser.parseLong("1e3"));
+		assertEquals(0, NumberParser.parseLong("abc"));
+		assertEquals(123456789012345678L, NumberParser.parseLong("123456789012345678"));
+		assertEquals(Long.MAX_VALUE, NumberParser.parseLong("99999999999999999999"));
+	}
+
+	@Test
+	public void recognizesWholeNumbers() {
+		for (String s : new String[] { "1", "+1", "-1.5", ".5", "5.", "1e5", "1E-5", "007" }) {
+			assertTrue(s, NumberParser.isDecimal(s));
+			new BigDecimal(s);
+		}
+		for (String s : new String[] { "", " 1", "1 ", "1e", "+", ".", "1x", "inf", "0x1A" }) {
+			assertFalse(s, NumberParser.isDecimal(s));
+		}
+		assertTrue(NumberParser.isLong("-9223372036854775808"));
+		assertTrue(NumberParser.isLong("+42"));
+		assertFalse(NumberParser.isLong("9223372036854775808"));
+		assertFalse(NumberParser.isLong("4.2"));
+		assertFalse(NumberParser.isLong("-"));
+		assertFalse(NumberParser.isLong(""));
+	}
+}
@@ -0,0 +1,406 @@
+package org.metricshub.jawk;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * Jawk
+ * ჻჻჻჻჻჻
+ * Copyright (C) 2006 - 2025 MetricsHub
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.metricshub.jawk.jrt.PartitioningReader;
+import org.metricshub.jawk.jrt.ReadAheadChannel;
+
+public class PartitioningReaderTest {
+
+	/**
+	 * Reader returning at most 3 characters at a time, so that records and
+	 * separators span several reads.
+	 */
+	private static Reader chunked(String input) {
+		return new StringReader(input) {
+			@Override
+			public int read(char[] cbuf, int off, int len) throws IOException {
+				return super.read(cbuf, off, Math.min(len, 3));
+			}
+		};
+	}
+
+	/**
+	 * Channel returning at most 3 bytes at a time, so that records,
+	 * separators and multibyte characters span several reads.
+	 */
+	private static ReadableByteChannel chunkedBytes(String input) {
+		final ReadableByteChannel channel = Channels
+				.newChannel(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+		return new ReadableByteChannel() {
+			@Override
+			public int read(ByteBuffer dst) throws IOException {
+				ByteBuffer slice = dst.slice();
+				slice.limit(Math.min(slice.limit(), 3));
+				int n = channel.read(slice);
+				if (n > 0) {
+					dst.position(dst.position() + n);
+				}
+				return n;
+			}
+
+			@Override
+			public boolean isOpen() {
+				return channel.isOpen();
+			}
+
+			@Override
+			public void close() throws IOException {
+				channel.close();
+			}
+		};
+	}
+
+	/**
+	 * Channel returning 0 bytes during 50ms, like a non-blocking source
+	 * waiting for its data, then the specified input at once.
+	 */
+	private static ReadableByteChannel slowBytes(String input, final int[] emptyReads) {
+		final long dataAt = System.nanoTime() + 50_000_000L;
+		final ByteBuffer data = ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8));
+		return new ReadableByteChannel() {
+			@Override
+			public int read(ByteBuffer dst) {
+				if (System.nanoTime() < dataAt) {
+					emptyReads[0]++;
+					return 0;
+				}
+				if (!data.hasRemaining()) {
+					return -1;
+				}
+				int n = Math.min(dst.remaining(), data.remaining());
+				ByteBuffer part = data.duplicate();
+				part.limit(part.position() + n);
+				dst.put(part);
+				data.position(data.position() + n);
+				return n;
+			}
+
+			@Override
+			public boolean isOpen() {
+				return true;
+			}
+
+			@Override
+			public void close() {}
+		};
+	}
+
+	/**
+	 * Reader returning 0 characters during 50ms, then the specified input.
+	 */
+	private static Reader slowCharacters(String input, final int[] emptyReads) {
+		final long dataAt = System.nanoTime() + 50_000_000L;
+		return new StringReader(input) {
+			@Override
+			public int read(char[] cbuf, int off, int len) throws IOException {
+				if (System.nanoTime() < dataAt) {
+					emptyReads[0]++;
+					return 0;
+				}
+				return super.read(cbuf, off, len);
+			}
+		};
+	}
+
+	/**
+	 * Backing off, 50ms without data take about 60 reads, not millions.
+	 */
+	private static void assertBackedOff(int[] emptyReads) {
+		assertTrue("empty reads: " + emptyReads[0], emptyReads[0] < 1000);
+	}
+
+	private static List<String> readAll(PartitioningReader reader) throws IOException {
+		List<String> records = new ArrayList<String>();
+		String record;
+		while ((record = reader.readRecord()) != null) {
+			records.add(record);
+		}
+		assertNull(reader.readRecord());
+		return records;
+	}
+
+	@Test
+	public void singleCharacterSeparator() throws IOException {
+		assertEquals(
+				Arrays.asList("first line", "", "third"),
+				readAll(new PartitioningReader(chunked("first line\n\nthird\n"), "\n")));
+		assertEquals(Arrays.asList("a", "b"), readAll(new PartitioningReader(chunked("a;b"), ";")));
+	}
+
+	@Test
+	public void literalSeparatorAcrossReads() throws IOException {
+		assertEquals(
+				Arrays.asList("one", "two", "three"),
+				readAll(new PartitioningReader(chunked("one\r\ntwo\r\nthree\r\n"), "\r\n")));
+		assertEquals(
+				Arrays.asList("a", "b--c"),
+				readAll(new PartitioningReader(chunked("a---b--c---"), "---")));
+	}
+
+	@Test
+	public void regexSeparator() throws IOException {
+		assertEquals(
+				Arrays.asList("a", "b", "c"),
+				readAll(new PartitioningReader(chunked("a12b3c"), "[0-9]+")));
+	}
+
+	@Test
+	public void largeRecords() throws IOException {
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			line.append((char) ('a' + i % 26));
+		}
+		String input = line + "\n" + line + "\n";
+		assertEquals(
+				Arrays.asList(line.toString(), line.toString()),
+				readAll(new PartitioningReader(new StringReader(input), "\n")));
+	}
+
+	@Test
+	public void separatorChangedBetweenRecords() throws IOException {
+		PartitioningReader reader = new PartitioningReader(chunked("a b\nc;d\n"), " ");
+		assertEquals("a", reader.readRecord());
+		reader.setRecordSeparator(";");
+		assertEquals("b\nc", reader.readRecord());
+		reader.setRecordSeparator("\n");
+		assertEquals("d", reader.readRecord());
+		assertNull(reader.readRecord());
+	}
+
+	@Test
+	public void csvRecords() throws IOException {
+		PartitioningReader reader = new PartitioningReader(chunked("a,\"b\nc\"\r\n\"\"\"x\"\n"), "\n");
+		reader.setCsv(true);
+		assertEquals(Arrays.asList("a,\"b\nc\"", "\"\"\"x\""), readAll(reader));
+	}
+
+	@Test
+	public void bytesWithLiteralSeparator() throws IOException {
+		assertEquals(
+				Arrays.asList("héllo wörld", "", "日本語"),
+				readAll(new PartitioningReader(chunkedBytes("héllo wörld\n\n日本語\n"), "\n", false)));
+		assertEquals(
+				Arrays.asList("a€", "b", "€c"),
+				readAll(new PartitioningReader(chunkedBytes("a€::b::€c"), "::", false)));
+	}
+
+	@Test
+	public void bytesThenCharacters() throws IOException {
+		PartitioningReader reader = new PartitioningReader(chunkedBytes("é1\nü2\nà3x4é\n"), "\n", false);
+		assertEquals("é1", reader.readRecord());
+		reader.setRecordSeparator("[0-9]");
+		assertEquals("ü", reader.readRecord());
+		assertEquals("\nà", reader.readRecord());
+		reader.setRecordSeparator("\n");
+		assertEquals(Arrays.asList("x4é"), readAll(reader));
+	}
+
+	@Test
+	public void csvBytes() throws IOException {
+		PartitioningReader reader = new PartitioningReader(chunkedBytes("ä,\"b\nc\"\r\nd\n"), "\n", false);
+		reader.setCsv(true);
+		assertEquals(Arrays.asList("ä,\"b\nc\"", "d"), readAll(reader));
+	}
+
+	@Test
+	public void latin1Bytes() throws IOException {
+		// "é" is encoded as C3 A9 in UTF-8, two characters in ISO-8859-1
+		assertEquals(
+				Arrays.asList("\u00c3\u00a9", "x"),
+				readAll(new PartitioningReader(chunkedBytes("é\nx"), "\n", false, StandardCharsets.ISO_8859_1)));
+		assertEquals(
+				Arrays.asList("a\u00c3", "b\u00c3", "\u00c3"),
+				readAll(new PartitioningReader(chunkedBytes("aébéé"), "\u00a9", false, StandardCharsets.ISO_8859_1)));
+	}
+
+	@Test
+	public void readAhead() throws IOException {
+		// more lines than the chunks of the ring can hold
+		StringBuilder input = new StringBuilder();
+		List<String> lines = new ArrayList<String>();
+		for (int i = 0; i < 100000; i++) {
+			lines.add("é" + i);
+			input.append("é").append(i).append('\n');
+		}
+		assertEquals(
+				lines,
+				readAll(
+						new PartitioningReader(
+								new ReadAheadChannel(
+										Channels.newChannel(new ByteArrayInputStream(input.toString().getBytes(StandardCharsets.UTF_8)))),
+								"\n",
+								false)));
+		assertEquals(
+				Arrays.asList("a", "b", "c"),
+				readAll(new PartitioningReader(new ReadAheadChannel(chunkedBytes("a\nb\nc")), "\n", false)));
+	}
+
+	@Test
+	public void readAheadEmptyReads() throws IOException {
+		int[] emptyReads = new int[1];
+		assertEquals(
+				Arrays.asList("a", "b"),
+				readAll(new PartitioningReader(new ReadAheadChannel(slowBytes("a\nb", emptyReads)), "\n", false)));
+		assertBackedOff(emptyReads);
+	}
+
+	@Test
+	public void emptyReads() throws IOException {
+		int[] emptyReads = new int[1];
+		assertEquals(
+				Arrays.asList("a", "b"),
+				readAll(new PartitioningReader(slowBytes("a\nb", emptyReads), "\n", false)));
+		assertBackedOff(emptyReads);
+
+		emptyReads[0] = 0;
+		assertEquals(
+				Arrays.asList("a", "b"),
+				readAll(new PartitioningReader(slowCharacters("a\nb", emptyReads), "\n")));
+		assertBackedOff(emptyReads);
+	}
+
+	@Test
+	public void readAheadFailure() throws IOException {
+		ReadableByteChannel failing = new ReadableByteChannel() {
+			private boolean read;
+
+			@Override
+			public int read(ByteBuffer dst) throws IOException {
+				if (read) {
+					throw new IOException("disk error");
+				}
+				read = true;
+				dst.put("a\nb".getBytes(StandardCharsets.UTF_8));
+				return 3;
+			}
+
+			@Override
+			public boolean isOpen() {
+				return true;
+			}
+
+			@Override
+			public void close() {}
+		};
+		PartitioningReader reader = new PartitioningReader(new ReadAheadChannel(failing), "\n", false);
+		assertEquals("a", reader.readRecord());
+		try {
+			reader.readRecord();
+			fail("the failure to read the input must be reported");
+		} catch (IOException e) {
+			assertEquals("disk error", e.getMessage());
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void readAheadUncheckedFailure() throws IOException {
+		ReadableByteChannel failing = new ReadableByteChannel() {
+			private boolean read;
+
+			@Override
+			public int read(ByteBuffer dst) {
+				if (read) {
+					throw new IllegalStateException("broken source");
+				}
+				read = true;
+				dst.put("a\nb".getBytes(StandardCharsets.UTF_8));
+				return 3;
+			}
+
+			@Override
+			public boolean isOpen() {
+				return true;
+			}
+
+			@Override
+			public void close() {}
+		};
+		PartitioningReader reader = new PartitioningReader(new ReadAheadChannel(failing), "\n", false);
+		assertEquals("a", reader.readRecord());
+		try {
+			reader.readRecord();
+			fail("the failure to read the input must be reported");
+		} catch (IllegalStateException e) {
+			assertEquals("broken source", e.getMessage());
+		}
+	}
+
+	@Test
+	public void paragraphs() throws IOException {
+		assertEquals(
+				Arrays.asList("a\nb", "c", "d\ne"),
+				readAll(new PartitioningReader(chunked("\n\n\na\nb\n\nc\n\n\n\nd\ne\n\n\n"), "")));
+		assertEquals(Arrays.asList("a", "b"), readAll(new PartitioningReader(chunked("a\n\nb\n"), "")));
+		assertEquals(Arrays.asList(), readAll(new PartitioningReader(chunked("\n\n\n"), "")));
+		assertEquals(
+				Arrays.asList("é", "ü\nx"),
+				readAll(new PartitioningReader(chunkedBytes("\né\n\nü\nx"), "", false)));
+	}
+
+	@Test
+	public void largeParagraphsAreNotBufferedTogether() throws IOException {
+		StringBuilder input = new StringBuilder();
+		for (int i = 0; i < 100000; i++) {
+			input.append("line ").append(i).append("\nmore\n\n");
+		}
+		PartitioningReader reader = new PartitioningReader(chunked(input.toString()), "");
+		for (int i = 0; i < 100000; i++) {
+			assertEquals("line " + i + "\nmore", reader.readRecord());
+		}
+		assertNull(reader.readRecord());
+	}
+
+	@Test
+	public void regexSeparatorAfterLongRecords() throws IOException {
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; i < 100000; i++) {
+			line.append((char) ('a' + i % 26));
+		}
+		String input = line + "\n\n" + line + "\n";
+		assertEquals(
+				Arrays.asList(line.toString(), line.toString()),
+				readAll(new PartitioningReader(chunked(input), "\n+")));
+		assertEquals(
+				Arrays.asList(line.toString(), line.toString()),
+				readAll(new PartitioningReader(chunkedBytes(input), "\n+", false)));
+	}
+}
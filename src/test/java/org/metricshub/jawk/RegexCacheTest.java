@@ -0,0 +1,92 @@
+package org.metricshub.jawk;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * Jawk
+ * ჻჻჻჻჻჻
+ * Copyright (C) 2006 - 2025 MetricsHub
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+import org.metricshub.jawk.jrt.RegexCache;
+
+public class RegexCacheTest {
+
+	@Test
+	public void reusesCompiledPatterns() {
+		RegexCache cache = new RegexCache(16, 4);
+		Pattern first = cache.compile("a+b");
+		assertSame(first, cache.compile("a+b"));
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void distinguishesFlags() {
+		RegexCache cache = new RegexCache(16, 4);
+		Pattern plain = cache.compile("abc");
+		Pattern ignoreCase = cache.compile("abc", Pattern.CASE_INSENSITIVE);
+		assertNotSame(plain, ignoreCase);
+		assertTrue(ignoreCase.matcher("ABC").matches());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsedPattern() {
+		RegexCache cache = new RegexCache(2, 1);
+		Pattern a = cache.compile("a");
+		Pattern b = cache.compile("b");
+		// Touch "a" so that "b" becomes the eldest entry
+		assertSame(a, cache.compile("a"));
+		cache.compile("c");
+		assertEquals(2, cache.size());
+		assertSame(a, cache.compile("a"));
+		assertNotSame(b, cache.compile("b"));
+	}
+
+	@Test
+	public void disabledCacheAlwaysCompiles() {
+		RegexCache cache = new RegexCache(0, 16);
+		assertNotSame(cache.compile("x"), cache.compile("x"));
+		assertEquals(0, cache.size());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	public void dynamicRegexIsCompiledOnce() throws Exception {
+		RegexCache cache = RegexCache.getInstance();
+		String pattern = "^dynamic-[0-9]+\\.cache$";
+		AwkTestSupport
+				.awkTest("dynamic regex from a variable")
+				.script("BEGIN { pat = \"" + pattern.replace("\\", "\\\\") + "\" } $0 ~ pat { n++ } END { print n }")
+				.stdin("dynamic-1.cache\nother\ndynamic-22.cache\ndynamic-3.cache\n")
+				.expect("3\n")
+				.runAndAssert();
+		long misses = cache.getMissCount();
+		assertSame(cache.compile(pattern), cache.compile(pattern));
+		assertEquals("Pattern should already be cached", misses, cache.getMissCount());
+	}
+}
@@ -0,0 +1,115 @@
+package org.metricshub.jawk;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * Jawk
+ * ჻჻჻჻჻჻
+ * Copyright (C) 2006 - 2025 MetricsHub
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.metricshub.jawk.jrt.JRT;
+import org.metricshub.jawk.jrt.StrNum;
+
+public class StrNumTest {
+
+	@Test
+	public void cachesNumericInterpretation() {
+		StrNum strnum = new StrNum("1e2");
+		assertTrue(strnum.isNumeric());
+		assertEquals(100, strnum.doubleValue(), 0);
+		assertEquals("1e2", strnum.toString());
+		assertEquals(100, JRT.toLong(strnum));
+
+		StrNum text = new StrNum("25fix");
+		assertFalse(text.isNumeric());
+		assertEquals(25, JRT.toDouble(text), 0);
+	}
+
+	@Test
+	public void fieldsKeepTheirValueOnceStored() throws Exception {
+		AwkTestSupport
+				.awkTest("stored fields outlive their record")
+				.script(
+						"{ a[NR] = $2; last = $3 } $2 ~ /^b/ && length($2) == 2 { print \"match\", NR } END { print a[1], a[2], last }")
+				.stdin("a b1 c\nd e2 f\n")
+				.expectLines("match 1", "b1 e2 f")
+				.runAndAssert();
+	}
+
+	@Test
+	public void comparesAsNumberWhenLookingNumeric() {
+		assertTrue(JRT.compare2(new StrNum("10"), new StrNum("9"), 1));
+		assertTrue(JRT.compare2(new StrNum("1e2"), 100, 0));
+		assertTrue(JRT.compare2(new StrNum("abc"), new StrNum("abd"), -1));
+		assertFalse(JRT.compare2(new StrNum("10x"), new StrNum("9x"), 1));
+	}
+
+	@Test
+	public void fieldsAreStrnums() throws Exception {
+		AwkTestSupport
+				.awkTest("fields compare and test as numbers")
+				.script("$1 { print \"true\", $1 } $2 > 9 { print \"gt\", $2 } $3 == 100 { print \"eq\", NR }")
+				.stdin("0 10 1e2\n0.0 9 100.0\nx 08 abc\n")
+				.expectLines("gt 10", "eq 1", "eq 2", "true x")
+				.runAndAssert();
+	}
+
+	@Test
+	public void splitAndGetlineProduceStrnums() throws Exception {
+		AwkTestSupport
+				.awkTest("split and getline values are strnums")
+				.script(
+						"NR == 1 { n = split($0, a); print (a[1] < a[2]) (a[3] ? \"t\" : \"f\"); getline line; print (line < 9) }")
+				.stdin("9 10 0\n10\n")
+				.expectLines("1f", "0")
+				.runAndAssert();
+	}
+
+	@Test
+	public void indexesArraysByText() throws Exception {
+		AwkTestSupport
+				.awkTest("strnum subscripts use the field text")
+				.script("{ n[$1]++ } END { print n[\"a\"], n[1], n[\"1\"] }")
+				.stdin("a\n1\n1\n")
+				.expectLines("1 2 2")
+				.runAndAssert();
+	}
+
+	@Test
+	public void blanksAroundNumbersAreAllowed() throws Exception {
+		assertTrue(new StrNum(" 10 ").isNumeric());
+		assertFalse(new StrNum(" 10 ").isDecimal());
+		assertTrue(JRT.compare2(new StrNum(" 10 "), 10, 0));
+		assertTrue(JRT.compare2(new StrNum("\t10"), new StrNum("9 "), 1));
+		assertFalse(new StrNum(" 0 ").toBoolean());
+		assertFalse(new StrNum("   ").isNumeric());
+
+		AwkTestSupport
+				.awkTest("blank-padded fields compare and test as numbers")
+				.script(
+						"BEGIN { FS = \",\" } $1 == 10 { print \"eq\", NR } $2 > 9 { print \"gt\", NR } !$0 { print \"false\", NR } { print \"[\" $1 \"]\" }")
+				.stdin(" 10 ,10\n 0 \n")
+				.expectLines("eq 1", "gt 1", "[ 10 ]", "false 2", "[ 0 ]")
+				.runAndAssert();
+	}
+}
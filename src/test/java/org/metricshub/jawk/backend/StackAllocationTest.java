@@ -0,0 +1,178 @@
+package org.metricshub.jawk.backend;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * Jawk
+ * ჻჻჻჻჻჻
+ * Copyright (C) 2006 - 2025 MetricsHub
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import org.junit.Test;
+
+/**
+ * Verifies that the operand stack and the function frames of the AVM do not
+ * allocate memory once they have grown to the size required by the script.
+ */
+public class StackAllocationTest {
+
+	private static final int ITERATIONS = 1_000_000;
+
+	/** Allocations unrelated to the stacks (JIT compilation, etc.) */
+	private static final long TOLERANCE = 256 * 1024;
+
+	private static final Object VALUE = "value";
+
+	private static final Object VALUE_2 = Long.valueOf(2);
+
+	private static long allocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+		assumeTrue(sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled());
+		return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private static void pushAndPop(AVM avm, int count) {
+		for (int i = 0; i < count; i++) {
+			avm.push(VALUE);
+			avm.push(VALUE);
+			avm.push(VALUE);
+			avm.pop();
+			avm.pop();
+			avm.pop();
+		}
+	}
+
+	private static void callAndReturn(RuntimeStack stack, int count) {
+		for (int i = 0; i < count; i++) {
+			stack.pushFrame(2, i);
+			stack.setVariable(0, VALUE, false);
+			stack.pushFrame(3, i);
+			stack.setVariable(2, VALUE, false);
+			stack.popFrame();
+			stack.popFrame();
+		}
+	}
+
+	@Test
+	public void testOperandStackDoesNotAllocate() {
+		AVM avm = new AVM();
+		pushAndPop(avm, ITERATIONS);
+
+		long before = allocatedBytes();
+		pushAndPop(avm, ITERATIONS);
+		long allocated = allocatedBytes() - before;
+
+		assertTrue("push()/pop() allocated " + allocated + " bytes", allocated < TOLERANCE);
+	}
+
+	private static void addNumbers(AVM avm, int count) {
+		for (int i = 0; i < count; i++) {
+			avm.push(VALUE_2);
+			avm.multiply();
+			avm.push(VALUE_2);
+			avm.subtract();
+			avm.negate();
+			avm.unaryPlus();
+			avm.negate();
+		}
+	}
+
+	@Test
+	public void testArithmeticDoesNotBox() {
+		AVM avm = new AVM();
+		avm.push(VALUE_2);
+		addNumbers(avm, ITERATIONS);
+
+		long before = allocatedBytes();
+		addNumbers(avm, ITERATIONS);
+		long allocated = allocatedBytes() - before;
+
+		assertTrue("Arithmetic allocated " + allocated + " bytes", allocated < TOLERANCE);
+		assertEquals(VALUE_2, avm.pop());
+	}
+
+	@Test
+	public void testNumbersAreBoxedWhenPopped() {
+		AVM avm = new AVM();
+		avm.push(VALUE_2);
+		avm.push(VALUE_2);
+		avm.add();
+		assertEquals(Long.valueOf(4), avm.pop());
+		avm.push(VALUE_2);
+		avm.sqrt();
+		assertEquals(Double.valueOf(Math.sqrt(2)), avm.pop());
+		avm.push(Long.valueOf(1));
+		avm.push(Long.valueOf(4));
+		avm.divide();
+		avm.dup();
+		avm.add();
+		assertEquals(Double.valueOf(0.5), avm.pop());
+	}
+
+	@Test
+	public void testFunctionFramesDoNotAllocate() {
+		RuntimeStack stack = new RuntimeStack();
+		stack.setNumGlobals(1);
+		callAndReturn(stack, ITERATIONS);
+
+		long before = allocatedBytes();
+		callAndReturn(stack, ITERATIONS);
+		long allocated = allocatedBytes() - before;
+
+		assertTrue("pushFrame()/popFrame() allocated " + allocated + " bytes", allocated < TOLERANCE);
+	}
+
+	@Test
+	public void testReusedFramesAreCleared() {
+		RuntimeStack stack = new RuntimeStack();
+		stack.setNumGlobals(1);
+		stack.pushFrame(2, 10);
+		stack.setVariable(1, VALUE, false);
+		stack.pushFrame(1, 20);
+		assertNull(stack.getVariable(0, false));
+		assertEquals(20, stack.popFrame());
+		assertEquals(VALUE, stack.getVariable(1, false));
+		assertEquals(10, stack.popFrame());
+
+		stack.pushFrame(2, 30);
+		assertNull(stack.getVariable(1, false));
+		stack.popAllFrames();
+	}
+
+	@Test
+	public void testDeepRecursion() {
+		RuntimeStack stack = new RuntimeStack();
+		stack.setNumGlobals(1);
+		for (int i = 0; i < 10000; i++) {
+			stack.pushFrame(1, i);
+			stack.setVariable(0, i, false);
+		}
+		for (int i = 9999; i >= 0; i--) {
+			assertEquals(i, stack.getVariable(0, false));
+			assertEquals(i, stack.popFrame());
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package org.metricshub.jawk.backend;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * Jawk
+ * ჻჻჻჻჻჻
+ * Copyright (C) 2006 - 2025 MetricsHub
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import org.metricshub.jawk.Awk;
+import org.metricshub.jawk.ExitException;
+import org.metricshub.jawk.intermediate.AwkTuples;
+import org.metricshub.jawk.intermediate.Opcode;
+import org.metricshub.jawk.intermediate.PositionTracker;
+import org.metricshub.jawk.util.AwkSettings;
+
+/**
+ * Verifies that tiered execution produces the same results as the
+ * interpreter, including when the speculations of the compiled script fail.
+ */
+public class TieredExecutionTest {
+
+	private static String run(String script, String input, int tierUpThreshold) throws Exception {
+		AwkSettings settings = new AwkSettings();
+		settings.setTierUpThreshold(tierUpThreshold);
+		settings.setInput(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		settings.setOutputStream(new PrintStream(out, true, StandardCharsets.UTF_8.name()));
+		try {
+			new Awk().invoke(script, settings);
+		} catch (ExitException e) {
+			return out.toString(StandardCharsets.UTF_8.name()) + "exit " + e.getCode() + "\n";
+		}
+		return out.toString(StandardCharsets.UTF_8.name());
+	}
+
+	private static void assertSameAsInterpreter(String script, String input) throws Exception {
+		String expected = run(script, input, 0);
+		for (int threshold = 1; threshold <= 4; threshold++) {
+			assertEquals("Tier-up after " + threshold + " records", expected, run(script, input, threshold));
+		}
+	}
+
+	private static String lines(int count, String line) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 1; i <= count; i++) {
+			sb.append(line.replace("#", Integer.toString(i))).append('\n');
+		}
+		return sb.toString();
+	}
+
+	@Test
+	public void operandTypesChange() throws Exception {
+		// x holds numbers first, then strings that compare as strings
+		assertSameAsInterpreter(
+				"{ x = NR > 6 ? $1 : NR; if (x < 4) n++; s = s + x } END { print n, s }",
+				lines(6, "#") + "abc\n10\n9\n");
+	}
+
+	@Test
+	public void branchNeverTakenWhileProfiling() throws Exception {
+		assertSameAsInterpreter(
+				"$1 == \"z\" { print \"z at\", NR; next } { n++ } END { print n }",
+				lines(8, "a #") + "z\n" + lines(3, "b #"));
+	}
+
+	@Test
+	public void exitAfterTierUp() throws Exception {
+		assertSameAsInterpreter(
+				"function f(v) { return v * 2 } { s += f($1) } NR == 7 { exit 2 } END { print s }",
+				lines(10, "#"));
+	}
+
+	@Test
+	public void getlineAndFunctions() throws Exception {
+		assertSameAsInterpreter(
+				"function fact(n) { return n <= 1 ? 1 : n * fact(n - 1) }\n"
+						+ "{ getline second; print fact($1), second }",
+				lines(9, "#"));
+	}
+
+	@Test
+	public void guardsSpeculatedTuples() throws Exception {
+		AwkTuples tuples = new Awk().compile("{ if (x < y) n++; x++ }");
+		PositionTracker position = tuples.top();
+		ExecutionProfile profile = new ExecutionProfile(position.size(), 1);
+		while (position.opcode() != Opcode.CMP_LT) {
+			position.next();
+		}
+		profile.operands(position.current(), true);
+
+		String plain = new String(new AwkCompiler().compile(tuples, "Plain"), StandardCharsets.ISO_8859_1);
+		assertFalse(plain.contains("hasNumberOperands"));
+		String tiered = new String(
+				new AwkCompiler().compile(tuples, "Tiered", profile),
+				StandardCharsets.ISO_8859_1);
+		assertTrue(tiered.contains("hasNumberOperands"));
+		assertTrue(tiered.contains("compareNumbers"));
+		assertTrue(tiered.contains("deoptimize"));
+	}
+}